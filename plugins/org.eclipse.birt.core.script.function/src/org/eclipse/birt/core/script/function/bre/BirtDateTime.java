@@ -185,7 +185,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( "date value is null!" );
 
-		return getCalendar( d ).get( Calendar.YEAR );
+		return BirtDateTimeUtil.year( d, getTimeZone( d ), defaultLocale );
 	}
 
 	private static class Function_Quarter extends Function_temp
@@ -225,28 +225,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 
-		int month = getCalendar( d ).get( Calendar.MONTH );
-		switch ( month )
-		{
-			case Calendar.JANUARY :
-			case Calendar.FEBRUARY :
-			case Calendar.MARCH :
-				return 1;
-			case Calendar.APRIL :
-			case Calendar.MAY :
-			case Calendar.JUNE :
-				return 2;
-			case Calendar.JULY :
-			case Calendar.AUGUST :
-			case Calendar.SEPTEMBER :
-				return 3;
-			case Calendar.OCTOBER :
-			case Calendar.NOVEMBER :
-			case Calendar.DECEMBER :
-				return 4;
-			default :
-				return -1;
-		}
+		return BirtDateTimeUtil.quarter( d, getTimeZone( d ), defaultLocale );
 	}
 
 	private static class Function_Month extends Function_temp
@@ -290,7 +269,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 
-		return getCalendar( d ).get( Calendar.MONTH ) + 1;
+		return BirtDateTimeUtil.month( d, getTimeZone( d ), defaultLocale );
 	}
 
 	/**
@@ -360,7 +339,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 
-		return getCalendar( d ).get( Calendar.WEEK_OF_YEAR );
+		return BirtDateTimeUtil.week( d, getTimeZone( d ), defaultLocale );
 	}
 
 	private static class Function_Day extends Function_temp
@@ -397,7 +376,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 
-		return getCalendar( d ).get( Calendar.DAY_OF_MONTH );
+		return BirtDateTimeUtil.day( d, getTimeZone( d ), defaultLocale );
 	}
 	
 	private static class Function_WeekDay extends Function_temp
@@ -437,7 +416,9 @@ public class BirtDateTime implements IScriptFunctionExecutor
 		if ( d == null )
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 
-		return String.valueOf(getCalendar( d ).get( Calendar.DAY_OF_WEEK ));
+		return String.valueOf( BirtDateTimeUtil.dayOfWeek( d,
+				getTimeZone( d ),
+				defaultLocale ) );
 	}
 
 	/**
@@ -620,10 +601,8 @@ public class BirtDateTime implements IScriptFunctionExecutor
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 		}
 
-		int startMonth = year( d1 ) * 12 + month( d1 );
-		int endMonth = year( d2 ) * 12 + month( d2 );
-
-		return endMonth - startMonth;
+		return BirtDateTimeUtil.monthIndex( d2, getTimeZone( d2 ), defaultLocale )
+				- BirtDateTimeUtil.monthIndex( d1, getTimeZone( d1 ), defaultLocale );
 	}
 
 	private static class Function_DiffQuarter extends Function_temp
@@ -663,10 +642,8 @@ public class BirtDateTime implements IScriptFunctionExecutor
 			throw new java.lang.IllegalArgumentException( Messages.getString( "error.BirtDateTime.cannotBeNull.DateValue" ) );
 		}
 
-		int startQuter = year( d1 ) * 4 + quarter( d1 );
-		int endQuter = year( d2 ) * 4 + quarter( d2 );
-
-		return endQuter - startQuter;
+		return BirtDateTimeUtil.quarterIndex( d2, getTimeZone( d2 ), defaultLocale )
+				- BirtDateTimeUtil.quarterIndex( d1, getTimeZone( d1 ), defaultLocale );
 	}
 
 	
@@ -751,46 +728,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 	 */
 	private static long diffDay( Date d1, Date d2 )
 	{
-		Calendar c1 = Calendar.getInstance( timeZone );
-		c1.setTime( d1 );
-		Calendar c2 = Calendar.getInstance( timeZone );
-		c2.setTime( d2 );
-		if ( c1.after( c2 ) )
-		{
-			return diffDay( c1, c2 ) * -1;
-		}
-		else
-		{
-			return diffDay( c1, c2 );
-		}
-	}
-	
-	/**
-	 * 
-	 * @param d1
-	 * @param d2
-	 * @return
-	 */
-	static private long diffDay( Calendar d1, Calendar d2 )
-	{
-		if ( d1.after( d2 ) )
-		{ // swap dates so that d1 is start and d2 is end
-			Calendar swap = d1;
-			d1 = d2;
-			d2 = swap;
-		}
-		int days = d2.get( Calendar.DAY_OF_YEAR )
-				- d1.get( Calendar.DAY_OF_YEAR );
-		int y2 = d2.get( Calendar.YEAR );
-		if ( d1.get( Calendar.YEAR ) != y2 )
-		{
-			do
-			{
-				days += d1.getActualMaximum( Calendar.DAY_OF_YEAR );
-				d1.add( Calendar.YEAR, 1 );
-			} while ( d1.get( Calendar.YEAR ) != y2 );
-		}
-		return days;
+		return BirtDateTimeUtil.diffDay( d1, d2, timeZone );
 	}
 
 	private static class Function_DiffHour extends Function_temp
@@ -989,11 +927,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 	 */
 	private static Date addYear( Date date, int num )
 	{
-		Calendar startCal = getCalendar( date );
-
-		startCal.add( Calendar.YEAR, num );
-
-		return startCal.getTime( );
+		return BirtDateTimeUtil.addYear( date, num, getTimeZone( date ), defaultLocale );
 	}
 
 	private static class Function_AddMonth extends Function_temp
@@ -1028,11 +962,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 	 */
 	private static Date addMonth( Date date, int num )
 	{
-		Calendar startCal = getCalendar( date );
-
-		startCal.add( Calendar.MONTH, num );
-
-		return startCal.getTime( );
+		return BirtDateTimeUtil.addMonth( date, num, getTimeZone( date ), defaultLocale );
 	}
 
 	private static class Function_AddQuarter extends Function_temp
@@ -1137,11 +1067,7 @@ public class BirtDateTime implements IScriptFunctionExecutor
 	 */
 	private static Date addDay( Date date, int num )
 	{
-		Calendar startCal = getCalendar( date );
-
-		startCal.add( Calendar.DATE, num );
-
-		return startCal.getTime( );
+		return BirtDateTimeUtil.addDay( date, num, getTimeZone( date ), defaultLocale );
 	}
 
 	private static class Function_AddHour extends Function_temp
@@ -1289,27 +1215,17 @@ public class BirtDateTime implements IScriptFunctionExecutor
 	 */
 	private static Calendar getCalendar( Date d )
 	{
-		Calendar c = null;
-		if( d instanceof java.sql.Date )
-		{
-			c = Calendar.getInstance( TimeZone.getDefault( ), defaultLocale );
-		}
-		else
-		{
-			c = Calendar.getInstance( timeZone, defaultLocale );
-		}
-		//Fix for ted 38388
-		c.setMinimalDaysInFirstWeek( 1 );
-		if ( d == null )
-		{
-			c.clear( );
-			c.set( 1970, 0, 1 );
-		}
-		else
-		{
-			c.setTime( d );
-		}
-		return c;
+		return BirtDateTimeUtil.getCalendar( d, getTimeZone( d ), defaultLocale );
+	}
+
+	/**
+	 * 
+	 * @param d
+	 * @return the time zone the date is calculated in
+	 */
+	private static TimeZone getTimeZone( Date d )
+	{
+		return d instanceof java.sql.Date ? TimeZone.getDefault( ) : timeZone;
 	}
 	
 	/**
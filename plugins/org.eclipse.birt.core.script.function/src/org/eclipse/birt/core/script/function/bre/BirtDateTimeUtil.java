@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.script.function.bre;
+
+import java.util.Date;
+
+import com.ibm.icu.util.Calendar;
+import com.ibm.icu.util.SimpleTimeZone;
+import com.ibm.icu.util.TimeZone;
+import com.ibm.icu.util.ULocale;
+
+/**
+ * Typed implementations of the date time functions of BirtDateTime, which can
+ * be called directly with the time zone and locale instead of going through
+ * the script function executors. The calendar used by the calculation is
+ * cached per thread and reused while the time zone and locale are unchanged,
+ * and the difference in days is calculated from the local day numbers of the
+ * two dates without any calendar.
+ */
+public final class BirtDateTimeUtil
+{
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	private static final ThreadLocal<CalendarCache> calendarCache = new ThreadLocal<CalendarCache>( ) {
+
+		protected CalendarCache initialValue( )
+		{
+			return new CalendarCache( );
+		}
+	};
+
+	private BirtDateTimeUtil( )
+	{
+	}
+
+	/**
+	 * Return the calendar of the current thread set to the given date. The
+	 * calendar is shared by the later calls of the same thread, so it should
+	 * not be kept by the caller. A null date is taken as 1970-01-01 of the time
+	 * zone.
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Calendar getCalendar( Date d, TimeZone timeZone,
+			ULocale locale )
+	{
+		Calendar c = calendarCache.get( ).getCalendar( timeZone, locale );
+		if ( d == null )
+		{
+			c.clear( );
+			c.set( 1970, 0, 1 );
+		}
+		else
+		{
+			c.setTimeInMillis( d.getTime( ) );
+		}
+		return c;
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the year of the date
+	 */
+	public static int year( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.YEAR );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the quarter (1 to 4) of the date
+	 */
+	public static int quarter( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.MONTH ) / 3 + 1;
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the month (1 to 12) of the date
+	 */
+	public static int month( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.MONTH ) + 1;
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the week of year of the date
+	 */
+	public static int week( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.WEEK_OF_YEAR );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the day of month of the date
+	 */
+	public static int day( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.DAY_OF_MONTH );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the day of week, 1 (Sunday) to 7 (Saturday), of the date
+	 */
+	public static int dayOfWeek( Date d, TimeZone timeZone, ULocale locale )
+	{
+		return getCalendar( d, timeZone, locale ).get( Calendar.DAY_OF_WEEK );
+	}
+
+	/**
+	 *
+	 * @param d1
+	 * @param d2
+	 * @param timeZone
+	 * @param locale
+	 * @return the difference in number of years
+	 */
+	public static int diffYear( Date d1, Date d2, TimeZone timeZone,
+			ULocale locale )
+	{
+		return year( d2, timeZone, locale ) - year( d1, timeZone, locale );
+	}
+
+	/**
+	 *
+	 * @param d1
+	 * @param d2
+	 * @param timeZone
+	 * @param locale
+	 * @return the difference in number of quarters
+	 */
+	public static int diffQuarter( Date d1, Date d2, TimeZone timeZone,
+			ULocale locale )
+	{
+		return quarterIndex( d2, timeZone, locale )
+				- quarterIndex( d1, timeZone, locale );
+	}
+
+	/**
+	 *
+	 * @param d1
+	 * @param d2
+	 * @param timeZone
+	 * @param locale
+	 * @return the difference in number of months
+	 */
+	public static int diffMonth( Date d1, Date d2, TimeZone timeZone,
+			ULocale locale )
+	{
+		return monthIndex( d2, timeZone, locale )
+				- monthIndex( d1, timeZone, locale );
+	}
+
+	/**
+	 * Return the difference in number of days between the local dates of d1
+	 * and d2 in the time zone.
+	 *
+	 * @param d1
+	 * @param d2
+	 * @param timeZone
+	 * @return
+	 */
+	public static long diffDay( Date d1, Date d2, TimeZone timeZone )
+	{
+		CalendarCache cache = calendarCache.get( );
+		return cache.localDay( d2.getTime( ), timeZone )
+				- cache.localDay( d1.getTime( ), timeZone );
+	}
+
+	/**
+	 * Return the number of days from 1970-01-01 to the local date of the time
+	 * in the time zone.
+	 *
+	 * @param time
+	 * @param timeZone
+	 * @return
+	 */
+	public static long localDay( long time, TimeZone timeZone )
+	{
+		return calendarCache.get( ).localDay( time, timeZone );
+	}
+
+	/**
+	 * Add the amount to the calendar field of the date.
+	 *
+	 * @param d
+	 * @param field
+	 *            the Calendar field
+	 * @param amount
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Date add( Date d, int field, int amount, TimeZone timeZone,
+			ULocale locale )
+	{
+		Calendar c = getCalendar( d, timeZone, locale );
+		c.add( field, amount );
+		return c.getTime( );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param num
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Date addYear( Date d, int num, TimeZone timeZone,
+			ULocale locale )
+	{
+		return add( d, Calendar.YEAR, num, timeZone, locale );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param num
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Date addQuarter( Date d, int num, TimeZone timeZone,
+			ULocale locale )
+	{
+		return add( d, Calendar.MONTH, num * 3, timeZone, locale );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param num
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Date addMonth( Date d, int num, TimeZone timeZone,
+			ULocale locale )
+	{
+		return add( d, Calendar.MONTH, num, timeZone, locale );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param num
+	 * @param timeZone
+	 * @param locale
+	 * @return
+	 */
+	public static Date addDay( Date d, int num, TimeZone timeZone,
+			ULocale locale )
+	{
+		return add( d, Calendar.DATE, num, timeZone, locale );
+	}
+
+	/**
+	 * Return the index of the month counted from year 0, so that the
+	 * difference in months to a fixed date can be calculated from the index
+	 * of the fixed date computed once.
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the index of the month counted from year 0
+	 */
+	public static int monthIndex( Date d, TimeZone timeZone, ULocale locale )
+	{
+		Calendar c = getCalendar( d, timeZone, locale );
+		return c.get( Calendar.YEAR ) * 12 + c.get( Calendar.MONTH );
+	}
+
+	/**
+	 *
+	 * @param d
+	 * @param timeZone
+	 * @param locale
+	 * @return the index of the quarter counted from year 0
+	 */
+	public static int quarterIndex( Date d, TimeZone timeZone, ULocale locale )
+	{
+		Calendar c = getCalendar( d, timeZone, locale );
+		return c.get( Calendar.YEAR ) * 4 + c.get( Calendar.MONTH ) / 3;
+	}
+
+	/**
+	 * The calendar and the time zone offset cached by a thread.
+	 */
+	private static class CalendarCache
+	{
+		private Calendar calendar;
+		private TimeZone calendarZone;
+		private ULocale calendarLocale;
+
+		// the offset of a time zone without daylight time and history
+		private TimeZone offsetZone;
+		private boolean fixedOffset;
+		private int offset;
+
+		/**
+		 *
+		 * @param timeZone
+		 * @param locale
+		 * @return
+		 */
+		Calendar getCalendar( TimeZone timeZone, ULocale locale )
+		{
+			if ( timeZone == null )
+				timeZone = TimeZone.getDefault( );
+			if ( locale == null )
+				locale = ULocale.getDefault( );
+			if ( calendar == null
+					|| !same( timeZone, calendarZone )
+					|| !( locale == calendarLocale || locale.equals( calendarLocale ) ) )
+			{
+				calendar = Calendar.getInstance( timeZone, locale );
+				// Fix for ted 38388
+				calendar.setMinimalDaysInFirstWeek( 1 );
+				calendarZone = timeZone;
+				calendarLocale = locale;
+			}
+			return calendar;
+		}
+
+		/**
+		 *
+		 * @param time
+		 * @param timeZone
+		 * @return
+		 */
+		long localDay( long time, TimeZone timeZone )
+		{
+			if ( timeZone == null )
+				timeZone = TimeZone.getDefault( );
+			if ( !same( timeZone, offsetZone ) )
+			{
+				offsetZone = timeZone;
+				fixedOffset = timeZone instanceof SimpleTimeZone
+						&& !timeZone.useDaylightTime( );
+				offset = timeZone.getRawOffset( );
+			}
+			long local = time
+					+ ( fixedOffset ? offset : timeZone.getOffset( time ) );
+			long day = local / MILLIS_PER_DAY;
+			return local < 0 && day * MILLIS_PER_DAY != local ? day - 1 : day;
+		}
+
+		/**
+		 *
+		 * @param zone1
+		 * @param zone2
+		 * @return
+		 */
+		private static boolean same( TimeZone zone1, TimeZone zone2 )
+		{
+			return zone1 == zone2 || ( zone2 != null && zone1.equals( zone2 ) );
+		}
+	}
+}
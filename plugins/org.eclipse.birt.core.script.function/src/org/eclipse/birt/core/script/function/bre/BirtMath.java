@@ -28,6 +28,18 @@ class BirtMath implements IScriptFunctionExecutor
 	
 	private static final String PACKAGE_ID = "org.eclipse.birt.core.script.function.bre";
 	
+	// the multiples of the digits commonly used by the round functions
+	private static final int MAX_CACHED_DIGITS = 16;
+	private static final double[] multiples = new double[MAX_CACHED_DIGITS * 2 + 1];
+	
+	static
+	{
+		for ( int i = 0; i < multiples.length; i++ )
+		{
+			multiples[i] = computeMultiple( i - MAX_CACHED_DIGITS );
+		}
+	}
+	
 	private IScriptFunctionExecutor executor;
 	BirtMath( String functionName ) throws BirtException
 	{
@@ -275,6 +287,17 @@ class BirtMath implements IScriptFunctionExecutor
 	 * @return
 	 */
 	private static double getMultiple( int dec )
+	{
+		if ( dec >= -MAX_CACHED_DIGITS && dec <= MAX_CACHED_DIGITS )
+			return multiples[dec + MAX_CACHED_DIGITS];
+		return computeMultiple( dec );
+	}
+	
+	/**
+	 * @param dec
+	 * @return
+	 */
+	private static double computeMultiple( int dec )
 	{
 		double multiple = 1;
 		if ( dec >= 0 )
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.script.function.bre;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.birt.core.script.function.i18n.Messages;
+
+/**
+ * Typed implementations of the string functions of BirtStr, which can be
+ * called directly instead of going through the script function executors. The
+ * regular expressions used by trim and search are compiled once, and the
+ * pattern of the last search is reused by the later searches of the same
+ * thread.
+ */
+public final class BirtStrUtil
+{
+	private static final Pattern BLANKS = Pattern.compile( "\\s+" );
+
+	private static final ThreadLocal<Pattern> lastSearchPattern = new ThreadLocal<Pattern>( );
+
+	private BirtStrUtil( )
+	{
+	}
+
+	/**
+	 * Returns the first n characters of the string str. If n is 0, an empty
+	 * string is returned. If n is greater than the length of str, the entire
+	 * string is returned.
+	 *
+	 * @param str
+	 * @param n
+	 * @return
+	 */
+	public static String left( String str, int n )
+	{
+		if ( n < 0 )
+			throw new IllegalArgumentException( Messages.getFormattedString( "error.BirtStr.left.invalidArgument",
+					new Object[]{
+						n
+					} ) );
+		if ( str == null )
+			return null;
+		if ( n == 0 )
+			return "";
+		if ( n >= str.length( ) )
+			return str;
+		else
+			return str.substring( 0, n );
+	}
+
+	/**
+	 * Returns the last n characters of the string str. If n is 0, an empty
+	 * string is returned. If n is greater than the length of str, the entire
+	 * string is returned.
+	 *
+	 * @param str
+	 * @param n
+	 * @return
+	 */
+	public static String right( String str, int n )
+	{
+		if ( n < 0 )
+			throw new IllegalArgumentException( Messages.getFormattedString( "error.BirtStr.right.invalidArgument",
+					new Object[]{
+						n
+					} ) );
+		if ( str == null )
+			return null;
+		if ( n == 0 )
+			return "";
+		if ( n >= str.length( ) )
+			return str;
+		else
+			return str.substring( str.length( ) - n, str.length( ) );
+	}
+
+	/**
+	 * Removes all leading and trailing blank characters (space, TAB etc.).
+	 * Also, all consecutive blank characters are consolidated into one.
+	 *
+	 * @param str
+	 * @return
+	 */
+	public static String trim( String str )
+	{
+		if ( str == null )
+			return null;
+		return BLANKS.matcher( str.trim( ) ).replaceAll( " " );
+	}
+
+	/**
+	 * Removes all leading blanks. Trailing blanks and blanks between words are
+	 * not removed.
+	 *
+	 * @param str
+	 * @return
+	 */
+	public static String trimLeft( String str )
+	{
+		if ( str == null )
+			return null;
+		int st = 0;
+		while ( st < str.length( ) && str.charAt( st ) <= ' ' )
+		{
+			st++;
+		}
+		return st > 0 ? str.substring( st ) : str;
+	}
+
+	/**
+	 * Removes all trailing blanks. Leading blanks and blanks between words are
+	 * not removed.
+	 *
+	 * @param str
+	 * @return
+	 */
+	public static String trimRight( String str )
+	{
+		if ( str == null )
+			return null;
+		int end = str.length( );
+		while ( end > 0 && str.charAt( end - 1 ) <= ' ' )
+		{
+			end--;
+		}
+		return end < str.length( ) ? str.substring( 0, end ) : str;
+	}
+
+	/**
+	 * Searches for find_text in str and returns the index of first occurrence
+	 * of pattern. Search starts at position start. All index values are
+	 * 0-based. If no matched string found, return -1. String search is case
+	 * sensitive.
+	 *
+	 * @param find_text
+	 * @param str
+	 * @param start
+	 * @return
+	 */
+	public static int indexOf( String find_text, String str, int start )
+	{
+		if ( start < 0 )
+			throw new IllegalArgumentException( Messages.getFormattedString( "error.BirtStr.indexOf.invalidArgument",
+					new Object[]{
+						start
+					} ) );
+		if ( find_text == null || str == null )
+			return -1;
+		return str.indexOf( find_text, start );
+	}
+
+	/**
+	 * Similar to indexOf function, except that: (1) string comparison is
+	 * case-insensitive (2) pattern string can contain wildcard characters: *
+	 * matches any sequence of characters (including empty); ? matches any
+	 * single character.
+	 *
+	 * @param pattern
+	 * @param str
+	 * @param start
+	 * @return
+	 */
+	public static int search( String pattern, String str, int start )
+	{
+		if ( start < 0 )
+			throw new IllegalArgumentException( Messages.getFormattedString( "error.BirtStr.indexOf.invalidArgument",
+					new Object[]{
+						start
+					} ) );
+		if ( pattern == null || str == null )
+			return -1;
+		Matcher matcher = getSearchPattern( pattern ).matcher( str.substring( start ) );
+		if ( matcher.find( ) )
+			return matcher.start( ) + start;
+		return -1;
+	}
+
+	/**
+	 * Returns the number of characters in string.
+	 *
+	 * @param str
+	 * @return
+	 */
+	public static int charLength( String str )
+	{
+		if ( str == null )
+			return 0;
+		return str.length( );
+	}
+
+	/**
+	 *
+	 * @param pattern
+	 * @return the compiled pattern of the search, reused if the pattern is the
+	 *         same as the last search of the thread
+	 */
+	private static Pattern getSearchPattern( String pattern )
+	{
+		String regex = toPatternString( pattern );
+		Pattern p = lastSearchPattern.get( );
+		if ( p == null || !p.pattern( ).equals( regex ) )
+		{
+			p = Pattern.compile( regex, Pattern.CASE_INSENSITIVE );
+			lastSearchPattern.set( p );
+		}
+		return p;
+	}
+
+	/**
+	 * Transfers the user-input string to the Pattern regular expression
+	 *
+	 * @param regex
+	 * @return
+	 */
+	private static String toPatternString( String regex )
+	{
+		StringBuffer pattern = new StringBuffer( );
+		boolean preserveFlag = false;
+		for ( int i = 0; i < regex.length( ); i++ )
+		{
+			char c = regex.charAt( i );
+			if ( c == '\\' )
+			{
+				if ( preserveFlag )
+					pattern.append( "\\E" );
+				preserveFlag = false;
+				pattern.append( c );
+				i++;
+				if ( i < regex.length( ) )
+				{
+					pattern.append( regex.charAt( i ) );
+				}
+			}
+			else if ( c == '*' )
+			{
+				if ( preserveFlag )
+					pattern.append( "\\E" );
+				preserveFlag = false;
+				pattern.append( ".*" );
+			}
+			else if ( c == '?' )
+			{
+				if ( preserveFlag )
+					pattern.append( "\\E" );
+				preserveFlag = false;
+				pattern.append( "." );
+			}
+			else
+			{
+				if ( !preserveFlag )
+				{
+					pattern.append( "\\Q" );
+					preserveFlag = true;
+				}
+				pattern.append( c );
+			}
+		}
+		if ( preserveFlag )
+		{
+			pattern.append( "\\E" );
+		}
+		return pattern.toString( );
+	}
+}
@@ -127,6 +127,19 @@ abstract public class DataEngine
 	public static String CUBECURSOR_FETCH_LIMIT_ON_COLUMN_EDGE = "org.eclipse.birt.data.engine.olap.cursor.onColumn";
 	public static String CUBECUSROR_FETCH_LIMIT_ON_ROW_EDGE = "org.eclipse.birt.data.engine.olap.cursor.onRow";
 	
+	/**
+	 * The fetch window size on column and row edge in cube cursor. The edge
+	 * positions are populated on demand, one window of positions ahead of the
+	 * visited positions at a time, rather than all at once when the cube
+	 * cursor is created. It has no effect on an edge which is broken into
+	 * pages.
+	 * 
+	 * Positive integer: the window size on edge. 
+	 * Zero or Negative number:Populate all the positions on edge at once.
+	 */
+	public static String CUBECURSOR_FETCH_WINDOW_ON_COLUMN_EDGE = "org.eclipse.birt.data.engine.olap.cursor.window.onColumn";
+	public static String CUBECURSOR_FETCH_WINDOW_ON_ROW_EDGE = "org.eclipse.birt.data.engine.olap.cursor.window.onRow";
+	
 	/**
 	 * The fetch size of the member numbers for all levels.
 	 * 
@@ -145,6 +158,97 @@ abstract public class DataEngine
 	 */
 	public static String IN_MEMORY_CUBE_SIZE = "org.eclipse.birt.data.engine.cube.inmemory.size";
 	
+	/**
+	 * The max number of compiled expression scripts shared by all queries of
+	 * the data engines. Zero or negative number disables the sharing. It is a
+	 * system property, which is read once when the scripts are first compiled,
+	 * since the scripts are shared by all data engines of the JVM. The
+	 * default value is 1000.
+	 */
+	public static String SCRIPT_CACHE_SIZE = "org.eclipse.birt.data.engine.script.cache.size";
+	
+	/**
+	 * The max number of prepared queries a data engine keeps to be reused by
+	 * later preparations of query definitions of the same structure. The
+	 * prepared queries are not kept by default. Zero or negative number
+	 * disables the cache.
+	 */
+	public static String PREPARED_QUERY_CACHE_SIZE = "org.eclipse.birt.data.engine.preparedquery.cache.size";
+	
+	/**
+	 * The number of threads which scan the fact table segments of a cube when
+	 * the aggregations of a cube query are calculated. The default value 1
+	 * scans the segments on the thread which executes the query.
+	 */
+	public static String CUBE_SCAN_THREAD_COUNT = "org.eclipse.birt.data.engine.cube.scan.threads";
+	
+	/**
+	 * The number of threads which save the fact table of a cube when the cube
+	 * is created. The dimension positions of the fact table rows are found,
+	 * and the segments are sorted and encoded, by the threads in parallel. The
+	 * default value 1 saves the fact table on the thread which creates the
+	 * cube. It is not used when a memory buffer size is set for the cube.
+	 */
+	public static String CUBE_BUILD_THREAD_COUNT = "org.eclipse.birt.data.engine.cube.build.threads";
+	
+	/**
+	 * The size of the aggregation results of cube queries which are cached to
+	 * answer the later queries on the same build of a cube. The unit is MB.
+	 * The results are not cached by default. Zero or negative number disables
+	 * the cache. The cache belongs to a data engine, and is sized by the first
+	 * query of the engine which specifies this value.
+	 */
+	public static String CUBE_RESULT_CACHE_SIZE = "org.eclipse.birt.data.engine.cube.result.cache.size";
+	
+	/**
+	 * Whether a cube created by the data engine is read through a memory
+	 * mapped view of its files, which can be shared by the threads reading
+	 * the cube. It is only used for the cubes which are queried in the same
+	 * data engine that creates them, rather than loaded from a report
+	 * document. The value is "true" or Boolean.TRUE; the cube files are read
+	 * through buffered random access files by default.
+	 */
+	public static String CUBE_MAPPED_FILE = "org.eclipse.birt.data.engine.cube.mappedfile";
+	
+	/**
+	 * The size of the decoded data set rows of a report document which are
+	 * cached to be shared by the queries viewing the document with the same
+	 * data engine. The unit is MB. The rows are not cached by default. Zero
+	 * or negative number disables the cache.
+	 */
+	public static String VIEWING_DATA_SET_CACHE_SIZE = "org.eclipse.birt.data.engine.viewing.dataset.cache.size";
+	
+	/**
+	 * Whether the joint data sets are joined with a hash table built on the
+	 * data set of fewer rows, rather than by sorting both data sets on the
+	 * join keys. The rows of a hash join are in the order of the other data
+	 * set instead of the order of the join keys. The value is "true" or
+	 * Boolean.TRUE; the data sets are sorted by default.
+	 */
+	public static String JOINT_DATA_SET_HASH_JOIN = "org.eclipse.birt.data.engine.jointdataset.hashjoin";
+	
+	/**
+	 * Whether the two data sets of a joint data set are executed at the same
+	 * time, the right one on a worker thread. It is only done when the right
+	 * data set is an ODA data set without computed columns, filters,
+	 * parameters or scripts, the data sets use different data sources, the
+	 * data source of the right data set has no scripts, and neither data set
+	 * is cached. The value is "true" or Boolean.TRUE; the
+	 * data sets are executed one after the other by default.
+	 */
+	public static String JOINT_DATA_SET_PARALLEL_EXECUTION = "org.eclipse.birt.data.engine.jointdataset.parallel";
+	
+	/**
+	 * Whether the rows of a query are handed to the report engine as they are
+	 * fetched when a report document is viewed, like they are when the report
+	 * is generated. It is only done for queries which are executed on their
+	 * data sets rather than loaded from the document, and which have no
+	 * filters, sorts, subqueries or group filters and sorts, and only single
+	 * pass aggregations. The value is "true" or Boolean.TRUE; such queries are
+	 * populated before their first row is returned by default.
+	 */
+	public static String PROGRESSIVE_VIEWING = "org.eclipse.birt.data.engine.progressive.viewing";
+	
 	/**
 	 * Creates a new instance of DataEngine, using the specified
 	 * DataEngineContext as its running environment
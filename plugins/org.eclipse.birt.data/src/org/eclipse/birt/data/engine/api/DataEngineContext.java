@@ -72,6 +72,24 @@ public class DataEngineContext
 	
 	public final static int CACHE_MODE_IN_DISK = 2;
 	
+	/**
+	 * Data engine option which saves the expression values of the queries in
+	 * the report document by column instead of by row, so a query running on
+	 * the report document only reads the bindings it uses. It is set with
+	 * setDataEngineOption( ) when the report document is generated.
+	 */
+	public final static int COLUMN_STORAGE_OPTION = 1 << 8;
+	
+	/**
+	 * Data engine option which writes the expression values and the data set
+	 * rows of the queries into the report document on background threads, and
+	 * builds the indexes of the data set columns on threads of their own, so
+	 * the thread which generates the report does not wait for the archive
+	 * writes and the index building. It is set with setDataEngineOption( )
+	 * when the report document is generated.
+	 */
+	public final static int WRITE_BEHIND_OPTION = 1 << 9;
+	
 	/** some fields */
 	private int mode;
 	
@@ -106,6 +124,12 @@ public class DataEngineContext
 	
 	public final static int EXPR_ROWLEN_STREAM = 33;
 	
+	public final static int EXPR_COLUMN_VALUE_STREAM = 34;
+	
+	public final static int EXPR_COLUMN_INDEX_STREAM = 35;
+	
+	public final static int EXPR_ZONE_MAP_STREAM = 36;
+	
 	public final static int GROUP_INFO_STREAM = 41;
 	
 	public final static int SUBQUERY_INFO_STREAM = 42;
@@ -624,6 +648,15 @@ public class DataEngineContext
 			case EXPR_ROWLEN_STREAM :
 				relativePath = "ExprRowLen"; //$NON-NLS-1$
 				break;
+			case EXPR_COLUMN_VALUE_STREAM :
+				relativePath = "ExprColumnValue"; //$NON-NLS-1$
+				break;
+			case EXPR_COLUMN_INDEX_STREAM :
+				relativePath = "ExprColumnIndex"; //$NON-NLS-1$
+				break;
+			case EXPR_ZONE_MAP_STREAM :
+				relativePath = "ExprZoneMap"; //$NON-NLS-1$
+				break;
 			case EXPR_META_STREAM :
 				relativePath = "ExprMetaInfo"; //$NON-NLS-1$
 				break;
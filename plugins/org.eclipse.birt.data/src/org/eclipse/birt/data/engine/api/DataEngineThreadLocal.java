@@ -39,6 +39,11 @@ public class DataEngineThreadLocal
 		return  closeHolder.get( );
 	}
 	
+	public void setCloseListener( CloseListenerManager manager )
+	{
+		closeHolder.set( manager );
+	}
+	
 	public void removeCloseListener( )
 	{
 		closeHolder.remove( );
@@ -21,6 +21,7 @@ public class Constants
 	public static int MAX_LIST_BUFFER_SIZE = 6000;
 	public static int FACT_TABLE_BUFFER_SIZE = 40000;
 	public static int MAX_DIMENSION_LENGTH = 1000000;
+	public static int MAX_IN_MEMORY_LEVEL_SIZE = 10000;
 	
 	public static final int FACT_TABLE_BLOCK_SIZE = 2048;
 	public static final int MAX_FACT_TABLE_BLOCK_SIZE = 8192;
@@ -37,6 +38,7 @@ public class Constants
 		LIST_BUFFER_SIZE = 2000000;
 		MAX_LIST_BUFFER_SIZE = 2000000;
 		FACT_TABLE_BUFFER_SIZE = 2000000;
+		MAX_IN_MEMORY_LEVEL_SIZE = 1000000;
 		aggressiveMemoryUsage = true;
 	}
 	
@@ -45,6 +47,7 @@ public class Constants
 		LIST_BUFFER_SIZE = 4000;
 		MAX_LIST_BUFFER_SIZE = 6000;
 		FACT_TABLE_BUFFER_SIZE = 40000;
+		MAX_IN_MEMORY_LEVEL_SIZE = 10000;
 		aggressiveMemoryUsage = false;
 	}
 	
@@ -53,6 +56,7 @@ public class Constants
 		LIST_BUFFER_SIZE = 4000;
 		MAX_LIST_BUFFER_SIZE = 6000;
 		FACT_TABLE_BUFFER_SIZE = 40000;
+		MAX_IN_MEMORY_LEVEL_SIZE = 0;
 		aggressiveMemoryUsage = false;
 	}
 }
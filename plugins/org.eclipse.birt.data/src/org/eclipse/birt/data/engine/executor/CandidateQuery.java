@@ -13,7 +13,6 @@ package org.eclipse.birt.data.engine.executor;
 
 import java.util.List;
 
-import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.QueryExecutionStrategyUtil.Strategy;
@@ -115,8 +114,8 @@ public class CandidateQuery extends BaseQuery implements ICandidateQuery
 		{
 			if ( this.session.getDataSetCacheManager( ).doesSaveToCache( ) == false )
 			{	
-				if ( ( ( session.getEngineContext( ).getMode( ) == DataEngineContext.DIRECT_PRESENTATION || session.getEngineContext( )
-						.getMode( ) == DataEngineContext.MODE_GENERATION ) )
+				if ( QueryExecutionStrategyUtil.isProgressive( session,
+						eventHandler.getAppContext( ) )
 						&& this.getQueryDefinition( ) instanceof IQueryDefinition )
 				{
 					IQueryDefinition queryDefn = (IQueryDefinition) this.getQueryDefinition( );
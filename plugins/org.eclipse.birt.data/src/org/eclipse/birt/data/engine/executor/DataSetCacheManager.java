@@ -52,16 +52,14 @@ import org.eclipse.birt.data.engine.odi.IResultClass;
 public class DataSetCacheManager
 {
 
-	// data set id and its cache count
-	private IBaseDataSourceDesign dataSourceDesign;
-	private IBaseDataSetDesign dataSetDesign;
-	private Collection parameterHints;
-	private Map appContext;
+	// the current data set, and the ones of the worker threads which
+	// execute a data set in parallel with the current one
+	private CurrentDataSet sharedDataSet;
+	private ThreadLocal<CurrentDataSet> workerCurrent;
 
 	// map manager instance
 	private CacheMapManager jvmLevelCacheMapManager;
 	private CacheMapManager dteLevelCacheMapManager;
-	private CacheMapManager cacheMapManager;
 	
 	private IEngineExecutionHints queryExecutionHints;
 	
@@ -78,6 +76,18 @@ public class DataSetCacheManager
 		this.queryExecutionHints = ((DataEngineImpl)session.getEngine( )).getExecutionHints( );
 		this.jvmLevelCacheMapManager = new CacheMapManager( true );
 		this.dteLevelCacheMapManager = new CacheMapManager( false );
+		this.sharedDataSet = new CurrentDataSet( );
+		this.workerCurrent = new ThreadLocal<CurrentDataSet>( );
+	}
+
+	/**
+	 * 
+	 * @return the current data set of the calling thread
+	 */
+	private CurrentDataSet getCurrent( )
+	{
+		CurrentDataSet result = workerCurrent.get( );
+		return result == null ? sharedDataSet : result;
 	}
 
 	/**
@@ -86,7 +96,7 @@ public class DataSetCacheManager
 	 */
 	public IBaseDataSourceDesign getCurrentDataSourceDesign( )
 	{
-		return this.dataSourceDesign;
+		return getCurrent( ).dataSourceDesign;
 	}
 	
 	/**
@@ -95,7 +105,7 @@ public class DataSetCacheManager
 	 */
 	public IBaseDataSetDesign getCurrentDataSetDesign()
 	{
-		return this.dataSetDesign;
+		return getCurrent( ).dataSetDesign;
 	}
 	
 	/**
@@ -104,8 +114,9 @@ public class DataSetCacheManager
 	 */
 	public Collection getCurrentParameterHints()
 	{
-		if ( this.parameterHints != null )
-			return this.parameterHints;
+		Collection parameterHints = getCurrent( ).parameterHints;
+		if ( parameterHints != null )
+			return parameterHints;
 		else
 			return new ArrayList();
 	}
@@ -116,7 +127,7 @@ public class DataSetCacheManager
 	 */
 	public Map getCurrentAppContext()
 	{
-		return this.appContext;
+		return getCurrent( ).appContext;
 	}
 	
 
@@ -131,10 +142,41 @@ public class DataSetCacheManager
 			IBaseDataSourceDesign dataSourceDesign,
 			IBaseDataSetDesign dataSetDesign, Collection parameterHints, Map appContext )
 	{
-		this.dataSourceDesign = dataSourceDesign;
-		this.dataSetDesign = dataSetDesign;
-		this.parameterHints = parameterHints;
-		this.appContext = appContext;
+		getCurrent( ).set( dataSourceDesign,
+				dataSetDesign,
+				parameterHints,
+				appContext );
+	}
+
+	/**
+	 * Set the current data set of the calling worker thread, which executes
+	 * the data set in parallel with the current data set of the other
+	 * threads. The current data set of the other threads is not changed by
+	 * the worker thread until <code>detachWorkerThread( )</code> is called.
+	 * 
+	 * @param dataSourceDesign
+	 * @param dataSetDesign
+	 * @param parameterHints
+	 * @param appContext
+	 */
+	public void attachWorkerThread( IBaseDataSourceDesign dataSourceDesign,
+			IBaseDataSetDesign dataSetDesign, Collection parameterHints,
+			Map appContext )
+	{
+		CurrentDataSet workerDataSet = new CurrentDataSet( );
+		workerDataSet.set( dataSourceDesign,
+				dataSetDesign,
+				parameterHints,
+				appContext );
+		workerCurrent.set( workerDataSet );
+	}
+
+	/**
+	 * Remove the current data set of the calling worker thread.
+	 */
+	public void detachWorkerThread( )
+	{
+		workerCurrent.remove( );
 	}
 
 	/**
@@ -143,15 +185,16 @@ public class DataSetCacheManager
 	 */
 	public boolean doesSaveToCache( ) throws DataException
 	{
-		DataSetCacheConfig dscc = getDataSetCacheConfig(dataSetDesign, appContext);
+		CurrentDataSet current = getCurrent( );
+		DataSetCacheConfig dscc = getDataSetCacheConfig(current.dataSetDesign, current.appContext);
 		if ( dscc == null)
 		{
 			return false;
 		}
-		switchCacheMap( dataSetDesign );
-		return cacheMapManager.doesSaveToCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
-				this.dataSetDesign,
-				this.parameterHints ),
+		switchCacheMap( current );
+		return current.cacheMapManager.doesSaveToCache( DataSourceAndDataSet.newInstance( current.dataSourceDesign,
+				current.dataSetDesign,
+				current.parameterHints ),
 				dscc);
 	}
 
@@ -161,7 +204,8 @@ public class DataSetCacheManager
 	 */
 	public boolean needsToCache( ) throws DataException
 	{
-		return needsToCache( dataSetDesign, appContext );
+		CurrentDataSet current = getCurrent( );
+		return needsToCache( current.dataSetDesign, current.appContext );
 	}
 
 	/**
@@ -186,8 +230,9 @@ public class DataSetCacheManager
 				dataSetDesign,
 				parameterHints,
 				appContext);
-		switchCacheMap( dataSetDesign );
-		return cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
+		CurrentDataSet current = getCurrent( );
+		switchCacheMap( current );
+		return current.cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( dataSourceDesign,
 				dataSetDesign,
 				parameterHints ),
 				dscc.getCacheCapability( ));
@@ -221,7 +266,9 @@ public class DataSetCacheManager
 	 */
 	public int getCacheCapability( ) throws DataException
 	{
-		DataSetCacheConfig dscc = this.getDataSetCacheConfig( dataSetDesign, appContext );
+		CurrentDataSet current = getCurrent( );
+		DataSetCacheConfig dscc = this.getDataSetCacheConfig( current.dataSetDesign,
+				current.appContext );
 		if (dscc != null)
 		{
 			return dscc.getCacheCapability( );
@@ -240,7 +287,9 @@ public class DataSetCacheManager
 	 */
 	public int getCacheCountConfig( ) throws DataException
 	{
-		DataSetCacheConfig dscc = this.getDataSetCacheConfig( dataSetDesign, appContext );
+		CurrentDataSet current = getCurrent( );
+		DataSetCacheConfig dscc = this.getDataSetCacheConfig( current.dataSetDesign,
+				current.appContext );
 		if (dscc != null)
 		{
 			return dscc.getCountConfig( );
@@ -280,10 +329,11 @@ public class DataSetCacheManager
 	 */
 	public IDataSetCacheObject getCacheObject( ) throws DataException
 	{
-		switchCacheMap( dataSetDesign );
-		return  cacheMapManager.getCacheObject( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
-				this.dataSetDesign,
-				this.parameterHints ) );
+		CurrentDataSet current = getCurrent( );
+		switchCacheMap( current );
+		return  current.cacheMapManager.getCacheObject( DataSourceAndDataSet.newInstance( current.dataSourceDesign,
+				current.dataSetDesign,
+				current.parameterHints ) );
 	}
 
 	/**
@@ -294,15 +344,16 @@ public class DataSetCacheManager
 	 */
 	public boolean doesLoadFromCache( ) throws DataException
 	{
-		DataSetCacheConfig dscc = getDataSetCacheConfig(dataSetDesign, appContext);
+		CurrentDataSet current = getCurrent( );
+		DataSetCacheConfig dscc = getDataSetCacheConfig(current.dataSetDesign, current.appContext);
 		if (dscc == null)
 		{
 			return false;
 		}
-		switchCacheMap( dataSetDesign );
-		return cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( this.dataSourceDesign,
-				this.dataSetDesign,
-				this.parameterHints ),
+		switchCacheMap( current );
+		return current.cacheMapManager.doesLoadFromCache( DataSourceAndDataSet.newInstance( current.dataSourceDesign,
+				current.dataSetDesign,
+				current.parameterHints ),
 				dscc.getCacheCapability( ));
 	}
 
@@ -312,11 +363,12 @@ public class DataSetCacheManager
 	 */
 	public void resetForTest( )
 	{
-		dataSourceDesign = null;
-		dataSetDesign = null;
-		if ( this.cacheMapManager != null )
+		CurrentDataSet current = getCurrent( );
+		current.dataSourceDesign = null;
+		current.dataSetDesign = null;
+		if ( current.cacheMapManager != null )
 		{
-			this.cacheMapManager.resetForTest( );
+			current.cacheMapManager.resetForTest( );
 		}
 	}
 
@@ -345,18 +397,48 @@ public class DataSetCacheManager
 	
 	/**
 	 * 
-	 * @param dataSetDesign
+	 * @param current
 	 * @throws DataException 
 	 */
-	private void switchCacheMap( IBaseDataSetDesign dataSetDesign ) throws DataException
+	private void switchCacheMap( CurrentDataSet current ) throws DataException
 	{
-		if( DataSetCacheUtil.getJVMDataSetCacheConfig( appContext, context, dataSetDesign ) != null )
+		if( DataSetCacheUtil.getJVMDataSetCacheConfig( current.appContext, context, current.dataSetDesign ) != null )
 		{
-			cacheMapManager = jvmLevelCacheMapManager;
+			current.cacheMapManager = jvmLevelCacheMapManager;
 		}
 		else
 		{
-			cacheMapManager = dteLevelCacheMapManager;
+			current.cacheMapManager = dteLevelCacheMapManager;
+		}
+	}
+
+	/**
+	 * The current data source and data set, and the cache map manager used
+	 * for them.
+	 */
+	private static class CurrentDataSet
+	{
+		private IBaseDataSourceDesign dataSourceDesign;
+		private IBaseDataSetDesign dataSetDesign;
+		private Collection parameterHints;
+		private Map appContext;
+		private CacheMapManager cacheMapManager;
+
+		/**
+		 * 
+		 * @param dataSourceDesign
+		 * @param dataSetDesign
+		 * @param parameterHints
+		 * @param appContext
+		 */
+		void set( IBaseDataSourceDesign dataSourceDesign,
+				IBaseDataSetDesign dataSetDesign, Collection parameterHints,
+				Map appContext )
+		{
+			this.dataSourceDesign = dataSourceDesign;
+			this.dataSetDesign = dataSetDesign;
+			this.parameterHints = parameterHints;
+			this.appContext = appContext;
 		}
 	}
 }
@@ -24,7 +24,6 @@ import java.util.Map.Entry;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.data.DataTypeUtil;
-import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IColumnDefinition;
 import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
@@ -986,8 +985,8 @@ public class DataSourceQuery extends BaseQuery implements IDataSourceQuery, IPre
 		// Initialize CachedResultSet using the ODA result set
 		if ( session.getDataSetCacheManager( ).doesSaveToCache( ) == false )
 		{
-			if ( ( ( session.getEngineContext( ).getMode( ) == DataEngineContext.DIRECT_PRESENTATION || session.getEngineContext( )
-					.getMode( ) == DataEngineContext.MODE_GENERATION ) )
+			if ( QueryExecutionStrategyUtil.isProgressive( session,
+					eventHandler.getAppContext( ) )
 					&& this.getQueryDefinition( ) instanceof IQueryDefinition )
 			{
 				IQueryDefinition queryDefn = (IQueryDefinition) this.getQueryDefinition( );
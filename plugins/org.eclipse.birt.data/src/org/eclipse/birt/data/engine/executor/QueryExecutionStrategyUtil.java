@@ -17,10 +17,12 @@ package org.eclipse.birt.data.engine.executor;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.birt.core.data.ExpressionUtil;
 import org.eclipse.birt.core.data.IColumnBinding;
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.DataEngine;
 import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
 import org.eclipse.birt.data.engine.api.IBaseExpression;
@@ -53,6 +55,34 @@ public final class QueryExecutionStrategyUtil
 		SimpleLookingFoward, SimpleNoLookingFoward, Complex
 	}
 
+	/**
+	 * Return whether the rows of a query which does not need the Complex
+	 * strategy are handed to the result iterator as they are fetched, without
+	 * populating the whole result set first. It is done when the report is
+	 * generated or presented directly, and when it is viewed from a report
+	 * document if DataEngine.PROGRESSIVE_VIEWING is set in the application
+	 * context, since the result set is not saved in these modes.
+	 * 
+	 * @param session
+	 * @param appContext
+	 * @return
+	 */
+	public static boolean isProgressive( DataEngineSession session,
+			Map appContext )
+	{
+		int mode = session.getEngineContext( ).getMode( );
+		if ( mode == DataEngineContext.DIRECT_PRESENTATION
+				|| mode == DataEngineContext.MODE_GENERATION )
+			return true;
+		if ( mode != DataEngineContext.MODE_PRESENTATION
+				|| appContext == null )
+			return false;
+		Object value = appContext.get( DataEngine.PROGRESSIVE_VIEWING );
+		if ( value instanceof Boolean )
+			return ( (Boolean) value ).booleanValue( );
+		return value != null && "true".equalsIgnoreCase( value.toString( ) );
+	}
+
 	/**
 	 * 
 	 * @param query
@@ -94,6 +94,60 @@ public class CacheUtil
 		}
 	}
 
+	/**
+	 * 
+	 * @param appContext
+	 * @return the number of threads which scan the fact table of a cube, 1 if
+	 *         it is not specified or invalid
+	 */
+	public static int getCubeScanThreadCount( Map appContext )
+	{
+		if ( appContext == null )
+			return 1;
+		Object threadCount = appContext.get( DataEngine.CUBE_SCAN_THREAD_COUNT );
+		if ( threadCount == null )
+			return 1;
+		try
+		{
+			return Math.max( 1, Integer.parseInt( threadCount.toString( )
+					.trim( ) ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			return 1;
+		}
+	}
+
+	/**
+	 * 
+	 * @param appContext
+	 * @return the size in bytes of the aggregation results of cube queries to
+	 *         be cached, -1 if it is not specified
+	 */
+	public static long getCubeResultCacheSize( Map appContext )
+	{
+		if ( appContext == null
+				|| appContext.get( DataEngine.CUBE_RESULT_CACHE_SIZE ) == null )
+			return -1;
+		//The unit is 1M.
+		return populateMemBufferSize( appContext.get( DataEngine.CUBE_RESULT_CACHE_SIZE ) ) * 1024 * 1024;
+	}
+
+	/**
+	 * 
+	 * @param appContext
+	 * @return the size in bytes of the data set rows of a report document to
+	 *         be cached when it is viewed, -1 if it is not specified
+	 */
+	public static long getViewingDataSetCacheSize( Map appContext )
+	{
+		if ( appContext == null
+				|| appContext.get( DataEngine.VIEWING_DATA_SET_CACHE_SIZE ) == null )
+			return -1;
+		//The unit is 1M.
+		return populateMemBufferSize( appContext.get( DataEngine.VIEWING_DATA_SET_CACHE_SIZE ) ) * 1024 * 1024;
+	}
+
 	/**
 	 * 
 	 * @param propValue
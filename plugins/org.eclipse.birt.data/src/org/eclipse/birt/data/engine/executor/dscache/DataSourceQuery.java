@@ -13,7 +13,6 @@ package org.eclipse.birt.data.engine.executor.dscache;
 import java.util.Collection;
 import java.util.List;
 
-import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.BaseQuery;
@@ -152,8 +151,8 @@ public class DataSourceQuery extends BaseQuery
 	 */
 	public IResultIterator execute( IEventHandler eventHandler ) throws DataException
 	{
-		if ( ( ( session.getEngineContext( ).getMode( ) == DataEngineContext.DIRECT_PRESENTATION || session.getEngineContext( )
-				.getMode( ) == DataEngineContext.MODE_GENERATION ) )
+		if ( QueryExecutionStrategyUtil.isProgressive( session,
+				eventHandler.getAppContext( ) )
 				&& this.getQueryDefinition( ) instanceof IQueryDefinition )
 		{
 			IQueryDefinition queryDefn = (IQueryDefinition) this.getQueryDefinition( );
@@ -39,6 +39,7 @@ import org.eclipse.birt.data.engine.impl.document.stream.StreamManager;
 import org.eclipse.birt.data.engine.impl.document.stream.VersionManager;
 import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
 import org.eclipse.birt.data.engine.impl.index.IIndexSerializer;
+import org.eclipse.birt.data.engine.impl.index.ParallelIndexSerializer;
 import org.eclipse.birt.data.engine.odaconsumer.ResultSet;
 import org.eclipse.birt.data.engine.odi.AggrHolderManager;
 import org.eclipse.birt.data.engine.odi.IAggrValueHolder;
@@ -330,10 +331,7 @@ public class CachedResultSet implements IResultIterator
 					{
 						stringTable.close( );
 					}
-					for( IIndexSerializer ind: index.values( ))
-					{
-						ind.close( );
-					}
+					ParallelIndexSerializer.close( index.values( ) );
 				}
 				
 				streamsWrapper.getStreamForDataSet( ).close( );
@@ -618,10 +616,7 @@ public class CachedResultSet implements IResultIterator
 					{
 						stringTable.close( );
 					}
-					for( IIndexSerializer ind: index.values( ))
-					{
-						ind.close( );
-					}
+					ParallelIndexSerializer.close( index.values( ) );
 					outputStream.close( );
 					dlStream.close( );
 				}
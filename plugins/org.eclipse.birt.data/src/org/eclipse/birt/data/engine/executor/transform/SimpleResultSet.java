@@ -52,6 +52,7 @@ import org.eclipse.birt.data.engine.impl.document.StreamWrapper;
 import org.eclipse.birt.data.engine.impl.document.stream.StreamManager;
 import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
 import org.eclipse.birt.data.engine.impl.index.IIndexSerializer;
+import org.eclipse.birt.data.engine.impl.index.ParallelIndexSerializer;
 import org.eclipse.birt.data.engine.odaconsumer.ResultSet;
 import org.eclipse.birt.data.engine.odi.IAggrInfo;
 import org.eclipse.birt.data.engine.odi.ICustomDataSet;
@@ -235,10 +236,7 @@ public class SimpleResultSet implements IResultIterator
 				if ( this.streamsWrapper.getStreamForIndex( this.getResultClass( ), handler.getAppContext( ) )!= null )
 				{
 					Map<String, IIndexSerializer> hashes = this.streamsWrapper.getStreamForIndex( this.getResultClass( ), handler.getAppContext( ) );
-					for( IIndexSerializer hash : hashes.values( ))
-					{
-						hash.close( );
-					}
+					ParallelIndexSerializer.close( hashes.values( ) );
 				}
 				Map<String, StringTable> stringTables = this.streamsWrapper.getOutputStringTable( this.getResultClass( ) );
 				for( StringTable stringTable : stringTables.values( ))
@@ -214,7 +214,18 @@ abstract class AbstractExpressionCompiler
 			expr = compileComplexExpr( context, tree, false );
 		}
 		if ( expr instanceof BytecodeExpression )
+		{
+			// the tree is transformed by the Rhino compiler, so analyze it first
+			boolean isConstant = false;
+			if ( expr instanceof ComplexExpression )
+			{
+				( (ComplexExpression) expr ).setSideEffectFree( !ExpressionOptimizer.hasSideEffect( tree ) );
+				isConstant = ExpressionOptimizer.isConstant( tree );
+			}
 			compileForBytecodeExpr( context, tree, expr );
+			if ( isConstant )
+				expr = ExpressionOptimizer.foldConstant( context, expr );
+		}
 		return expr;
 	}
 
@@ -457,10 +468,20 @@ abstract class AbstractExpressionCompiler
 			CompiledExpression expr )
 	{
 		assert ( expr instanceof BytecodeExpression );
-		CompilerEnvirons compilerEnv = getCompilerEnv( context );
-		Interpreter compiler = new Interpreter( );
-		Object compiledOb = compiler.compile( compilerEnv, tree, null, false );
-		Script script = (Script) compiler.createScriptObject( compiledOb, null );
+		// the same parse tree always compiles to the same script, so look it
+		// up in the shared cache before invoking the Rhino compiler
+		CompiledScriptCache cache = CompiledScriptCache.getInstance( );
+		String key = cache.getCapacity( ) > 0
+				? CompiledScriptCache.getKey( tree ) : null;
+		Script script = cache.get( key );
+		if ( script == null )
+		{
+			CompilerEnvirons compilerEnv = getCompilerEnv( context );
+			Interpreter compiler = new Interpreter( );
+			Object compiledOb = compiler.compile( compilerEnv, tree, null, false );
+			script = (Script) compiler.createScriptObject( compiledOb, null );
+			cache.put( key, script );
+		}
 		( (BytecodeExpression) expr ).setScript( script );
 	}
 
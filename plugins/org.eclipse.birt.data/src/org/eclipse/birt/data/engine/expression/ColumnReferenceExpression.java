@@ -21,6 +21,7 @@ import org.eclipse.birt.core.script.JavascriptEvalUtil;
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.core.script.ScriptExpression;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultClass;
 import org.eclipse.birt.data.engine.script.ScriptEvalUtil;
 import org.mozilla.javascript.Scriptable;
 
@@ -34,6 +35,8 @@ public final class ColumnReferenceExpression extends CompiledExpression
 	private int 	m_columnIndex;
 	private String rowIndicator = "row";
 	private int dataType;
+	// the field index bound for the last result class seen
+	private ColumnSlot slot;
 	protected static Logger logger = Logger.getLogger( ColumnReferenceExpression.class.getName( ) );
 	
 	ColumnReferenceExpression( String rowInd, String columnName )
@@ -81,6 +84,31 @@ public final class ColumnReferenceExpression extends CompiledExpression
 		return ( m_columnIndex != -1 );
 	}
 	
+	/**
+	 * Return the field index of the referenced column in the given result
+	 * class. The index is resolved by name only once for each result class,
+	 * later calls with the same result class just return the bound index.
+	 * 
+	 * @param resultClass
+	 * @return the 1-based field index, or a non-positive value if the column
+	 *         can not be found
+	 */
+	public int getFieldIndex( IResultClass resultClass )
+	{
+		if ( isIndexed( ) )
+			return m_columnIndex;
+		if ( resultClass == null )
+			return -1;
+		ColumnSlot current = this.slot;
+		if ( current == null || current.resultClass != resultClass )
+		{
+			current = new ColumnSlot( resultClass,
+					resultClass.getFieldIndex( m_columnName ) );
+			this.slot = current;
+		}
+		return current.index;
+	}
+	
 	public boolean equals(Object other)
 	{
 		if ( other == null || ! (other instanceof ColumnReferenceExpression))
@@ -157,4 +185,20 @@ public final class ColumnReferenceExpression extends CompiledExpression
 	{
 		return this.dataType;
 	}
+	
+	/**
+	 * Immutable pair of result class and field index, so that the slot can be
+	 * replaced atomically when the expression is shared by several threads.
+	 */
+	private static final class ColumnSlot
+	{
+		private final IResultClass resultClass;
+		private final int index;
+
+		ColumnSlot( IResultClass resultClass, int index )
+		{
+			this.resultClass = resultClass;
+			this.index = index;
+		}
+	}
 }
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.core.security.PropertySecurity;
+import org.mozilla.javascript.Node;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.ScriptOrFnNode;
+import org.mozilla.javascript.Token;
+
+/**
+ * An engine level, bounded LRU cache of the Rhino scripts produced by the
+ * expression compilers. The same expression text usually recurs in many
+ * filters, computed columns and bindings of a report, and across repeated runs
+ * of the same report design, so the compiled script of a parse tree is shared
+ * instead of being re-generated for every data set and query.
+ * <p>
+ * The cache key is a structural dump of the final (i.e. rewritten) parse tree,
+ * so two expressions only share a script when they would have been compiled to
+ * the same byte code, whatever the compiler or the row indicator in use. Parse
+ * trees which carry information outside of their node structure (function
+ * literals, regular expressions, object literals, statements with jumps) are
+ * never cached.
+ * <p>
+ * The cache is shared by all data engines of the JVM, so its capacity is not
+ * changed by the queries of one engine. It is read once from the system
+ * property DataEngine.SCRIPT_CACHE_SIZE.
+ */
+public final class CompiledScriptCache
+{
+	/**
+	 * The default max number of compiled scripts kept in the cache.
+	 */
+	public final static int DEFAULT_CAPACITY = 1000;
+
+	private static Logger logger = Logger.getLogger( CompiledScriptCache.class.getName( ) );
+
+	private static CompiledScriptCache instance = new CompiledScriptCache( parseCapacity( PropertySecurity.getSystemProperty( DataEngine.SCRIPT_CACHE_SIZE ) ) );
+
+	private int capacity;
+	private LinkedHashMap<String, Script> scripts;
+
+	/**
+	 *
+	 * @param capacity
+	 */
+	CompiledScriptCache( int capacity )
+	{
+		this.capacity = capacity;
+		this.scripts = new LinkedHashMap<String, Script>( 16, 0.75f, true ) {
+
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry( Map.Entry<String, Script> eldest )
+			{
+				return size( ) > CompiledScriptCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * 
+	 * @param value
+	 * @return the capacity of the value, or DEFAULT_CAPACITY if the value is
+	 *         not specified or not a number
+	 */
+	static int parseCapacity( String value )
+	{
+		if ( value == null )
+			return DEFAULT_CAPACITY;
+		try
+		{
+			return Math.max( 0, Integer.parseInt( value.trim( ) ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			logger.log( Level.WARNING, "Invalid script cache size", e );
+			return DEFAULT_CAPACITY;
+		}
+	}
+
+	/**
+	 * Return the cache shared by all data engines.
+	 *
+	 * @return
+	 */
+	public static CompiledScriptCache getInstance( )
+	{
+		return instance;
+	}
+
+	/**
+	 * Set the max number of compiled scripts to be kept. A non-positive value
+	 * disables the cache. It affects all the data engines, so it is not set
+	 * by the application context of a query.
+	 *
+	 * @param capacity
+	 */
+	public synchronized void setCapacity( int capacity )
+	{
+		this.capacity = capacity < 0 ? 0 : capacity;
+		// only the least recently used scripts are removed
+		Iterator<String> itr = this.scripts.keySet( ).iterator( );
+		while ( this.scripts.size( ) > this.capacity && itr.hasNext( ) )
+		{
+			itr.next( );
+			itr.remove( );
+		}
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public synchronized int getCapacity( )
+	{
+		return this.capacity;
+	}
+
+	/**
+	 *
+	 * @return the number of scripts currently cached
+	 */
+	public synchronized int size( )
+	{
+		return this.scripts.size( );
+	}
+
+	/**
+	 * Remove all the cached scripts.
+	 */
+	public synchronized void clear( )
+	{
+		this.scripts.clear( );
+	}
+
+	/**
+	 * Return the cached script of the given key, or null if not cached.
+	 *
+	 * @param key
+	 * @return
+	 */
+	synchronized Script get( String key )
+	{
+		if ( key == null )
+			return null;
+		return this.scripts.get( key );
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param script
+	 */
+	synchronized void put( String key, Script script )
+	{
+		if ( key == null || script == null || this.capacity <= 0 )
+			return;
+		this.scripts.put( key, script );
+	}
+
+	/**
+	 * Build the cache key of a parse tree, or return null if the tree cannot
+	 * be safely identified by its node structure.
+	 *
+	 * @param tree
+	 * @return
+	 */
+	static String getKey( ScriptOrFnNode tree )
+	{
+		if ( tree.getFunctionCount( ) > 0 || tree.getRegexpCount( ) > 0 )
+			return null;
+		StringBuffer key = new StringBuffer( );
+		if ( !appendNode( key, tree ) )
+			return null;
+		return key.toString( );
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param node
+	 * @return false if the node is not cacheable
+	 */
+	private static boolean appendNode( StringBuffer key, Node node )
+	{
+		int type = node.getType( );
+		key.append( type );
+		switch ( type )
+		{
+			case Token.NAME :
+			case Token.BINDNAME :
+			case Token.STRING :
+			case Token.TYPEOFNAME :
+				key.append( '"' );
+				String str = node.getString( );
+				for ( int i = 0; i < str.length( ); i++ )
+				{
+					char c = str.charAt( i );
+					if ( c == '"' || c == '\\' )
+						key.append( '\\' );
+					key.append( c );
+				}
+				key.append( '"' );
+				break;
+			case Token.NUMBER :
+				key.append( '#' ).append( Double.doubleToLongBits( node.getDouble( ) ) );
+				break;
+			default :
+				if ( !isStructural( type ) )
+					return false;
+		}
+		Node child = node.getFirstChild( );
+		if ( child != null )
+		{
+			key.append( '(' );
+			while ( child != null )
+			{
+				if ( !appendNode( key, child ) )
+					return false;
+				child = child.getNext( );
+				if ( child != null )
+					key.append( ',' );
+			}
+			key.append( ')' );
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the node type is fully described by its type and its children.
+	 *
+	 * @param type
+	 * @return
+	 */
+	private static boolean isStructural( int type )
+	{
+		switch ( type )
+		{
+			case Token.SCRIPT :
+			case Token.EXPR_RESULT :
+			case Token.EXPR_VOID :
+			case Token.NULL :
+			case Token.TRUE :
+			case Token.FALSE :
+			case Token.THIS :
+			case Token.GETPROP :
+			case Token.GETELEM :
+			case Token.SETPROP :
+			case Token.SETELEM :
+			case Token.SETNAME :
+			case Token.CALL :
+			case Token.NEW :
+			case Token.ADD :
+			case Token.SUB :
+			case Token.MUL :
+			case Token.DIV :
+			case Token.MOD :
+			case Token.NEG :
+			case Token.POS :
+			case Token.NOT :
+			case Token.BITNOT :
+			case Token.BITAND :
+			case Token.BITOR :
+			case Token.BITXOR :
+			case Token.LSH :
+			case Token.RSH :
+			case Token.URSH :
+			case Token.EQ :
+			case Token.NE :
+			case Token.SHEQ :
+			case Token.SHNE :
+			case Token.LT :
+			case Token.LE :
+			case Token.GT :
+			case Token.GE :
+			case Token.AND :
+			case Token.OR :
+			case Token.HOOK :
+			case Token.COMMA :
+			case Token.TYPEOF :
+			case Token.IN :
+			case Token.INSTANCEOF :
+				return true;
+			default :
+				return false;
+		}
+	}
+}
@@ -25,6 +25,7 @@ public final class ComplexExpression extends BytecodeExpression
     private ArrayList m_subExpressions;
     private ArrayList m_tokenList;
     private ArrayList m_constantExpressions;
+    private boolean m_sideEffectFree;
 
     ComplexExpression()
 	{
@@ -183,6 +184,29 @@ public final class ComplexExpression extends BytecodeExpression
 		return m_subExpressions;
 	}
 
+	/**
+	 * Set whether the evaluation of this expression leaves the scope
+	 * unchanged.
+	 * 
+	 * @param sideEffectFree
+	 */
+	void setSideEffectFree( boolean sideEffectFree )
+	{
+		m_sideEffectFree = sideEffectFree;
+	}
+	
+	/**
+	 * Returns whether the evaluation of this expression leaves the scope
+	 * unchanged, in which case identical expressions evaluated on the same
+	 * row can share one evaluation.
+	 * 
+	 * @return
+	 */
+	public boolean isSideEffectFree( )
+	{
+		return m_sideEffectFree;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.expression.BytecodeExpression#getGroupLevel()
@@ -188,7 +188,7 @@ public class ExprEvaluateUtil
 				{
 					try
 					{
-						return DataTypeUtil.convert( ro.getFieldValue( name ),
+						return DataTypeUtil.convert( getFieldValue( ro, colref ),
 								colref.getDataType( ) );
 					}
 					catch ( BirtException e )
@@ -683,12 +683,30 @@ public class ExprEvaluateUtil
 			if ( JSRowObject.ROW_POSITION.equals( name ) )
 				return Integer.valueOf( index );
 			else if ( roObject != null )
-				return roObject.getFieldValue( name );
+				return getFieldValue( roObject, colref );
 			else
 				return null;
 		}
 	}
 	
+	/**
+	 * Get the value of a column referenced by name through its bound field
+	 * index, falling back to the lookup by name if the index is unknown.
+	 * 
+	 * @param roObject
+	 * @param colref
+	 * @return
+	 * @throws DataException
+	 */
+	private static Object getFieldValue( IResultObject roObject,
+			ColumnReferenceExpression colref ) throws DataException
+	{
+		int fieldIndex = colref.getFieldIndex( roObject.getResultClass( ) );
+		if ( fieldIndex > 0 )
+			return roObject.getFieldValue( fieldIndex );
+		return roObject.getFieldValue( colref.getColumnName( ) );
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Node;
+import org.mozilla.javascript.ScriptOrFnNode;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Token;
+
+/**
+ * Compile time optimizations on the parse tree of an expression. Expressions
+ * made of literals and operators only are folded into a
+ * <code>ConstantExpression</code>, and expressions are checked for side
+ * effects so that the evaluation of identical expressions can be shared within
+ * a row.
+ */
+final class ExpressionOptimizer
+{
+	// the scope constant expressions are evaluated in. Constant trees do not
+	// refer to any name, so a sealed standard scope is shared by all threads.
+	private static Scriptable constantScope;
+
+	// the builtin functions whose result only depends on their arguments and
+	// which do not change any state. Any other call, as well as any
+	// constructor, is taken as a side effect.
+	private static final Set<String> PURE_FUNCTIONS = new HashSet<String>( Arrays.asList( new String[]{
+			"Math.abs",
+			"Math.acos",
+			"Math.asin",
+			"Math.atan",
+			"Math.atan2",
+			"Math.ceil",
+			"Math.cos",
+			"Math.exp",
+			"Math.floor",
+			"Math.log",
+			"Math.max",
+			"Math.min",
+			"Math.pow",
+			"Math.round",
+			"Math.sin",
+			"Math.sqrt",
+			"Math.tan",
+			"isFinite",
+			"isNaN",
+			"parseFloat",
+			"parseInt"
+	} ) );
+
+	private ExpressionOptimizer( )
+	{
+	}
+
+	/**
+	 * Fold the compiled expression of a constant parse tree into a
+	 * <code>ConstantExpression</code>. Return the original expression if its
+	 * value can not be represented as a constant.
+	 *
+	 * @param context
+	 * @param expr
+	 * @return
+	 * @see #isConstant(ScriptOrFnNode)
+	 */
+	static CompiledExpression foldConstant( Context context,
+			CompiledExpression expr )
+	{
+		if ( !( expr instanceof BytecodeExpression ) )
+			return expr;
+		try
+		{
+			Object value = expr.evaluate( null, getConstantScope( context ) );
+			if ( value == null )
+				return new ConstantExpression( );
+			if ( value instanceof String )
+				return new ConstantExpression( (String) value );
+			if ( value instanceof Boolean )
+				return new ConstantExpression( ( (Boolean) value ).booleanValue( ) );
+			if ( value instanceof Number )
+				return new ConstantExpression( ( (Number) value ).doubleValue( ) );
+		}
+		catch ( DataException e )
+		{
+			// leave the error to be reported when the expression is evaluated
+		}
+		return expr;
+	}
+
+	/**
+	 * Whether the parse tree only contains literals and operators.
+	 *
+	 * @param tree
+	 * @return
+	 */
+	static boolean isConstant( ScriptOrFnNode tree )
+	{
+		if ( tree.getFunctionCount( ) > 0 || tree.getRegexpCount( ) > 0 )
+			return false;
+		Node child = tree.getFirstChild( );
+		if ( child == null || child.getNext( ) != null )
+			return false;
+		return isConstantNode( child );
+	}
+
+	/**
+	 * Whether the evaluation of the parse tree may change the state of the
+	 * scope or give a different value each time, in which case it should not
+	 * be shared with other expressions. Calls are only taken as free of side
+	 * effect for the builtin functions in PURE_FUNCTIONS.
+	 *
+	 * @param node
+	 * @return
+	 */
+	static boolean hasSideEffect( Node node )
+	{
+		switch ( node.getType( ) )
+		{
+			case Token.FUNCTION :
+			case Token.SETNAME :
+			case Token.SETPROP :
+			case Token.SETELEM :
+			case Token.SETPROP_OP :
+			case Token.SETELEM_OP :
+			case Token.SETVAR :
+			case Token.VAR :
+			case Token.INC :
+			case Token.DEC :
+			case Token.DELPROP :
+			case Token.NEW :
+				return true;
+			case Token.CALL :
+				if ( !PURE_FUNCTIONS.contains( getFunctionName( node.getFirstChild( ) ) ) )
+					return true;
+				break;
+		}
+		for ( Node child = node.getFirstChild( ); child != null; child = child.getNext( ) )
+		{
+			if ( hasSideEffect( child ) )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the name of a called function, such as "parseInt" or
+	 * "Math.abs".
+	 *
+	 * @param target
+	 *            the first child of the call node
+	 * @return null if the target is not a global function or a function of a
+	 *         global object
+	 */
+	private static String getFunctionName( Node target )
+	{
+		if ( target == null )
+			return null;
+		if ( target.getType( ) == Token.NAME )
+			return target.getString( );
+		if ( target.getType( ) == Token.GETPROP )
+		{
+			Node object = target.getFirstChild( );
+			Node property = target.getLastChild( );
+			if ( object != null
+					&& object.getType( ) == Token.NAME
+					&& property != null
+					&& property.getType( ) == Token.STRING )
+				return object.getString( ) + "." + property.getString( );
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param node
+	 * @return
+	 */
+	private static boolean isConstantNode( Node node )
+	{
+		switch ( node.getType( ) )
+		{
+			case Token.EXPR_RESULT :
+			case Token.EXPR_VOID :
+			case Token.NUMBER :
+			case Token.STRING :
+			case Token.NULL :
+			case Token.TRUE :
+			case Token.FALSE :
+			case Token.ADD :
+			case Token.SUB :
+			case Token.MUL :
+			case Token.DIV :
+			case Token.MOD :
+			case Token.NEG :
+			case Token.POS :
+			case Token.NOT :
+			case Token.BITNOT :
+			case Token.BITAND :
+			case Token.BITOR :
+			case Token.BITXOR :
+			case Token.LSH :
+			case Token.RSH :
+			case Token.URSH :
+			case Token.EQ :
+			case Token.NE :
+			case Token.SHEQ :
+			case Token.SHNE :
+			case Token.LT :
+			case Token.LE :
+			case Token.GT :
+			case Token.GE :
+			case Token.AND :
+			case Token.OR :
+			case Token.HOOK :
+				break;
+			default :
+				return false;
+		}
+		for ( Node child = node.getFirstChild( ); child != null; child = child.getNext( ) )
+		{
+			if ( !isConstantNode( child ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param context
+	 * @return
+	 */
+	private static synchronized Scriptable getConstantScope( Context context )
+	{
+		if ( constantScope == null )
+			constantScope = context.initStandardObjects( null, true );
+		return constantScope;
+	}
+}
@@ -12,6 +12,7 @@
 package org.eclipse.birt.data.engine.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -24,7 +25,9 @@ import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.JavascriptEvalUtil;
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.expression.ComplexExpression;
 import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.ResultIterator.RDSaveHelper;
@@ -52,6 +55,11 @@ class BindingColumnsEvalUtil
 
 	private Map<String, BindingColumn> allManualBindingExprs;
 	private List allAutoBindingExprs;
+	
+	// raw values of the expressions shared by several binding columns,
+	// evaluated at most once per row
+	private Object[] sharedValues;
+	private boolean[] sharedEvaluated;
 
 	private ScriptContext cx;
 	private final static int MANUAL_BINDING = 1;
@@ -132,6 +140,50 @@ class BindingColumnsEvalUtil
 			
 			allAutoBindingExprs.add( new BindingColumn( exprName, baseExpr, false, baseExpr.getDataType( ) ) );
 		}
+		
+		initSharedExpressions( );
+	}
+	
+	/**
+	 * Assign a common slot to the manual binding columns whose expressions are
+	 * identical and free of side effect, so that the expression is evaluated
+	 * once per row for all of them.
+	 */
+	private void initSharedExpressions( )
+	{
+		Map<String, List<BindingColumn>> candidates = new HashMap<String, List<BindingColumn>>( );
+		for ( BindingColumn bindingColumn : allManualBindingExprs.values( ) )
+		{
+			if ( bindingColumn.isAggregation
+					|| !( bindingColumn.baseExpr instanceof IScriptExpression ) )
+				continue;
+			IScriptExpression scriptExpr = (IScriptExpression) bindingColumn.baseExpr;
+			if ( scriptExpr.getText( ) == null
+					|| !( scriptExpr.getHandle( ) instanceof ComplexExpression )
+					|| !( (ComplexExpression) scriptExpr.getHandle( ) ).isSideEffectFree( ) )
+				continue;
+			String groupName = String.valueOf( scriptExpr.getGroupName( ) );
+			String key = groupName.length( ) + ":" + groupName + scriptExpr.getText( );
+			List<BindingColumn> columns = candidates.get( key );
+			if ( columns == null )
+			{
+				columns = new ArrayList<BindingColumn>( );
+				candidates.put( key, columns );
+			}
+			columns.add( bindingColumn );
+		}
+		
+		int slot = 0;
+		for ( List<BindingColumn> columns : candidates.values( ) )
+		{
+			if ( columns.size( ) < 2 )
+				continue;
+			for ( BindingColumn bindingColumn : columns )
+				bindingColumn.sharedSlot = slot;
+			slot++;
+		}
+		this.sharedValues = new Object[slot];
+		this.sharedEvaluated = new boolean[slot];
 	}
 
 	/**
@@ -141,6 +193,7 @@ class BindingColumnsEvalUtil
 	 */
 	void getColumnsValue( Map valueMap, boolean includeAggregation ) throws DataException
 	{
+		Arrays.fill( this.sharedEvaluated, false );
 		Iterator itr = this.allAutoBindingExprs.iterator( );
 		while ( itr.hasNext( ) )
 		{                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                                   
@@ -158,7 +211,9 @@ class BindingColumnsEvalUtil
 				continue;
 			if( bindingColumn.isAggregation && !includeAggregation )
 				continue;
-			Object exprValue = evaluateValue( bindingColumn, MANUAL_BINDING );
+			Object exprValue = bindingColumn.sharedSlot >= 0
+					? evaluateSharedValue( bindingColumn )
+					: evaluateValue( bindingColumn, MANUAL_BINDING );
 		
 			valueMap.put( bindingColumn.columnName, exprValue );
 		}
@@ -208,9 +263,7 @@ class BindingColumnsEvalUtil
 						scope,
 						cx );
 
-			if ( exprValue != null && !( exprValue instanceof Exception ) )
-				exprValue = DataTypeUtil.convert( JavascriptEvalUtil.convertJavascriptValue( exprValue ),
-						bindingColumn.type );
+			exprValue = convertValue( exprValue, bindingColumn );
 		}
 		catch ( BirtException e )
 		{
@@ -219,6 +272,54 @@ class BindingColumnsEvalUtil
 		return exprValue;
 	}
 	
+	/**
+	 * Evaluate a binding column whose expression is shared with other binding
+	 * columns. The raw value is evaluated on the first request of the row and
+	 * then converted to the type of each binding column.
+	 * 
+	 * @param bindingColumn
+	 * @return
+	 * @throws DataException
+	 */
+	private Object evaluateSharedValue( BindingColumn bindingColumn )
+			throws DataException
+	{
+		int slot = bindingColumn.sharedSlot;
+		try
+		{
+			if ( !this.sharedEvaluated[slot] )
+			{
+				this.sharedValues[slot] = ExprEvaluateUtil.evaluateExpression( bindingColumn.baseExpr,
+						odiResult,
+						scope,
+						cx );
+				this.sharedEvaluated[slot] = true;
+			}
+			return convertValue( this.sharedValues[slot], bindingColumn );
+		}
+		catch ( BirtException e )
+		{
+			throw DataException.wrap( e );
+		}
+	}
+	
+	/**
+	 * Convert the raw value of an expression to the type of binding column.
+	 * 
+	 * @param exprValue
+	 * @param bindingColumn
+	 * @return
+	 * @throws BirtException
+	 */
+	private Object convertValue( Object exprValue, BindingColumn bindingColumn )
+			throws BirtException
+	{
+		if ( exprValue != null && !( exprValue instanceof Exception ) )
+			return DataTypeUtil.convert( JavascriptEvalUtil.convertJavascriptValue( exprValue ),
+					bindingColumn.type );
+		return exprValue;
+	}
+	
 	/**
 	 * Evaluate the specified binding column in MANUAL_BINDING mode.
 	 * 
@@ -267,6 +368,8 @@ class BindingColumnsEvalUtil
 		private IBaseExpression baseExpr;
 		private boolean isAggregation;
 		private int type;
+		// slot of the shared expression value, -1 if not shared
+		private int sharedSlot;
 		
 		private BindingColumn( String columnName, IBaseExpression baseExpr, boolean isAggregation, int type )
 		{
@@ -274,6 +377,7 @@ class BindingColumnsEvalUtil
 			this.baseExpr = baseExpr;
 			this.isAggregation = isAggregation;
 			this.type = type;
+			this.sharedSlot = -1;
 		}
 	}
 }
@@ -40,7 +40,9 @@ import org.eclipse.birt.data.engine.api.IShutdownListener;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.core.security.FileSecurity;
 import org.eclipse.birt.data.engine.executor.DataSetCacheManager;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.impl.document.QueryResults;
+import org.eclipse.birt.data.engine.impl.document.viewing.DataSetRowCache;
 import org.eclipse.birt.data.engine.olap.api.IPreparedCubeQuery;
 import org.eclipse.birt.data.engine.olap.api.query.ICubeQueryDefinition;
 import org.eclipse.birt.data.engine.olap.api.query.ISubCubeQueryDefinition;
@@ -79,6 +81,8 @@ public class DataEngineImpl extends DataEngine
 
 	private IEngineExecutionHints queryExecutionHints;
 	
+	private PreparedQueryCache preparedQueryCache = new PreparedQueryCache( 0 );
+	
 	private Map<DataSourceAndDataSetNames, ValidationContext> validationContextMap
 		= new HashMap<DataSourceAndDataSetNames, ValidationContext>();
 	
@@ -368,6 +372,41 @@ public class DataEngineImpl extends DataEngine
 		MemoryUsageSetting.setMemoryUsage( memoryUsage );
 	}
 
+	/**
+	 * 
+	 * @param appContext
+	 */
+	private void setPreparedQueryCacheSize( Map appContext )
+	{
+		if ( appContext == null
+				|| appContext.get( DataEngine.PREPARED_QUERY_CACHE_SIZE ) == null )
+			return;
+		try
+		{
+			preparedQueryCache.setCapacity( Integer.parseInt( appContext.get( DataEngine.PREPARED_QUERY_CACHE_SIZE )
+					.toString( ) ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			logger.log( Level.WARNING, "Invalid prepared query cache size", e );
+		}
+	}
+
+	/**
+	 * The decoded data set rows of the report document are only cached when
+	 * it is viewed.
+	 * 
+	 * @param appContext
+	 */
+	private void setDataSetRowCacheSize( Map appContext )
+	{
+		if ( context.getMode( ) != DataEngineContext.MODE_PRESENTATION )
+			return;
+		long cacheSize = CacheUtil.getViewingDataSetCacheSize( appContext );
+		if ( cacheSize >= 0 )
+			DataSetRowCache.getInstance( context ).setMaxMemorySize( cacheSize );
+	}
+
 	/*
 	 * If user wants to use data set cache option, this method should be called
 	 * to pass cache option information from the upper layer.
@@ -399,10 +438,28 @@ public class DataEngineImpl extends DataEngine
 					+ LogUtil.toString( querySpec ) );
 
 		setMemoryUsage(appContext);
+		setPreparedQueryCacheSize( appContext );
+		setDataSetRowCacheSize( appContext );
 		
-		IPreparedQuery result = PreparedQueryUtil.newInstance( this,
-				querySpec,
-				appContext );
+		// the key is got before the preparation, which may change querySpec
+		Object cacheKey = preparedQueryCache.getCapacity( ) > 0
+				? PreparedQueryCache.getKey( this, querySpec ) : null;
+		IPreparedQuery result = cacheKey == null ? null
+				: preparedQueryCache.get( cacheKey, this, querySpec, appContext );
+		if ( result != null )
+		{
+			logger.fine( "Reuse the prepared query of the same structure." );
+		}
+		else
+		{
+			result = PreparedQueryUtil.newInstance( this, querySpec, appContext );
+			if ( cacheKey != null && result instanceof PreparedDataSourceQuery )
+				preparedQueryCache.put( cacheKey,
+						this,
+						querySpec,
+						appContext,
+						(PreparedDataSourceQuery) result );
+		}
 		
 		logger.fine( "Finished preparing query." );
 		logger.exiting( DataEngineImpl.class.getName( ), "prepare" );
@@ -558,6 +615,10 @@ public class DataEngineImpl extends DataEngine
 		
 		releaseValidationContexts( );
 		
+		preparedQueryCache.clear( );
+		
+		DataSetRowCache.release( context );
+		
 		if ( shutdownListenerList != null )
 		{
 			for ( int i = 0; i < shutdownListenerList.size( ); i++ )
@@ -19,6 +19,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,8 +35,11 @@ import org.eclipse.birt.data.engine.api.IDataScriptEngine;
 import org.eclipse.birt.data.engine.api.IShutdownListener;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.DataSetCacheManager;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.impl.document.NamingRelation;
 import org.eclipse.birt.data.engine.impl.document.QueryResultIDUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResultSetCache;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.ParallelFactTableRowIterator;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.Scriptable;
 
@@ -64,6 +69,12 @@ public class DataEngineSession
 	
 	private Map<String, Integer> acls;
 	
+	private ThreadPoolExecutor cubeScanExecutor;
+	
+	private ExecutorService jointDataSetExecutor;
+	
+	private AggregationResultSetCache cubeResultCache;
+	
 	private static ThreadLocal<ClassLoader> classLoaderHolder = new ThreadLocal<ClassLoader>();
 	
 	private static Logger logger = Logger.getLogger( DataEngineSession.class.getName( ) );
@@ -104,6 +115,9 @@ public class DataEngineSession
 			public void dataEngineShutdown( )
 			{
 				classLoaderHolder.set( null );
+				shutdownCubeScanExecutor( );
+				shutdownJointDataSetExecutor( );
+				releaseCubeResultCache( );
 				houseKeepCancelManager( );
 				saveGeneralACL( );
 				
@@ -280,6 +294,114 @@ public class DataEngineSession
 		this.stopSign.start( );
 	}
 	
+	/**
+	 * Return the executor which scans the fact table segments of the cubes
+	 * for the queries of this session. It is created with the given number of
+	 * threads, which is raised when a later query asks for more, and shut down
+	 * with the data engine.
+	 * 
+	 * @param threadCount
+	 * @return
+	 */
+	public synchronized ExecutorService getCubeScanExecutor( int threadCount )
+	{
+		if ( cubeScanExecutor == null )
+		{
+			cubeScanExecutor = ParallelFactTableRowIterator.newExecutor( threadCount );
+		}
+		else if ( threadCount > cubeScanExecutor.getMaximumPoolSize( ) )
+		{
+			cubeScanExecutor.setMaximumPoolSize( threadCount );
+			cubeScanExecutor.setCorePoolSize( threadCount );
+		}
+		return cubeScanExecutor;
+	}
+	
+	/**
+	 * 
+	 */
+	private synchronized void shutdownCubeScanExecutor( )
+	{
+		if ( cubeScanExecutor != null )
+		{
+			cubeScanExecutor.shutdownNow( );
+			cubeScanExecutor = null;
+		}
+	}
+	
+	/**
+	 * Return the executor which executes the right data sets of the joint
+	 * data sets in parallel with their left data sets. Its threads are
+	 * reused by the queries of this session and shut down with the data
+	 * engine.
+	 * 
+	 * @return
+	 */
+	public synchronized ExecutorService getJointDataSetExecutor( )
+	{
+		if ( jointDataSetExecutor == null )
+		{
+			jointDataSetExecutor = PreparedJointDataSourceQuery.newJointDataSetExecutor( );
+		}
+		return jointDataSetExecutor;
+	}
+	
+	/**
+	 * 
+	 */
+	private synchronized void shutdownJointDataSetExecutor( )
+	{
+		if ( jointDataSetExecutor != null )
+		{
+			jointDataSetExecutor.shutdownNow( );
+			jointDataSetExecutor = null;
+		}
+	}
+	
+	/**
+	 * Return the cache of the aggregation results of the cube queries of this
+	 * session. Its size is set by the first query which specifies
+	 * DataEngine.CUBE_RESULT_CACHE_SIZE in its application context, and the
+	 * cached results are released with the data engine.
+	 * 
+	 * @param appContext
+	 * @return null if the aggregation results are not cached
+	 */
+	public synchronized AggregationResultSetCache getCubeResultCache(
+			Map appContext )
+	{
+		if ( cubeResultCache == null )
+		{
+			long size;
+			try
+			{
+				size = CacheUtil.getCubeResultCacheSize( appContext );
+			}
+			catch ( NumberFormatException e )
+			{
+				logger.log( Level.WARNING, "Invalid cube result cache size", e );
+				return null;
+			}
+			if ( size < 0 )
+				return null;
+			cubeResultCache = new AggregationResultSetCache( size );
+		}
+		return cubeResultCache.getMaxMemorySize( ) > 0 ? cubeResultCache
+				: null;
+	}
+	
+	/**
+	 * 
+	 */
+	private synchronized void releaseCubeResultCache( )
+	{
+		if ( cubeResultCache != null )
+		{
+			cubeResultCache.clear( );
+			cubeResultCache = null;
+		}
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -303,6 +425,17 @@ public class DataEngineSession
 		return classLoaderHolder.get( );
 	}
 	
+	/**
+	 * Set the class loader of a worker thread which executes a query of the
+	 * session.
+	 * 
+	 * @param classLoader
+	 */
+	static void setCurrentClassLoader( ClassLoader classLoader )
+	{
+		classLoaderHolder.set( classLoader );
+	}
+	
 	/**
 	 * @return the temp dir path used by this session, ended with File.Separator
 	 */
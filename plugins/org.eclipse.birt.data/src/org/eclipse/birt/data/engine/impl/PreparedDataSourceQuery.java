@@ -45,6 +45,11 @@ public abstract class PreparedDataSourceQuery
 	protected PreparedQuery preparedQuery;
 	protected Map appContext;
 	protected IQueryContextVisitor contextVisitor;
+	/**
+	 * The query definition whose input parameter bindings are bound by the
+	 * current execution, if it is not queryDefn.
+	 */
+	private IQueryDefinition parameterQueryDefn;
 	protected static Logger logger = Logger.getLogger( PreparedDataSourceQuery.class.getName( ) );
 	
 	/**
@@ -178,6 +183,43 @@ public abstract class PreparedDataSourceQuery
 		return this.produceQueryResults( outerResults, scope );
 	}
 	
+	/**
+	 * Execute the prepared execution plan with the input parameter bindings
+	 * of another query definition of the same structure, which is the case
+	 * when the prepared query is reused for a later query definition.
+	 * 
+	 * @param outerResults
+	 * @param scope
+	 * @param parameterQueryDefn
+	 * @return
+	 * @throws DataException
+	 */
+	IQueryResults execute( IBaseQueryResults outerResults, Scriptable scope,
+			IQueryDefinition parameterQueryDefn ) throws DataException
+	{
+		IQueryDefinition current = this.parameterQueryDefn;
+		this.parameterQueryDefn = parameterQueryDefn;
+		try
+		{
+			return this.execute( outerResults, scope );
+		}
+		finally
+		{
+			this.parameterQueryDefn = current;
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the query definition whose input parameter bindings are bound
+	 *         by the current execution
+	 */
+	private IQueryDefinition getExecutedQueryDefn( )
+	{
+		return this.parameterQueryDefn != null ? this.parameterQueryDefn
+				: this.queryDefn;
+	}
+	
 	/**
 	 * 
 	 * @param outerResults
@@ -187,9 +229,14 @@ public abstract class PreparedDataSourceQuery
 	 */
 	protected IQueryResults produceQueryResults( IBaseQueryResults outerResults, Scriptable scope ) throws DataException
 	{
+		QueryExecutor executor = newExecutor( );
+		// the parameters are resolved when the query is executed, which
+		// may be after this execution returns
+		if ( this.parameterQueryDefn != null )
+			executor.setParameterQueryDefn( this.parameterQueryDefn );
 		return preparedQuery.doPrepare( outerResults,
 				scope,
-				newExecutor( ),
+				executor,
 				this );
 	}
 	
@@ -232,7 +279,7 @@ public abstract class PreparedDataSourceQuery
 					null, this.dataEngine.getSession( ) );
 			parameterHints = new ParameterUtil( outerScope,
 					dataSet,
-					this.queryDefn,
+					this.getExecutedQueryDefn( ),
 					scope,
 					this.dataEngine.getSession( ).getEngineContext( ).getScriptContext( )).resolveDataSetParameters( true );
 		}
@@ -319,7 +366,7 @@ public abstract class PreparedDataSourceQuery
 									? null
 									: this.tabularOuterResults.getQueryScope( ),
 									this.dataSet,
-									PreparedDataSourceQuery.this.queryDefn,
+									this.getParameterQueryDefn( PreparedDataSourceQuery.this.queryDefn ),
 									this.getQueryScope( ),
 									dataEngine.getSession( ).getEngineContext( ).getScriptContext( )).resolveDataSetParameters( true ),
 							appContext );
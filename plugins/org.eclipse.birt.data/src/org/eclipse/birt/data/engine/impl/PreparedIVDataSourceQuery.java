@@ -17,19 +17,28 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.data.ExpressionUtil;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
 import org.eclipse.birt.data.engine.api.IBaseQueryResults;
+import org.eclipse.birt.data.engine.api.IBinding;
 import org.eclipse.birt.data.engine.api.IColumnDefinition;
 import org.eclipse.birt.data.engine.api.IComputedColumn;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IExpressionCollection;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.api.IResultMetaData;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.BaseQuery;
 import org.eclipse.birt.data.engine.executor.ResultClass;
@@ -48,6 +57,9 @@ import org.eclipse.birt.data.engine.impl.document.RDUtil;
 import org.eclipse.birt.data.engine.impl.document.stream.StreamManager;
 import org.eclipse.birt.data.engine.impl.document.viewing.DataSetResultSet;
 import org.eclipse.birt.data.engine.impl.document.viewing.NewInstanceHelper;
+import org.eclipse.birt.data.engine.impl.index.BTreeIndex;
+import org.eclipse.birt.data.engine.impl.index.IDataSetIndex;
+import org.eclipse.birt.data.engine.impl.index.IndexFilterEvaluator;
 import org.eclipse.birt.data.engine.odi.IDataSource;
 import org.eclipse.birt.data.engine.odi.IEventHandler;
 import org.eclipse.birt.data.engine.odi.IQuery;
@@ -265,7 +277,11 @@ class PreparedIVDataSourceQuery extends PreparedDataSourceQuery
 						.getTempDir( ),
 						getEngineContext( ),
 						new QueryResultInfo( realBasedQueryID, null, -1 ) );
-				DataSetResultSet dataSetResult = rdLoad.loadDataSetData( null, null, new HashMap() );
+				// the data set rows of the page level security are loaded again
+				// after they are updated, so they are not selected by the indexes
+				Set<Integer> prefilteredRows = PLSUtil.isPLSEnabled( queryDefn )
+						? null : getPrefilteredRows( rdLoad );
+				DataSetResultSet dataSetResult = rdLoad.loadDataSetData( prefilteredRows, null, new HashMap() );
 				StreamManager manager = new StreamManager( getEngineContext( ),
 						new QueryResultInfo( queryDefn.getQueryResultsID( ),
 								null,
@@ -353,6 +369,203 @@ class PreparedIVDataSourceQuery extends PreparedDataSourceQuery
 			}
 		}
 
+		/**
+		 * Select the data set rows by the indexes of the columns which the
+		 * filters of the query compare with numeric constants. The filters are
+		 * still evaluated on the selected rows.
+		 * 
+		 * @param rdLoad
+		 * @return the row ids of the selected rows; null if the rows can not
+		 *         be selected by the indexes
+		 * @throws DataException
+		 */
+		private Set<Integer> getPrefilteredRows( RDLoad rdLoad )
+				throws DataException
+		{
+			if ( queryDefn.getFilters( ) == null
+					|| queryDefn.getFilters( ).isEmpty( ) )
+				return null;
+			Map<String, IDataSetIndex> indexes = rdLoad.loadDataSetIndex( );
+			if ( indexes.isEmpty( ) )
+				return null;
+			try
+			{
+				IResultClass meta = rdLoad.loadResultClass( );
+				IndexFilterEvaluator evaluator = new IndexFilterEvaluator( IndexFilterEvaluator.AND );
+				Iterator it = queryDefn.getFilters( ).iterator( );
+				while ( it.hasNext( ) )
+				{
+					IFilterDefinition filter = (IFilterDefinition) it.next( );
+					if ( !( filter.getExpression( ) instanceof IConditionalExpression ) )
+						continue;
+					IConditionalExpression ce = (IConditionalExpression) filter.getExpression( );
+					String name = getIndexColumnName( ce.getExpression( ),
+							meta,
+							indexes );
+					if ( name == null )
+						continue;
+					Object key = getIndexKey( ce,
+							meta.getFieldValueClass( meta.getFieldIndex( name ) ) );
+					if ( key == null )
+						continue;
+					IDataSetIndex index = indexes.get( name );
+					switch ( ce.getOperator( ) )
+					{
+						case IConditionalExpression.OP_LT :
+						case IConditionalExpression.OP_LE :
+						case IConditionalExpression.OP_GT :
+						case IConditionalExpression.OP_GE :
+							// a null value is the lowest or the highest value
+							// of the comparison, which depends on the filter
+							IndexFilterEvaluator range = new IndexFilterEvaluator( IndexFilterEvaluator.OR );
+							range.addPredicate( index, key, ce.getOperator( ) );
+							range.addPredicate( index,
+									null,
+									IConditionalExpression.OP_EQ );
+							evaluator.addPredicate( range );
+							break;
+						default :
+							evaluator.addPredicate( index, key, ce.getOperator( ) );
+					}
+				}
+				return evaluator.isIndexed( ) ? evaluator.evaluate( ) : null;
+			}
+			finally
+			{
+				Iterator it = indexes.values( ).iterator( );
+				while ( it.hasNext( ) )
+					( (BTreeIndex) it.next( ) ).close( );
+			}
+		}
+
+		/**
+		 * 
+		 * @param expr
+		 * @param meta
+		 * @param indexes
+		 * @return the name of the Integer or Double index column which is
+		 *         referred directly by the expression, or null
+		 * @throws DataException
+		 */
+		private String getIndexColumnName( IScriptExpression expr,
+				IResultClass meta, Map<String, IDataSetIndex> indexes )
+				throws DataException
+		{
+			if ( expr == null || expr.getText( ) == null )
+				return null;
+			try
+			{
+				IBinding binding = null;
+				String name = ExpressionUtil.getColumnName( expr.getText( ) );
+				if ( name == null )
+				{
+					String bindingName = ExpressionUtil.getColumnBindingName( expr.getText( ) );
+					binding = bindingName == null
+							? null
+							: (IBinding) queryDefn.getBindings( )
+									.get( bindingName );
+					if ( binding == null
+							|| binding.getAggrFunction( ) != null
+							|| !( binding.getExpression( ) instanceof IScriptExpression ) )
+						return null;
+					name = ExpressionUtil.getColumnName( ( (IScriptExpression) binding.getExpression( ) ).getText( ) );
+				}
+				if ( name == null || !indexes.containsKey( name ) )
+					return null;
+				Class valueClass = meta.getFieldValueClass( meta.getFieldIndex( name ) );
+				int dataType;
+				if ( valueClass == Integer.class )
+					dataType = DataType.INTEGER_TYPE;
+				else if ( valueClass == Double.class )
+					dataType = DataType.DOUBLE_TYPE;
+				else
+					return null;
+				// the value of the binding is converted to its type
+				if ( binding != null
+						&& binding.getDataType( ) != DataType.ANY_TYPE
+						&& binding.getDataType( ) != DataType.UNKNOWN_TYPE
+						&& binding.getDataType( ) != dataType )
+					return null;
+				return name;
+			}
+			catch ( BirtException e )
+			{
+				return null;
+			}
+		}
+
+		/**
+		 * 
+		 * @param ce
+		 * @param keyClass
+		 * @return the key of the index which is compared by the operator of the
+		 *         filter: a list of the operands of IN and BETWEEN, or the
+		 *         only operand of the other supported operators; null if the
+		 *         operator is not supported or an operand is not a numeric
+		 *         constant of the key class
+		 */
+		private Object getIndexKey( IConditionalExpression ce, Class keyClass )
+		{
+			List operands = new ArrayList( );
+			switch ( ce.getOperator( ) )
+			{
+				case IConditionalExpression.OP_EQ :
+				case IConditionalExpression.OP_LT :
+				case IConditionalExpression.OP_LE :
+				case IConditionalExpression.OP_GT :
+				case IConditionalExpression.OP_GE :
+					operands.add( ce.getOperand1( ) );
+					break;
+				case IConditionalExpression.OP_IN :
+					if ( !( ce.getOperand1( ) instanceof IExpressionCollection ) )
+						return null;
+					operands.addAll( ( (IExpressionCollection) ce.getOperand1( ) ).getExpressions( ) );
+					break;
+				case IConditionalExpression.OP_BETWEEN :
+					operands.add( ce.getOperand1( ) );
+					operands.add( ce.getOperand2( ) );
+					break;
+				default :
+					return null;
+			}
+			List values = new ArrayList( );
+			for ( int i = 0; i < operands.size( ); i++ )
+			{
+				Double value = getNumericConstant( operands.get( i ) );
+				// an Integer key is converted from the operand
+				if ( value == null
+						|| ( keyClass == Integer.class && ( value.doubleValue( ) != Math.rint( value.doubleValue( ) ) || Math.abs( value.doubleValue( ) ) > Integer.MAX_VALUE ) ) )
+					return null;
+				values.add( value );
+			}
+			if ( ce.getOperator( ) == IConditionalExpression.OP_IN
+					|| ce.getOperator( ) == IConditionalExpression.OP_BETWEEN )
+				return values;
+			return values.get( 0 );
+		}
+
+		/**
+		 * 
+		 * @param expr
+		 * @return the value of a numeric literal, which is a Double like a
+		 *         number evaluated by the script, or null
+		 */
+		private Double getNumericConstant( Object expr )
+		{
+			if ( !( expr instanceof IScriptExpression ) )
+				return null;
+			IScriptExpression scriptExpr = (IScriptExpression) expr;
+			int dataType = scriptExpr.getDataType( );
+			if ( scriptExpr.getText( ) == null
+					|| ( dataType != DataType.ANY_TYPE
+							&& dataType != DataType.UNKNOWN_TYPE && dataType != DataType.DOUBLE_TYPE ) )
+				return null;
+			String text = scriptExpr.getText( ).trim( );
+			if ( !text.matches( "-?[0-9]+(\\.[0-9]+)?" ) ) //$NON-NLS-1$
+				return null;
+			return Double.valueOf( text );
+		}
+
 		/**
 		 * 
 		 * @param eventHandler
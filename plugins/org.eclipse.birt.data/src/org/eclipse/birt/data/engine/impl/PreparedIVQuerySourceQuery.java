@@ -32,9 +32,13 @@ import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
 import org.eclipse.birt.data.engine.api.IBaseQueryResults;
 import org.eclipse.birt.data.engine.api.IBinding;
 import org.eclipse.birt.data.engine.api.IComputedColumn;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IExpressionCollection;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.api.IResultMetaData;
+import org.eclipse.birt.data.engine.api.IScriptExpression;
 import org.eclipse.birt.data.engine.api.querydefn.Binding;
 import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
@@ -47,6 +51,8 @@ import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
 import org.eclipse.birt.data.engine.executor.ResultObject;
 import org.eclipse.birt.data.engine.executor.transform.CachedResultSet;
 import org.eclipse.birt.data.engine.impl.document.viewing.NewInstanceHelper;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMap;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMapFilter;
 import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
 import org.eclipse.birt.data.engine.odi.IDataSource;
 import org.eclipse.birt.data.engine.odi.IEventHandler;
@@ -489,10 +495,16 @@ abstract class PreparedIVQuerySourceQuery extends PreparedDataSourceQuery
 					sourceResultIterator = getSubQueryIterator( (SubqueryLocator) queryDefn.getSourceQuery( ),
 							sourceResultIterator );
 				}
+				ZoneMapFilter zoneMapFilter = null;
+				if ( sourceResultIterator instanceof org.eclipse.birt.data.engine.impl.document.ResultIterator )
+				{
+					zoneMapFilter = createZoneMapFilter( ( (org.eclipse.birt.data.engine.impl.document.ResultIterator) sourceResultIterator ).getZoneMap( ) );
+				}
 				IDataSetPopulator querySourcePopulator = new IVQuerySourcePopulator( sourceResultIterator,
 						getResultClass( ),
 						query,
-						queryDefn.getStartingRow( ) );
+						queryDefn.getStartingRow( ),
+						zoneMapFilter );
 				resultIterator = new CachedResultSet( query,
 						resultClass,
 						querySourcePopulator,
@@ -507,6 +519,135 @@ abstract class PreparedIVQuerySourceQuery extends PreparedDataSourceQuery
 
 		}
 		
+		/**
+		 * Create the filter of the zone map of the source rows from the
+		 * filters of the query which compare a source binding with numeric
+		 * constants. The rows of the blocks which can not match are not read.
+		 * 
+		 * @param zoneMap
+		 * @return null if no block can be skipped
+		 */
+		private ZoneMapFilter createZoneMapFilter( ZoneMap zoneMap )
+		{
+			if ( zoneMap == null || queryDefn.getFilters( ) == null )
+				return null;
+			ZoneMapFilter zoneMapFilter = new ZoneMapFilter( zoneMap );
+			Iterator it = queryDefn.getFilters( ).iterator( );
+			while ( it.hasNext( ) )
+			{
+				IFilterDefinition filter = (IFilterDefinition) it.next( );
+				if ( !( filter.getExpression( ) instanceof IConditionalExpression ) )
+					continue;
+				IConditionalExpression ce = (IConditionalExpression) filter.getExpression( );
+				String name = getSourceBindingName( ce.getExpression( ),
+						zoneMap );
+				Object[] operands = getNumericOperands( ce );
+				if ( name != null && operands != null )
+					zoneMapFilter.addPredicate( name,
+							ce.getOperator( ),
+							operands );
+			}
+			return zoneMapFilter.isEmpty( ) ? null : zoneMapFilter;
+		}
+
+		/**
+		 * 
+		 * @param expr
+		 * @param zoneMap
+		 * @return the name of the source binding which is referred directly
+		 *         by the expression, or null
+		 */
+		private String getSourceBindingName( IScriptExpression expr,
+				ZoneMap zoneMap )
+		{
+			if ( expr == null || expr.getText( ) == null )
+				return null;
+			try
+			{
+				String name = ExpressionUtil.getColumnName( expr.getText( ) );
+				if ( name == null )
+				{
+					String bindingName = ExpressionUtil.getColumnBindingName( expr.getText( ) );
+					IBinding binding = bindingName == null
+							? null
+							: (IBinding) queryDefn.getBindings( )
+									.get( bindingName );
+					if ( binding == null
+							|| binding.getAggrFunction( ) != null
+							|| !( binding.getExpression( ) instanceof IScriptExpression ) )
+						return null;
+					name = ExpressionUtil.getColumnName( ( (IScriptExpression) binding.getExpression( ) ).getText( ) );
+					// the value of the binding is converted to its type
+					if ( name == null
+							|| !zoneMap.contains( name )
+							|| ( binding.getDataType( ) != DataType.ANY_TYPE && binding.getDataType( ) != zoneMap.getDataType( name ) ) )
+						return null;
+				}
+				return zoneMap.contains( name ) ? name : null;
+			}
+			catch ( BirtException e )
+			{
+				return null;
+			}
+		}
+
+		/**
+		 * 
+		 * @param ce
+		 * @return the operands which are all numeric constants, or null
+		 */
+		private Object[] getNumericOperands( IConditionalExpression ce )
+		{
+			List operands = new ArrayList( );
+			switch ( ce.getOperator( ) )
+			{
+				case IConditionalExpression.OP_NULL :
+				case IConditionalExpression.OP_NOT_NULL :
+					break;
+				case IConditionalExpression.OP_IN :
+					if ( !( ce.getOperand1( ) instanceof IExpressionCollection ) )
+						return null;
+					operands.addAll( ( (IExpressionCollection) ce.getOperand1( ) ).getExpressions( ) );
+					break;
+				case IConditionalExpression.OP_BETWEEN :
+					operands.add( ce.getOperand1( ) );
+					operands.add( ce.getOperand2( ) );
+					break;
+				default :
+					operands.add( ce.getOperand1( ) );
+			}
+			Object[] values = new Object[operands.size( )];
+			for ( int i = 0; i < values.length; i++ )
+			{
+				values[i] = getNumericConstant( operands.get( i ) );
+				if ( values[i] == null )
+					return null;
+			}
+			return values;
+		}
+
+		/**
+		 * 
+		 * @param expr
+		 * @return the value of a numeric literal, which is a Double like a
+		 *         number evaluated by the script, or null
+		 */
+		private Double getNumericConstant( Object expr )
+		{
+			if ( !( expr instanceof IScriptExpression ) )
+				return null;
+			IScriptExpression scriptExpr = (IScriptExpression) expr;
+			int dataType = scriptExpr.getDataType( );
+			if ( scriptExpr.getText( ) == null
+					|| ( dataType != DataType.ANY_TYPE
+							&& dataType != DataType.UNKNOWN_TYPE && dataType != DataType.DOUBLE_TYPE ) )
+				return null;
+			String text = scriptExpr.getText( ).trim( );
+			if ( !text.matches( "-?[0-9]+(\\.[0-9]+)?" ) ) //$NON-NLS-1$
+				return null;
+			return Double.valueOf( text );
+		}
+
 		/**
 		 * 
 		 * @param subqueryLocator
@@ -542,13 +683,16 @@ abstract class PreparedIVQuerySourceQuery extends PreparedDataSourceQuery
 		private org.eclipse.birt.data.engine.api.IResultIterator apiResultIterator = null;
 		private IResultClass resultClass = null;
 		private String[] fieldNames = null;
+		private ZoneMapFilter zoneMapFilter = null;
 
 		IVQuerySourcePopulator(
 				org.eclipse.birt.data.engine.api.IResultIterator apiResultIterator,
-				IResultClass resultClass, BaseQuery query, int startingRow )
+				IResultClass resultClass, BaseQuery query, int startingRow,
+				ZoneMapFilter zoneMapFilter )
 				throws DataException
 		{
 			this.apiResultIterator = apiResultIterator;
+			this.zoneMapFilter = zoneMapFilter;
 			this.resultClass = resultClass;
 			fieldNames = resultClass.getFieldNames( );
 			if( startingRow > 0 )
@@ -571,7 +715,7 @@ abstract class PreparedIVQuerySourceQuery extends PreparedDataSourceQuery
 		{
 			try
 			{
-				if ( !apiResultIterator.next( ) )
+				if ( !this.nextCandidateRow( ) )
 				{
 					return null;
 				}
@@ -600,6 +744,32 @@ abstract class PreparedIVQuerySourceQuery extends PreparedDataSourceQuery
 			return result;
 		}
 
+		/**
+		 * Move to the next row, skipping the blocks of rows which can not
+		 * match the filters of the zone map.
+		 * 
+		 * @return
+		 * @throws BirtException
+		 */
+		private boolean nextCandidateRow( ) throws BirtException
+		{
+			if ( zoneMapFilter != null )
+			{
+				int rowIndex = apiResultIterator.getRowIndex( ) + 1;
+				int candidateRow = zoneMapFilter.nextCandidateRow( rowIndex );
+				if ( candidateRow == -1 )
+				{
+					return false;
+				}
+				if ( candidateRow > rowIndex )
+				{
+					apiResultIterator.moveTo( candidateRow );
+					return true;
+				}
+			}
+			return apiResultIterator.next( );
+		}
+
 	}
 
 	/**
@@ -16,10 +16,23 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.data.ExpressionUtil;
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.CloseListenerManager;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
 import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
 import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
 import org.eclipse.birt.data.engine.api.IBaseResultMetaData;
@@ -27,11 +40,13 @@ import org.eclipse.birt.data.engine.api.IColumnDefinition;
 import org.eclipse.birt.data.engine.api.IComputedColumn;
 import org.eclipse.birt.data.engine.api.IJoinCondition;
 import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
+import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
 import org.eclipse.birt.data.engine.api.IPreparedQuery;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.api.IResultMetaData;
 import org.eclipse.birt.data.engine.api.IScriptExpression;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.InputParameterBinding;
 import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.SortDefinition;
@@ -56,6 +71,7 @@ import org.eclipse.birt.data.engine.odi.IPreparedDSQuery;
 import org.eclipse.birt.data.engine.odi.IQuery;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 import org.eclipse.birt.data.engine.odi.IResultObjectEvent;
+import org.mozilla.javascript.Context;
 
 /**
  * This is an extension of PreparedDataSourceQuery. It is used to provide joint
@@ -68,12 +84,19 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 
 	private static final String TEMP_COLUMN_STRING = "\\Q_{$TEMP\\E.*";
 
+	// dataSetRow.NAME, dataSetRow["NAME"] or NAME
+	private static final Pattern DATA_SET_COLUMN_PATTERN = Pattern.compile( "^\\s*(?:dataSetRow\\s*(?:\\.\\s*([A-Za-z_$][\\w$]*)|\\[\\s*\"([^\"]+)\"\\s*\\])|([A-Za-z_$][\\w$]*))\\s*$" );
+
 	//
 	private IJointDataSetDesign dataSet;
 	private IDataSetPopulator populator;
 	private IResultClass resultClass;
 	private IJoinConditionMatcher matcher;
 	private int joinType;
+	private boolean isHashJoin;
+	private boolean isParallelExecution;
+	private boolean isLeftSortedBySource;
+	private boolean isRightSortedBySource;
 
 	private DataEngineImpl dataEngine;
 	private IBaseDataSetDesign dataSetDesign;
@@ -134,10 +157,32 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 		this.dataSetDesign = dataSetDesign;
 		this.appContext = appContext;
 		this.parameterBindings = queryDefn.getInputParamBindings( );
+		this.isHashJoin = isEnabled( appContext,
+				DataEngine.JOINT_DATA_SET_HASH_JOIN );
+		this.isParallelExecution = isEnabled( appContext,
+				DataEngine.JOINT_DATA_SET_PARALLEL_EXECUTION );
 		logger.exiting( PreparedJointDataSourceQuery.class.getName( ),
 				"PreparedJointDataSourceQuery" );
 	}
 
+	/**
+	 * Return whether an option of the joint data sets is set to true in the
+	 * application context.
+	 * 
+	 * @param appContext
+	 * @param key
+	 * @return
+	 */
+	private static boolean isEnabled( Map appContext, String key )
+	{
+		if ( appContext == null )
+			return false;
+		Object value = appContext.get( key );
+		if ( value instanceof Boolean )
+			return ( (Boolean) value ).booleanValue( );
+		return value != null && "true".equalsIgnoreCase( value.toString( ) );
+	}
+
 	/**
 	 * Initialize the instance. The method includes heavyweight operations
 	 * such as ResultIterator population.
@@ -463,6 +508,66 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 		query.getSorts( ).add( sort );
 	}
 
+	/**
+	 * Return whether the sort hints of a data set show that its rows are
+	 * returned in the ascending order of the join keys, so that the data set
+	 * need not be sorted on the join keys.
+	 * 
+	 * @param conditions
+	 * @param isLeftDataSet
+	 * @param dataSetDesign
+	 * @return
+	 */
+	private static boolean isSortedBySource( List conditions,
+			boolean isLeftDataSet, IBaseDataSetDesign dataSetDesign )
+	{
+		List sortHints = dataSetDesign == null ? null
+				: dataSetDesign.getSortHints( );
+		if ( sortHints == null || sortHints.size( ) < conditions.size( ) )
+			return false;
+		for ( int i = 0; i < conditions.size( ); i++ )
+		{
+			IJoinCondition condition = (IJoinCondition) conditions.get( i );
+			IScriptExpression expr = isLeftDataSet
+					? condition.getLeftExpression( )
+					: condition.getRightExpression( );
+			ISortDefinition sortHint = (ISortDefinition) sortHints.get( i );
+			String hintKey = sortHint.getColumn( );
+			if ( hintKey == null && sortHint.getExpression( ) != null )
+				hintKey = sortHint.getExpression( ).getText( );
+			String columnName = getDataSetColumnName( expr == null ? null
+					: expr.getText( ), false );
+			if ( columnName == null
+					|| !columnName.equals( getDataSetColumnName( hintKey, true ) )
+					|| sortHint.getSortDirection( ) != ISortDefinition.SORT_ASC )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param expr
+	 * @param acceptName
+	 *            whether a column name without dataSetRow is accepted
+	 * @return the name of the data set column which is referred by the
+	 *         expression; null if the expression is not a column reference
+	 */
+	private static String getDataSetColumnName( String expr,
+			boolean acceptName )
+	{
+		if ( expr == null )
+			return null;
+		Matcher matcher = DATA_SET_COLUMN_PATTERN.matcher( expr );
+		if ( !matcher.matches( ) )
+			return null;
+		if ( matcher.group( 1 ) != null )
+			return matcher.group( 1 );
+		if ( matcher.group( 2 ) != null )
+			return matcher.group( 2 );
+		return acceptName ? matcher.group( 3 ) : null;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -540,7 +645,16 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 				isLeftDataSet,
 				queryDefinition );
 
-		for ( int i = 0; i < conditions.size( ); i++ )
+		// the hash join does not need the data sets sorted on the join keys
+		boolean isSortedBySource = isSortedBySource( conditions,
+				isLeftDataSet,
+				dataEngine.getDataSetDesign( dataSetName ) );
+		if ( isLeftDataSet )
+			isLeftSortedBySource = isSortedBySource;
+		else
+			isRightSortedBySource = isSortedBySource;
+		for ( int i = 0; !isHashJoin && !isSortedBySource
+				&& i < conditions.size( ); i++ )
 		{
 			addSortToQuery( (IJoinCondition) conditions.get( i ),
 					isLeftDataSet,
@@ -629,14 +743,22 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 			try
 			{
 				DataSetCacheManager dscm = dataEngine.getSession( ).getDataSetCacheManager( );
-				dscm.setDataSourceAndDataSet( 
-						leftDataSourceDesign, leftDataSetDesgin, leftParameterHints, leftAppContext );
-				left = (ResultIterator) leftQueryResults.getResultIterator( );
-				
-				dscm.setDataSourceAndDataSet( 
-						rightDataSourceDesign, rightDataSetDesgin, rightParameterHints, rightAppContext );
-				right = (ResultIterator) rightQueryResults.getResultIterator( );
-				
+				if ( isParallelExecution && canExecuteInParallel( dscm ) )
+				{
+					ResultIterator[] iterators = getResultIteratorsInParallel( dscm );
+					left = iterators[0];
+					right = iterators[1];
+				}
+				else
+				{
+					dscm.setDataSourceAndDataSet( 
+							leftDataSourceDesign, leftDataSetDesgin, leftParameterHints, leftAppContext );
+					left = (ResultIterator) leftQueryResults.getResultIterator( );
+					
+					dscm.setDataSourceAndDataSet( 
+							rightDataSourceDesign, rightDataSetDesgin, rightParameterHints, rightAppContext );
+					right = (ResultIterator) rightQueryResults.getResultIterator( );
+				}
 			}
 			catch ( BirtException e )
 			{
@@ -648,12 +770,30 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 			JointResultMetadata jrm = getJointResultMetadata( left.getResultMetaData( ),
 					right.getResultMetaData( ) );
 			resultClass = jrm.getResultClass( );
-			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator( left.getOdiResult( ),
-					right.getOdiResult( ),
-					jrm,
-					matcher,
-					joinType, dataEngine.getSession( ),
-					dataSetDesign.getRowFetchLimit( ) );
+			if ( isHashJoin )
+				populator = JointDataSetPopulatorFactory.getHashJoinDataSetPopulator( left.getOdiResult( ),
+						right.getOdiResult( ),
+						jrm,
+						matcher,
+						joinType,
+						dataSetDesign.getRowFetchLimit( ) );
+			else if ( isLeftSortedBySource || isRightSortedBySource )
+				populator = JointDataSetPopulatorFactory.getPresortedDataSetPopulator( left.getOdiResult( ),
+						right.getOdiResult( ),
+						jrm,
+						matcher,
+						joinType,
+						isLeftSortedBySource,
+						isRightSortedBySource,
+						dataEngine.getSession( ),
+						dataSetDesign.getRowFetchLimit( ) );
+			else
+				populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator( left.getOdiResult( ),
+						right.getOdiResult( ),
+						jrm,
+						matcher,
+						joinType, dataEngine.getSession( ),
+						dataSetDesign.getRowFetchLimit( ) );
 			
 			DataSetCacheManager dscm = dataEngine.getSession( ).getDataSetCacheManager( );
 			dscm.setDataSourceAndDataSet( 
@@ -670,6 +810,209 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 						eventHandler, dataEngine.getSession( ));
 		}
 
+		/**
+		 * Return whether the right data set can be executed on a worker
+		 * thread while the left one is executed on this thread. The worker
+		 * thread must not evaluate scripts of the right data set or its data
+		 * source, which are bound to this thread, nor use the data set cache.
+		 * 
+		 * @param dscm
+		 * @return
+		 * @throws DataException
+		 */
+		private boolean canExecuteInParallel( DataSetCacheManager dscm )
+				throws DataException
+		{
+			if ( leftDataSourceDesign == null
+					|| rightDataSourceDesign == null
+					|| leftDataSourceDesign.getName( ) == null
+					|| leftDataSourceDesign.getName( )
+							.equals( rightDataSourceDesign.getName( ) ) )
+				return false;
+			if ( !( rightDataSetDesgin instanceof IOdaDataSetDesign ) )
+				return false;
+			if ( !isEmpty( rightDataSetDesgin.getComputedColumns( ) )
+					|| !isEmpty( rightDataSetDesgin.getFilters( ) )
+					|| !isEmpty( rightDataSetDesgin.getParameters( ) ) )
+				return false;
+			if ( !isEmpty( rightDataSetDesgin.getBeforeOpenScript( ) )
+					|| !isEmpty( rightDataSetDesgin.getAfterOpenScript( ) )
+					|| !isEmpty( rightDataSetDesgin.getOnFetchScript( ) )
+					|| !isEmpty( rightDataSetDesgin.getBeforeCloseScript( ) )
+					|| !isEmpty( rightDataSetDesgin.getAfterCloseScript( ) ) )
+				return false;
+			if ( !isEmpty( rightDataSourceDesign.getBeforeOpenScript( ) )
+					|| !isEmpty( rightDataSourceDesign.getAfterOpenScript( ) )
+					|| !isEmpty( rightDataSourceDesign.getBeforeCloseScript( ) )
+					|| !isEmpty( rightDataSourceDesign.getAfterCloseScript( ) ) )
+				return false;
+			return !dscm.needsToCache( leftDataSetDesgin, leftAppContext )
+					&& !dscm.needsToCache( rightDataSetDesgin, rightAppContext );
+		}
+
+		/**
+		 * 
+		 * @param list
+		 * @return
+		 */
+		private boolean isEmpty( List list )
+		{
+			return list == null || list.isEmpty( );
+		}
+
+		/**
+		 * 
+		 * @param script
+		 * @return
+		 */
+		private boolean isEmpty( String script )
+		{
+			return script == null || script.trim( ).length( ) == 0;
+		}
+
+		/**
+		 * Execute the right data set on a worker thread while the left data
+		 * set is executed on this thread, and wait for both of them. The
+		 * worker thread has its own current data set in the data set cache
+		 * manager. When one of the data sets fails, the result iterator of
+		 * the other one is closed.
+		 * 
+		 * @param dscm
+		 * @return the left and right result iterators
+		 * @throws BirtException
+		 */
+		private ResultIterator[] getResultIteratorsInParallel(
+				final DataSetCacheManager dscm ) throws BirtException
+		{
+			final String tempDir = dataEngine.getSession( ).getTempDir( );
+			final CloseListenerManager closeListener = DataEngineThreadLocal.getInstance( )
+					.getCloseListener( );
+			final ClassLoader classLoader = DataEngineSession.getCurrentClassLoader( );
+			Future rightResult = dataEngine.getSession( )
+					.getJointDataSetExecutor( )
+					.submit( new Callable( ) {
+
+						public Object call( ) throws Exception
+						{
+							DataEngineThreadLocal.getInstance( )
+									.setCloseListener( closeListener );
+							DataEngineThreadLocal.getInstance( )
+									.getPathManager( )
+									.setTempPath( tempDir );
+							DataEngineSession.setCurrentClassLoader( classLoader );
+							dscm.attachWorkerThread( rightDataSourceDesign,
+									rightDataSetDesgin,
+									rightParameterHints,
+									rightAppContext );
+							Context.enter( );
+							try
+							{
+								return rightQueryResults.getResultIterator( );
+							}
+							finally
+							{
+								Context.exit( );
+								dscm.detachWorkerThread( );
+								DataEngineSession.setCurrentClassLoader( null );
+								DataEngineThreadLocal.getInstance( )
+										.removeTempPathManger( );
+								DataEngineThreadLocal.getInstance( )
+										.removeCloseListener( );
+							}
+						}
+					} );
+
+			ResultIterator left = null;
+			ResultIterator right = null;
+			try
+			{
+				dscm.setDataSourceAndDataSet( 
+						leftDataSourceDesign, leftDataSetDesgin, leftParameterHints, leftAppContext );
+				left = (ResultIterator) leftQueryResults.getResultIterator( );
+				right = getResultIterator( rightResult );
+				return new ResultIterator[]{
+						left, right
+				};
+			}
+			finally
+			{
+				if ( right == null )
+				{
+					if ( left == null )
+						close( rightResult );
+					else
+						close( left );
+				}
+			}
+		}
+
+		/**
+		 * Wait for the result iterator of a data set whose pair failed, and
+		 * close it.
+		 * 
+		 * @param result
+		 */
+		private void close( Future result )
+		{
+			try
+			{
+				close( (ResultIterator) result.get( ) );
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread( ).interrupt( );
+			}
+			catch ( ExecutionException e )
+			{
+				logger.log( Level.FINE, e.getLocalizedMessage( ), e );
+			}
+		}
+
+		/**
+		 * Close the result iterator of a data set whose pair failed.
+		 * 
+		 * @param iterator
+		 */
+		private void close( ResultIterator iterator )
+		{
+			try
+			{
+				iterator.close( );
+			}
+			catch ( BirtException e )
+			{
+				logger.log( Level.FINE, e.getLocalizedMessage( ), e );
+			}
+		}
+
+		/**
+		 * 
+		 * @param result
+		 * @return
+		 * @throws DataException
+		 */
+		private ResultIterator getResultIterator( Future result )
+				throws DataException
+		{
+			try
+			{
+				return (ResultIterator) result.get( );
+			}
+			catch ( InterruptedException e )
+			{
+				throw new DataException( e.getLocalizedMessage( ), e );
+			}
+			catch ( ExecutionException e )
+			{
+				Throwable cause = e.getCause( );
+				if ( cause instanceof BirtException )
+				{
+					throw DataException.wrap( (BirtException) cause );
+				}
+				throw new DataException( cause.getLocalizedMessage( ), cause );
+			}
+		}
+
 		/**
 		 * @param obs
 		 * @return
@@ -709,4 +1052,39 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 			return getDataSetCacheManager().doesSaveToCache( );
 		}
 	}
+
+	/**
+	 * Create an executor of daemon threads to execute the right data sets of
+	 * the joint data sets. The threads are created when needed and reused,
+	 * so that a joint data set nested in the right data set of another one
+	 * does not wait for a free thread.
+	 * 
+	 * @return
+	 */
+	static ThreadPoolExecutor newJointDataSetExecutor( )
+	{
+		return new ThreadPoolExecutor( 0,
+				Integer.MAX_VALUE,
+				60L,
+				TimeUnit.SECONDS,
+				new SynchronousQueue<Runnable>( ),
+				new WorkerThreadFactory( ) );
+	}
+
+	/**
+	 * Creates the daemon worker threads.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory
+	{
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		public Thread newThread( Runnable r )
+		{
+			Thread thread = new Thread( r, "BIRT joint data set" );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
 }
@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
+import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
+import org.eclipse.birt.data.engine.api.IBaseQueryResults;
+import org.eclipse.birt.data.engine.api.IOdaDataSetDesign;
+import org.eclipse.birt.data.engine.api.IPreparedQuery;
+import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.DataSetDesignComparator;
+import org.eclipse.birt.data.engine.executor.DataSourceDesignComparator;
+import org.eclipse.birt.data.engine.impl.document.QueryDefnIOUtil;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * A bounded LRU cache of the prepared queries of a data engine. A prepared
+ * query can be executed any number of times, and the parameter values are
+ * bound when it is executed, so a query definition of the same structure as a
+ * previously prepared one reuses its prepared query instead of compiling the
+ * expressions and building the prepared query again.
+ * <p>
+ * The key of a query is its structure saved by QueryDefnIOUtil before the
+ * preparation, together with its name and whether it is a temporary query,
+ * since the results of a query are saved under its name. A cached query is only reused if the design of its data set
+ * and data source and the application context are still equal to the ones it
+ * was prepared with. Only the queries on ODA and scripted data sets which are
+ * neither nested nor based on other queries or query results are cached.
+ * <p>
+ * A reused prepared query is returned in a wrapper which reports the later
+ * query definition and binds its input parameter bindings when it is
+ * executed.
+ */
+final class PreparedQueryCache
+{
+	private static Logger logger = Logger.getLogger( PreparedQueryCache.class.getName( ) );
+
+	private int capacity;
+	private LinkedHashMap<QueryKey, CacheEntry> queries;
+
+	/**
+	 *
+	 * @param capacity
+	 */
+	PreparedQueryCache( int capacity )
+	{
+		this.capacity = capacity;
+		this.queries = new LinkedHashMap<QueryKey, CacheEntry>( 16, 0.75f, true ) {
+
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(
+					Map.Entry<QueryKey, CacheEntry> eldest )
+			{
+				return size( ) > PreparedQueryCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Set the max number of prepared queries kept in the cache. Zero or
+	 * negative number disables the cache.
+	 *
+	 * @param capacity
+	 */
+	synchronized void setCapacity( int capacity )
+	{
+		this.capacity = capacity;
+		if ( capacity <= 0 )
+		{
+			queries.clear( );
+			return;
+		}
+		while ( queries.size( ) > capacity )
+		{
+			queries.remove( queries.keySet( ).iterator( ).next( ) );
+		}
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	synchronized int getCapacity( )
+	{
+		return capacity;
+	}
+
+	/**
+	 *
+	 * @return the number of prepared queries in the cache
+	 */
+	synchronized int size( )
+	{
+		return queries.size( );
+	}
+
+	/**
+	 * Remove all the prepared queries.
+	 */
+	synchronized void clear( )
+	{
+		queries.clear( );
+	}
+
+	/**
+	 * Return the key of the query definition, or null if the query can not be
+	 * cached. The key must be got before the query is prepared, since the
+	 * preparation may change the query definition.
+	 *
+	 * @param dataEngine
+	 * @param queryDefn
+	 * @return
+	 */
+	static Object getKey( DataEngineImpl dataEngine, IQueryDefinition queryDefn )
+	{
+		if ( queryDefn.getClass( ) != QueryDefinition.class
+				|| queryDefn.getDataSetName( ) == null
+				|| queryDefn.getSourceQuery( ) != null
+				|| queryDefn.getQueryResultsID( ) != null
+				|| queryDefn.getParentQuery( ) != null
+				|| queryDefn.getDistinctValue( ) )
+			return null;
+		IBaseDataSetDesign dataSetDesign = dataEngine.getDataSetDesign( queryDefn.getDataSetName( ) );
+		if ( dataSetDesign instanceof IIncreCacheDataSetDesign
+				|| !( dataSetDesign instanceof IScriptDataSetDesign || dataSetDesign instanceof IOdaDataSetDesign ) )
+			return null;
+		try
+		{
+			return new QueryKey( queryDefn.getName( ),
+					( (QueryDefinition) queryDefn ).isTempQuery( ),
+					QueryDefnIOUtil.getQueryDefnStructure( queryDefn ) );
+		}
+		catch ( DataException e )
+		{
+			logger.log( Level.FINE, "The query can not be cached", e );
+			return null;
+		}
+	}
+
+	/**
+	 * Return the prepared query of the key for the query definition, or null
+	 * if there is no such query or it can not be reused with the current data
+	 * set design and application context.
+	 *
+	 * @param key
+	 * @param dataEngine
+	 * @param queryDefn
+	 * @param appContext
+	 * @return
+	 */
+	synchronized IPreparedQuery get( Object key, DataEngineImpl dataEngine,
+			IQueryDefinition queryDefn, Map appContext )
+	{
+		CacheEntry entry = queries.get( key );
+		if ( entry == null )
+			return null;
+		if ( !entry.isValid( dataEngine, queryDefn, appContext ) )
+		{
+			queries.remove( key );
+			return null;
+		}
+		return new ReusedPreparedQuery( entry.preparedQuery, queryDefn );
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param dataEngine
+	 * @param queryDefn
+	 * @param appContext
+	 * @param preparedQuery
+	 */
+	synchronized void put( Object key, DataEngineImpl dataEngine,
+			IQueryDefinition queryDefn, Map appContext,
+			PreparedDataSourceQuery preparedQuery )
+	{
+		if ( capacity <= 0 )
+			return;
+		IBaseDataSetDesign dataSetDesign = dataEngine.getDataSetDesign( queryDefn.getDataSetName( ) );
+		queries.put( (QueryKey) key,
+				new CacheEntry( dataSetDesign,
+						dataEngine.getDataSourceDesign( dataSetDesign.getDataSourceName( ) ),
+						appContext == null ? null : new HashMap( appContext ),
+						preparedQuery ) );
+	}
+
+	/**
+	 * The name, the temporary flag and the saved structure of a query
+	 * definition.
+	 */
+	private static class QueryKey
+	{
+		private String name;
+		private boolean isTempQuery;
+		private byte[] structure;
+		private int hashCode;
+
+		QueryKey( String name, boolean isTempQuery, byte[] structure )
+		{
+			this.name = name;
+			this.isTempQuery = isTempQuery;
+			this.structure = structure;
+			this.hashCode = Arrays.hashCode( structure ) * 31
+					+ ( name == null ? 0 : name.hashCode( ) )
+					+ ( isTempQuery ? 1 : 0 );
+		}
+
+		/*
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		/*
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals( Object obj )
+		{
+			if ( this == obj )
+				return true;
+			if ( !( obj instanceof QueryKey ) )
+				return false;
+			QueryKey other = (QueryKey) obj;
+			return hashCode == other.hashCode
+					&& isTempQuery == other.isTempQuery
+					&& ( name == null ? other.name == null
+							: name.equals( other.name ) )
+					&& Arrays.equals( structure, other.structure );
+		}
+	}
+
+	/**
+	 * A prepared query and what it was prepared with.
+	 */
+	private static class CacheEntry
+	{
+		private IBaseDataSetDesign dataSetDesign;
+		private IBaseDataSourceDesign dataSourceDesign;
+		private Map appContext;
+		private PreparedDataSourceQuery preparedQuery;
+
+		CacheEntry( IBaseDataSetDesign dataSetDesign,
+				IBaseDataSourceDesign dataSourceDesign, Map appContext,
+				PreparedDataSourceQuery preparedQuery )
+		{
+			this.dataSetDesign = dataSetDesign;
+			this.dataSourceDesign = dataSourceDesign;
+			this.appContext = appContext;
+			this.preparedQuery = preparedQuery;
+		}
+
+		/**
+		 *
+		 * @param dataEngine
+		 * @param queryDefn
+		 * @param appContext
+		 * @return
+		 */
+		boolean isValid( DataEngineImpl dataEngine,
+				IQueryDefinition queryDefn, Map appContext )
+		{
+			IBaseDataSetDesign currentDataSet = dataEngine.getDataSetDesign( queryDefn.getDataSetName( ) );
+			if ( currentDataSet != dataSetDesign
+					&& !DataSetDesignComparator.isEqualDataSetDesign( dataSetDesign,
+							currentDataSet ) )
+				return false;
+			IBaseDataSourceDesign currentDataSource = dataEngine.getDataSourceDesign( currentDataSet.getDataSourceName( ) );
+			if ( currentDataSource != dataSourceDesign
+					&& !DataSourceDesignComparator.isEqualDataSourceDesign( dataSourceDesign,
+							currentDataSource ) )
+				return false;
+			if ( this.appContext == null || appContext == null )
+				return this.appContext == appContext;
+			return this.appContext.equals( appContext );
+		}
+	}
+
+	/**
+	 * A cached prepared query reused for a later query definition of the same
+	 * structure.
+	 */
+	static final class ReusedPreparedQuery implements IPreparedQuery
+	{
+		private PreparedDataSourceQuery preparedQuery;
+		private IQueryDefinition queryDefn;
+
+		ReusedPreparedQuery( PreparedDataSourceQuery preparedQuery,
+				IQueryDefinition queryDefn )
+		{
+			this.preparedQuery = preparedQuery;
+			this.queryDefn = queryDefn;
+		}
+
+		/**
+		 *
+		 * @return the cached prepared query
+		 */
+		PreparedDataSourceQuery getPreparedQuery( )
+		{
+			return preparedQuery;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#getReportQueryDefn()
+		 */
+		public IQueryDefinition getReportQueryDefn( )
+		{
+			return queryDefn;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#getParameterMetaData()
+		 */
+		public Collection getParameterMetaData( ) throws BirtException
+		{
+			return preparedQuery.getParameterMetaData( );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#execute(org.mozilla.javascript.Scriptable)
+		 */
+		public IQueryResults execute( Scriptable queryScope )
+				throws BirtException
+		{
+			return this.execute( (IBaseQueryResults) null, queryScope );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#execute(org.eclipse.birt.data.engine.api.IQueryResults, org.mozilla.javascript.Scriptable)
+		 */
+		public IQueryResults execute( IQueryResults outerResults,
+				Scriptable queryScope ) throws BirtException
+		{
+			return this.execute( (IBaseQueryResults) outerResults, queryScope );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.api.IPreparedQuery#execute(org.eclipse.birt.data.engine.api.IBaseQueryResults, org.mozilla.javascript.Scriptable)
+		 */
+		public IQueryResults execute( IBaseQueryResults outerResults,
+				Scriptable scope ) throws DataException
+		{
+			return preparedQuery.execute( outerResults, scope, queryDefn );
+		}
+	}
+}
@@ -78,6 +78,12 @@ public abstract class QueryExecutor implements IQueryExecutor
 {
 
 	private IBaseQueryDefinition baseQueryDefn;
+	/**
+	 * The query definition whose input parameter bindings are resolved, if it
+	 * is not the prepared one. It is a later query definition of the same
+	 * structure when a cached prepared query is executed.
+	 */
+	private IQueryDefinition parameterQueryDefn;
 	private AggregateTable aggrTable;
 	
 	// from PreparedQuery->PreparedDataSourceQuery->DataEngineImpl
@@ -141,6 +147,30 @@ public abstract class QueryExecutor implements IQueryExecutor
 	{
 		return this.contextVisitor;
 	}
+	
+	/**
+	 * Set the query definition whose input parameter bindings are resolved
+	 * instead of the ones of the prepared query definition.
+	 * 
+	 * @param parameterQueryDefn
+	 */
+	void setParameterQueryDefn( IQueryDefinition parameterQueryDefn )
+	{
+		this.parameterQueryDefn = parameterQueryDefn;
+	}
+	
+	/**
+	 * 
+	 * @param queryDefn
+	 *            the prepared query definition
+	 * @return the query definition whose input parameter bindings are
+	 *         resolved
+	 */
+	protected IQueryDefinition getParameterQueryDefn( IQueryDefinition queryDefn )
+	{
+		return this.parameterQueryDefn != null ? this.parameterQueryDefn
+				: queryDefn;
+	}
 	/**
 	 * Provide the actual DataSourceRuntime used for the query.
 	 * 
@@ -369,7 +399,7 @@ public abstract class QueryExecutor implements IQueryExecutor
 						? null
 						: this.tabularOuterResults.getQueryScope( ),
 						this.dataSet,
-						( IQueryDefinition )this.baseQueryDefn,
+						this.getParameterQueryDefn( (IQueryDefinition) this.baseQueryDefn ),
 						this.getQueryScope( ),
 						session.getEngineContext( ).getScriptContext( )).resolveDataSetParameters( true ),
 				this.queryAppContext );
@@ -1725,7 +1755,7 @@ public abstract class QueryExecutor implements IQueryExecutor
 	{
 		return new ParameterUtil( this.tabularOuterResults == null ? null:this.tabularOuterResults.getQueryScope( ),
 				this.getDataSet( ),
-				(IQueryDefinition) this.baseQueryDefn,
+				this.getParameterQueryDefn( (IQueryDefinition) this.baseQueryDefn ),
 				this.getQueryScope( ),
 				session.getEngineContext( ).getScriptContext( )).resolveDataSetParameters( evaluateValue );
 	}
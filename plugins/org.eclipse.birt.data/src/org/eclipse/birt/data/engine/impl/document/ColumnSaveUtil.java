@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+
+/**
+ * Save util class of the column storage of expression values. Instead of one
+ * record per row, the values of CHUNK_SIZE rows are kept per binding, and the
+ * chunk of every binding is written as one typed block into the value
+ * stream. The index stream, which is written when the save is finished, has
+ * the binding names and types followed by the offset of every block, so a
+ * reader can load the bindings it is asked for without deserializing the
+ * whole row.
+ *
+ * The format of the index stream is <rowCount, chunkSize, exprCount,
+ * [expression name, type]*, dataSetColumnCount, [binding name, column name,
+ * type]*, chunkCount, [block offset of each expression]*, value stream
+ * length>.
+ */
+public class ColumnSaveUtil
+{
+	public final static int CHUNK_SIZE = 1024;
+
+	// the types of the value blocks
+	private final static int NULL_BLOCK = 0;
+	private final static int INTEGER_BLOCK = 1;
+	private final static int DOUBLE_BLOCK = 2;
+	private final static int STRING_BLOCK = 3;
+	private final static int OBJECT_BLOCK = 4;
+
+	private DataOutputStream valueDos;
+	private DataOutputStream indexDos;
+
+	private String[] exprNames;
+	private Object[][] chunkValues;
+	private int chunkRowCount;
+	private int rowCount;
+	private int lastRowIndex;
+
+	private long currentOffset;
+	private ByteArrayOutputStream blockOffsets;
+	private DataOutputStream blockOffsetDos;
+	private int chunkCount;
+
+	private Map directColumnReferenceBinding;
+	private Map bindingNameType;
+
+	/**
+	 * @param valueOs
+	 * @param indexOs
+	 * @param exprNameSet
+	 * @param directColumnReferenceBinding
+	 * @param bindingNameType
+	 */
+	ColumnSaveUtil( OutputStream valueOs, OutputStream indexOs,
+			Set exprNameSet, Map directColumnReferenceBinding,
+			Map bindingNameType )
+	{
+		this.valueDos = new DataOutputStream( new BufferedOutputStream( valueOs ) );
+		this.indexDos = new DataOutputStream( new BufferedOutputStream( indexOs ) );
+		this.exprNames = (String[]) exprNameSet.toArray( new String[0] );
+		this.chunkValues = new Object[exprNames.length][CHUNK_SIZE];
+		this.lastRowIndex = -1;
+
+		this.blockOffsets = new ByteArrayOutputStream( );
+		this.blockOffsetDos = new DataOutputStream( blockOffsets );
+
+		this.directColumnReferenceBinding = directColumnReferenceBinding;
+		this.bindingNameType = bindingNameType;
+	}
+
+	/**
+	 * @param currIndex
+	 * @param valueMap
+	 * @throws DataException
+	 */
+	void saveExprValue( int currIndex, Map valueMap ) throws DataException
+	{
+		try
+		{
+			saveNullRowsBetween( lastRowIndex, currIndex );
+
+			for ( int i = 0; i < exprNames.length; i++ )
+			{
+				Object value = valueMap.get( exprNames[i] );
+				if ( value instanceof BirtException )
+					value = RowSaveUtil.EXCEPTION_INDICATOR;
+				chunkValues[i][chunkRowCount] = value;
+			}
+			nextRow( );
+			lastRowIndex = currIndex;
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR,
+					e,
+					"Result Data" );
+		}
+	}
+
+	/**
+	 * @param currIndex
+	 * @throws DataException
+	 */
+	void saveFinish( int currIndex ) throws DataException
+	{
+		try
+		{
+			saveNullRowsBetween( lastRowIndex, currIndex );
+			if ( chunkRowCount > 0 )
+				saveChunk( );
+
+			IOUtil.writeInt( indexDos, rowCount );
+			IOUtil.writeInt( indexDos, CHUNK_SIZE );
+			IOUtil.writeInt( indexDos, exprNames.length );
+			for ( int i = 0; i < exprNames.length; i++ )
+			{
+				IOUtil.writeString( indexDos, exprNames[i] );
+				IOUtil.writeInt( indexDos,
+						( (Integer) bindingNameType.get( exprNames[i] ) ).intValue( ) );
+			}
+			IOUtil.writeInt( indexDos, directColumnReferenceBinding.size( ) );
+			Iterator it = directColumnReferenceBinding.keySet( ).iterator( );
+			while ( it.hasNext( ) )
+			{
+				Object key = it.next( );
+				IOUtil.writeObject( indexDos, key );
+				IOUtil.writeObject( indexDos,
+						directColumnReferenceBinding.get( key ) );
+				IOUtil.writeInt( indexDos,
+						( (Integer) bindingNameType.get( key ) ).intValue( ) );
+			}
+			IOUtil.writeInt( indexDos, chunkCount );
+			blockOffsetDos.flush( );
+			IOUtil.writeRawBytes( indexDos, blockOffsets.toByteArray( ) );
+			IOUtil.writeLong( indexDos, currentOffset );
+
+			valueDos.close( );
+			indexDos.close( );
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR,
+					e,
+					"Result Data" );
+		}
+	}
+
+	/**
+	 * The rows whose values are not saved have null values.
+	 *
+	 * @param lastRowIndex
+	 * @param currIndex
+	 * @throws IOException
+	 */
+	private void saveNullRowsBetween( int lastRowIndex, int currIndex )
+			throws IOException
+	{
+		int gapRows = currIndex - lastRowIndex - 1;
+		for ( int i = 0; i < gapRows; i++ )
+		{
+			for ( int j = 0; j < exprNames.length; j++ )
+			{
+				chunkValues[j][chunkRowCount] = null;
+			}
+			nextRow( );
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private void nextRow( ) throws IOException
+	{
+		chunkRowCount++;
+		rowCount++;
+		if ( chunkRowCount == CHUNK_SIZE )
+		{
+			saveChunk( );
+			chunkRowCount = 0;
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private void saveChunk( ) throws IOException
+	{
+		for ( int i = 0; i < exprNames.length; i++ )
+		{
+			IOUtil.writeLong( blockOffsetDos, currentOffset );
+
+			ByteArrayOutputStream tempBaos = new ByteArrayOutputStream( );
+			DataOutputStream tempDos = new DataOutputStream( tempBaos );
+			writeBlock( tempDos, chunkValues[i], chunkRowCount );
+			tempDos.flush( );
+
+			byte[] bytes = tempBaos.toByteArray( );
+			IOUtil.writeRawBytes( valueDos, bytes );
+			currentOffset += bytes.length;
+		}
+		chunkCount++;
+	}
+
+	/**
+	 * Write the values of one binding in a chunk. The values whose classes are
+	 * all Integer, Double or String are written without the class
+	 * information.
+	 *
+	 * @param dos
+	 * @param values
+	 * @param count
+	 * @throws IOException
+	 */
+	private static void writeBlock( DataOutputStream dos, Object[] values,
+			int count ) throws IOException
+	{
+		int blockType = getBlockType( values, count );
+		IOUtil.writeInt( dos, blockType );
+		if ( blockType == NULL_BLOCK )
+			return;
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( blockType == OBJECT_BLOCK )
+			{
+				IOUtil.writeObject( dos, values[i] );
+				continue;
+			}
+			IOUtil.writeBool( dos, values[i] != null );
+			if ( values[i] == null )
+				continue;
+			if ( blockType == INTEGER_BLOCK )
+				IOUtil.writeInt( dos, ( (Integer) values[i] ).intValue( ) );
+			else if ( blockType == DOUBLE_BLOCK )
+				IOUtil.writeDouble( dos, ( (Double) values[i] ).doubleValue( ) );
+			else
+				IOUtil.writeString( dos, (String) values[i] );
+		}
+	}
+
+	/**
+	 * @param values
+	 * @param count
+	 * @return
+	 */
+	private static int getBlockType( Object[] values, int count )
+	{
+		Class valueClass = null;
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( values[i] == null )
+				continue;
+			if ( valueClass == null )
+				valueClass = values[i].getClass( );
+			else if ( valueClass != values[i].getClass( ) )
+				return OBJECT_BLOCK;
+		}
+		if ( valueClass == null )
+			return NULL_BLOCK;
+		if ( valueClass == Integer.class )
+			return INTEGER_BLOCK;
+		if ( valueClass == Double.class )
+			return DOUBLE_BLOCK;
+		if ( valueClass == String.class )
+			return STRING_BLOCK;
+		return OBJECT_BLOCK;
+	}
+
+	/**
+	 * Read the values of one binding in a chunk.
+	 *
+	 * @param dis
+	 * @param values
+	 *            the array to read the values into
+	 * @param count
+	 *            the row count of the chunk
+	 * @param classLoader
+	 * @throws IOException
+	 */
+	public static void readBlock( DataInputStream dis, Object[] values,
+			int count, ClassLoader classLoader ) throws IOException
+	{
+		int blockType = IOUtil.readInt( dis );
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( blockType == NULL_BLOCK )
+			{
+				values[i] = null;
+			}
+			else if ( blockType == OBJECT_BLOCK )
+			{
+				values[i] = IOUtil.readObject( dis, classLoader );
+			}
+			else if ( !IOUtil.readBool( dis ) )
+			{
+				values[i] = null;
+			}
+			else if ( blockType == INTEGER_BLOCK )
+			{
+				values[i] = Integer.valueOf( IOUtil.readInt( dis ) );
+			}
+			else if ( blockType == DOUBLE_BLOCK )
+			{
+				values[i] = Double.valueOf( IOUtil.readDouble( dis ) );
+			}
+			else
+			{
+				values[i] = IOUtil.readString( dis );
+			}
+		}
+	}
+}
@@ -10,6 +10,7 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.impl.document;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -27,6 +28,7 @@ import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
 import org.eclipse.birt.data.engine.api.IBinding;
 import org.eclipse.birt.data.engine.api.IGroupInstanceInfo;
+import org.eclipse.birt.data.engine.api.IInputParameterBinding;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
 import org.eclipse.birt.data.engine.api.IQueryExecutionHints;
 import org.eclipse.birt.data.engine.api.IScriptExpression;
@@ -52,6 +54,60 @@ import com.ibm.icu.util.ULocale;
 public class QueryDefnIOUtil
 {	
 	
+	/**
+	 * Save the structure of the query definition with the latest version,
+	 * including the data set name, the input parameter bindings and the column
+	 * projection of the query. Two query definitions of the same structure are
+	 * prepared the same way.
+	 * 
+	 * @param queryDefn
+	 * @return
+	 * @throws DataException
+	 */
+	public static byte[] getQueryDefnStructure( IQueryDefinition queryDefn )
+			throws DataException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream( );
+		DataOutputStream dos = new DataOutputStream( bos );
+		try
+		{
+			IOUtil.writeString( dos, queryDefn.getDataSetName( ) );
+			IOUtil.writeBool( dos, queryDefn.needAutoBinding( ) );
+			IOUtil.writeInt( dos, queryDefn.getStartingRow( ) );
+
+			String[] projection = queryDefn.getColumnProjection( );
+			IOUtil.writeInt( dos, projection == null ? -1 : projection.length );
+			for ( int i = 0; projection != null && i < projection.length; i++ )
+				IOUtil.writeString( dos, projection[i] );
+
+			Collection paramBindings = queryDefn.getInputParamBindings( );
+			IOUtil.writeInt( dos, paramBindings == null ? 0
+					: paramBindings.size( ) );
+			if ( paramBindings != null )
+			{
+				Iterator it = paramBindings.iterator( );
+				while ( it.hasNext( ) )
+				{
+					IInputParameterBinding paramBinding = (IInputParameterBinding) it.next( );
+					IOUtil.writeString( dos, paramBinding.getName( ) );
+					IOUtil.writeInt( dos, paramBinding.getPosition( ) );
+					ExprUtil.saveBaseExpr( dos, paramBinding.getExpr( ) );
+				}
+			}
+			dos.flush( );
+
+			saveBaseQueryDefn( dos,
+					queryDefn,
+					VersionManager.getLatestVersion( ) );
+			dos.flush( );
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR, e );
+		}
+		return bos.toByteArray( );
+	}
+	
 	/**
 	 * @param outputStream
 	 * @param queryDefn
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.birt.core.archive.IDocArchiveReader;
 import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
@@ -31,6 +32,7 @@ import org.eclipse.birt.data.engine.impl.ResultMetaData;
 import org.eclipse.birt.data.engine.impl.StringTable;
 import org.eclipse.birt.data.engine.impl.document.stream.StreamManager;
 import org.eclipse.birt.data.engine.impl.document.stream.VersionManager;
+import org.eclipse.birt.data.engine.impl.document.util.ColumnExprDataResultSet;
 import org.eclipse.birt.data.engine.impl.document.util.ExprDataResultSet1;
 import org.eclipse.birt.data.engine.impl.document.util.ExprDataResultSet2;
 import org.eclipse.birt.data.engine.impl.document.util.ExprResultSet;
@@ -38,8 +40,12 @@ import org.eclipse.birt.data.engine.impl.document.util.ExprResultSet2;
 import org.eclipse.birt.data.engine.impl.document.util.IExprDataResultSet;
 import org.eclipse.birt.data.engine.impl.document.util.IExprResultSet;
 import org.eclipse.birt.data.engine.impl.document.viewing.DataSetResultSet;
+import org.eclipse.birt.data.engine.impl.document.viewing.DataSetRowCache;
 import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaInfo;
 import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMap;
+import org.eclipse.birt.data.engine.impl.index.BTreeIndex;
+import org.eclipse.birt.data.engine.impl.index.IDataSetIndex;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 
 /**
@@ -55,6 +61,8 @@ public class RDLoad
 	
 	private String tempDir;
 	
+	private DataEngineContext context;
+	
 	/**
 	 * @param context
 	 * @param queryResultID
@@ -66,6 +74,7 @@ public class RDLoad
 			throws DataException
 	{
 		this.tempDir = tempDir;
+		this.context = context;
 		subQueryUtil = new RDSubQueryUtil( context,
 				QueryResultIDUtil.getRealStreamID( queryResultInfo.getRootQueryResultID( ),
 						queryResultInfo.getSelfQueryResultID( ) ),
@@ -140,7 +149,22 @@ public class RDLoad
 		// This is a special case, that the stream needs to be close at the code
 		// of ExprDataResultSet
 		IExprDataResultSet exprDataResultSet = null;
-		if ( streamManager.isBasedOnSecondRD( ) == false )
+		if ( streamManager.hasInStream( DataEngineContext.EXPR_COLUMN_INDEX_STREAM,
+				StreamManager.ROOT_STREAM,
+				StreamManager.BASE_SCOPE ) )
+			exprDataResultSet = new ColumnExprDataResultSet( streamManager.getInStream( DataEngineContext.EXPR_COLUMN_INDEX_STREAM,
+					StreamManager.ROOT_STREAM,
+					StreamManager.BASE_SCOPE ),
+					streamManager.getInStream( DataEngineContext.EXPR_COLUMN_VALUE_STREAM,
+							StreamManager.ROOT_STREAM,
+							StreamManager.BASE_SCOPE ),
+					streamManager.isBasedOnSecondRD( )
+							? streamManager.getInStream( DataEngineContext.ROW_INDEX_STREAM,
+									StreamManager.ROOT_STREAM,
+									StreamManager.PARENT_SCOPE ) : null,
+					exprMetas,
+					isSummary ? null : this.loadDataSetData( null, null, new HashMap() ) );
+		else if ( streamManager.isBasedOnSecondRD( ) == false )
 			exprDataResultSet = new ExprDataResultSet1( streamManager.getInStream( DataEngineContext.EXPR_VALUE_STREAM,
 					StreamManager.ROOT_STREAM,
 					StreamManager.BASE_SCOPE ),
@@ -234,6 +258,7 @@ public class RDLoad
 		
 		DataSetResultSet populator = new DataSetResultSet( stream, lensStream, 
 				this.loadResultClass( ), preFilteredRowIds, stringTableMap, index, version );
+		shareRows( populator, stringTableMap, index );
 
 		return populator;
 	}
@@ -261,10 +286,102 @@ public class RDLoad
 		
 		DataSetResultSet populator = new DataSetResultSet( stream, lensStream, 
 				this.loadResultClass( ), preFilteredRowIds, stringTableMap, index, version, includeInnerID );
+		shareRows( populator, stringTableMap, index );
 
 		return populator;
 	}
 	
+	/**
+	 * Let the data set result set read the rows through the row cache of the
+	 * report document when a report document is viewed. The rows decoded with
+	 * string tables or indexes are not shared.
+	 * 
+	 * @param populator
+	 * @param stringTableMap
+	 * @param index
+	 * @throws DataException
+	 */
+	private void shareRows( DataSetResultSet populator,
+			Map<String, StringTable> stringTableMap, Map index )
+			throws DataException
+	{
+		if ( context.getMode( ) != DataEngineContext.MODE_PRESENTATION
+				|| stringTableMap != null
+				|| ( index != null && !index.isEmpty( ) ) )
+			return;
+		DataSetRowCache rowCache = DataSetRowCache.get( context );
+		if ( rowCache != null )
+			populator.shareRows( rowCache,
+					streamManager.getStreamPath( DataEngineContext.DATASET_DATA_STREAM,
+							StreamManager.ROOT_STREAM,
+							StreamManager.BASE_SCOPE ) );
+	}
+	
+	/**
+	 * Load the indexes of the index columns of the data set rows, which are
+	 * saved when the report document is generated. No index is loaded once
+	 * the data set rows are saved again for the page level security.
+	 * 
+	 * @return the index of each index column; empty if no index is saved
+	 * @throws DataException
+	 */
+	public Map<String, IDataSetIndex> loadDataSetIndex( ) throws DataException
+	{
+		Map<String, IDataSetIndex> result = new HashMap<String, IDataSetIndex>( );
+		IDocArchiveReader reader = context.getDocReader( );
+		if ( reader == null
+				|| streamManager.hasInStream( DataEngineContext.PLS_GROUPLEVEL_STREAM,
+						StreamManager.ROOT_STREAM,
+						StreamManager.BASE_SCOPE ) )
+			return result;
+		IResultClass resultClass = this.loadResultClass( );
+		for ( int i = 1; i <= resultClass.getFieldCount( ); i++ )
+		{
+			if ( !resultClass.isIndexColumn( i ) )
+				continue;
+			String fieldName = resultClass.getFieldName( i );
+			String indexName = streamManager.getInStreamName( StreamWrapper.getIndexStreamName( fieldName ) );
+			if ( reader.exists( indexName ) )
+				result.put( fieldName,
+						new BTreeIndex( indexName,
+								reader,
+								resultClass.getFieldValueClass( i ),
+								context.getClassLoader( ) ) );
+		}
+		return result;
+	}
+	
+	/**
+	 * Load the zone map of the saved rows.
+	 * 
+	 * @return null if the zone map is not saved
+	 * @throws DataException
+	 */
+	public ZoneMap loadZoneMap( ) throws DataException
+	{
+		if ( !streamManager.hasInStream( DataEngineContext.EXPR_ZONE_MAP_STREAM,
+				StreamManager.ROOT_STREAM,
+				StreamManager.SELF_SCOPE ) )
+			return null;
+		InputStream inputStream = streamManager.getInStream( DataEngineContext.EXPR_ZONE_MAP_STREAM,
+				StreamManager.ROOT_STREAM,
+				StreamManager.SELF_SCOPE );
+		BufferedInputStream buffStream = new BufferedInputStream( inputStream );
+		try
+		{
+			ZoneMap zoneMap = new ZoneMap( buffStream );
+			buffStream.close( );
+			inputStream.close( );
+			return zoneMap;
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_LOAD_ERROR,
+					e,
+					"Zone Map" );
+		}
+	}
+	
 	/**
 	 * @param streamPos
 	 * @param streamScope
@@ -60,6 +60,8 @@ class RDSave implements IRDSave
 	
 	//
 	private RowSaveUtil rowSaveUtil;
+	private ColumnSaveUtil columnSaveUtil;
+	private ZoneMapSaveUtil zoneMapSaveUtil;
 	private StreamManager streamManager;	
 	private RDSaveUtil rdSaveUtil;
 	
@@ -91,10 +93,16 @@ class RDSave implements IRDSave
 	public void saveExprValue( int currIndex, Map valueMap )
 			throws DataException
 	{
-		if ( rowSaveUtil == null )
+		if ( rowSaveUtil == null && columnSaveUtil == null )
 			this.initSaveRowUtil( );
 
-		rowSaveUtil.saveExprValue( currIndex, valueMap );
+		if ( columnSaveUtil != null )
+			columnSaveUtil.saveExprValue( currIndex, valueMap );
+		else
+			rowSaveUtil.saveExprValue( currIndex, valueMap );
+
+		if ( zoneMapSaveUtil != null )
+			zoneMapSaveUtil.saveExprValue( currIndex, valueMap );
 	}
 	
 	/**
@@ -102,10 +110,17 @@ class RDSave implements IRDSave
 	 */
 	private void initSaveRowUtil( ) throws DataException
 	{
-		rowExprsOs = streamManager.getOutStream( DataEngineContext.EXPR_VALUE_STREAM,
+		boolean isColumnStorage = this.isColumnStorage( );
+		// the expression values and the row lengths are written by background
+		// threads when the write behind option is set
+		rowExprsOs = streamManager.getWriteBehindOutStream( isColumnStorage
+				? DataEngineContext.EXPR_COLUMN_VALUE_STREAM
+				: DataEngineContext.EXPR_VALUE_STREAM,
 				StreamManager.ROOT_STREAM,
 				StreamManager.SELF_SCOPE );
-		rowLenOs = streamManager.getOutStream( DataEngineContext.EXPR_ROWLEN_STREAM,
+		rowLenOs = streamManager.getWriteBehindOutStream( isColumnStorage
+				? DataEngineContext.EXPR_COLUMN_INDEX_STREAM
+				: DataEngineContext.EXPR_ROWLEN_STREAM,
 				StreamManager.ROOT_STREAM,
 				StreamManager.SELF_SCOPE );
 		
@@ -154,11 +169,38 @@ class RDSave implements IRDSave
 			bindingNamesToSave.add( ExprMetaUtil.POS_NAME );
 			bindingNameType.put( ExprMetaUtil.POS_NAME, DataType.INTEGER_TYPE );
 		}
-		this.rowSaveUtil = new RowSaveUtil( rowCount,
-				rowExprsOs,
-				rowLenOs,
-				bindingNamesToSave,
-				bindingNameColumnName, bindingNameType, this.streamManager.getVersion( ));
+		if ( isColumnStorage )
+			this.columnSaveUtil = new ColumnSaveUtil( rowExprsOs,
+					rowLenOs,
+					bindingNamesToSave,
+					bindingNameColumnName,
+					bindingNameType );
+		else
+			this.rowSaveUtil = new RowSaveUtil( rowCount,
+					rowExprsOs,
+					rowLenOs,
+					bindingNamesToSave,
+					bindingNameColumnName, bindingNameType, this.streamManager.getVersion( ));
+
+		if ( this.context.getMode( ) == DataEngineContext.MODE_GENERATION
+				&& !this.streamManager.isSubquery( ) )
+			this.zoneMapSaveUtil = new ZoneMapSaveUtil( streamManager.getOutStream( DataEngineContext.EXPR_ZONE_MAP_STREAM,
+					StreamManager.ROOT_STREAM,
+					StreamManager.SELF_SCOPE ),
+					bindingNameType );
+	}
+	
+	/**
+	 * The column storage is only used for the expression values of the root
+	 * query, and needs the binding types which are saved since 2.2.1.3.
+	 * 
+	 * @return
+	 */
+	private boolean isColumnStorage( )
+	{
+		return ( this.context.getDataEngineOption( ) & DataEngineContext.COLUMN_STORAGE_OPTION ) != 0
+				&& !this.streamManager.isSubquery( )
+				&& this.streamManager.getVersion( ) >= VersionManager.VERSION_2_2_1_3;
 	}
 	
 	/**
@@ -183,11 +225,16 @@ class RDSave implements IRDSave
 	 */
 	public void saveFinish( int currIndex ) throws DataException
 	{
-		if ( rowSaveUtil == null )
+		if ( rowSaveUtil == null && columnSaveUtil == null )
 			this.initSaveRowUtil( );
 
 		exprNameSet = this.getExprNameSet( );
-		rowSaveUtil.saveFinish( currIndex );
+		if ( columnSaveUtil != null )
+			columnSaveUtil.saveFinish( currIndex );
+		else
+			rowSaveUtil.saveFinish( currIndex );
+		if ( zoneMapSaveUtil != null )
+			zoneMapSaveUtil.saveFinish( currIndex );
 
 		this.closeSaveRowUtil( );
 
@@ -93,11 +93,14 @@ class RDSaveUtil
 					StreamManager.ROOT_STREAM,
 					StreamManager.SELF_SCOPE );
 			
-			odiResult.doSave( new StreamWrapper( streamManager,
+			StreamWrapper streamWrapper = new StreamWrapper( streamManager,
 					streamForResultClass,
 					streamForGroupInfo,
 					null,
-					null ), isSubQuery );
+					null );
+			// the indexes select the rows of the filters in viewing mode
+			streamWrapper.setSaveColumnIndex( true );
+			odiResult.doSave( streamWrapper, isSubQuery );
 			
 			if( !(odiResult instanceof SimpleResultSet || odiResult instanceof ResultSetWrapper ) )
 				streamForGroupInfo.close( );
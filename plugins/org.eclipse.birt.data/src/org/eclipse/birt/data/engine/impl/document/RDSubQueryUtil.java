@@ -169,14 +169,20 @@ public class RDSubQueryUtil
 		if ( groupLevel == 0 )
 			return 0;
 		
-		int subQueryCount = subQueryInfo.length / 2;
-		int subQueryIndex;
-
-		for ( subQueryIndex = 0; subQueryIndex < subQueryCount; subQueryIndex++ )
-			if ( currParentIndex < subQueryInfo[subQueryIndex * 2 + 1] )
-				break;
+		// the groups are in the order of their rows, so the first group which
+		// ends after the parent row is found by binary search
+		int low = 0;
+		int high = subQueryInfo.length / 2;
+		while ( low < high )
+		{
+			int mid = ( low + high ) / 2;
+			if ( currParentIndex < subQueryInfo[mid * 2 + 1] )
+				high = mid;
+			else
+				low = mid + 1;
+		}
 
-		return subQueryIndex;
+		return low;
 	}
 
 }
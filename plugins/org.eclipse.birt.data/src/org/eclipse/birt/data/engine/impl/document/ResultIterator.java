@@ -28,6 +28,7 @@ import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.QueryDefinitionUtil;
 import org.eclipse.birt.data.engine.impl.document.util.IExprResultSet;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMap;
 import org.mozilla.javascript.Scriptable;
 
 /**
@@ -120,6 +121,28 @@ public class ResultIterator implements IResultIterator
 		this.exprResultSet = valueLoader.loadExprResultSet( rowIdStartingIndex, qd );
 	}
 	
+	/**
+	 * Load the zone map of the rows of this result iterator, whose blocks are
+	 * indexed by the row index.
+	 * 
+	 * @return null if the rows have no zone map
+	 * @throws DataException
+	 */
+	public ZoneMap getZoneMap( ) throws DataException
+	{
+		if ( this.subQueryName != null )
+			return null;
+
+		String rootID = QueryResultIDUtil.get1PartID( this.queryResultID );
+		String selfID = QueryResultIDUtil.get2PartID( this.queryResultID );
+		if ( selfID == null )
+			selfID = this.queryResultID;
+		return RDUtil.newLoad( tempDir,
+				this.context,
+				new QueryResultInfo( rootID, null, selfID, null, -1 ) )
+				.loadZoneMap( );
+	}
+	
     /*
 	 * @see org.eclipse.birt.data.engine.api.IResultIterator#getQueryResults()
 	 */
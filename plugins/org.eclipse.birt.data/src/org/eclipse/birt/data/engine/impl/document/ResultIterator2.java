@@ -17,6 +17,7 @@ import org.eclipse.birt.data.engine.api.IQueryResults;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.SummaryGroupLevelCalculator;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMap;
 
 /**
  * When useDetails==false, this class is used.
@@ -78,6 +79,16 @@ public class ResultIterator2 extends ResultIterator
 		this.currRowIndex = -1;
 	}
 
+	/*
+	 * The rows are visited by group, so they can not be skipped by block.
+	 * 
+	 * @see org.eclipse.birt.data.engine.impl.document.ResultIterator#getZoneMap()
+	 */
+	public ZoneMap getZoneMap( ) throws DataException
+	{
+		return null;
+	}
+
 	/*
 	 * @see org.eclipse.birt.data.engine.impl.document.ResultIterator#next()
 	 */
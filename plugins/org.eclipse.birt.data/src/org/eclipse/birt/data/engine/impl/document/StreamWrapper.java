@@ -23,6 +23,7 @@ import org.eclipse.birt.data.engine.impl.StringTable;
 import org.eclipse.birt.data.engine.impl.document.stream.StreamManager;
 import org.eclipse.birt.data.engine.impl.index.BTreeIndex;
 import org.eclipse.birt.data.engine.impl.index.IIndexSerializer;
+import org.eclipse.birt.data.engine.impl.index.ParallelIndexSerializer;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 
 /**
@@ -38,6 +39,7 @@ public class StreamWrapper
 	private DataOutputStream streamForDataSetLens;
 	private StreamManager manager;
 	private boolean enableIndexStream;
+	private boolean saveColumnIndex;
 	private Map<IResultClass, Map<String, IIndexSerializer>> cachedIndex = new HashMap<IResultClass, Map<String, IIndexSerializer>>( );
 	private Map<IResultClass, Map<String, StringTable>> cachedStringTable = new HashMap<IResultClass, Map<String, StringTable>>( );
 	/**
@@ -68,6 +70,18 @@ public class StreamWrapper
 		
 	}
 	
+	/**
+	 * Save the indexes of the index columns of the data set rows, which are
+	 * read when the report document is viewed. Unlike enableIndex, the values
+	 * of the compressed columns are still saved as they are.
+	 * 
+	 * @param saveColumnIndex
+	 */
+	public void setSaveColumnIndex( boolean saveColumnIndex )
+	{
+		this.saveColumnIndex = saveColumnIndex;
+	}
+	
 	public StreamManager getStreamManager( )
 	{
 		return this.manager;
@@ -89,7 +103,7 @@ public class StreamWrapper
 	{
 		if( this.streamForResultClass!= null && this.streamForDataSet == null )
 		{
-			this.streamForDataSet = new DataOutputStream( manager.getOutStream( DataEngineContext.DATASET_DATA_STREAM,
+			this.streamForDataSet = new DataOutputStream( manager.getWriteBehindOutStream( DataEngineContext.DATASET_DATA_STREAM,
 					StreamManager.ROOT_STREAM,
 					StreamManager.SELF_SCOPE ) );
 		}
@@ -122,10 +136,20 @@ public class StreamWrapper
 	}
 	
 	
+	/**
+	 * 
+	 * @param fieldName
+	 * @return the name of the stream of the index of a data set column
+	 */
+	static String getIndexStreamName( String fieldName )
+	{
+		return "Index/" + fieldName + "/btreeIndex";
+	}
+	
 	public Map<String, IIndexSerializer> getStreamForIndex(
 			IResultClass resultClass, Map appContext ) throws DataException
 	{
-		if ( !this.enableIndexStream )
+		if ( !this.enableIndexStream && !this.saveColumnIndex )
 			return new HashMap<String, IIndexSerializer>();
 		
 		if ( this.cachedIndex.containsKey( resultClass ))
@@ -145,7 +169,10 @@ public class StreamWrapper
 			Class dataType = resultClass.getFieldValueClass( i );
 			String fieldName = resultClass.getFieldName( i );
 			long memoryBufferSize = CacheUtil.computeMemoryBufferSize( appContext );
-			result.put( fieldName, new BTreeIndex( memoryBufferSize/indexColumnCount, "Index/" + fieldName + "/btreeIndex", manager, dataType  ) );
+			IIndexSerializer index = new BTreeIndex( memoryBufferSize/indexColumnCount, getIndexStreamName( fieldName ), manager, dataType  );
+			if ( manager.isWriteBehind( ) )
+				index = new ParallelIndexSerializer( index, manager.getTempDir( ) );
+			result.put( fieldName, index );
 //			if ( dataType == String.class )
 //			{
 //				result.put( fieldName, new SerializableBirtHash( "Index/"
@@ -214,7 +241,7 @@ public class StreamWrapper
 	{
 		if( this.streamForResultClass!= null && this.streamForDataSetLens == null )
 		{
-			this.streamForDataSetLens = new DataOutputStream( manager.getOutStream( DataEngineContext.DATASET_DATA_LEN_STREAM,
+			this.streamForDataSetLens = new DataOutputStream( manager.getWriteBehindOutStream( DataEngineContext.DATASET_DATA_LEN_STREAM,
 					StreamManager.ROOT_STREAM,
 					StreamManager.SELF_SCOPE ));
 		}
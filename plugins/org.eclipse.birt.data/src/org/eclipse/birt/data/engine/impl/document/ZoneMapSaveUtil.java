@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
+
+/**
+ * Save util class of the zone map of the saved rows. The rows are divided into
+ * blocks of BLOCK_SIZE rows, and the null count and the minimum and maximum
+ * numeric value of every binding are kept per block, so a query running on
+ * the report document can skip the blocks which can not match its filters.
+ *
+ * The format of the zone map stream is <rowCount, blockSize, exprCount,
+ * [expression name, type]*, blockCount, [[nullCount, hasRange, (min, max)]
+ * of each expression]*>. The null count is -1 when the values of a binding in
+ * a block are not all known, and the range is only saved when all non-null
+ * values of the block are numbers which are compared as double.
+ */
+class ZoneMapSaveUtil
+{
+	public final static int BLOCK_SIZE = 1024;
+
+	private OutputStream outputStream;
+
+	private String[] exprNames;
+	private int[] exprTypes;
+
+	// the statistics of the current block
+	private int[] nullCounts;
+	private int[] valueCounts;
+	private boolean[] isNumeric;
+	private double[] mins;
+	private double[] maxs;
+
+	private int lastRowIndex;
+	private int blockCount;
+	private ByteArrayOutputStream blocks;
+	private DataOutputStream blockDos;
+
+	/**
+	 * @param outputStream
+	 * @param bindingNameType
+	 */
+	ZoneMapSaveUtil( OutputStream outputStream, Map bindingNameType )
+	{
+		this.outputStream = outputStream;
+
+		List names = new ArrayList( );
+		Iterator it = bindingNameType.keySet( ).iterator( );
+		while ( it.hasNext( ) )
+		{
+			Object name = it.next( );
+			if ( !ExprMetaUtil.POS_NAME.equals( name ) )
+				names.add( name );
+		}
+		this.exprNames = (String[]) names.toArray( new String[0] );
+		this.exprTypes = new int[exprNames.length];
+		for ( int i = 0; i < exprNames.length; i++ )
+		{
+			this.exprTypes[i] = ( (Integer) bindingNameType.get( exprNames[i] ) ).intValue( );
+		}
+
+		this.nullCounts = new int[exprNames.length];
+		this.valueCounts = new int[exprNames.length];
+		this.isNumeric = new boolean[exprNames.length];
+		this.mins = new double[exprNames.length];
+		this.maxs = new double[exprNames.length];
+		this.resetBlock( );
+
+		this.lastRowIndex = -1;
+		this.blocks = new ByteArrayOutputStream( );
+		this.blockDos = new DataOutputStream( blocks );
+	}
+
+	/**
+	 * @param currIndex
+	 * @param valueMap
+	 * @throws DataException
+	 */
+	void saveExprValue( int currIndex, Map valueMap ) throws DataException
+	{
+		try
+		{
+			this.saveUnknownRowsBetween( lastRowIndex, currIndex );
+			this.moveToRow( currIndex );
+			for ( int i = 0; i < exprNames.length; i++ )
+			{
+				if ( nullCounts[i] == -1 )
+					continue;
+				if ( !valueMap.containsKey( exprNames[i] ) )
+				{
+					nullCounts[i] = -1;
+					continue;
+				}
+				Object value = valueMap.get( exprNames[i] );
+				if ( value == null )
+				{
+					nullCounts[i]++;
+				}
+				else if ( value instanceof BirtException )
+				{
+					nullCounts[i] = -1;
+				}
+				else
+				{
+					this.addValue( i, value );
+				}
+			}
+			lastRowIndex = currIndex;
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR,
+					e,
+					"Zone Map" );
+		}
+	}
+
+	/**
+	 * @param currIndex
+	 * @throws DataException
+	 */
+	void saveFinish( int currIndex ) throws DataException
+	{
+		try
+		{
+			this.saveUnknownRowsBetween( lastRowIndex, currIndex + 1 );
+			int rowCount = Math.max( lastRowIndex, currIndex ) + 1;
+			if ( rowCount > blockCount * BLOCK_SIZE )
+				this.saveBlock( );
+
+			DataOutputStream dos = new DataOutputStream( new BufferedOutputStream( outputStream ) );
+			IOUtil.writeInt( dos, rowCount );
+			IOUtil.writeInt( dos, BLOCK_SIZE );
+			IOUtil.writeInt( dos, exprNames.length );
+			for ( int i = 0; i < exprNames.length; i++ )
+			{
+				IOUtil.writeString( dos, exprNames[i] );
+				IOUtil.writeInt( dos, exprTypes[i] );
+			}
+			IOUtil.writeInt( dos, blockCount );
+			blockDos.flush( );
+			IOUtil.writeRawBytes( dos, blocks.toByteArray( ) );
+			dos.close( );
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR,
+					e,
+					"Zone Map" );
+		}
+	}
+
+	/**
+	 * The values of the rows which are not saved are unknown, so the blocks
+	 * of these rows can not be skipped.
+	 *
+	 * @param lastRowIndex
+	 * @param currIndex
+	 * @throws IOException
+	 */
+	private void saveUnknownRowsBetween( int lastRowIndex, int currIndex )
+			throws IOException
+	{
+		for ( int rowIndex = lastRowIndex + 1; rowIndex < currIndex; rowIndex = ( blockCount + 1 )
+				* BLOCK_SIZE )
+		{
+			this.moveToRow( rowIndex );
+			for ( int i = 0; i < exprNames.length; i++ )
+			{
+				nullCounts[i] = -1;
+			}
+		}
+	}
+
+	/**
+	 * Save the finished blocks before the block of the given row.
+	 *
+	 * @param rowIndex
+	 * @throws IOException
+	 */
+	private void moveToRow( int rowIndex ) throws IOException
+	{
+		while ( rowIndex >= ( blockCount + 1 ) * BLOCK_SIZE )
+		{
+			this.saveBlock( );
+		}
+	}
+
+	/**
+	 * @param index
+	 * @param value
+	 */
+	private void addValue( int index, Object value )
+	{
+		boolean isNumber = value instanceof Number
+				&& !( value instanceof BigDecimal );
+		if ( valueCounts[index] == 0 )
+		{
+			isNumeric[index] = isNumber;
+			if ( isNumber )
+			{
+				mins[index] = ( (Number) value ).doubleValue( );
+				maxs[index] = mins[index];
+			}
+		}
+		else if ( isNumeric[index] )
+		{
+			if ( isNumber )
+			{
+				double d = ( (Number) value ).doubleValue( );
+				if ( Double.compare( d, mins[index] ) < 0 )
+					mins[index] = d;
+				if ( Double.compare( d, maxs[index] ) > 0 )
+					maxs[index] = d;
+			}
+			else
+			{
+				isNumeric[index] = false;
+			}
+		}
+		valueCounts[index]++;
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private void saveBlock( ) throws IOException
+	{
+		for ( int i = 0; i < exprNames.length; i++ )
+		{
+			IOUtil.writeInt( blockDos, nullCounts[i] );
+			boolean hasRange = nullCounts[i] != -1
+					&& valueCounts[i] > 0 && isNumeric[i];
+			IOUtil.writeBool( blockDos, hasRange );
+			if ( hasRange )
+			{
+				IOUtil.writeDouble( blockDos, mins[i] );
+				IOUtil.writeDouble( blockDos, maxs[i] );
+			}
+		}
+		blockCount++;
+		this.resetBlock( );
+	}
+
+	/**
+	 *
+	 */
+	private void resetBlock( )
+	{
+		for ( int i = 0; i < exprNames.length; i++ )
+		{
+			nullCounts[i] = 0;
+			valueCounts[i] = 0;
+			isNumeric[i] = false;
+		}
+	}
+}
@@ -220,6 +220,16 @@ public class StreamManager
 		return "/" + streamID.getStartStream( ) + "/" + streamSubName;
 	}
 	
+	/**
+	 * @param streamSubName
+	 * @return the name of the stream in the report document which is read
+	 * @throws DataException
+	 */
+	public String getInStreamName( String streamSubName ) throws DataException
+	{
+		return getOutStreamName( streamSubName );
+	}
+	
 	/**
 	 * @param streamType
 	 * @param streamPos
@@ -267,6 +277,45 @@ public class StreamManager
 		}
 	}
 	
+	/**
+	 * Return the output stream like getOutStream( ), which is written by a
+	 * background thread when the write behind option is set. The stream must
+	 * be closed before it is read.
+	 * 
+	 * @param streamType
+	 * @param streamPos
+	 * @param streamScope
+	 * @return
+	 * @throws DataException
+	 */
+	public OutputStream getWriteBehindOutStream( int streamType,
+			int streamPos, int streamScope ) throws DataException
+	{
+		OutputStream outputStream = this.getOutStream( streamType,
+				streamPos,
+				streamScope );
+		if ( !this.isWriteBehind( ) || useTempStream( streamType ) )
+			return outputStream;
+		return new WriteBehindOutputStream( outputStream );
+	}
+	
+	/**
+	 * @return whether the streams are written and the indexes are built on
+	 *         background threads
+	 */
+	public boolean isWriteBehind( )
+	{
+		return ( context.getDataEngineOption( ) & DataEngineContext.WRITE_BEHIND_OPTION ) != 0;
+	}
+	
+	/**
+	 * @return the temporary directory of the data engine
+	 */
+	public String getTempDir( )
+	{
+		return context.getTmpdir( );
+	}
+	
 	
 	/**
 	 * @param streamType
@@ -279,6 +328,20 @@ public class StreamManager
 		return createInputStream( streamID, streamType );
 	}
 	
+	/**
+	 * @param streamType
+	 * @param streamPos
+	 * @param streamScope
+	 * @return the path of the stream in the report document
+	 */
+	public String getStreamPath( int streamType, int streamPos, int streamScope )
+	{
+		StreamID streamID = getStreamID( streamType, streamPos, streamScope );
+		return DataEngineContext.getPath( streamID.getStartStream( ),
+				streamID.getSubQueryStream( ),
+				streamType );
+	}
+	
 	/**
 	 * @param streamType
 	 * @return
@@ -673,6 +736,9 @@ public class StreamManager
 	{
 		this.dropStream1( DataEngineContext.EXPR_VALUE_STREAM );
 		this.dropStream1( DataEngineContext.EXPR_ROWLEN_STREAM );
+		this.dropStream1( DataEngineContext.EXPR_COLUMN_VALUE_STREAM );
+		this.dropStream1( DataEngineContext.EXPR_COLUMN_INDEX_STREAM );
+		this.dropStream1( DataEngineContext.EXPR_ZONE_MAP_STREAM );
 		// remove QUERYID_INFO_STREAM
 		QueryResultIDManager.cleanChildOfRoot( this );
 		this.dropStream1( DataEngineContext.META_STREAM );
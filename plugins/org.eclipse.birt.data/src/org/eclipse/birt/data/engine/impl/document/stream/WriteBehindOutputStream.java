@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.stream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An output stream which hands the written bytes in batches to a small pool of
+ * writer threads shared by all of the streams, which write them into the
+ * wrapped stream in the same order. At most MAX_PENDING_BATCHES batches wait
+ * for a writer thread, so the thread which writes only blocks when the
+ * wrapped stream is that much behind.
+ *
+ * The wrapped stream is only written by the writer threads until close( )
+ * returns, and nobody may read it before that. An exception of a writer
+ * thread is thrown by the next write or by close( ).
+ */
+public class WriteBehindOutputStream extends OutputStream
+{
+	public final static int BATCH_SIZE = 64 * 1024;
+	public final static int MAX_PENDING_BATCHES = 16;
+	public final static int WRITER_COUNT = Math.min( 4,
+			Runtime.getRuntime( ).availableProcessors( ) );
+
+	private static Executor sharedExecutor;
+
+	private OutputStream outputStream;
+	private Executor executor;
+
+	private byte[] batch;
+	private int count;
+
+	// the pending batches and whether a writer thread drains them, guarded by
+	// the list
+	private LinkedList pending;
+	private boolean isDraining;
+	private Runnable drainer;
+	private volatile IOException exception;
+	private boolean closed;
+
+	/**
+	 * @param outputStream
+	 *            the stream which is written by the writer threads
+	 */
+	public WriteBehindOutputStream( OutputStream outputStream )
+	{
+		this( outputStream, getSharedExecutor( ) );
+	}
+
+	/**
+	 * @param outputStream
+	 *            the stream which is written by the writer threads
+	 * @param executor
+	 *            the executor of the writer threads
+	 */
+	WriteBehindOutputStream( OutputStream outputStream, Executor executor )
+	{
+		assert outputStream != null;
+		assert executor != null;
+		this.outputStream = outputStream;
+		this.executor = executor;
+		this.batch = new byte[BATCH_SIZE];
+		this.pending = new LinkedList( );
+		this.drainer = new Runnable( ) {
+
+			public void run( )
+			{
+				writeBatches( );
+			}
+		};
+	}
+
+	/**
+	 * The writer threads are daemon threads, which are created when they are
+	 * needed and then wait for the batches of all of the streams.
+	 *
+	 * @return
+	 */
+	private static synchronized Executor getSharedExecutor( )
+	{
+		if ( sharedExecutor == null )
+		{
+			sharedExecutor = new ThreadPoolExecutor( WRITER_COUNT,
+					WRITER_COUNT,
+					0L,
+					TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>( ),
+					new ThreadFactory( ) {
+
+						public Thread newThread( Runnable r )
+						{
+							Thread thread = new Thread( r,
+									"BIRT document writer" );
+							thread.setDaemon( true );
+							return thread;
+						}
+					} );
+		}
+		return sharedExecutor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.OutputStream#write(int)
+	 */
+	public void write( int b ) throws IOException
+	{
+		checkState( );
+		if ( count == batch.length )
+			handOff( );
+		batch[count++] = (byte) b;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		checkState( );
+		while ( len > 0 )
+		{
+			if ( count == batch.length )
+				handOff( );
+			int size = Math.min( len, batch.length - count );
+			System.arraycopy( b, off, batch, count, size );
+			count += size;
+			off += size;
+			len -= size;
+		}
+	}
+
+	/**
+	 * The bytes are not handed to the writer threads before the batch is
+	 * full, since the wrapped stream is not read before this stream is closed.
+	 * Flushing a closed stream does nothing, since a wrapping
+	 * FilterOutputStream flushes each time it is closed.
+	 *
+	 * @see java.io.OutputStream#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+		if ( exception != null )
+			throw exception;
+	}
+
+	/**
+	 * Wait for the writer threads to write all of the bytes, then close the
+	 * wrapped stream. The exception of a writer thread is thrown after the
+	 * wrapped stream is closed.
+	 *
+	 * @see java.io.OutputStream#close()
+	 */
+	public void close( ) throws IOException
+	{
+		if ( closed )
+			return;
+		closed = true;
+		try
+		{
+			if ( exception == null && count > 0 )
+			{
+				byte[] last = new byte[count];
+				System.arraycopy( batch, 0, last, 0, count );
+				put( last );
+			}
+			synchronized ( pending )
+			{
+				while ( isDraining )
+					pending.wait( );
+			}
+		}
+		catch ( InterruptedException e )
+		{
+			throw new InterruptedIOException( e.getLocalizedMessage( ) );
+		}
+		catch ( IOException e )
+		{
+			// the exception of the writer thread is thrown below
+		}
+		finally
+		{
+			batch = null;
+			count = 0;
+		}
+
+		if ( exception != null )
+		{
+			try
+			{
+				outputStream.close( );
+			}
+			catch ( IOException e )
+			{
+				// the first exception is thrown
+			}
+			throw exception;
+		}
+		outputStream.close( );
+	}
+
+	/**
+	 * @throws IOException
+	 */
+	private void checkState( ) throws IOException
+	{
+		if ( closed )
+			throw new IOException( "Stream closed" );
+		if ( exception != null )
+			throw exception;
+	}
+
+	/**
+	 * Hand the current batch to the writer threads.
+	 *
+	 * @throws IOException
+	 */
+	private void handOff( ) throws IOException
+	{
+		if ( count == 0 )
+			return;
+		byte[] full = batch;
+		if ( count < full.length )
+		{
+			full = new byte[count];
+			System.arraycopy( batch, 0, full, 0, count );
+		}
+		else
+		{
+			batch = new byte[BATCH_SIZE];
+		}
+		count = 0;
+		try
+		{
+			put( full );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new InterruptedIOException( e.getLocalizedMessage( ) );
+		}
+	}
+
+	/**
+	 * Add a batch to the pending ones, and start draining them on a writer
+	 * thread if none does.
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void put( byte[] bytes ) throws IOException, InterruptedException
+	{
+		synchronized ( pending )
+		{
+			while ( pending.size( ) >= MAX_PENDING_BATCHES
+					&& exception == null )
+				pending.wait( );
+			if ( exception != null )
+				throw exception;
+			pending.addLast( bytes );
+			if ( !isDraining )
+			{
+				isDraining = true;
+				executor.execute( drainer );
+			}
+		}
+	}
+
+	/**
+	 * Write the pending batches on a writer thread until none is left. After
+	 * a failure the batches are dropped, so that the writing thread never
+	 * waits for them.
+	 */
+	private void writeBatches( )
+	{
+		while ( true )
+		{
+			byte[] bytes;
+			synchronized ( pending )
+			{
+				if ( pending.isEmpty( ) )
+				{
+					isDraining = false;
+					pending.notifyAll( );
+					return;
+				}
+				bytes = (byte[]) pending.removeFirst( );
+				pending.notifyAll( );
+			}
+			if ( exception != null )
+				continue;
+			try
+			{
+				outputStream.write( bytes );
+			}
+			catch ( IOException e )
+			{
+				exception = e;
+			}
+			catch ( RuntimeException e )
+			{
+				IOException ioe = new IOException( e.getLocalizedMessage( ) );
+				ioe.initCause( e );
+				exception = ioe;
+			}
+		}
+	}
+}
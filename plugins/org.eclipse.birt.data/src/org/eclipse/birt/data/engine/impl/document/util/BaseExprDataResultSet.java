@@ -10,9 +10,7 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.impl.document.util;
 
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.ResultObject;
@@ -85,20 +83,14 @@ abstract class BaseExprDataResultSet implements IExprDataResultSet
 		
 		int destIndex = exprDataReader.getRowId( );
 		Map map = exprDataReader.getRowValue( );
-		Iterator it = map.entrySet( ).iterator( );
-		while ( it.hasNext( ) )
+		// Only look up the values of the expression meta data, so a reader
+		// which reads the values by column does not read the others
+		for ( int j = 0; j < exprFieldCount - 1; j++ )
 		{
-			Map.Entry entry = (Entry) it.next( );
-			String exprName = (String) entry.getKey( );
-			Object exprValue = entry.getValue( );
-			for ( int j = 0; j < exprFieldCount; j++ )
+			String exprName = exprMetas[j].getName( );
+			if ( exprName != null && map.containsKey( exprName ) )
 			{
-				if ( exprName != null
-						&& exprName.equals( exprMetas[j].getName( ) ) )
-				{
-					rowData[j] = exprValue;
-					break;
-				}
+				rowData[j] = map.get( exprName );
 			}
 		}
 
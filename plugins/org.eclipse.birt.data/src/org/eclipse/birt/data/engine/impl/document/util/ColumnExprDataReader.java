@@ -0,0 +1,390 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.core.data.DataTypeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.impl.DataEngineSession;
+import org.eclipse.birt.data.engine.impl.document.ColumnSaveUtil;
+import org.eclipse.birt.data.engine.impl.document.RowSaveUtil;
+import org.eclipse.birt.data.engine.impl.document.viewing.DataSetResultSet;
+import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
+import org.eclipse.birt.data.engine.impl.document.viewing.RowIndexUtil;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Read the expression values which are saved by column. The value map of a
+ * row only loads the chunk of a binding when the binding is asked for, so
+ * the bindings which are not used are never read from the report document.
+ * When the row index stream is given, the rows are mapped to the rows of the
+ * base report document as ExprDataReader2 does; otherwise the rows are read
+ * one by one as ExprDataReader1 does.
+ */
+class ColumnExprDataReader implements IExprDataReader
+{
+	private RAInputStream valueIs;
+	private RowIndexUtil rowIndexUtil;
+
+	private int rowCount;
+	private int savedRowCount;
+	private int chunkSize;
+
+	private Map exprIndexMap;
+	private long[] blockOffsets;
+	private Object[][] chunkValues;
+	private int[] loadedChunks;
+
+	private Map dataSetExprKeys;
+	private Map bindingNameTypeMap;
+	private DataSetResultSet dataSetResultSet;
+	private ClassLoader currentClassLoader;
+
+	private int currRowIndex;
+	private int currDestIndex;
+	private Map exprValueMap;
+
+	/**
+	 * @param indexIs
+	 *            the input stream of the column index
+	 * @param valueIs
+	 *            the input stream of the column values
+	 * @param rowInfoIs
+	 *            the input stream of valid row index; null if the rows are
+	 *            not based on another report document
+	 * @param dataSetResultSet
+	 * @throws DataException
+	 */
+	ColumnExprDataReader( RAInputStream indexIs, RAInputStream valueIs,
+			RAInputStream rowInfoIs, DataSetResultSet dataSetResultSet )
+			throws DataException
+	{
+		try
+		{
+			this.currentClassLoader = DataEngineSession.getCurrentClassLoader( );
+
+			DataInputStream dis = new DataInputStream( new BufferedInputStream( indexIs ) );
+			this.savedRowCount = IOUtil.readInt( dis );
+			this.chunkSize = IOUtil.readInt( dis );
+
+			int exprCount = IOUtil.readInt( dis );
+			this.exprIndexMap = new HashMap( );
+			this.bindingNameTypeMap = new HashMap( );
+			for ( int i = 0; i < exprCount; i++ )
+			{
+				String key = IOUtil.readString( dis );
+				this.exprIndexMap.put( key, Integer.valueOf( i ) );
+				this.bindingNameTypeMap.put( key,
+						Integer.valueOf( IOUtil.readInt( dis ) ) );
+			}
+
+			this.dataSetExprKeys = new HashMap( );
+			int dataSetColumnExprCount = IOUtil.readInt( dis );
+			for ( int i = 0; i < dataSetColumnExprCount; i++ )
+			{
+				String key = IOUtil.readObject( dis, this.currentClassLoader )
+						.toString( );
+				this.dataSetExprKeys.put( key,
+						IOUtil.readObject( dis, this.currentClassLoader ) );
+				this.bindingNameTypeMap.put( key,
+						Integer.valueOf( IOUtil.readInt( dis ) ) );
+			}
+
+			int chunkCount = IOUtil.readInt( dis );
+			this.blockOffsets = new long[chunkCount * exprCount];
+			for ( int i = 0; i < blockOffsets.length; i++ )
+			{
+				this.blockOffsets[i] = IOUtil.readLong( dis );
+			}
+			indexIs.close( );
+
+			if ( rowInfoIs != null )
+			{
+				this.rowIndexUtil = new RowIndexUtil( rowInfoIs );
+				this.rowCount = (int) ( rowInfoIs.length( ) / 4 );
+			}
+			else
+			{
+				this.rowCount = this.savedRowCount;
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_LOAD_ERROR,
+					e,
+					"Result Data" );
+		}
+
+		this.valueIs = valueIs;
+		this.chunkValues = new Object[exprIndexMap.size( )][];
+		this.loadedChunks = new int[exprIndexMap.size( )];
+		for ( int i = 0; i < loadedChunks.length; i++ )
+		{
+			this.loadedChunks[i] = -1;
+		}
+		if ( this.dataSetExprKeys.size( ) > 0 )
+			this.dataSetResultSet = dataSetResultSet;
+
+		this.currRowIndex = -1;
+		this.currDestIndex = -1;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#getCount()
+	 */
+	public int getCount( )
+	{
+		return this.rowCount;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#getRowId()
+	 */
+	public int getRowId( )
+	{
+		if ( this.rowIndexUtil != null )
+			return this.currDestIndex;
+		if ( this.dataSetResultSet != null
+				&& this.dataSetResultSet.getResultObject( ) != null )
+		{
+			try
+			{
+				return ( (Integer) this.dataSetResultSet.getResultObject( )
+						.getFieldValue( ExprMetaUtil.POS_NAME ) ).intValue( );
+			}
+			catch ( DataException e )
+			{
+				return -1;
+			}
+		}
+		if ( this.exprIndexMap.containsKey( ExprMetaUtil.POS_NAME ) )
+		{
+			Object rowId = this.getValue( ExprMetaUtil.POS_NAME,
+					this.currDestIndex );
+			if ( rowId instanceof Integer )
+				return ( (Integer) rowId ).intValue( );
+			return -1;
+		}
+		return this.getRowIndex( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#getRowIndex()
+	 */
+	public int getRowIndex( )
+	{
+		if ( this.currRowIndex >= this.rowCount )
+			return this.rowCount;
+
+		return this.currRowIndex;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#next()
+	 */
+	public boolean next( ) throws DataException
+	{
+		if ( this.currRowIndex >= this.rowCount )
+			return false;
+
+		this.currRowIndex++;
+		boolean hasNext = this.currRowIndex < this.rowCount;
+		if ( hasNext )
+		{
+			this.toRow( this.rowIndexUtil == null
+					? this.currRowIndex : this.rowIndexUtil.read( ) );
+		}
+		return hasNext;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#moveTo(int)
+	 */
+	public void moveTo( int index ) throws DataException
+	{
+		if ( index < 0 || index >= this.rowCount )
+			throw new DataException( ResourceConstants.INVALID_ROW_INDEX,
+					Integer.valueOf( index ) );
+		else if ( index < currRowIndex )
+			throw new DataException( ResourceConstants.BACKWARD_SEEK_ERROR );
+		else if ( index == currRowIndex )
+			return;
+
+		// the rows are saved by index, and the row index stream has an int of
+		// every row, so no row needs to be read in between
+		this.currRowIndex = index;
+		this.toRow( this.rowIndexUtil == null ? index
+				: this.rowIndexUtil.read( index ) );
+	}
+
+	/**
+	 * @param destIndex
+	 * @throws DataException
+	 */
+	private void toRow( int destIndex ) throws DataException
+	{
+		this.currDestIndex = destIndex;
+		this.exprValueMap = null;
+		if ( this.dataSetResultSet != null )
+			this.dataSetResultSet.skipTo( destIndex );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#getRowValue()
+	 */
+	public Map getRowValue( ) throws DataException
+	{
+		if ( this.exprValueMap == null )
+			this.exprValueMap = new RowValueMap( this.rowCount == 0
+					? -1 : this.currDestIndex );
+		return this.exprValueMap;
+	}
+
+	/**
+	 * @param name
+	 * @param destIndex
+	 * @return the value of the binding in the row; the exception if the value
+	 *         can not be read
+	 */
+	private Object getValue( String name, int destIndex )
+	{
+		Integer column = (Integer) this.exprIndexMap.get( name );
+		if ( column != null )
+		{
+			if ( destIndex < 0 || destIndex >= this.savedRowCount )
+				return null;
+			try
+			{
+				Object value = this.loadChunk( column.intValue( ),
+						destIndex / this.chunkSize )[destIndex % this.chunkSize];
+				if ( RowSaveUtil.EXCEPTION_INDICATOR.equals( value ) )
+					return new DataException( ResourceConstants.READ_COLUMN_VALUE_FROM_DOCUMENT_ERROR,
+							name );
+				return value;
+			}
+			catch ( IOException e )
+			{
+				return new DataException( ResourceConstants.RD_LOAD_ERROR,
+						e,
+						"Result Data" );
+			}
+		}
+
+		if ( this.dataSetResultSet == null )
+			return null;
+		IResultObject o = this.dataSetResultSet.getResultObject( );
+		if ( o == null )
+			return null;
+		try
+		{
+			return DataTypeUtil.convert( o.getFieldValue( (String) this.dataSetExprKeys.get( name ) ),
+					( (Integer) this.bindingNameTypeMap.get( name ) ).intValue( ) );
+		}
+		catch ( BirtException e )
+		{
+			return e;
+		}
+	}
+
+	/**
+	 * @param column
+	 * @param chunk
+	 * @return the values of the binding in the chunk
+	 * @throws IOException
+	 */
+	private Object[] loadChunk( int column, int chunk ) throws IOException
+	{
+		if ( this.loadedChunks[column] != chunk )
+		{
+			if ( this.chunkValues[column] == null )
+				this.chunkValues[column] = new Object[this.chunkSize];
+			this.valueIs.seek( this.blockOffsets[chunk
+					* this.chunkValues.length + column] );
+			ColumnSaveUtil.readBlock( new DataInputStream( new BufferedInputStream( this.valueIs ) ),
+					this.chunkValues[column],
+					Math.min( this.chunkSize, this.savedRowCount - chunk
+							* this.chunkSize ),
+					this.currentClassLoader );
+			this.loadedChunks[column] = chunk;
+		}
+		return this.chunkValues[column];
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.util.IExprDataReader#close()
+	 */
+	public void close( )
+	{
+		this.chunkValues = null;
+		this.exprValueMap = null;
+	}
+
+	/**
+	 * The values of one row. A value is read when it is asked for, and all
+	 * values are only read when the map is iterated.
+	 */
+	private class RowValueMap extends AbstractMap
+	{
+		private int destIndex;
+		private Map values;
+
+		RowValueMap( int destIndex )
+		{
+			this.destIndex = destIndex;
+		}
+
+		public boolean containsKey( Object key )
+		{
+			return exprIndexMap.containsKey( key )
+					|| ( dataSetResultSet != null && dataSetExprKeys.containsKey( key ) );
+		}
+
+		public Object get( Object key )
+		{
+			if ( !containsKey( key ) )
+				return null;
+			return getValue( key.toString( ), destIndex );
+		}
+
+		public Set entrySet( )
+		{
+			if ( this.values == null )
+			{
+				this.values = new HashMap( );
+				addValues( exprIndexMap.keySet( ).iterator( ) );
+				if ( dataSetResultSet != null )
+					addValues( dataSetExprKeys.keySet( ).iterator( ) );
+			}
+			return this.values.entrySet( );
+		}
+
+		private void addValues( Iterator it )
+		{
+			while ( it.hasNext( ) )
+			{
+				String key = it.next( ).toString( );
+				this.values.put( key, getValue( key, destIndex ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.document.util;
+
+import java.io.IOException;
+
+import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.impl.document.viewing.DataSetResultSet;
+import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaInfo;
+
+/**
+ * The raw result set of the expression values which are saved by column in
+ * the report document. Only the values of the given expression meta data are
+ * read.
+ */
+public class ColumnExprDataResultSet extends BaseExprDataResultSet
+{
+	private RAInputStream valueIs;
+	private RAInputStream rowInfoIs;
+
+	/**
+	 * @param indexIs,
+	 *            the input stream for column index
+	 * @param valueIs,
+	 *            the input stream for column values
+	 * @param rowInfoIs,
+	 *            the input stream for valid row index, null if all saved rows
+	 *            are valid
+	 * @param inExprMetas,
+	 *            the expression meta data
+	 * @throws DataException
+	 */
+	public ColumnExprDataResultSet( RAInputStream indexIs,
+			RAInputStream valueIs, RAInputStream rowInfoIs,
+			ExprMetaInfo[] inExprMetas, DataSetResultSet dataSetResultSet )
+			throws DataException
+	{
+		this.valueIs = valueIs;
+		this.rowInfoIs = rowInfoIs;
+
+		IExprDataReader exprDataReader = new ColumnExprDataReader( indexIs,
+				valueIs,
+				rowInfoIs,
+				dataSetResultSet );
+		this.rowCount = exprDataReader.getCount( );
+
+		super.init( inExprMetas, exprDataReader );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.document.viewing.IExprDataResultSet#close()
+	 */
+	public void close( )
+	{
+		super.close( );
+
+		try
+		{
+			if ( valueIs != null )
+			{
+				valueIs.close( );
+				valueIs = null;
+			}
+			if ( rowInfoIs != null )
+			{
+				rowInfoIs.close( );
+				rowInfoIs = null;
+			}
+		}
+		catch ( IOException e )
+		{
+			// ignore
+		}
+	}
+
+}
@@ -216,10 +216,11 @@ class ExprDataReader2 implements IExprDataReader
 			throw new DataException( ResourceConstants.BACKWARD_SEEK_ERROR );
 		else if ( index == currRowIndex )
 			return;
-		while( this.currRowIndex < index )
-		{
-			this.next( );
-		}
+		// the row index stream has an int of every row, so the rows in
+		// between are not read
+		this.currRowIndex = index;
+		this.nextDestIndex = rowIndexUtil.read( index );
+		this.rowIDMap.set( currRowIndex, Integer.valueOf( nextDestIndex ) );
 	}
 	
 	/**
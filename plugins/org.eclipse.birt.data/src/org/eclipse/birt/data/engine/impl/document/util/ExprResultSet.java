@@ -131,7 +131,34 @@ public class ExprResultSet implements IExprResultSet
 			}
 			
 		}
-		if ( this.isBasedOnSecondRD == false )
+		int exprScope = this.isBasedOnSecondRD
+				? StreamManager.BASE_SCOPE : StreamManager.SELF_SCOPE;
+		if ( streamManager.hasInStream( DataEngineContext.EXPR_COLUMN_INDEX_STREAM,
+				StreamManager.ROOT_STREAM,
+				exprScope ) )
+		{
+			// the expression values are saved by column, the index stream
+			// is closed by the reader after it is loaded
+			RAInputStream columnIndexRAIs = streamManager.getInStream( DataEngineContext.EXPR_COLUMN_INDEX_STREAM,
+					StreamManager.ROOT_STREAM,
+					exprScope );
+			rowExprsRAIs = streamManager.getInStream( DataEngineContext.EXPR_COLUMN_VALUE_STREAM,
+					StreamManager.ROOT_STREAM,
+					exprScope );
+			if ( this.isBasedOnSecondRD )
+			{
+				rowInfoRAIs = streamManager.getInStream( DataEngineContext.ROW_INDEX_STREAM,
+						StreamManager.ROOT_STREAM,
+						StreamManager.SELF_SCOPE );
+			}
+			this.exprResultReader = new ColumnExprDataReader( columnIndexRAIs,
+					rowExprsRAIs,
+					rowInfoRAIs,
+					( this.qd instanceof IQueryDefinition && ( (IQueryDefinition) qd ).isSummaryQuery( ) )
+							? null : this.dataSetResultSet );
+			this.rowCount = this.exprResultReader.getCount( );
+		}
+		else if ( this.isBasedOnSecondRD == false )
 		{
 			rowExprsRAIs = streamManager.getInStream( DataEngineContext.EXPR_VALUE_STREAM,
 					StreamManager.ROOT_STREAM,
@@ -349,9 +376,10 @@ public class ExprResultSet implements IExprResultSet
 			int currIndex = exprResultSet.getCurrentIndex( );
 			assert destIndex >= currIndex;
 
-			int forwardSteps = destIndex - currIndex;
-			for ( int i = 0; i < forwardSteps; i++ )
-				exprResultSet.next( );
+			// the reader finds the row by its offset, and the caller sets the
+			// leaf group of the row, so the rows in between are not visited
+			if ( destIndex > currIndex )
+				exprResultSet.exprResultReader.moveTo( destIndex );
 		}
 		
 		public boolean next ( ) throws DataException
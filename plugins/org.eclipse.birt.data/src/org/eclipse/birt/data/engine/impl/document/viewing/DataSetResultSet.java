@@ -14,8 +14,6 @@ import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,9 +23,12 @@ import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.ResultClass;
 import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
 import org.eclipse.birt.data.engine.executor.cache.ResultSetUtil;
+import org.eclipse.birt.data.engine.executor.cache.SizeOfUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.StringTable;
+import org.eclipse.birt.data.engine.impl.index.RowIdBitmap;
 import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 import org.eclipse.birt.data.engine.odi.IResultObject;
@@ -52,10 +53,17 @@ public class DataSetResultSet implements IDataSetPopulator
 	private RAInputStream dataSetRowLensStream;
 	private DataInputStream disRowLensStream;
 	private long initPos;
-	private List<Integer> prefilteredRowIds;
+	private int[] prefilteredRowIds;
+	private int prefilteredRowIndex;
 	private Map index;
 	private Map<String, StringTable> stringTableMap;
 	private boolean includeInnerID = true;
+	private DataSetRowCache rowCache;
+	private String dataSetKey;
+	private SizeOfUtil sizeOfUtil;
+	// the last decoded block, which is used when the cache does not keep it
+	private Object[][] currentBlock;
+	private int currentBlockIndex = -1;
 
 	/**
 	 * @param inputStream
@@ -109,18 +117,38 @@ public class DataSetResultSet implements IDataSetPopulator
 		// Notice we should use column count in original metadata
 		this.colCount = rsMetaData.getFieldCount( );
 
+		// The row ids of a RowIdBitmap are already in ascending order
 		if ( prefilteredRows != null )
-		{
-			this.prefilteredRowIds = new LinkedList<Integer>( );
-			this.prefilteredRowIds.addAll( prefilteredRows );
-		}
-		if ( this.prefilteredRowIds != null )
-			Collections.sort( this.prefilteredRowIds );
+			this.prefilteredRowIds = RowIdBitmap.valueOf( prefilteredRows )
+					.toIntArray( );
 		this.index = index;
 		this.stringTableMap = stringTableMap;
 		this.initLoad( );
 	}
 
+	/**
+	 * Read the rows through the cache of decoded rows, which is shared with the
+	 * other result sets of the same data set. It is only done when the row
+	 * count is saved, the row length stream locates the rows, and the rows are
+	 * decoded without string tables and indexes.
+	 * 
+	 * @param rowCache
+	 * @param dataSetKey
+	 *            the key of the data set in the cache
+	 * @throws DataException
+	 */
+	public void shareRows( DataSetRowCache rowCache, String dataSetKey )
+			throws DataException
+	{
+		if ( this.rowCache != null || this.dataSetRowLensStream == null
+				|| this.rowCount < 0 )
+			return;
+		this.sizeOfUtil = new SizeOfUtil( this.rsMetaData );
+		this.rowCache = rowCache;
+		this.dataSetKey = dataSetKey;
+		rowCache.open( dataSetKey );
+	}
+
 	private IResultClass populateResultClass( IResultClass meta )
 			throws DataException
 	{
@@ -151,7 +179,7 @@ public class DataSetResultSet implements IDataSetPopulator
 	{
 		if ( this.prefilteredRowIds != null )
 		{
-			return this.prefilteredRowIds.size( );
+			return this.prefilteredRowIds.length - this.prefilteredRowIndex;
 		}
 		return this.rowCount;
 	}
@@ -163,10 +191,9 @@ public class DataSetResultSet implements IDataSetPopulator
 	{
 		if ( this.prefilteredRowIds != null )
 		{
-			if ( this.prefilteredRowIds.isEmpty( ) )
+			if ( this.prefilteredRowIndex == this.prefilteredRowIds.length )
 				return null;
-			this.skipTo( this.prefilteredRowIds.get( 0 ) );
-			this.prefilteredRowIds.remove( 0 );
+			this.skipTo( this.prefilteredRowIds[this.prefilteredRowIndex++] );
 			return this.getResultObject( );
 		}
 
@@ -175,11 +202,13 @@ public class DataSetResultSet implements IDataSetPopulator
 			try
 			{
 				rowIndex++;
-				this.currentObject = ResultSetUtil.readResultObject( dis,
-						rsMetaData,
-						colCount,
-						this.stringTableMap,
-						this.index );
+				this.currentObject = this.rowCache != null
+						? getSharedRow( rowIndex, true )
+						: ResultSetUtil.readResultObject( dis,
+								rsMetaData,
+								colCount,
+								this.stringTableMap,
+								this.index );
 				if ( this.includeInnerID )
 				{
 					this.currentObject.setCustomFieldValue( ExprMetaUtil.POS_NAME,
@@ -219,6 +248,25 @@ public class DataSetResultSet implements IDataSetPopulator
 
 			if ( this.rowIndex < this.rowCount || this.rowCount == -1 )
 			{
+				if ( this.rowCache != null && index < this.rowCount )
+				{
+					// a block is only decoded for the rows which are read in
+					// order, not for the ones which are picked out
+					IResultObject row = getSharedRow( index,
+							index == this.rowIndex + 1
+									|| index % DataSetRowCache.BLOCK_SIZE == 0 );
+					if ( row != null )
+					{
+						this.rowIndex = index;
+						this.currentObject = row;
+						if ( this.includeInnerID )
+						{
+							this.currentObject.setCustomFieldValue( ExprMetaUtil.POS_NAME,
+									this.getCurrentIndex( ) );
+						}
+						return;
+					}
+				}
 				if ( this.dataSetRowLensStream != null )
 				{
 					this.dataSetRowLensStream.seek( index * 8L );
@@ -250,6 +298,77 @@ public class DataSetResultSet implements IDataSetPopulator
 		 */
 	}
 
+	/**
+	 * Return the row of the block in the shared cache.
+	 * 
+	 * @param index
+	 * @param loadBlock
+	 *            whether the block is decoded and cached if it is not cached
+	 * @return null if the block is not cached and not loaded
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private IResultObject getSharedRow( int index, boolean loadBlock )
+			throws DataException, IOException
+	{
+		int blockIndex = index / DataSetRowCache.BLOCK_SIZE;
+		Object[][] block = blockIndex == this.currentBlockIndex
+				? this.currentBlock
+				: this.rowCache.getBlock( this.dataSetKey, blockIndex );
+		if ( block == null )
+		{
+			if ( !loadBlock )
+				return null;
+			block = loadBlock( blockIndex );
+		}
+		this.currentBlock = block;
+		this.currentBlockIndex = blockIndex;
+		Object[] fields = new Object[this.rsMetaData.getFieldCount( )];
+		System.arraycopy( block[index - blockIndex * DataSetRowCache.BLOCK_SIZE],
+				0,
+				fields,
+				0,
+				this.colCount );
+		return new ResultObject( this.rsMetaData, fields );
+	}
+
+	/**
+	 * Decode the rows of a block and put them into the shared cache.
+	 * 
+	 * @param blockIndex
+	 * @return the field values of the rows
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private Object[][] loadBlock( int blockIndex ) throws DataException,
+			IOException
+	{
+		int start = blockIndex * DataSetRowCache.BLOCK_SIZE;
+		Object[][] block = new Object[Math.min( DataSetRowCache.BLOCK_SIZE,
+				this.rowCount - start )][];
+		this.dataSetRowLensStream.seek( start * 8L );
+		this.inputStream.seek( IOUtil.readLong( this.disRowLensStream )
+				+ this.initPos );
+		this.dis = new DataInputStream( new BufferedInputStream( this.inputStream ) );
+		long size = 0;
+		for ( int i = 0; i < block.length; i++ )
+		{
+			IResultObject row = ResultSetUtil.readResultObject( dis,
+					rsMetaData,
+					colCount,
+					this.stringTableMap,
+					this.index );
+			block[i] = new Object[this.colCount];
+			for ( int j = 0; j < this.colCount; j++ )
+			{
+				block[i][j] = row.getFieldValue( j + 1 );
+			}
+			size += this.sizeOfUtil.sizeOf( row );
+		}
+		this.rowCache.putBlock( this.dataSetKey, blockIndex, block, size );
+		return block;
+	}
+
 	/**
 	 * @throws DataException
 	 */
@@ -287,6 +406,12 @@ public class DataSetResultSet implements IDataSetPopulator
 	 */
 	public void close( )
 	{
+		if ( this.rowCache != null )
+		{
+			this.rowCache.close( this.dataSetKey );
+			this.rowCache = null;
+			this.currentBlock = null;
+		}
 		try
 		{
 			if ( dis != null )
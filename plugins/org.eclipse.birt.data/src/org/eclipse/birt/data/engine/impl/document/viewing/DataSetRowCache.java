@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.viewing;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+
+/**
+ * A cache of the decoded rows of the data sets saved in a report document,
+ * which is shared by the queries viewing the document with the same data
+ * engine context. The rows are cached in blocks of BLOCK_SIZE rows, bounded
+ * by the estimated memory size of the rows. The result sets reading a data set
+ * are counted, and when the cache is full the blocks of the data sets which
+ * are not read any more are removed before the other ones, each in LRU order.
+ * <p>
+ * The cached rows are never modified, the callers copy them into their own
+ * result objects.
+ */
+public class DataSetRowCache
+{
+	public final static int BLOCK_SIZE = 256;
+
+	private static Map<DataEngineContext, DataSetRowCache> instances = new WeakHashMap<DataEngineContext, DataSetRowCache>( );
+
+	private long maxMemorySize;
+	private long memorySize;
+	private Map<String, Integer> readers;
+	private LinkedHashMap<String, Block> blocks;
+
+	/**
+	 *
+	 * @param maxMemorySize
+	 *            the max size of the cached rows in bytes
+	 */
+	public DataSetRowCache( long maxMemorySize )
+	{
+		this.maxMemorySize = maxMemorySize;
+		this.memorySize = 0;
+		this.readers = new HashMap<String, Integer>( );
+		this.blocks = new LinkedHashMap<String, Block>( 16, 0.75f, true );
+	}
+
+	/**
+	 * Return the cache of the report document of the context, and create it
+	 * if it does not exist.
+	 *
+	 * @param context
+	 * @return
+	 */
+	public static synchronized DataSetRowCache getInstance(
+			DataEngineContext context )
+	{
+		DataSetRowCache cache = instances.get( context );
+		if ( cache == null )
+		{
+			cache = new DataSetRowCache( 0 );
+			instances.put( context, cache );
+		}
+		return cache;
+	}
+
+	/**
+	 * Return the cache of the report document of the context if it caches
+	 * rows.
+	 *
+	 * @param context
+	 * @return null if the rows are not cached
+	 */
+	public static synchronized DataSetRowCache get( DataEngineContext context )
+	{
+		DataSetRowCache cache = instances.get( context );
+		if ( cache == null || cache.getMaxMemorySize( ) <= 0 )
+			return null;
+		return cache;
+	}
+
+	/**
+	 * Remove the cache of the context with its rows.
+	 *
+	 * @param context
+	 */
+	public static synchronized void release( DataEngineContext context )
+	{
+		DataSetRowCache cache = instances.remove( context );
+		if ( cache != null )
+			cache.clear( );
+	}
+
+	/**
+	 * Set the max size of the cached rows in bytes. Zero or negative number
+	 * disables the cache.
+	 *
+	 * @param maxMemorySize
+	 */
+	public synchronized void setMaxMemorySize( long maxMemorySize )
+	{
+		this.maxMemorySize = maxMemorySize < 0 ? 0 : maxMemorySize;
+		evict( );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public synchronized long getMaxMemorySize( )
+	{
+		return maxMemorySize;
+	}
+
+	/**
+	 *
+	 * @return the estimated size of the cached rows in bytes
+	 */
+	public synchronized long getMemorySize( )
+	{
+		return memorySize;
+	}
+
+	/**
+	 *
+	 * @return the number of cached blocks
+	 */
+	public synchronized int size( )
+	{
+		return blocks.size( );
+	}
+
+	/**
+	 * Remove all the cached blocks.
+	 */
+	public synchronized void clear( )
+	{
+		blocks.clear( );
+		memorySize = 0;
+	}
+
+	/**
+	 * Count a result set which starts to read the data set.
+	 *
+	 * @param dataSet
+	 *            the key of the data set, which is the path of its stream
+	 */
+	public synchronized void open( String dataSet )
+	{
+		Integer count = readers.get( dataSet );
+		readers.put( dataSet, Integer.valueOf( count == null ? 1
+				: count.intValue( ) + 1 ) );
+	}
+
+	/**
+	 * Count a result set which stops reading the data set. The blocks of the
+	 * data set are kept until the cache is full.
+	 *
+	 * @param dataSet
+	 */
+	public synchronized void close( String dataSet )
+	{
+		Integer count = readers.get( dataSet );
+		if ( count == null )
+			return;
+		if ( count.intValue( ) > 1 )
+			readers.put( dataSet, Integer.valueOf( count.intValue( ) - 1 ) );
+		else
+			readers.remove( dataSet );
+	}
+
+	/**
+	 *
+	 * @param dataSet
+	 * @return the number of the result sets reading the data set
+	 */
+	public synchronized int getReaderCount( String dataSet )
+	{
+		Integer count = readers.get( dataSet );
+		return count == null ? 0 : count.intValue( );
+	}
+
+	/**
+	 *
+	 * @param dataSet
+	 * @param blockIndex
+	 * @return the field values of the rows of the block, or null if the block
+	 *         is not cached
+	 */
+	public synchronized Object[][] getBlock( String dataSet, int blockIndex )
+	{
+		Block block = blocks.get( getKey( dataSet, blockIndex ) );
+		return block == null ? null : block.rows;
+	}
+
+	/**
+	 * Cache the rows of a block, which are not modified any more.
+	 *
+	 * @param dataSet
+	 * @param blockIndex
+	 * @param rows
+	 *            the field values of the rows
+	 * @param size
+	 *            the estimated size of the rows in bytes
+	 */
+	public synchronized void putBlock( String dataSet, int blockIndex,
+			Object[][] rows, long size )
+	{
+		if ( size > maxMemorySize )
+			return;
+		Block old = blocks.put( getKey( dataSet, blockIndex ),
+				new Block( dataSet, rows, size ) );
+		if ( old != null )
+			memorySize -= old.size;
+		memorySize += size;
+		evict( );
+	}
+
+	/**
+	 * Remove the least recently used blocks of the data sets which are not
+	 * read, then the least recently used ones of the others, until the cached
+	 * rows fit in the max memory size.
+	 */
+	private void evict( )
+	{
+		Iterator<Block> itr = blocks.values( ).iterator( );
+		while ( memorySize > maxMemorySize && itr.hasNext( ) )
+		{
+			Block block = itr.next( );
+			if ( readers.containsKey( block.dataSet ) )
+				continue;
+			memorySize -= block.size;
+			itr.remove( );
+		}
+		itr = blocks.values( ).iterator( );
+		while ( memorySize > maxMemorySize && itr.hasNext( ) )
+		{
+			memorySize -= itr.next( ).size;
+			itr.remove( );
+		}
+	}
+
+	/**
+	 *
+	 * @param dataSet
+	 * @param blockIndex
+	 * @return
+	 */
+	private static String getKey( String dataSet, int blockIndex )
+	{
+		return dataSet + "#" + blockIndex;
+	}
+
+	/**
+	 * The cached rows of a block.
+	 */
+	private static class Block
+	{
+		private String dataSet;
+		private Object[][] rows;
+		private long size;
+
+		Block( String dataSet, Object[][] rows, long size )
+		{
+			this.dataSet = dataSet;
+			this.rows = rows;
+			this.size = size;
+		}
+	}
+}
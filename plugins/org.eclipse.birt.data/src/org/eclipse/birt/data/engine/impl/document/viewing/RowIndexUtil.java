@@ -19,15 +19,19 @@ import java.io.OutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.core.util.IOUtil;
 
 /**
- * Wrap simple I/O for row index information.
+ * Wrap simple I/O for row index information. The row index of every row is
+ * saved as an int, so the row index of any row is found at rowIndex * 4.
  */
 public class RowIndexUtil
 {
 	private DataOutputStream rowDos;
 	private DataInputStream rowDis;
+	private RAInputStream rowRAIs;
+	private int readIndex;
 	private static Logger logger = Logger.getLogger( RowIndexUtil.class.getName( ) );
 
 	/**
@@ -44,6 +48,8 @@ public class RowIndexUtil
 	public RowIndexUtil( InputStream rowIs )
 	{
 		rowDis = new DataInputStream( rowIs );
+		if ( rowIs instanceof RAInputStream )
+			rowRAIs = (RAInputStream) rowIs;
 	}
 
 	/**
@@ -63,13 +69,17 @@ public class RowIndexUtil
 	}
 
 	/**
-	 * @return
+	 * @return the row index of the next row, -1 if there are no more rows
 	 */
 	public int read( )
 	{
 		try
 		{
-			return IOUtil.readInt( rowDis );
+			// DataInputStream detects the end of the stream, which
+			// IOUtil.readInt does not
+			int rowId = rowDis.readInt( );
+			readIndex++;
+			return rowId;
 		}
 		catch ( IOException e )
 		{
@@ -77,6 +87,34 @@ public class RowIndexUtil
 		}
 	}
 
+	/**
+	 * Read the row index of the given row, which is at or after the next row
+	 * to read. The rows in between are not read when the input stream is
+	 * random access.
+	 * 
+	 * @param rowIndex
+	 * @return the row index of the given row, -1 if it is after the last row
+	 */
+	public int read( int rowIndex )
+	{
+		try
+		{
+			if ( rowIndex != readIndex )
+			{
+				if ( rowRAIs != null )
+					rowRAIs.seek( rowIndex * 4L );
+				else
+					rowDis.skipBytes( ( rowIndex - readIndex ) * 4 );
+				readIndex = rowIndex;
+			}
+		}
+		catch ( IOException e )
+		{
+			return -1;
+		}
+		return read( );
+	}
+
 	/**
 	 *
 	 */
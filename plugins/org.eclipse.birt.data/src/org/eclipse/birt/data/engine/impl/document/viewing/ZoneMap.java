@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.viewing;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+
+/**
+ * The zone map of the rows saved in the report document, which has the null
+ * count and the numeric range of every binding per block of rows. It answers
+ * whether a block may have a row which matches a conditional expression on a
+ * binding, so the blocks which can not match are skipped.
+ */
+public class ZoneMap
+{
+	private int rowCount;
+	private int blockSize;
+	private int blockCount;
+
+	private Map exprIndexMap;
+	private int[] exprTypes;
+
+	private int[][] nullCounts;
+	private boolean[][] hasRanges;
+	private double[][] mins;
+	private double[][] maxs;
+
+	/**
+	 * @param inputStream
+	 * @throws IOException
+	 */
+	public ZoneMap( InputStream inputStream ) throws IOException
+	{
+		DataInputStream dis = new DataInputStream( inputStream );
+		this.rowCount = IOUtil.readInt( dis );
+		this.blockSize = IOUtil.readInt( dis );
+		int exprCount = IOUtil.readInt( dis );
+		this.exprIndexMap = new HashMap( );
+		this.exprTypes = new int[exprCount];
+		for ( int i = 0; i < exprCount; i++ )
+		{
+			exprIndexMap.put( IOUtil.readString( dis ), Integer.valueOf( i ) );
+			exprTypes[i] = IOUtil.readInt( dis );
+		}
+
+		this.blockCount = IOUtil.readInt( dis );
+		this.nullCounts = new int[blockCount][exprCount];
+		this.hasRanges = new boolean[blockCount][exprCount];
+		this.mins = new double[blockCount][exprCount];
+		this.maxs = new double[blockCount][exprCount];
+		for ( int i = 0; i < blockCount; i++ )
+		{
+			for ( int j = 0; j < exprCount; j++ )
+			{
+				nullCounts[i][j] = IOUtil.readInt( dis );
+				hasRanges[i][j] = IOUtil.readBool( dis );
+				if ( hasRanges[i][j] )
+				{
+					mins[i][j] = IOUtil.readDouble( dis );
+					maxs[i][j] = IOUtil.readDouble( dis );
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 */
+	public int getRowCount( )
+	{
+		return this.rowCount;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getBlockSize( )
+	{
+		return this.blockSize;
+	}
+
+	/**
+	 * @return
+	 */
+	public int getBlockCount( )
+	{
+		return this.blockCount;
+	}
+
+	/**
+	 * @param name
+	 * @return whether the zone map has the statistics of the binding
+	 */
+	public boolean contains( String name )
+	{
+		return exprIndexMap.containsKey( name );
+	}
+
+	/**
+	 * @param name
+	 * @return the data type of the binding
+	 */
+	public int getDataType( String name )
+	{
+		return exprTypes[( (Integer) exprIndexMap.get( name ) ).intValue( )];
+	}
+
+	/**
+	 * @param operator
+	 * @return whether the blocks can be skipped with the operator
+	 */
+	public static boolean isSupported( int operator )
+	{
+		switch ( operator )
+		{
+			case IConditionalExpression.OP_EQ :
+			case IConditionalExpression.OP_LT :
+			case IConditionalExpression.OP_LE :
+			case IConditionalExpression.OP_GT :
+			case IConditionalExpression.OP_GE :
+			case IConditionalExpression.OP_BETWEEN :
+			case IConditionalExpression.OP_IN :
+			case IConditionalExpression.OP_NULL :
+			case IConditionalExpression.OP_NOT_NULL :
+				return true;
+			default :
+				return false;
+		}
+	}
+
+	/**
+	 * Return whether a row of the block may match the conditional expression.
+	 * The operands of the comparisons are numbers, which are compared as
+	 * double like ScriptEvalUtil does for the non-BigDecimal numbers.
+	 *
+	 * @param block
+	 * @param name
+	 *            the binding name
+	 * @param operator
+	 * @param operands
+	 * @return false if no row of the block matches
+	 */
+	public boolean mayMatch( int block, String name, int operator,
+			Object[] operands )
+	{
+		Integer index = (Integer) exprIndexMap.get( name );
+		if ( index == null || !isSupported( operator ) )
+			return true;
+		int i = index.intValue( );
+		int nullCount = nullCounts[block][i];
+		if ( nullCount == -1 )
+			return true;
+		int valueCount = this.getBlockRowCount( block ) - nullCount;
+
+		if ( operator == IConditionalExpression.OP_NULL )
+			return nullCount > 0;
+		if ( operator == IConditionalExpression.OP_NOT_NULL )
+			return valueCount > 0;
+
+		// null is less than the other values unless the null ordering says
+		// otherwise, so only the equality and between never match a null value
+		if ( nullCount > 0
+				&& operator != IConditionalExpression.OP_EQ
+				&& operator != IConditionalExpression.OP_IN
+				&& operator != IConditionalExpression.OP_BETWEEN )
+			return true;
+		if ( valueCount == 0 )
+			return false;
+		if ( !hasRanges[block][i]
+				|| operands.length == 0
+				|| ( operator == IConditionalExpression.OP_BETWEEN && operands.length < 2 ) )
+			return true;
+		for ( int j = 0; j < operands.length; j++ )
+		{
+			if ( !( operands[j] instanceof Double ) )
+				return true;
+		}
+
+		double min = mins[block][i];
+		double max = maxs[block][i];
+		switch ( operator )
+		{
+			case IConditionalExpression.OP_EQ :
+				return inRange( min, max, operands[0] );
+			case IConditionalExpression.OP_LT :
+				return Double.compare( min, toDouble( operands[0] ) ) < 0;
+			case IConditionalExpression.OP_LE :
+				return Double.compare( min, toDouble( operands[0] ) ) <= 0;
+			case IConditionalExpression.OP_GT :
+				return Double.compare( max, toDouble( operands[0] ) ) > 0;
+			case IConditionalExpression.OP_GE :
+				return Double.compare( max, toDouble( operands[0] ) ) >= 0;
+			case IConditionalExpression.OP_BETWEEN :
+				double low = Math.min( toDouble( operands[0] ),
+						toDouble( operands[1] ) );
+				double high = Math.max( toDouble( operands[0] ),
+						toDouble( operands[1] ) );
+				return Double.compare( max, low ) >= 0
+						&& Double.compare( min, high ) <= 0;
+			case IConditionalExpression.OP_IN :
+				for ( int j = 0; j < operands.length; j++ )
+				{
+					if ( inRange( min, max, operands[j] ) )
+						return true;
+				}
+				return false;
+			default :
+				return true;
+		}
+	}
+
+	/**
+	 * @param block
+	 * @return
+	 */
+	public int getBlockRowCount( int block )
+	{
+		return Math.min( blockSize, rowCount - block * blockSize );
+	}
+
+	/**
+	 * @param min
+	 * @param max
+	 * @param value
+	 * @return
+	 */
+	private static boolean inRange( double min, double max, Object value )
+	{
+		double d = toDouble( value );
+		return Double.compare( min, d ) <= 0 && Double.compare( d, max ) <= 0;
+	}
+
+	/**
+	 * @param value
+	 * @return
+	 */
+	private static double toDouble( Object value )
+	{
+		return ( (Double) value ).doubleValue( );
+	}
+}
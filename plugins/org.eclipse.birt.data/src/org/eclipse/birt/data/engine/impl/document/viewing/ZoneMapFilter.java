@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.viewing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The filters which are checked against a zone map to find the blocks of rows
+ * which may match all of them. The filters are combined with AND, and they are
+ * still evaluated on the rows of the blocks which are not skipped.
+ */
+public class ZoneMapFilter
+{
+	private ZoneMap zoneMap;
+	private List predicates;
+
+	// whether a row of every block may match all of the predicates
+	private boolean[] candidateBlocks;
+
+	/**
+	 * @param zoneMap
+	 */
+	public ZoneMapFilter( ZoneMap zoneMap )
+	{
+		assert zoneMap != null;
+		this.zoneMap = zoneMap;
+		this.predicates = new ArrayList( );
+	}
+
+	/**
+	 * @param name
+	 *            the binding name
+	 * @param operator
+	 * @param operands
+	 * @return whether the predicate can be checked against the zone map
+	 */
+	public boolean addPredicate( String name, int operator, Object[] operands )
+	{
+		if ( !zoneMap.contains( name ) || !ZoneMap.isSupported( operator ) )
+			return false;
+		predicates.add( new Object[]{
+				name, Integer.valueOf( operator ), operands
+		} );
+		this.candidateBlocks = null;
+		return true;
+	}
+
+	/**
+	 * @return whether there is any predicate to skip the blocks
+	 */
+	public boolean isEmpty( )
+	{
+		return predicates.isEmpty( );
+	}
+
+	/**
+	 * @param rowIndex
+	 * @return the given row index if its block may match, the first row of
+	 *         the next block which may match, or -1 if no other row matches
+	 */
+	public int nextCandidateRow( int rowIndex )
+	{
+		if ( candidateBlocks == null )
+			this.populateCandidateBlocks( );
+		if ( rowIndex >= zoneMap.getRowCount( ) )
+			return rowIndex;
+		for ( int block = rowIndex / zoneMap.getBlockSize( ); block < candidateBlocks.length; block++ )
+		{
+			if ( candidateBlocks[block] )
+				return Math.max( rowIndex, block * zoneMap.getBlockSize( ) );
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 */
+	private void populateCandidateBlocks( )
+	{
+		candidateBlocks = new boolean[zoneMap.getBlockCount( )];
+		for ( int block = 0; block < candidateBlocks.length; block++ )
+		{
+			candidateBlocks[block] = true;
+			for ( int i = 0; i < predicates.size( ); i++ )
+			{
+				Object[] predicate = (Object[]) predicates.get( i );
+				if ( !zoneMap.mayMatch( block,
+						(String) predicate[0],
+						( (Integer) predicate[1] ).intValue( ),
+						(Object[]) predicate[2] ) )
+				{
+					candidateBlocks[block] = false;
+					break;
+				}
+			}
+		}
+	}
+}
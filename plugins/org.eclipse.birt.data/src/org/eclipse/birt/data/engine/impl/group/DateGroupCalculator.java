@@ -71,4 +71,13 @@ abstract class DateGroupCalculator extends GroupCalculator
 	{
 		return DataTypeUtil.toDate( value );
 	}
+	
+	/**
+	 * 
+	 * @return the start date of the first interval
+	 */
+	protected Date getStart( )
+	{
+		return intervalStart == null ? defaultStart : (Date) intervalStart;
+	}
 }
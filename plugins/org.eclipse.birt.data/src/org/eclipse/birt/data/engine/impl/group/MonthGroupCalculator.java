@@ -14,6 +14,7 @@ package org.eclipse.birt.data.engine.impl.group;
 import java.util.Date;
 
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.function.bre.BirtDateTimeUtil;
 
 import com.ibm.icu.util.TimeZone;
 import com.ibm.icu.util.ULocale;
@@ -24,13 +25,15 @@ import com.ibm.icu.util.ULocale;
 
 class MonthGroupCalculator extends DateGroupCalculator
 {
-
-
+	private int startMonth;
 
 	public MonthGroupCalculator( Object intervalStart, double intervalRange,
 			ULocale locale, TimeZone timeZone ) throws BirtException
 	{
 		super( intervalStart, intervalRange, locale, timeZone );
+		this.startMonth = BirtDateTimeUtil.monthIndex( getStart( ),
+				this.timeZone,
+				this.locale );
 	}
 
 	/*
@@ -46,25 +49,13 @@ class MonthGroupCalculator extends DateGroupCalculator
 		}
 
 		Date target = getDate( value );
-		
-		if ( intervalStart == null )
+		int diff = BirtDateTimeUtil.monthIndex( target, this.timeZone, this.locale )
+				- this.startMonth;
+		if ( intervalStart != null && diff < 0 )
 		{
-			return new Double( Math.floor( (double)this.dateTimeUtil.diffMonth( defaultStart,
-					target )
-					/(double) getDateIntervalRange( ) ) );
-		}
-		else
-		{
-			if ( this.dateTimeUtil.diffMonth( (Date) intervalStart, target ) < 0 )
-			{
-				return new Double( -1 );
-			}
-			else
-			{
-				return new Double( Math.floor( (double) this.dateTimeUtil.diffMonth( (Date) intervalStart,
-						target )
-						/ (double) getDateIntervalRange( ) ) );
-			}
+			return new Double( -1 );
 		}
+		return new Double( Math.floor( (double) diff
+				/ (double) getDateIntervalRange( ) ) );
 	}
 }
@@ -14,6 +14,7 @@ package org.eclipse.birt.data.engine.impl.group;
 import java.util.Date;
 
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.function.bre.BirtDateTimeUtil;
 
 import com.ibm.icu.util.TimeZone;
 import com.ibm.icu.util.ULocale;
@@ -24,14 +25,15 @@ import com.ibm.icu.util.ULocale;
  */
 class QuarterGroupCalculator extends DateGroupCalculator
 {
-
-
+	private int startQuarter;
 
 	public QuarterGroupCalculator( Object intervalStart, double intervalRange,
 			ULocale locale, TimeZone timeZone ) throws BirtException
 	{
 		super( intervalStart, intervalRange, locale, timeZone );
-		// TODO Auto-generated constructor stub
+		this.startQuarter = BirtDateTimeUtil.quarterIndex( getStart( ),
+				this.timeZone,
+				this.locale );
 	}
 
 	/*
@@ -47,25 +49,13 @@ class QuarterGroupCalculator extends DateGroupCalculator
 		}
 
 		Date target = getDate( value );
-		
-		if ( intervalStart == null )
+		int diff = BirtDateTimeUtil.quarterIndex( target, this.timeZone, this.locale )
+				- this.startQuarter;
+		if ( intervalStart != null && diff < 0 )
 		{
-			return new Double( Math.floor( (double)this.dateTimeUtil.diffQuarter( defaultStart,
-					target )
-					/ (double)getDateIntervalRange( ) ) );
-		}
-		else
-		{
-			if ( this.dateTimeUtil.diffQuarter( (Date) intervalStart, target ) < 0 )
-			{
-				return new Double( -1 );
-			}
-			else
-			{
-				return new Double( Math.floor( (double)this.dateTimeUtil.diffQuarter( (Date) intervalStart,
-						target )
-						/ (double)getDateIntervalRange( ) ) );
-			}
+			return new Double( -1 );
 		}
+		return new Double( Math.floor( (double) diff
+				/ (double) getDateIntervalRange( ) ) );
 	}
 }
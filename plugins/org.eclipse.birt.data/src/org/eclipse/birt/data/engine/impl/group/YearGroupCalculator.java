@@ -14,6 +14,7 @@ package org.eclipse.birt.data.engine.impl.group;
 import java.util.Date;
 
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.function.bre.BirtDateTimeUtil;
 
 import com.ibm.icu.util.TimeZone;
 import com.ibm.icu.util.ULocale;
@@ -23,12 +24,15 @@ import com.ibm.icu.util.ULocale;
  */
 class YearGroupCalculator extends DateGroupCalculator
 {
-
+	private int startYear;
 
 	public YearGroupCalculator( Object intervalStart, double intervalRange,
 			ULocale locale, TimeZone timeZone ) throws BirtException
 	{
 		super( intervalStart, intervalRange, locale, timeZone );
+		this.startYear = BirtDateTimeUtil.year( getStart( ),
+				this.timeZone,
+				this.locale );
 	}
 
 	/*
@@ -44,25 +48,13 @@ class YearGroupCalculator extends DateGroupCalculator
 		}
 
 		Date target = getDate( value );
-		
-		if ( intervalStart == null )
-		{
-			return new Double( Math.floor( ( double )this.dateTimeUtil.diffYear( defaultStart,
-					target )
-					/ ( double )getDateIntervalRange( ) ) );
-		}
-		else
+		int diff = BirtDateTimeUtil.year( target, this.timeZone, this.locale )
+				- this.startYear;
+		if ( intervalStart != null && diff < 0 )
 		{
-			if ( this.dateTimeUtil.diffYear( (Date) intervalStart, target ) < 0 )
-			{
-				return new Double( -1 );
-			}
-			else
-			{
-				return new Double( Math.floor( (double) this.dateTimeUtil.diffYear( (Date) intervalStart,
-						target )
-						/ (double) getDateIntervalRange( ) ) );
-			}
+			return new Double( -1 );
 		}
+		return new Double( Math.floor( (double) diff
+				/ (double) getDateIntervalRange( ) ) );
 	}
 }
@@ -3,7 +3,6 @@ package org.eclipse.birt.data.engine.impl.index;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -129,6 +128,8 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			}
 			if( btree != null )
 				btree.close( );
+			else if( inputFile != null )
+				inputFile.close( );
 		}
 		catch (IOException e)
 		{
@@ -254,7 +255,7 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 		else if ( filterType == IConditionalExpression.OP_IN )
 		{
 			List candidate = (List) key;
-			Set<Integer> result = new HashSet<Integer>( );
+			RowIdBitmap result = new RowIdBitmap( );
 			for ( Object eachKey : candidate )
 			{
 				result.addAll( getKeyIndex( eachKey ) );
@@ -283,10 +284,10 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			return getBetween( candidate.get( 0 ), candidate.get( 1 ) );
 		}
 		else
-			return new HashSet<Integer>( );
+			return new RowIdBitmap( );
 	}
 	
-	private Set<Integer> getBetween( Object key1, Object key2 ) throws DataException
+	private RowIdBitmap getBetween( Object key1, Object key2 ) throws DataException
 	{
 		Object min, max;
 		if ( ScriptEvalUtil.compare( key1, key2 ) <= 0 )
@@ -309,7 +310,7 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			throw DataException.wrap( e1 );
 		}
 		BTreeCursor bCursor = btree.createCursor( );
-		Set<Integer> result = new HashSet<Integer>( );
+		RowIdBitmap result = new RowIdBitmap( );
 		try
 		{
 			if( !bCursor.first( ) )
@@ -317,10 +318,13 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			if( ScriptEvalUtil.compare( bCursor.getKey( ), min ) <= 0 )
 			{
 				bCursor.moveTo( min );
-				if( ( (Comparable)bCursor.getKey( ) ).compareTo( max ) > 0 )
-					return result;
-				if( ( (Comparable)bCursor.getKey( ) ).compareTo( min ) >= 0 )
-					result.addAll( bCursor.getValues( ) );
+				if( bCursor.getKey( ) != null )
+				{
+					if( ( (Comparable)bCursor.getKey( ) ).compareTo( max ) > 0 )
+						return result;
+					if( ( (Comparable)bCursor.getKey( ) ).compareTo( min ) >= 0 )
+						result.addAll( bCursor.getValues( ) );
+				}
 			}
 			else
 			{
@@ -328,6 +332,9 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			}
 			while( bCursor.next( ) )
 			{
+				// the null key is in no range
+				if( bCursor.getKey( ) == null )
+					continue;
 				if( ( (Comparable)bCursor.getKey( ) ).compareTo( max ) > 0 )
 					return result;
 				result.addAll( bCursor.getValues( ) );
@@ -340,7 +347,7 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 		return result;
 	}
 	
-	private Set<Integer> getGreater( Object key, boolean includeKey ) throws DataException
+	private RowIdBitmap getGreater( Object key, boolean includeKey ) throws DataException
 	{
 		try
 		{
@@ -351,19 +358,21 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			throw DataException.wrap( e1 );
 		}
 		BTreeCursor bCursor = btree.createCursor( );
-		Set<Integer> result = new HashSet<Integer>( );
+		RowIdBitmap result = new RowIdBitmap( );
 		try
 		{
 			if( !bCursor.first( ) )
 				return result;
-			if( ( (Comparable)bCursor.getKey( ) ).compareTo( key ) > 0 )
+			if( bCursor.getKey( ) != null
+					&& ( (Comparable)bCursor.getKey( ) ).compareTo( key ) > 0 )
 			{
 				bCursor.beforeFirst( );
 			}
 			else
 			{
 				bCursor.moveTo( key );
-				int cr = ( (Comparable)bCursor.getKey( ) ).compareTo( key );
+				int cr = bCursor.getKey( ) == null ? -1
+						: ( (Comparable)bCursor.getKey( ) ).compareTo( key );
 				if( ( includeKey && cr == 0 ) || cr > 0 )
 				{
 					result.addAll( bCursor.getValues( ) );
@@ -371,7 +380,9 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			}
 			while( bCursor.next( ) )
 			{
-				result.addAll( bCursor.getValues( ) );
+				// the null key is in no range
+				if( bCursor.getKey( ) != null )
+					result.addAll( bCursor.getValues( ) );
 			}
 		}
 		catch (IOException e) 
@@ -381,7 +392,7 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 		return result;
 	}
 	
-	private Set<Integer> getLess( Object key, boolean includeKey ) throws DataException
+	private RowIdBitmap getLess( Object key, boolean includeKey ) throws DataException
 	{
 		try
 		{
@@ -392,11 +403,14 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			throw DataException.wrap( e1 );
 		}
 		BTreeCursor bCursor = btree.createCursor( );
-		Set<Integer> result = new HashSet<Integer>( );
+		RowIdBitmap result = new RowIdBitmap( );
 		try
 		{
 			while( bCursor.next( ) )
 			{
+				// the null key is in no range
+				if( bCursor.getKey( ) == null )
+					continue;
 				int cr = ( (Comparable)bCursor.getKey( ) ).compareTo( key );
 				if( cr < 0 ||( cr == 0 && includeKey ) )
 					result.addAll( bCursor.getValues( ) );
@@ -411,9 +425,9 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 		return result;
 	}
 	
-	private Set<Integer> getKeyIndex( Object key ) throws DataException
+	private RowIdBitmap getKeyIndex( Object key ) throws DataException
 	{
-		Set<Integer> set = new HashSet<Integer>();
+		RowIdBitmap set = new RowIdBitmap( );
 		Collection<Integer> rowID = null;
 		try
 		{
@@ -482,21 +496,19 @@ public class BTreeIndex implements IIndexSerializer, IDataSetIndex
 			btree = createBTree( inputFile, BTREE_CACHE_SIZE, serializer );
 		}
 		BTreeCursor<Object, Integer> bCursor = btree.createCursor( );
-		List<Integer> keyRow = new ArrayList<Integer>( );
+		RowIdBitmap keyRow = new RowIdBitmap( );
 		try
 		{
 			while( bCursor.next( ) )
 			{
-				keyRow.add( bCursor.getValue( ) );
+				keyRow.add( bCursor.getValue( ).intValue( ) );
 			}
 		}
 		catch (IOException e)
 		{
 			throw new DataException( e.getLocalizedMessage( ), e ); 
 		}
-		Set<Integer> set = new HashSet<Integer>( );
-		set.addAll( keyRow );
-		return set;
+		return keyRow;
 	}
 
 }
@@ -547,9 +559,9 @@ class ArchiveInputFile implements BTreeFile
 		throw new IOException( "read only stream" );
 	}
 
-	public void close( )
+	public void close( ) throws IOException
 	{
-
+		input.close( );
 	}
 }
 
@@ -15,7 +15,6 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -71,7 +70,7 @@ public class DataSetInMemoryStringIndex extends HashMap
 		else
 		{
 			List candidate = (List) key;
-			Set<Integer> result = new HashSet<Integer>( );
+			RowIdBitmap result = new RowIdBitmap( );
 			for ( Object eachKey : candidate )
 			{
 				result.addAll( getKeyIndex( eachKey ) );
@@ -84,7 +83,7 @@ public class DataSetInMemoryStringIndex extends HashMap
 	{
 		Object result = getWrappedKey( key );
 		if ( result == null )
-			return new HashSet( );
+			return new RowIdBitmap( );
 		else
 			return ( (WrapperedValue) result ).getIndex( );
 	}
@@ -141,7 +140,7 @@ public class DataSetInMemoryStringIndex extends HashMap
 
 		private long keyOffset;
 		private RAInputStream keyStream;
-		private Set index = new HashSet();
+		private RowIdBitmap index = new RowIdBitmap( );
 		private Object keyValue;
 
 		WrapperedValue( RAInputStream keyStream, List index, long keyOffset )
@@ -157,7 +156,7 @@ public class DataSetInMemoryStringIndex extends HashMap
 			this.index.addAll( index );
 		}
 
-		public Set getIndex( )
+		public RowIdBitmap getIndex( )
 		{
 			return this.index;
 		}
@@ -234,12 +233,12 @@ public class DataSetInMemoryStringIndex extends HashMap
 	
 	public Set<Integer> getAllKeyRows( ) throws DataException
 	{
-		Set<Integer> rowID = new HashSet<Integer>();
+		RowIdBitmap rowID = new RowIdBitmap( );
 		Object[] values = this.values( ).toArray( );
 		for( int i = 0; i < values.length; i++ )
 		{
-			Iterator iterator = ( ( WrapperedValue )values[i] ).getIndex( ).iterator( );
-			rowID.add(  (Integer) iterator.next( ) );
+			Iterator<Integer> iterator = ( ( WrapperedValue )values[i] ).getIndex( ).iterator( );
+			rowID.add( iterator.next( ).intValue( ) );
 		}
 		return rowID;
 	}
@@ -14,7 +14,6 @@ package org.eclipse.birt.data.engine.impl.index;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -61,9 +60,9 @@ public class DataSetNumberIndex implements IDataSetIndex
 
 	}
 
-	public Set<Integer> seekG( Object target, boolean incEqual) throws DataException
+	public RowIdBitmap seekG( Object target, boolean incEqual) throws DataException
 	{
-		Set<Integer> result = new HashSet<Integer>();
+		RowIdBitmap result = new RowIdBitmap( );
 		int primaryIndex = binarySearch( target, this.boundaryStartingValues, IConditionalExpression.OP_LE );
 		
 		if( primaryIndex < 0 || primaryIndex >= this.boundaryStartingValues.size( ))
@@ -76,9 +75,9 @@ public class DataSetNumberIndex implements IDataSetIndex
 		return result;
 	}
 	
-	public Set<Integer> seekL( Object target, boolean incEqual ) throws DataException
+	public RowIdBitmap seekL( Object target, boolean incEqual ) throws DataException
 	{
-		Set<Integer> result = new HashSet<Integer>();
+		RowIdBitmap result = new RowIdBitmap( );
 		int primaryIndex = binarySearch( target, this.boundaryStartingValues, IConditionalExpression.OP_LE );
 		
 		if( primaryIndex < 0 || primaryIndex >= this.boundaryStartingValues.size( ))
@@ -91,18 +90,18 @@ public class DataSetNumberIndex implements IDataSetIndex
 		return result;
 	}
 	
-	public Set<Integer> seekEQ( Object target ) throws DataException
+	public RowIdBitmap seekEQ( Object target ) throws DataException
 	{
-		Set<Integer> result = new HashSet<Integer>();
+		RowIdBitmap result = new RowIdBitmap( );
 		int primaryIndex = binarySearch( target, this.boundaryStartingValues, IConditionalExpression.OP_LE );
 		if( primaryIndex < 0 || primaryIndex >= this.boundaryStartingValues.size( ))
 			return result;
 		return segs[primaryIndex].seek( target );
 	}
 
-	public Set<Integer> seekBetween( Object target1, Object target2 ) throws DataException
+	public RowIdBitmap seekBetween( Object target1, Object target2 ) throws DataException
 	{
-		Set<Integer> result = new HashSet<Integer>( );
+		RowIdBitmap result = new RowIdBitmap( );
 		int primaryIndex1 = binarySearch( target1,
 				this.boundaryStartingValues,
 				IConditionalExpression.OP_LE );
@@ -226,7 +225,7 @@ public class DataSetNumberIndex implements IDataSetIndex
 	{
 
 		private List keys;
-		private List<Set<Integer>> indexs;
+		private List<RowIdBitmap> indexs;
 		private RAInputStream raIn;
 		private long offset;
 		private boolean initialized;
@@ -244,7 +243,7 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return this.keys;
 		}
 		
-		public List<Set<Integer>>  getIndexs( ) throws DataException
+		public List<RowIdBitmap>  getIndexs( ) throws DataException
 		{
 			init( );
 			return this.indexs;
@@ -256,11 +255,11 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return this.keys.size( );
 		}
 
-		public Set<Integer> seekAll( ) throws DataException
+		public RowIdBitmap seekAll( ) throws DataException
 		{
 			init( );
-			List<Set<Integer>> indexList = this.indexs;
-			Set<Integer> result = new HashSet<Integer>( );
+			List<RowIdBitmap> indexList = this.indexs;
+			RowIdBitmap result = new RowIdBitmap( );
 			for ( int i = 0; i < indexList.size( ); i++ )
 			{
 				result.addAll( indexList.get( i ) );
@@ -268,17 +267,17 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return result;
 		}
 
-		public Set<Integer> seekG( Object value, boolean incEqual )
+		public RowIdBitmap seekG( Object value, boolean incEqual )
 				throws DataException
 		{
 			init( );
 			List keyList = this.keys;
-			List<Set<Integer>> indexList = this.indexs;
+			List<RowIdBitmap> indexList = this.indexs;
 			int threshHold = binarySearch( value, keyList, incEqual
 					? IConditionalExpression.OP_GE : IConditionalExpression.OP_GT );
 			if ( threshHold < 0 || threshHold >= keyList.size( ) )
-				return new HashSet( );
-			Set<Integer> result = new HashSet<Integer>( );
+				return new RowIdBitmap( );
+			RowIdBitmap result = new RowIdBitmap( );
 
 			for ( int i = threshHold; i < keyList.size( ); i++ )
 			{
@@ -287,17 +286,17 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return result;
 		}
 
-		public Set<Integer> seekL( Object value, boolean incEqual )
+		public RowIdBitmap seekL( Object value, boolean incEqual )
 				throws DataException
 		{
 			init( );
 			List keyList = this.keys;
-			List<Set<Integer>> indexList = this.indexs;
+			List<RowIdBitmap> indexList = this.indexs;
 			int threshHold = binarySearch( value, keyList, incEqual
 					? IConditionalExpression.OP_LE : IConditionalExpression.OP_LT );
 			if ( threshHold < 0 || threshHold >= keyList.size( ) )
-				return new HashSet( );
-			Set<Integer> result = new HashSet<Integer>( );
+				return new RowIdBitmap( );
+			RowIdBitmap result = new RowIdBitmap( );
 
 			for ( int i = 0; i <= threshHold; i++ )
 			{
@@ -306,18 +305,18 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return result;
 		}
 
-		public Set<Integer> seekBetween( Object value1, Object value2 )
+		public RowIdBitmap seekBetween( Object value1, Object value2 )
 				throws DataException
 		{
 			init( );
 			List keyList = this.keys;
-			List<Set<Integer>> indexList = this.indexs;
+			List<RowIdBitmap> indexList = this.indexs;
 			int threshHold1 = binarySearch( value1, keyList, IConditionalExpression.OP_GE );
 			int threshHold2 = binarySearch( value2, keyList, IConditionalExpression.OP_LE );
 			if ( threshHold1 > threshHold2 )
-				return new HashSet( );
+				return new RowIdBitmap( );
 
-			Set<Integer> result = new HashSet<Integer>( );
+			RowIdBitmap result = new RowIdBitmap( );
 
 			for ( int i = threshHold1; i <= threshHold2; i++ )
 			{
@@ -326,14 +325,14 @@ public class DataSetNumberIndex implements IDataSetIndex
 			return result;
 		}
 
-		public Set<Integer> seek( Object value ) throws DataException
+		public RowIdBitmap seek( Object value ) throws DataException
 		{
 			init( );
 			List keyList = this.keys;
-			List<Set<Integer>> indexList = this.indexs;
+			List<RowIdBitmap> indexList = this.indexs;
 			int threshHold = binarySearch( value, keyList, IConditionalExpression.OP_EQ );
 			if ( threshHold < 0 || threshHold >= keyList.size( ) )
-				return new HashSet( );
+				return new RowIdBitmap( );
 			return indexList.get( threshHold );
 		}
 
@@ -348,14 +347,14 @@ public class DataSetNumberIndex implements IDataSetIndex
 						if ( !initialized )
 						{
 							List keyList = new ArrayList( );
-							List<Set<Integer>> indexList = new ArrayList<Set<Integer>>( );
+							List<RowIdBitmap> indexList = new ArrayList<RowIdBitmap>( );
 							this.raIn.seek( offset );
 							DataInputStream din = new DataInputStream( this.raIn );
 							int size = IOUtil.readInt( this.raIn );
 							for ( int i = 0; i < size; i++ )
 							{
 								keyList.add( IOUtil.readObject( din ) );
-								indexList.add( new HashSet(IOUtil.readList( din )) );
+								indexList.add( RowIdBitmap.valueOf( IOUtil.readList( din ) ) );
 							}
 							this.keys = keyList;
 							this.indexs = indexList;
@@ -432,14 +431,14 @@ public class DataSetNumberIndex implements IDataSetIndex
 	
 	public Set<Integer> getAllKeyRows( ) throws DataException
 	{
-		Set<Integer> rowID = new HashSet<Integer>();
+		RowIdBitmap rowID = new RowIdBitmap( );
 		for( int i = 0; i < segs.length; i++ )
 		{
-			List<Set<Integer>> index = segs[i].getIndexs( );
+			List<RowIdBitmap> index = segs[i].getIndexs( );
 			for( int j = 0; j < index.size( ); j++ )
 			{
-				Iterator rowIDiterator = index.get( j ).iterator();
-				rowID.add( (Integer) rowIDiterator.next( ) );
+				Iterator<Integer> rowIDiterator = index.get( j ).iterator();
+				rowID.add( rowIDiterator.next( ).intValue( ) );
 			}
 		}
 		return rowID;
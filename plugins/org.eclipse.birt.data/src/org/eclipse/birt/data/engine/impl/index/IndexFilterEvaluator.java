@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Evaluates the filters of a data set in a report document which can be
+ * answered by the data set indexes. The row ids of the indexed predicates are
+ * combined with the AND/OR of RowIdBitmap, and only the selected rows are read
+ * from the data set stream afterwards. The predicates of an AND evaluator
+ * which are not supported by the indexes are skipped, so the caller still
+ * applies the filters on the selected rows; an OR evaluator with such a
+ * predicate can not select any row by the indexes.
+ */
+
+public class IndexFilterEvaluator
+{
+	public static final int AND = 0;
+	public static final int OR = 1;
+
+	private int combineType;
+	private List<Predicate> predicates = new ArrayList<Predicate>( );
+	private boolean isIndexed = true;
+
+	/**
+	 *
+	 * @param combineType
+	 *            AND or OR
+	 */
+	public IndexFilterEvaluator( int combineType )
+	{
+		assert combineType == AND || combineType == OR;
+		this.combineType = combineType;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param key
+	 *            the operand, or the list of operands of OP_IN and OP_BETWEEN
+	 * @param filterType
+	 *            the operator of IConditionalExpression
+	 * @return whether the predicate is answered by the index
+	 * @throws DataException
+	 */
+	public boolean addPredicate( IDataSetIndex index, Object key,
+			int filterType ) throws DataException
+	{
+		if ( index == null || !index.supportFilter( filterType ) )
+		{
+			isIndexed = combineType == AND && isIndexed;
+			return false;
+		}
+		predicates.add( new Predicate( index, key, filterType, null ) );
+		return true;
+	}
+
+	/**
+	 *
+	 * @param evaluator
+	 *            the evaluator of a nested group of predicates
+	 * @return whether the group is answered by the indexes
+	 */
+	public boolean addPredicate( IndexFilterEvaluator evaluator )
+	{
+		if ( !evaluator.isIndexed( ) )
+		{
+			isIndexed = combineType == AND && isIndexed;
+			return false;
+		}
+		predicates.add( new Predicate( null, null, -1, evaluator ) );
+		return true;
+	}
+
+	/**
+	 *
+	 * @return whether the indexes can select the rows
+	 */
+	public boolean isIndexed( )
+	{
+		return isIndexed && !predicates.isEmpty( );
+	}
+
+	/**
+	 * The equality predicates, which select the fewest rows in general, are
+	 * evaluated first by an AND evaluator, and it stops once no row is left.
+	 *
+	 * @return the row ids selected by the predicates; null if the indexes can
+	 *         not select the rows. The returned set must not be modified.
+	 * @throws DataException
+	 */
+	public RowIdBitmap evaluate( ) throws DataException
+	{
+		if ( !isIndexed( ) )
+		{
+			return null;
+		}
+		RowIdBitmap result = null;
+		if ( combineType == AND )
+		{
+			for ( int pass = 0; pass < 2; pass++ )
+			{
+				for ( int i = 0; i < predicates.size( ); i++ )
+				{
+					Predicate predicate = predicates.get( i );
+					if ( predicate.isEquality( ) != ( pass == 0 ) )
+					{
+						continue;
+					}
+					RowIdBitmap rowIds = predicate.evaluate( );
+					result = result == null ? rowIds : result.and( rowIds );
+					if ( result.isEmpty( ) )
+					{
+						return result;
+					}
+				}
+			}
+		}
+		else
+		{
+			for ( int i = 0; i < predicates.size( ); i++ )
+			{
+				RowIdBitmap rowIds = predicates.get( i ).evaluate( );
+				result = result == null ? rowIds : result.or( rowIds );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * An indexed predicate or a nested evaluator.
+	 */
+	private static class Predicate
+	{
+		private IDataSetIndex index;
+		private Object key;
+		private int filterType;
+		private IndexFilterEvaluator evaluator;
+
+		Predicate( IDataSetIndex index, Object key, int filterType,
+				IndexFilterEvaluator evaluator )
+		{
+			this.index = index;
+			this.key = key;
+			this.filterType = filterType;
+			this.evaluator = evaluator;
+		}
+
+		boolean isEquality( )
+		{
+			return filterType == IConditionalExpression.OP_EQ
+					|| filterType == IConditionalExpression.OP_IN;
+		}
+
+		RowIdBitmap evaluate( ) throws DataException
+		{
+			if ( evaluator != null )
+			{
+				return evaluator.evaluate( );
+			}
+			return RowIdBitmap.valueOf( index.getKeyIndex( key, filterType ) );
+		}
+	}
+}
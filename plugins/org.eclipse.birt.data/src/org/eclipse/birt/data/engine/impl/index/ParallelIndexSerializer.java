@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.index;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.eclipse.birt.data.engine.api.CloseListenerManager;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * An index serializer which builds the wrapped index on its own thread. The
+ * key and row id pairs are handed to the thread in batches, and at most
+ * MAX_PENDING_BATCHES batches wait for it. The wrapped index is closed, which
+ * builds the B-tree of a BTreeIndex, on the same thread after the last pair,
+ * so the indexes of several columns are built at the same time when they are
+ * closed with close( Collection ).
+ */
+public class ParallelIndexSerializer implements IIndexSerializer
+{
+	public final static int BATCH_SIZE = 1024;
+	public final static int MAX_PENDING_BATCHES = 16;
+
+	// the batch which tells the index thread to close the wrapped index
+	private final static Object[] END_BATCH = new Object[0];
+
+	private IIndexSerializer index;
+
+	private Object[] batch;
+	private int count;
+
+	private BlockingQueue queue;
+	private Thread builder;
+	private volatile DataException exception;
+	private boolean finished;
+	private boolean closed;
+
+	/**
+	 * @param index
+	 *            the index which is only used by the index thread
+	 * @param tempDir
+	 *            the temporary directory of the data engine, which is used by
+	 *            the index when its pairs do not fit in memory
+	 */
+	public ParallelIndexSerializer( IIndexSerializer index, final String tempDir )
+	{
+		assert index != null;
+		this.index = index;
+		this.batch = new Object[BATCH_SIZE * 2];
+		this.queue = new ArrayBlockingQueue( MAX_PENDING_BATCHES );
+
+		final CloseListenerManager closeListener = DataEngineThreadLocal.getInstance( )
+				.getCloseListener( );
+		this.builder = new Thread( new Runnable( ) {
+
+			public void run( )
+			{
+				DataEngineThreadLocal.getInstance( )
+						.setCloseListener( closeListener );
+				if ( tempDir != null )
+					DataEngineThreadLocal.getInstance( )
+							.getPathManager( )
+							.setTempPath( tempDir );
+				try
+				{
+					buildIndex( );
+				}
+				finally
+				{
+					DataEngineThreadLocal.getInstance( )
+							.removeTempPathManger( );
+					DataEngineThreadLocal.getInstance( )
+							.removeCloseListener( );
+				}
+			}
+		}, "BIRT index builder" );
+		this.builder.setDaemon( true );
+		this.builder.start( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.impl.index.IIndexSerializer#put(java.lang.Object, java.lang.Object)
+	 */
+	public Object put( Object o1, Object o2 ) throws DataException
+	{
+		if ( finished )
+			throw new DataException( "The index is closed" );
+		if ( exception != null )
+			throw exception;
+		batch[count++] = o1;
+		batch[count++] = o2;
+		if ( count == batch.length )
+		{
+			handOff( batch );
+			batch = new Object[BATCH_SIZE * 2];
+			count = 0;
+		}
+		return null;
+	}
+
+	/**
+	 * Hand the last pairs to the index thread, which closes the wrapped index
+	 * after them. It does not wait for the index thread.
+	 *
+	 * @throws DataException
+	 */
+	public void finishPut( ) throws DataException
+	{
+		if ( finished )
+			return;
+		finished = true;
+		if ( count > 0 )
+		{
+			Object[] last = new Object[count];
+			System.arraycopy( batch, 0, last, 0, count );
+			handOff( last );
+		}
+		batch = null;
+		count = 0;
+		handOff( END_BATCH );
+	}
+
+	/**
+	 * Wait for the index thread to build and close the wrapped index.
+	 *
+	 * @see org.eclipse.birt.data.engine.impl.index.IIndexSerializer#close()
+	 */
+	public void close( ) throws DataException
+	{
+		if ( closed )
+			return;
+		try
+		{
+			finishPut( );
+		}
+		finally
+		{
+			closed = true;
+		}
+		try
+		{
+			builder.join( );
+		}
+		catch ( InterruptedException e )
+		{
+			builder.interrupt( );
+			throw new DataException( e.getLocalizedMessage( ), e );
+		}
+		if ( exception != null )
+			throw exception;
+	}
+
+	/**
+	 * Close the indexes, and build the parallel ones at the same time.
+	 *
+	 * @param indexes
+	 *            the collection of IIndexSerializer
+	 * @throws DataException
+	 */
+	public static void close( Collection indexes ) throws DataException
+	{
+		Iterator it = indexes.iterator( );
+		while ( it.hasNext( ) )
+		{
+			Object index = it.next( );
+			if ( index instanceof ParallelIndexSerializer )
+				( (ParallelIndexSerializer) index ).finishPut( );
+		}
+		DataException exception = null;
+		it = indexes.iterator( );
+		while ( it.hasNext( ) )
+		{
+			try
+			{
+				( (IIndexSerializer) it.next( ) ).close( );
+			}
+			catch ( DataException e )
+			{
+				// wait for the other index threads before throwing
+				if ( exception == null )
+					exception = e;
+			}
+		}
+		if ( exception != null )
+			throw exception;
+	}
+
+	/**
+	 * @param pairs
+	 * @throws DataException
+	 */
+	private void handOff( Object[] pairs ) throws DataException
+	{
+		try
+		{
+			queue.put( pairs );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new DataException( e.getLocalizedMessage( ), e );
+		}
+	}
+
+	/**
+	 * The loop of the index thread. After a failure the pairs are dropped, so
+	 * that the putting thread never waits for a full queue.
+	 */
+	private void buildIndex( )
+	{
+		try
+		{
+			Object[] pairs = (Object[]) queue.take( );
+			while ( pairs != END_BATCH )
+			{
+				if ( exception == null )
+				{
+					try
+					{
+						for ( int i = 0; i < pairs.length; i += 2 )
+						{
+							index.put( pairs[i], pairs[i + 1] );
+						}
+					}
+					catch ( DataException e )
+					{
+						exception = e;
+					}
+					catch ( RuntimeException e )
+					{
+						exception = new DataException( e.getLocalizedMessage( ), e );
+					}
+				}
+				pairs = (Object[]) queue.take( );
+			}
+			if ( exception == null )
+				index.close( );
+		}
+		catch ( DataException e )
+		{
+			exception = e;
+		}
+		catch ( RuntimeException e )
+		{
+			exception = new DataException( e.getLocalizedMessage( ), e );
+		}
+		catch ( InterruptedException e )
+		{
+			if ( exception == null )
+				exception = new DataException( e.getLocalizedMessage( ), e );
+		}
+	}
+}
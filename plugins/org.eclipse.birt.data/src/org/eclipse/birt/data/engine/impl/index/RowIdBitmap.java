@@ -0,0 +1,867 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.index;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compressed set of row ids, which is returned by the data set indexes. The
+ * row ids are split into chunks of 65536 rows by their high 16 bits; a chunk
+ * with few rows keeps the low 16 bits in a sorted char array, and a dense
+ * chunk keeps them in a bitmap of 8K bytes. The sets of several filters are
+ * combined chunk by chunk with and( ) and or( ), without boxing the row ids.
+ * The row ids are iterated in ascending order, so the selected rows can be
+ * read from the data set stream in one pass. The row ids must not be
+ * negative.
+ */
+
+public class RowIdBitmap extends AbstractSet<Integer>
+{
+	private static final int MAX_ARRAY_SIZE = 4096;
+
+	private char[] keys;
+	private Container[] containers;
+	private int containerCount;
+	private int size;
+
+	/**
+	 *
+	 */
+	public RowIdBitmap( )
+	{
+		this.keys = new char[4];
+		this.containers = new Container[4];
+	}
+
+	/**
+	 *
+	 * @param rowIds
+	 * @return the row ids as a bitmap; the collection itself if it is already
+	 *         a RowIdBitmap
+	 */
+	public static RowIdBitmap valueOf( Collection<Integer> rowIds )
+	{
+		if ( rowIds instanceof RowIdBitmap )
+		{
+			return (RowIdBitmap) rowIds;
+		}
+		RowIdBitmap result = new RowIdBitmap( );
+		if ( rowIds != null )
+		{
+			for ( Integer rowId : rowIds )
+			{
+				result.add( rowId.intValue( ) );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param rowId
+	 * @return whether the row id is newly added
+	 */
+	public boolean add( int rowId )
+	{
+		char high = (char) ( rowId >>> 16 );
+		int index = indexOf( high );
+		if ( index < 0 )
+		{
+			index = -index - 1;
+			insertContainer( index, high, new ArrayContainer( ) );
+		}
+		Container container = containers[index];
+		int cardinality = container.cardinality( );
+		containers[index] = container.add( (char) rowId );
+		if ( containers[index].cardinality( ) == cardinality )
+		{
+			return false;
+		}
+		size++;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#add(java.lang.Object)
+	 */
+	public boolean add( Integer rowId )
+	{
+		return add( rowId.intValue( ) );
+	}
+
+	/**
+	 *
+	 * @param rowId
+	 * @return
+	 */
+	public boolean contains( int rowId )
+	{
+		int index = indexOf( (char) ( rowId >>> 16 ) );
+		return index >= 0 && containers[index].contains( (char) rowId );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#contains(java.lang.Object)
+	 */
+	public boolean contains( Object o )
+	{
+		return o instanceof Integer && contains( ( (Integer) o ).intValue( ) );
+	}
+
+	/**
+	 *
+	 * @param rowId
+	 * @return whether the row id was in the set
+	 */
+	public boolean remove( int rowId )
+	{
+		int index = indexOf( (char) ( rowId >>> 16 ) );
+		if ( index < 0 )
+		{
+			return false;
+		}
+		Container container = containers[index];
+		int cardinality = container.cardinality( );
+		container = container.remove( (char) rowId );
+		if ( container.cardinality( ) == cardinality )
+		{
+			return false;
+		}
+		size--;
+		if ( container.cardinality( ) == 0 )
+		{
+			removeContainer( index );
+		}
+		else
+		{
+			containers[index] = container;
+		}
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#remove(java.lang.Object)
+	 */
+	public boolean remove( Object o )
+	{
+		return o instanceof Integer && remove( ( (Integer) o ).intValue( ) );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	public int size( )
+	{
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#clear()
+	 */
+	public void clear( )
+	{
+		for ( int i = 0; i < containerCount; i++ )
+		{
+			containers[i] = null;
+		}
+		containerCount = 0;
+		size = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#iterator()
+	 */
+	public Iterator<Integer> iterator( )
+	{
+		return new RowIdIterator( );
+	}
+
+	/**
+	 *
+	 * @return the row ids in ascending order
+	 */
+	public int[] toIntArray( )
+	{
+		int[] result = new int[size];
+		int index = 0;
+		for ( int i = 0; i < containerCount; i++ )
+		{
+			int high = keys[i] << 16;
+			int low = containers[i].nextValue( 0 );
+			while ( low >= 0 )
+			{
+				result[index++] = high | low;
+				low = containers[i].nextValue( low + 1 );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return a new set of the row ids in both sets
+	 */
+	public RowIdBitmap and( RowIdBitmap other )
+	{
+		RowIdBitmap result = new RowIdBitmap( );
+		int i = 0, j = 0;
+		while ( i < containerCount && j < other.containerCount )
+		{
+			if ( keys[i] < other.keys[j] )
+			{
+				i++;
+			}
+			else if ( keys[i] > other.keys[j] )
+			{
+				j++;
+			}
+			else
+			{
+				Container container = containers[i].and( other.containers[j] );
+				if ( container.cardinality( ) > 0 )
+				{
+					result.appendContainer( keys[i], container );
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return a new set of the row ids in either set
+	 */
+	public RowIdBitmap or( RowIdBitmap other )
+	{
+		RowIdBitmap result = new RowIdBitmap( );
+		int i = 0, j = 0;
+		while ( i < containerCount || j < other.containerCount )
+		{
+			if ( j == other.containerCount
+					|| ( i < containerCount && keys[i] < other.keys[j] ) )
+			{
+				result.appendContainer( keys[i], containers[i].copy( ) );
+				i++;
+			}
+			else if ( i == containerCount || keys[i] > other.keys[j] )
+			{
+				result.appendContainer( other.keys[j],
+						other.containers[j].copy( ) );
+				j++;
+			}
+			else
+			{
+				result.appendContainer( keys[i],
+						containers[i].or( other.containers[j] ) );
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#addAll(java.util.Collection)
+	 */
+	public boolean addAll( Collection<? extends Integer> c )
+	{
+		if ( c instanceof RowIdBitmap )
+		{
+			int oldSize = size;
+			assign( or( (RowIdBitmap) c ) );
+			return size != oldSize;
+		}
+		return super.addAll( c );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#retainAll(java.util.Collection)
+	 */
+	public boolean retainAll( Collection<?> c )
+	{
+		if ( c instanceof RowIdBitmap )
+		{
+			int oldSize = size;
+			assign( and( (RowIdBitmap) c ) );
+			return size != oldSize;
+		}
+		return super.retainAll( c );
+	}
+
+	/**
+	 *
+	 * @param other
+	 */
+	private void assign( RowIdBitmap other )
+	{
+		this.keys = other.keys;
+		this.containers = other.containers;
+		this.containerCount = other.containerCount;
+		this.size = other.size;
+	}
+
+	/**
+	 *
+	 * @param high
+	 * @return the index of the container; -(insertion point) - 1 if there is
+	 *         no container of the high bits
+	 */
+	private int indexOf( char high )
+	{
+		if ( containerCount > 0 && keys[containerCount - 1] == high )
+		{
+			return containerCount - 1;
+		}
+		int low = 0;
+		int top = containerCount - 1;
+		while ( low <= top )
+		{
+			int mid = ( low + top ) >>> 1;
+			if ( keys[mid] < high )
+			{
+				low = mid + 1;
+			}
+			else if ( keys[mid] > high )
+			{
+				top = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -( low + 1 );
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param high
+	 * @param container
+	 */
+	private void insertContainer( int index, char high, Container container )
+	{
+		if ( containerCount == keys.length )
+		{
+			char[] newKeys = new char[keys.length * 2];
+			Container[] newContainers = new Container[keys.length * 2];
+			System.arraycopy( keys, 0, newKeys, 0, containerCount );
+			System.arraycopy( containers, 0, newContainers, 0, containerCount );
+			keys = newKeys;
+			containers = newContainers;
+		}
+		System.arraycopy( keys, index, keys, index + 1, containerCount - index );
+		System.arraycopy( containers,
+				index,
+				containers,
+				index + 1,
+				containerCount - index );
+		keys[index] = high;
+		containers[index] = container;
+		containerCount++;
+	}
+
+	/**
+	 *
+	 * @param high
+	 *            greater than the high bits of the other containers
+	 * @param container
+	 */
+	private void appendContainer( char high, Container container )
+	{
+		insertContainer( containerCount, high, container );
+		size += container.cardinality( );
+	}
+
+	/**
+	 *
+	 * @param index
+	 */
+	private void removeContainer( int index )
+	{
+		System.arraycopy( keys, index + 1, keys, index, containerCount
+				- index - 1 );
+		System.arraycopy( containers,
+				index + 1,
+				containers,
+				index,
+				containerCount - index - 1 );
+		containerCount--;
+		containers[containerCount] = null;
+	}
+
+	/**
+	 * Iterates the row ids in ascending order. A removed row id is looked up
+	 * again, because its container may have been replaced.
+	 */
+	private class RowIdIterator implements Iterator<Integer>
+	{
+		private int containerIndex;
+		private int low;
+		private boolean hasNext;
+		private int nextRowId;
+		private int lastRowId;
+		private boolean canRemove;
+
+		RowIdIterator( )
+		{
+			advance( );
+		}
+
+		private void advance( )
+		{
+			while ( containerIndex < containerCount )
+			{
+				int value = containers[containerIndex].nextValue( low );
+				if ( value >= 0 )
+				{
+					nextRowId = ( keys[containerIndex] << 16 ) | value;
+					low = value + 1;
+					hasNext = true;
+					return;
+				}
+				containerIndex++;
+				low = 0;
+			}
+			hasNext = false;
+		}
+
+		public boolean hasNext( )
+		{
+			return hasNext;
+		}
+
+		public Integer next( )
+		{
+			if ( !hasNext )
+			{
+				throw new NoSuchElementException( );
+			}
+			lastRowId = nextRowId;
+			canRemove = true;
+			advance( );
+			return Integer.valueOf( lastRowId );
+		}
+
+		public void remove( )
+		{
+			if ( !canRemove )
+			{
+				throw new IllegalStateException( );
+			}
+			canRemove = false;
+			RowIdBitmap.this.remove( lastRowId );
+			if ( hasNext )
+			{
+				containerIndex = indexOf( (char) ( nextRowId >>> 16 ) );
+			}
+		}
+	}
+
+	/**
+	 * The low 16 bits of the row ids of one chunk.
+	 */
+	private static abstract class Container
+	{
+		abstract int cardinality( );
+
+		abstract boolean contains( char low );
+
+		/**
+		 *
+		 * @param low
+		 * @return this container, or the container which replaces it
+		 */
+		abstract Container add( char low );
+
+		/**
+		 *
+		 * @param low
+		 * @return this container, or the container which replaces it
+		 */
+		abstract Container remove( char low );
+
+		/**
+		 *
+		 * @param from
+		 * @return the first value which is not less than from; -1 if there is
+		 *         none
+		 */
+		abstract int nextValue( int from );
+
+		abstract Container and( Container other );
+
+		abstract Container or( Container other );
+
+		abstract Container copy( );
+	}
+
+	/**
+	 * A sorted array of at most MAX_ARRAY_SIZE values.
+	 */
+	private static class ArrayContainer extends Container
+	{
+		private char[] values;
+		private int cardinality;
+
+		ArrayContainer( )
+		{
+			this( new char[4], 0 );
+		}
+
+		ArrayContainer( char[] values, int cardinality )
+		{
+			this.values = values;
+			this.cardinality = cardinality;
+		}
+
+		int cardinality( )
+		{
+			return cardinality;
+		}
+
+		/**
+		 *
+		 * @param low
+		 * @return the index of the value; -(insertion point) - 1 if it is not
+		 *         in the array
+		 */
+		private int indexOf( char low )
+		{
+			if ( cardinality > 0 && values[cardinality - 1] < low )
+			{
+				return -( cardinality + 1 );
+			}
+			int start = 0;
+			int end = cardinality - 1;
+			while ( start <= end )
+			{
+				int mid = ( start + end ) >>> 1;
+				if ( values[mid] < low )
+				{
+					start = mid + 1;
+				}
+				else if ( values[mid] > low )
+				{
+					end = mid - 1;
+				}
+				else
+				{
+					return mid;
+				}
+			}
+			return -( start + 1 );
+		}
+
+		boolean contains( char low )
+		{
+			return indexOf( low ) >= 0;
+		}
+
+		Container add( char low )
+		{
+			int index = indexOf( low );
+			if ( index >= 0 )
+			{
+				return this;
+			}
+			if ( cardinality == MAX_ARRAY_SIZE )
+			{
+				return toBitmap( ).add( low );
+			}
+			index = -index - 1;
+			if ( cardinality == values.length )
+			{
+				char[] newValues = new char[Math.min( MAX_ARRAY_SIZE,
+						Math.max( 4, values.length * 2 ) )];
+				System.arraycopy( values, 0, newValues, 0, cardinality );
+				values = newValues;
+			}
+			System.arraycopy( values, index, values, index + 1, cardinality
+					- index );
+			values[index] = low;
+			cardinality++;
+			return this;
+		}
+
+		Container remove( char low )
+		{
+			int index = indexOf( low );
+			if ( index >= 0 )
+			{
+				System.arraycopy( values, index + 1, values, index, cardinality
+						- index - 1 );
+				cardinality--;
+			}
+			return this;
+		}
+
+		int nextValue( int from )
+		{
+			if ( from > Character.MAX_VALUE )
+			{
+				return -1;
+			}
+			int index = indexOf( (char) from );
+			if ( index < 0 )
+			{
+				index = -index - 1;
+			}
+			return index < cardinality ? values[index] : -1;
+		}
+
+		Container and( Container other )
+		{
+			char[] result = new char[Math.min( cardinality,
+					other.cardinality( ) )];
+			int count = 0;
+			if ( other instanceof ArrayContainer )
+			{
+				ArrayContainer array = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while ( i < cardinality && j < array.cardinality )
+				{
+					if ( values[i] < array.values[j] )
+					{
+						i++;
+					}
+					else if ( values[i] > array.values[j] )
+					{
+						j++;
+					}
+					else
+					{
+						result[count++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			else
+			{
+				for ( int i = 0; i < cardinality; i++ )
+				{
+					if ( other.contains( values[i] ) )
+					{
+						result[count++] = values[i];
+					}
+				}
+			}
+			return new ArrayContainer( result, count );
+		}
+
+		Container or( Container other )
+		{
+			if ( other instanceof BitmapContainer )
+			{
+				return other.or( this );
+			}
+			ArrayContainer array = (ArrayContainer) other;
+			char[] result = new char[cardinality + array.cardinality];
+			int count = 0;
+			int i = 0, j = 0;
+			while ( i < cardinality || j < array.cardinality )
+			{
+				if ( j == array.cardinality
+						|| ( i < cardinality && values[i] < array.values[j] ) )
+				{
+					result[count++] = values[i++];
+				}
+				else if ( i == cardinality || values[i] > array.values[j] )
+				{
+					result[count++] = array.values[j++];
+				}
+				else
+				{
+					result[count++] = values[i];
+					i++;
+					j++;
+				}
+			}
+			ArrayContainer container = new ArrayContainer( result, count );
+			return count > MAX_ARRAY_SIZE ? container.toBitmap( ) : container;
+		}
+
+		Container copy( )
+		{
+			char[] newValues = new char[Math.max( 4, cardinality )];
+			System.arraycopy( values, 0, newValues, 0, cardinality );
+			return new ArrayContainer( newValues, cardinality );
+		}
+
+		BitmapContainer toBitmap( )
+		{
+			BitmapContainer bitmap = new BitmapContainer( );
+			for ( int i = 0; i < cardinality; i++ )
+			{
+				bitmap.add( values[i] );
+			}
+			return bitmap;
+		}
+	}
+
+	/**
+	 * A bitmap of the 65536 values of a chunk, which is used when there are
+	 * more than MAX_ARRAY_SIZE values.
+	 */
+	private static class BitmapContainer extends Container
+	{
+		private long[] words;
+		private int cardinality;
+
+		BitmapContainer( )
+		{
+			this( new long[1024], 0 );
+		}
+
+		BitmapContainer( long[] words, int cardinality )
+		{
+			this.words = words;
+			this.cardinality = cardinality;
+		}
+
+		int cardinality( )
+		{
+			return cardinality;
+		}
+
+		boolean contains( char low )
+		{
+			return ( words[low >>> 6] & ( 1L << low ) ) != 0;
+		}
+
+		Container add( char low )
+		{
+			long word = words[low >>> 6];
+			if ( ( word & ( 1L << low ) ) == 0 )
+			{
+				words[low >>> 6] = word | ( 1L << low );
+				cardinality++;
+			}
+			return this;
+		}
+
+		Container remove( char low )
+		{
+			long word = words[low >>> 6];
+			if ( ( word & ( 1L << low ) ) != 0 )
+			{
+				words[low >>> 6] = word & ~( 1L << low );
+				cardinality--;
+				if ( cardinality <= MAX_ARRAY_SIZE )
+				{
+					return toArray( );
+				}
+			}
+			return this;
+		}
+
+		int nextValue( int from )
+		{
+			if ( from > Character.MAX_VALUE )
+			{
+				return -1;
+			}
+			int index = from >>> 6;
+			long word = words[index] & ( -1L << from );
+			while ( word == 0 )
+			{
+				if ( ++index == words.length )
+				{
+					return -1;
+				}
+				word = words[index];
+			}
+			return index * 64 + Long.numberOfTrailingZeros( word );
+		}
+
+		Container and( Container other )
+		{
+			if ( other instanceof ArrayContainer )
+			{
+				return other.and( this );
+			}
+			long[] otherWords = ( (BitmapContainer) other ).words;
+			long[] result = new long[words.length];
+			int count = 0;
+			for ( int i = 0; i < words.length; i++ )
+			{
+				result[i] = words[i] & otherWords[i];
+				count += Long.bitCount( result[i] );
+			}
+			BitmapContainer container = new BitmapContainer( result, count );
+			return count <= MAX_ARRAY_SIZE ? container.toArray( ) : container;
+		}
+
+		Container or( Container other )
+		{
+			BitmapContainer result = (BitmapContainer) copy( );
+			if ( other instanceof ArrayContainer )
+			{
+				ArrayContainer array = (ArrayContainer) other;
+				for ( int i = 0; i < array.cardinality; i++ )
+				{
+					result.add( array.values[i] );
+				}
+			}
+			else
+			{
+				long[] otherWords = ( (BitmapContainer) other ).words;
+				result.cardinality = 0;
+				for ( int i = 0; i < words.length; i++ )
+				{
+					result.words[i] |= otherWords[i];
+					result.cardinality += Long.bitCount( result.words[i] );
+				}
+			}
+			return result;
+		}
+
+		Container copy( )
+		{
+			long[] newWords = new long[words.length];
+			System.arraycopy( words, 0, newWords, 0, words.length );
+			return new BitmapContainer( newWords, cardinality );
+		}
+
+		ArrayContainer toArray( )
+		{
+			char[] values = new char[Math.max( 4, cardinality )];
+			int count = 0;
+			for ( int i = 0; i < words.length; i++ )
+			{
+				long word = words[i];
+				while ( word != 0 )
+				{
+					values[count++] = (char) ( i * 64 + Long.numberOfTrailingZeros( word ) );
+					word &= word - 1;
+				}
+			}
+			return new ArrayContainer( values, count );
+		}
+	}
+}
@@ -0,0 +1,436 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * An implementation of IDataSetPopulator which joins the data sets with a
+ * hash table, so that neither data set needs to be sorted on the join keys.
+ * The join keys of the build data set are put in a hash table, and each row
+ * of the probe data set finds its matched rows in the hash table. The build
+ * rows are not copied: the hash table keeps their row indexes, and the rows
+ * are read back from the result set cache of the build data set, which is
+ * moved to disk when it exceeds the memory buffer. The rows are returned in
+ * the order of the probe data set, followed by the build rows which are not
+ * matched if the build data set is preserved by an outer join.
+ *
+ * A key column is hashed only when all its build values are numbers, strings,
+ * booleans or dates, so that the values which are equal by ScriptEvalUtil
+ * have the same hash code. A probe row whose key is of another kind is
+ * compared with all build rows.
+ */
+public class HashJoinDataSetPopulator implements IDataSetPopulator
+{
+
+	private static final int KIND_NONE = 0;
+	private static final int KIND_NUMBER = 1;
+	private static final int KIND_STRING = 2;
+	private static final int KIND_BOOLEAN = 3;
+	private static final int KIND_DATE = 4;
+	private static final int KIND_MIXED = 5;
+
+	//
+	private JointResultMetadata meta;
+
+	private IResultIterator buildIterator;
+	private IResultIterator probeIterator;
+	private boolean isBuildLeft;
+	private int joinType;
+
+	private IJoinConditionMatcher jcm;
+
+	private Object[][] buildKeys;
+	private int[] buildRowIndexes;
+	private boolean[] buildMatched;
+	private int[] columnKinds;
+
+	private int[] hashTable;
+	private int[] hashChain;
+	private int hashMask;
+
+	private IResultObject curProbeResultObject = null;
+	private int[] curMatches = null;
+	private int curMatchIndex = 0;
+	private boolean probeFinished = false;
+	private int unmatchedBuildIndex = 0;
+
+	// indicate whether this object is initialized.
+	private boolean beInitialized = false;
+
+	private int rowFetchLimit;
+
+	private int rowCount;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param isBuildLeft
+	 *            whether the hash table is built on the left data set
+	 * @param rowFetchLimit
+	 */
+	public HashJoinDataSetPopulator( IResultIterator left,
+			IResultIterator right, JointResultMetadata meta,
+			IJoinConditionMatcher jcm, int joinType, boolean isBuildLeft,
+			int rowFetchLimit )
+	{
+		this.meta = meta;
+		this.joinType = joinType;
+		this.jcm = jcm;
+		this.isBuildLeft = isBuildLeft;
+		if ( isBuildLeft )
+		{
+			this.buildIterator = left;
+			this.probeIterator = right;
+		}
+		else
+		{
+			this.buildIterator = right;
+			this.probeIterator = left;
+		}
+		this.rowFetchLimit = rowFetchLimit;
+		this.rowCount = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.odi.IDataSetPopulator#next()
+	 */
+	public IResultObject next( ) throws DataException
+	{
+		if ( this.rowFetchLimit > 0 && this.rowCount >= this.rowFetchLimit )
+		{
+			return null;
+		}
+		if ( !beInitialized )
+		{
+			buildHashTable( );
+			beInitialized = true;
+		}
+		IResultObject result = doNext( );
+		if ( result != null )
+			this.rowCount++;
+		return result;
+	}
+
+	/**
+	 *
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject doNext( ) throws DataException
+	{
+		while ( !probeFinished )
+		{
+			if ( curMatches != null && curMatchIndex < curMatches.length )
+			{
+				return createResultObject( curProbeResultObject,
+						getBuildResultObject( curMatches[curMatchIndex++] ) );
+			}
+			if ( probeIterator.getCurrentResult( ) == null )
+			{
+				probeFinished = true;
+				curProbeResultObject = null;
+				curMatches = null;
+				break;
+			}
+			curProbeResultObject = probeIterator.getCurrentResult( );
+			curMatches = findMatches( jcm.getCompareValue( !isBuildLeft ) );
+			curMatchIndex = 0;
+			probeIterator.next( );
+			if ( curMatches.length == 0 && isPreserved( !isBuildLeft ) )
+			{
+				return createResultObject( curProbeResultObject, null );
+			}
+		}
+		if ( isPreserved( isBuildLeft ) )
+		{
+			while ( unmatchedBuildIndex < buildKeys.length )
+			{
+				int index = unmatchedBuildIndex++;
+				if ( !buildMatched[index] )
+				{
+					return createResultObject( null,
+							getBuildResultObject( index ) );
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return whether the rows of a data set are kept by the join when they
+	 * are not matched.
+	 *
+	 * @param isLeft
+	 * @return
+	 */
+	private boolean isPreserved( boolean isLeft )
+	{
+		if ( joinType == IJointDataSetDesign.FULL_OUTER_JOIN )
+			return true;
+		return isLeft ? joinType == IJointDataSetDesign.LEFT_OUTER_JOIN
+				: joinType == IJointDataSetDesign.RIGHT_OUTER_JOIN;
+	}
+
+	/**
+	 * Read the join keys of all the build rows, and put them in the hash
+	 * table.
+	 *
+	 * @throws DataException
+	 */
+	private void buildHashTable( ) throws DataException
+	{
+		List keys = new ArrayList( );
+		List rowIndexes = new ArrayList( );
+		while ( buildIterator.getCurrentResult( ) != null )
+		{
+			keys.add( jcm.getCompareValue( isBuildLeft ) );
+			rowIndexes.add( Integer.valueOf( buildIterator.getCurrentResultIndex( ) ) );
+			buildIterator.next( );
+		}
+		buildKeys = (Object[][]) keys.toArray( new Object[keys.size( )][] );
+		buildRowIndexes = new int[rowIndexes.size( )];
+		for ( int i = 0; i < buildRowIndexes.length; i++ )
+		{
+			buildRowIndexes[i] = ( (Integer) rowIndexes.get( i ) ).intValue( );
+		}
+		buildMatched = new boolean[buildKeys.length];
+
+		columnKinds = new int[buildKeys.length == 0 ? 0
+				: buildKeys[0].length];
+		for ( int i = 0; i < buildKeys.length; i++ )
+		{
+			for ( int j = 0; j < columnKinds.length; j++ )
+			{
+				if ( buildKeys[i][j] == null
+						|| columnKinds[j] == KIND_MIXED )
+					continue;
+				int kind = getKind( buildKeys[i][j] );
+				if ( columnKinds[j] == KIND_NONE )
+					columnKinds[j] = kind;
+				else if ( columnKinds[j] != kind )
+					columnKinds[j] = KIND_MIXED;
+			}
+		}
+
+		int capacity = 2;
+		while ( capacity < buildKeys.length * 2 )
+		{
+			capacity <<= 1;
+		}
+		hashTable = new int[capacity];
+		hashChain = new int[buildKeys.length];
+		hashMask = capacity - 1;
+		// the rows are chained in reverse order, so that the matched rows of
+		// a probe row are found in the order of the build data set
+		for ( int i = buildKeys.length - 1; i >= 0; i-- )
+		{
+			int slot = hash( buildKeys[i] ) & hashMask;
+			hashChain[i] = hashTable[slot];
+			hashTable[slot] = i + 1;
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the kind of values which are compared by the same rule, or
+	 *         KIND_MIXED if the value can not be hashed
+	 */
+	private static int getKind( Object value )
+	{
+		if ( value instanceof Number )
+			return KIND_NUMBER;
+		if ( value instanceof String )
+			return KIND_STRING;
+		if ( value instanceof Boolean )
+			return KIND_BOOLEAN;
+		if ( value instanceof Date )
+			return KIND_DATE;
+		return KIND_MIXED;
+	}
+
+	/**
+	 *
+	 * @param keys
+	 * @return
+	 */
+	private int hash( Object[] keys )
+	{
+		int h = 17;
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			h = 37 * h + hash( keys[i], columnKinds[i] );
+		}
+		return h ^ ( h >>> 16 );
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param kind
+	 * @return
+	 */
+	private static int hash( Object value, int kind )
+	{
+		if ( value == null )
+			return 0;
+		switch ( kind )
+		{
+			case KIND_NUMBER :
+				// the numbers of different classes, BigDecimal included, are
+				// hashed by their double value, on which the equal numbers
+				// agree; 0.0 and -0.0 are hashed alike
+				double d = ( (Number) value ).doubleValue( );
+				long bits = Double.doubleToLongBits( d == 0 ? 0d : d );
+				return (int) ( bits ^ ( bits >>> 32 ) );
+			case KIND_STRING :
+			case KIND_BOOLEAN :
+				return value.hashCode( );
+			case KIND_DATE :
+				long time = ( (Date) value ).getTime( );
+				return (int) ( time ^ ( time >>> 32 ) );
+			default :
+				return 0;
+		}
+	}
+
+	/**
+	 * Find the build rows which are matched with the join keys of a probe row.
+	 *
+	 * @param probeKeys
+	 * @return the matched build rows in the order of the build data set
+	 * @throws DataException
+	 */
+	private int[] findMatches( Object[] probeKeys ) throws DataException
+	{
+		List matches = new ArrayList( );
+		if ( isHashable( probeKeys ) )
+		{
+			int index = hashTable.length == 0 ? 0
+					: hashTable[hash( probeKeys ) & hashMask];
+			while ( index != 0 )
+			{
+				if ( isMatched( index - 1, probeKeys ) )
+					matches.add( Integer.valueOf( index - 1 ) );
+				index = hashChain[index - 1];
+			}
+		}
+		else
+		{
+			for ( int i = 0; i < buildKeys.length; i++ )
+			{
+				if ( isMatched( i, probeKeys ) )
+					matches.add( Integer.valueOf( i ) );
+			}
+		}
+		int[] result = new int[matches.size( )];
+		for ( int i = 0; i < result.length; i++ )
+		{
+			result[i] = ( (Integer) matches.get( i ) ).intValue( );
+			buildMatched[result[i]] = true;
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param probeKeys
+	 * @return whether the probe keys have the hash code of the equal build
+	 *         keys
+	 */
+	private boolean isHashable( Object[] probeKeys )
+	{
+		for ( int i = 0; i < probeKeys.length; i++ )
+		{
+			if ( probeKeys[i] != null
+					&& columnKinds[i] != KIND_NONE
+					&& columnKinds[i] != KIND_MIXED
+					&& getKind( probeKeys[i] ) != columnKinds[i] )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param buildIndex
+	 * @param probeKeys
+	 * @return
+	 * @throws DataException
+	 */
+	private boolean isMatched( int buildIndex, Object[] probeKeys )
+			throws DataException
+	{
+		if ( isBuildLeft )
+			return jcm.compare( buildKeys[buildIndex], probeKeys ) == 0;
+		return jcm.compare( probeKeys, buildKeys[buildIndex] ) == 0;
+	}
+
+	/**
+	 *
+	 * @param buildIndex
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject getBuildResultObject( int buildIndex )
+			throws DataException
+	{
+		buildIterator.getResultSetCache( )
+				.moveTo( buildRowIndexes[buildIndex] );
+		return buildIterator.getCurrentResult( );
+	}
+
+	/**
+	 * Create an instance of IResultObject.
+	 *
+	 * @param probe
+	 * @param build
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject createResultObject( IResultObject probe,
+			IResultObject build ) throws DataException
+	{
+		IResultObject left = isBuildLeft ? build : probe;
+		IResultObject right = isBuildLeft ? probe : build;
+		Object[] fields = new Object[meta.getResultClass( ).getFieldCount( )];
+		for ( int i = 1; i <= fields.length; i++ )
+		{
+			IResultObject ri = null;
+
+			if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_LEFT )
+				ri = left;
+			else if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_RIGHT )
+				ri = right;
+
+			fields[i - 1] = ri == null ? null
+					: ri.getFieldValue( meta.getSourceIndex( i ) );
+		}
+		return new ResultObject( meta.getResultClass( ), fields );
+	}
+}
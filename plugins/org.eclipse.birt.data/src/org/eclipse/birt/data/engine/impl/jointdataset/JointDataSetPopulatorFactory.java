@@ -54,4 +54,53 @@ public class JointDataSetPopulatorFactory
 	{
 		return new BaseJointDataSetPopulator( left, right, meta, jcm , joinType, null, session, rowFetchLimit );
 	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator which joins the data sets with
+	 * a hash table built on the data set of fewer rows. The data sets need not
+	 * be sorted on the join keys.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param rowFetchLimit
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getHashJoinDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, int rowFetchLimit ) throws DataException
+	{
+		boolean isBuildLeft = left.getRowCount( ) < right.getRowCount( );
+		return new HashJoinDataSetPopulator( left, right, meta, jcm , joinType, isBuildLeft, rowFetchLimit );
+	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator for the data sets which are
+	 * not sorted by the data engine because their data sources return the rows
+	 * in the order of the join keys. The order is checked before the data sets
+	 * are merged, and the data sets are joined with a hash table if a data set
+	 * is not in the order of the join keys.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param checkLeft
+	 *            whether the order of the left data set is checked
+	 * @param checkRight
+	 *            whether the order of the right data set is checked
+	 * @param session
+	 * @param rowFetchLimit
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getPresortedDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, boolean checkLeft, boolean checkRight, DataEngineSession session, int rowFetchLimit ) throws DataException
+	{
+		if ( ( checkLeft && !JointDataSetUtil.isSorted( left, jcm, true ) )
+				|| ( checkRight && !JointDataSetUtil.isSorted( right, jcm, false ) ) )
+			return getHashJoinDataSetPopulator( left, right, meta, jcm , joinType, rowFetchLimit );
+		return getBinaryTreeDataSetPopulator( left, right, meta, jcm , joinType, session, rowFetchLimit );
+	}
 }
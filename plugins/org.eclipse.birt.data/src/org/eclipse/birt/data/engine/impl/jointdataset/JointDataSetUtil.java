@@ -11,6 +11,7 @@
 package org.eclipse.birt.data.engine.impl.jointdataset;
 
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
 import org.eclipse.birt.data.engine.script.ScriptEvalUtil;
 
 /**
@@ -55,4 +56,36 @@ public class JointDataSetUtil
 		return 0;
 		
 	}
+	
+	/**
+	 * Return whether the rows of a result iterator are in the ascending order
+	 * of the join keys. The rows are read from the current row to the end,
+	 * and the result iterator is moved back to the current row.
+	 * 
+	 * @param iterator
+	 * @param jcm
+	 * @param isLeft
+	 * @return
+	 * @throws DataException
+	 */
+	static boolean isSorted( IResultIterator iterator,
+			IJoinConditionMatcher jcm, boolean isLeft ) throws DataException
+	{
+		int startIndex = iterator.getCurrentResultIndex( );
+		Object[] previous = null;
+		boolean sorted = true;
+		while ( iterator.getCurrentResult( ) != null )
+		{
+			Object[] current = jcm.getCompareValue( isLeft );
+			if ( previous != null && jcm.compare( previous, current ) > 0 )
+			{
+				sorted = false;
+				break;
+			}
+			previous = current;
+			iterator.next( );
+		}
+		iterator.getResultSetCache( ).moveTo( startIndex );
+		return sorted;
+	}
 }
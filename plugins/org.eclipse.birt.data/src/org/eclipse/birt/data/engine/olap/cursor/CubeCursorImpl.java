@@ -21,6 +21,7 @@ import javax.olap.cursor.CubeCursor;
 import javax.olap.cursor.EdgeCursor;
 
 import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.olap.driver.IEdgeAxis;
 import org.eclipse.birt.data.engine.olap.driver.IResultSet;
 import org.eclipse.birt.data.engine.olap.query.view.BirtCubeView;
 
@@ -79,7 +80,11 @@ public class CubeCursorImpl extends AbstractCursorSupport implements CubeCursor
 					this );
 			//the fetch size limit on column edge cursor
 			if ( appContext != null )
+			{
 				columnEdgeCursor.setFetchSize( populateFetchLimitSize( appContext.get( DataEngine.CUBECURSOR_FETCH_LIMIT_ON_COLUMN_EDGE ) ) );
+				setFetchWindowSize( result.getColumnEdgeResult( ),
+						appContext.get( DataEngine.CUBECURSOR_FETCH_WINDOW_ON_COLUMN_EDGE ) );
+			}
 			
 			result.getColumnEdgeResult( ).populateEdgeInfo( false );
 			ordinateEdge.add( columnEdgeCursor );
@@ -92,7 +97,11 @@ public class CubeCursorImpl extends AbstractCursorSupport implements CubeCursor
 					result.getRowEdgeResult( ),
 					this );
 			if ( appContext != null )
+			{
 				rowEdgeCursor.setFetchSize( populateFetchLimitSize( appContext.get( DataEngine.CUBECUSROR_FETCH_LIMIT_ON_ROW_EDGE ) ) );
+				setFetchWindowSize( result.getRowEdgeResult( ),
+						appContext.get( DataEngine.CUBECURSOR_FETCH_WINDOW_ON_ROW_EDGE ) );
+			}
 
 			result.getRowEdgeResult( ).populateEdgeInfo( false );
 			ordinateEdge.add( rowEdgeCursor );
@@ -159,4 +168,16 @@ public class CubeCursorImpl extends AbstractCursorSupport implements CubeCursor
 
 		return fetchLimit;
 	}
+	
+	/**
+	 * 
+	 * @param edgeAxis
+	 * @param propValue
+	 */
+	private void setFetchWindowSize( IEdgeAxis edgeAxis, Object propValue )
+	{
+		if ( edgeAxis.getRowDataAccessor( ) != null )
+			edgeAxis.getRowDataAccessor( )
+					.setFetchWindowSize( populateFetchLimitSize( propValue ) );
+	}
 }
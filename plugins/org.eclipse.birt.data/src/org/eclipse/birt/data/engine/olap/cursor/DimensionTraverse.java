@@ -84,7 +84,7 @@ class DimensionTraverse
 			}
 
 			EdgeInfo info = null;
-			if ( this.relationMap.currentRelation[i].size( ) > position )
+			if ( this.relationMap.hasEdgeInfo( i, position ) )
 			{
 				info = (EdgeInfo) this.relationMap.currentRelation[i].get( position );
 			}
@@ -380,7 +380,7 @@ class DimensionTraverse
 		int endPosition = edgeInfo.firstChild;
 
 		int index = this.relationMap.currentRelation[dimAxisIndex].indexOf( edgeInfo );
-		if ( index < this.relationMap.currentRelation[dimAxisIndex].size( ) - 1 )
+		if ( this.relationMap.hasEdgeInfo( dimAxisIndex, index + 1 ) )
 		{
 			EdgeInfo nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimAxisIndex].get( index + 1 );
 			EdgeInfo nextOuterEdgeInfo = this.findOuterMostChildEdgeInfo( dimAxisIndex,
@@ -500,7 +500,7 @@ class DimensionTraverse
 
 		int index = this.relationMap.currentRelation[dimAxisIndex].indexOf( currentEdgeInfo );
 		EdgeInfo nextEdgeInfo = null;
-		if ( this.relationMap.currentRelation[dimAxisIndex].size( ) > index + 1 )
+		if ( this.relationMap.hasEdgeInfo( dimAxisIndex, index + 1 ) )
 			nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimAxisIndex].get( index + 1 );
 
 		if ( nextEdgeInfo == null )
@@ -532,9 +532,9 @@ class DimensionTraverse
 			if ( dimensionAxis == index )
 			{
 
-				if ( this.relationMap.currentRelation[index].size( ) > endPosition &&
-						this.dimensionCursorPosition[index] > -1 &&
-						this.dimensionCursorPosition[index] + endPosition < this.relationMap.currentRelation[index].size( ) &&
+				if ( this.dimensionCursorPosition[index] > -1 &&
+						this.relationMap.hasEdgeInfo( index,
+								this.dimensionCursorPosition[index] + endPosition ) &&
 						( tempEdgeInfo2 == null || this.dimensionCursorPosition[index] +
 								endPosition < tempEdgeInfo2.firstChild ) )
 				{
@@ -547,13 +547,14 @@ class DimensionTraverse
 			}
 			else
 			{
-				if ( this.dimensionCursorPosition[index] + endPosition < this.relationMap.currentRelation[index].size( ) &&
-						this.dimensionCursorPosition[index] > -1 &&
-						this.relationMap.currentRelation[index].size( ) > endPosition )
+				if ( this.dimensionCursorPosition[index] > -1 &&
+						this.relationMap.hasEdgeInfo( index,
+								this.dimensionCursorPosition[index] + endPosition ) )
 				{
 					tempEdgeInfo1 = (EdgeInfo) this.relationMap.currentRelation[index].get( this.dimensionCursorPosition[index] +
 							endPosition );
-					if ( this.dimensionCursorPosition[index] + endPosition + 1 < this.relationMap.currentRelation[index].size( ) )
+					if ( this.relationMap.hasEdgeInfo( index,
+							this.dimensionCursorPosition[index] + endPosition + 1 ) )
 					{
 						tempEdgeInfo2 = (EdgeInfo) this.relationMap.currentRelation[index].get( this.dimensionCursorPosition[index] +
 								endPosition + 1 );
@@ -585,9 +586,9 @@ class DimensionTraverse
 
 		if ( dimensionAxis == 0 )
 		{
-			if ( this.dimensionCursorPosition[0] < this.relationMap.currentRelation[0].size( ) )
-				return this.relationMap.currentRelation[0].size( ) -
-						this.dimensionCursorPosition[dimensionAxis] - 1;
+			int size = this.relationMap.getEdgeInfoCount( 0 );
+			if ( this.dimensionCursorPosition[0] < size )
+				return size - this.dimensionCursorPosition[dimensionAxis] - 1;
 			else
 				return range;
 		}
@@ -603,7 +604,7 @@ class DimensionTraverse
 			{
 				int index = this.relationMap.currentRelation[dimensionAxis].indexOf( currentInfo );
 				EdgeInfo nextEdgeInfo = null;
-				if ( this.relationMap.currentRelation[dimensionAxis].size( ) > index + 1 )
+				if ( this.relationMap.hasEdgeInfo( dimensionAxis, index + 1 ) )
 					nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimensionAxis].get( index + 1 );
 				else
 					break;
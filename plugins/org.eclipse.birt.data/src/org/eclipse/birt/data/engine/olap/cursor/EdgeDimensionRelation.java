@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
 import org.eclipse.birt.data.engine.olap.driver.DimensionAxis;
 
@@ -60,6 +61,10 @@ import org.eclipse.birt.data.engine.olap.driver.DimensionAxis;
  * The product level's value will be sorted according to its basic sort definition. But in case 
  * of aggregation sort, we should try to keep its original sort result.
  * 
+ * If a fetch window is set, the edgeInfo is populated window by window as the
+ * cursors are moved along the edge, so the relation only holds the rows which
+ * have been visited plus one window ahead of them.
+ * 
  */
 class EdgeDimensionRelation
 {
@@ -67,16 +72,43 @@ class EdgeDimensionRelation
 	int traverseLength;
 	ResultSetFetcher fetcher;
 	private List sectionList;
+	private RowDataAccessorService service;
+	
+	// the state of the window populated on demand
+	private int windowSize;
+	private int populatedLength;
+	private Object[] preValue;
 	
 	EdgeDimensionRelation( RowDataAccessorService service,
 			ResultSetFetcher fetcher, int fetchSize, boolean isPage )
 			throws IOException
+	{
+		this( service, fetcher, fetchSize, -1, isPage );
+	}
+	
+	/**
+	 * If the window size is positive and the edge is not broken into pages,
+	 * only the edge info of the first window of rows is populated here, and the
+	 * edge info of the following rows are populated window by window when the
+	 * cursor is moved to them.
+	 * 
+	 * @param service
+	 * @param fetcher
+	 * @param fetchSize
+	 * @param windowSize
+	 * @param isPage
+	 * @throws IOException
+	 */
+	EdgeDimensionRelation( RowDataAccessorService service,
+			ResultSetFetcher fetcher, int fetchSize, int windowSize,
+			boolean isPage ) throws IOException
 	{
 		IAggregationResultSet rs = fetcher.getAggrResultSet( );
 		DimensionAxis[] dimAxis = service.getDimensionAxis( );
 
 		this.sectionList = new ArrayList( );
 		this.fetcher = fetcher;
+		this.service = service;
 		int customDimSize = dimAxis.length;
 
 		if ( fetchSize > 0 && rs.length( ) > fetchSize )
@@ -101,24 +133,21 @@ class EdgeDimensionRelation
 			this.sectionList.add( section );
 			this.currentRelation = ( (Section) this.sectionList.get( 0 ) ).getRelation( );
 		}
+		else if ( windowSize > 0 && ( isPage || service.getPagePosition( ) < 0 ) )
+		{
+			section = new Section( customDimSize, 0, this.traverseLength - 1 );
+			this.sectionList.add( section );
+			this.currentRelation = section.getRelation( );
+			this.windowSize = windowSize;
+			this.preValue = preValue;
+			populate( 0 );
+		}
 		else
 		{
 			for ( int rowId = 0; rowId < traverseLength; rowId++ )
 			{
 				rs.seek( rowId );
-				for ( int i = 0; i < customDimSize; i++ )
-				{
-					if ( fetcher.getLevelKeyValue( service.getDimensionAxis( )[i].getLevelIndex( ) ) == null )
-					{
-						currValue[i] = null;
-					}
-					else
-					{
-						int index = fetcher.getAggrResultSet( )
-								.getLevelKeyColCount( service.getDimensionAxis( )[i].getLevelIndex( ) ) - 1;
-						currValue[i] = fetcher.getLevelKeyValue( service.getDimensionAxis( )[i].getLevelIndex( ) )[index];
-					}
-				}
+				readLevelValues( currValue );
 				int breakLevel;
 				if ( newSection )
 				{
@@ -146,24 +175,7 @@ class EdgeDimensionRelation
 
 				if ( !newSection )
 				{
-					for ( int level = breakLevel; level < customDimSize; level++ )
-					{
-						EdgeInfo edge = new EdgeInfo( );
-						if ( currValue[level] == null )
-							edge.isNull = 0;
-
-						if ( level != 0 )
-							edge.parent = section.getRelation( )[level - 1].size( ) - 1;
-						if ( level == section.getRelation( ).length - 1 )
-						{
-							edge.firstChild = rowId;
-						}
-						else
-						{
-							edge.firstChild = section.getRelation( )[level + 1].size( );
-						}
-						section.getRelation( )[level].add( edge );
-					}
+					addEdgeInfo( section, breakLevel, rowId, currValue );
 
 					for ( int i = 0; i < customDimSize; i++ )
 					{
@@ -182,6 +194,143 @@ class EdgeDimensionRelation
 		}
 	}
 	
+	/**
+	 * Read the last key value of each level on the current row.
+	 * 
+	 * @param currValue
+	 */
+	private void readLevelValues( Object[] currValue )
+	{
+		DimensionAxis[] dimAxis = service.getDimensionAxis( );
+		for ( int i = 0; i < currValue.length; i++ )
+		{
+			if ( fetcher.getLevelKeyValue( dimAxis[i].getLevelIndex( ) ) == null )
+			{
+				currValue[i] = null;
+			}
+			else
+			{
+				int index = fetcher.getAggrResultSet( )
+						.getLevelKeyColCount( dimAxis[i].getLevelIndex( ) ) - 1;
+				currValue[i] = fetcher.getLevelKeyValue( dimAxis[i].getLevelIndex( ) )[index];
+			}
+		}
+	}
+	
+	/**
+	 * Add the edge info of the row from the break level to the innermost
+	 * level.
+	 * 
+	 * @param section
+	 * @param breakLevel
+	 * @param rowId
+	 * @param currValue
+	 */
+	private void addEdgeInfo( Section section, int breakLevel, int rowId,
+			Object[] currValue )
+	{
+		for ( int level = breakLevel; level < currValue.length; level++ )
+		{
+			EdgeInfo edge = new EdgeInfo( );
+			if ( currValue[level] == null )
+				edge.isNull = 0;
+
+			if ( level != 0 )
+				edge.parent = section.getRelation( )[level - 1].size( ) - 1;
+			if ( level == section.getRelation( ).length - 1 )
+			{
+				edge.firstChild = rowId;
+			}
+			else
+			{
+				edge.firstChild = section.getRelation( )[level + 1].size( );
+			}
+			section.getRelation( )[level].add( edge );
+		}
+	}
+	
+	/**
+	 * Populate the edge info up to the row, and at least one window of rows
+	 * ahead of the rows which have been populated. The position of the
+	 * aggregation result set is restored afterwards.
+	 * 
+	 * @param rowId
+	 */
+	private void populate( int rowId )
+	{
+		if ( isPopulated( ) || rowId < populatedLength )
+			return;
+		int end = Math.min( traverseLength,
+				Math.max( rowId + 1, populatedLength + windowSize ) );
+		IAggregationResultSet rs = fetcher.getAggrResultSet( );
+		Section section = (Section) this.sectionList.get( 0 );
+		Object[] currValue = new Object[preValue.length];
+		try
+		{
+			int position = rs.getPosition( );
+			for ( ; populatedLength < end; populatedLength++ )
+			{
+				rs.seek( populatedLength );
+				readLevelValues( currValue );
+				int breakLevel = populatedLength == 0 ? 0
+						: getBreakLevel( currValue,
+								preValue,
+								section,
+								populatedLength );
+				addEdgeInfo( section, breakLevel, populatedLength, currValue );
+				System.arraycopy( currValue, 0, preValue, 0, currValue.length );
+			}
+			if ( position >= 0 && position < rs.length( ) )
+				rs.seek( position );
+		}
+		catch ( IOException e )
+		{
+			throw new RuntimeException( new DataException( e.getLocalizedMessage( ),
+					e ) );
+		}
+	}
+	
+	/**
+	 * 
+	 * @return whether the edge info of all the rows has been populated
+	 */
+	private boolean isPopulated( )
+	{
+		return windowSize <= 0 || populatedLength >= traverseLength;
+	}
+	
+	/**
+	 * Indicate whether the edge info exists at the index of the level,
+	 * populating the following windows of rows until it does or all the rows
+	 * are populated.
+	 * 
+	 * @param level
+	 * @param index
+	 * @return
+	 */
+	boolean hasEdgeInfo( int level, int index )
+	{
+		if ( index < 0 )
+			return false;
+		while ( currentRelation[level].size( ) <= index && !isPopulated( ) )
+		{
+			populate( populatedLength );
+		}
+		return currentRelation[level].size( ) > index;
+	}
+	
+	/**
+	 * Get the count of edge info on the level, which populates all the rows.
+	 * 
+	 * @param level
+	 * @return
+	 */
+	int getEdgeInfoCount( int level )
+	{
+		populate( traverseLength - 1 );
+		return currentRelation[level].size( );
+	}
+	
 	/**
 	 * 
 	 * @param currValue
@@ -92,6 +92,8 @@ public interface IRowDataAccessor
 
 	public void setFetchSize( int fetchSize );
 	
+	public void setFetchWindowSize( int windowSize );
+	
 	public void sychronizedWithPage( int position );
 
 }
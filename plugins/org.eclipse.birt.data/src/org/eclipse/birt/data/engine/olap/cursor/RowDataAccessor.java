@@ -35,6 +35,7 @@ public class RowDataAccessor implements IRowDataAccessor
 	// the dimension axis on this edge
 	protected DimensionAxis[] dimAxis;
 	private int fetchRowLimit = -1;
+	private int fetchWindowSize = -1;
 	protected DimensionTraverse dimTraverse;
 	protected EdgeTraverse edgeTraverse;
 	protected EdgeDimensionRelation edgeDimensRelation;
@@ -78,7 +79,9 @@ public class RowDataAccessor implements IRowDataAccessor
 		service.setFetchSize( fetchRowLimit );
 		edgeDimensRelation = new EdgeDimensionRelation( service,
 				fetcher,
-				this.fetchRowLimit, isPage );
+				this.fetchRowLimit,
+				this.fetchWindowSize,
+				isPage );
 		dimTraverse = new DimensionTraverse( dimAxis, edgeDimensRelation );
 		edgeTraverse = new EdgeTraverse( edgeDimensRelation );
 	}
@@ -488,6 +491,7 @@ public class RowDataAccessor implements IRowDataAccessor
 	private void adjustDimensionPosition( int position )
 	{
 		int index = position;
+		this.edgeDimensRelation.hasEdgeInfo( dimAxis.length - 1, position );
 		for ( int i = dimAxis.length - 1; i >= 0; i-- )
 		{
 			List edgeInfoList = this.edgeDimensRelation.currentRelation[i];
@@ -556,6 +560,17 @@ public class RowDataAccessor implements IRowDataAccessor
 		this.fetchRowLimit = fetchSize;
 	}
 	
+	/**
+	 * Set the count of rows whose edge info is populated at a time. Zero or
+	 * negative number populates the edge info of all rows on initialization.
+	 * 
+	 * @param windowSize
+	 */
+	public void setFetchWindowSize( int windowSize )
+	{
+		this.fetchWindowSize = windowSize;
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -579,8 +594,8 @@ public class RowDataAccessor implements IRowDataAccessor
 	private int getRangeInLastDimension( int dimIndex )
 	{
 		if ( dimIndex == 0 )
-			return this.edgeDimensRelation.currentRelation[0].size( );
-		int size = this.edgeDimensRelation.currentRelation[dimIndex].size( );
+			return this.edgeDimensRelation.getEdgeInfoCount( 0 );
+		int size = this.edgeDimensRelation.getEdgeInfoCount( dimIndex );
 		if ( size == 0 )
 			return -1;
 		int count = 1;
@@ -15,12 +15,15 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.archive.FileArchiveReader;
@@ -37,12 +40,15 @@ import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IDimension;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
 import org.eclipse.birt.data.engine.olap.data.impl.AggregationResultSetSaveUtil;
 import org.eclipse.birt.data.engine.olap.data.impl.Cube;
+import org.eclipse.birt.data.engine.olap.data.impl.CubeRollup;
 import org.eclipse.birt.data.engine.olap.data.impl.SecuredCube;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationExecutor;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResultRow;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResultSetCache;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.CubeDimensionReader;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.DataSetFromOriginalCube;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.IDataSet4Aggregation;
@@ -58,7 +64,12 @@ import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionResultIter
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionRow;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Level;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableRowIterator;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.ParallelFactTableRowIterator;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.SegmentAggregation;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.UnionFactTableRowIterator;
 import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
@@ -96,6 +107,9 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	
 	public int maxDataObjectRows = -1;
 	public long memoryCacheSize = 0;
+	private int scanThreadCount = 1;
+	private ExecutorService scanExecutor = null;
+	private AggregationResultSetCache resultCache = null;
 	
 	private IBindingValueFetcher fetcher;
 	/**
@@ -436,7 +450,7 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 			AggregationDefinition[] aggregations, StopSign stopSign )
 			throws IOException, BirtException
 	{
-		IAggregationResultSet[] resultSet = onePassExecute( aggregations,
+		IAggregationResultSet[] resultSet = cachedOnePassExecute( aggregations,
 				stopSign );
 		
 		applyAggrFilters( aggregations, resultSet, stopSign );
@@ -700,9 +714,128 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 		}
 	}
 
+	/**
+	 * Look up the aggregations in the result cache, and only compute the ones
+	 * which can not be answered by the cached results.
+	 * 
+	 * @param aggregations
+	 * @param stopSign
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private IAggregationResultSet[] cachedOnePassExecute(
+			AggregationDefinition[] aggregations, StopSign stopSign )
+			throws DataException, IOException, BirtException
+	{
+		String cacheScope = getResultCacheScope( );
+		if ( cacheScope == null )
+		{
+			return onePassExecute( aggregations, stopSign );
+		}
+		IAggregationResultSet[] resultSet = new IAggregationResultSet[aggregations.length];
+		List missed = new ArrayList( );
+		for ( int i = 0; i < aggregations.length; i++ )
+		{
+			if ( AggregationResultSetCache.isCacheable( aggregations[i] ) )
+			{
+				resultSet[i] = resultCache.get( cacheScope, aggregations[i] );
+			}
+			if ( resultSet[i] == null )
+			{
+				missed.add( Integer.valueOf( i ) );
+			}
+		}
+		if ( missed.isEmpty( ) )
+		{
+			return resultSet;
+		}
+		AggregationDefinition[] missedAggregations = new AggregationDefinition[missed.size( )];
+		for ( int i = 0; i < missedAggregations.length; i++ )
+		{
+			missedAggregations[i] = aggregations[( (Integer) missed.get( i ) ).intValue( )];
+		}
+		IAggregationResultSet[] missedResultSet = onePassExecute( missedAggregations,
+				stopSign );
+		for ( int i = 0; i < missedResultSet.length; i++ )
+		{
+			if ( AggregationResultSetCache.isCacheable( missedAggregations[i] )
+					&& !stopSign.isStopped( ) )
+			{
+				resultCache.put( cacheScope,
+						missedAggregations[i],
+						missedResultSet[i] );
+			}
+			resultSet[( (Integer) missed.get( i ) ).intValue( )] = missedResultSet[i];
+		}
+		return resultSet;
+	}
+
+	/**
+	 * The aggregations can be cached if the rows of the fact table are only
+	 * filtered by the key selections of the levels. The scope of them is made
+	 * of the build id of the cube and the normalized level filters, which are
+	 * sorted since the filters are applied regardless of their order.
+	 * 
+	 * @return the scope of the aggregations in the result cache; null if they
+	 *         can not be cached
+	 */
+	private String getResultCacheScope( )
+	{
+		if ( resultCache == null
+				|| cube.getClass( ) != Cube.class || cube.getBuildId( ) == null )
+			return null;
+		if ( !measureFilters.isEmpty( )
+				|| !dimJSFilterMap.isEmpty( )
+				|| ( cubePosFilters != null && !cubePosFilters.isEmpty( ) ) )
+			return null;
+		if ( computedMeasureHelper != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ) != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ).length > 0 )
+			return null;
+		List filterKeys = new ArrayList( );
+		for ( int i = 0; i < simpleLevelFilters.size( ); i++ )
+		{
+			SimpleLevelFilter filter = (SimpleLevelFilter) simpleLevelFilters.get( i );
+			StringBuffer buffer = new StringBuffer( "S" );
+			buffer.append( new DimLevel( filter.getDimensionName( ),
+					filter.getLevelName( ) ).toString( ) );
+			if ( filter.getSelections( ) == null
+					|| !AggregationResultSetCache.appendSelections( buffer,
+							filter.getSelections( ) ) )
+				return null;
+			filterKeys.add( buffer.toString( ) );
+		}
+		for ( int i = 0; i < levelFilters.size( ); i++ )
+		{
+			LevelFilter filter = (LevelFilter) levelFilters.get( i );
+			if ( filter.getFilterHelper( ) != null
+					|| filter.getDimMembers( ) != null
+					|| filter.getSelections( ) == null )
+				return null;
+			StringBuffer buffer = new StringBuffer( "L" );
+			buffer.append( new DimLevel( filter.getDimensionName( ),
+					filter.getLevelName( ) ).toString( ) );
+			if ( !AggregationResultSetCache.appendSelections( buffer,
+					filter.getSelections( ) ) )
+				return null;
+			filterKeys.add( buffer.toString( ) );
+		}
+		Collections.sort( filterKeys );
+		StringBuffer scope = new StringBuffer( cube.getBuildId( ) );
+		for ( int i = 0; i < filterKeys.size( ); i++ )
+		{
+			scope.append( '|' ).append( filterKeys.get( i ) );
+		}
+		return scope.toString( );
+	}
+
 	/**
 	 * This method is responsible for computing the aggregation result according
-	 * to the specified aggregation definitions.
+	 * to the specified aggregation definitions. Each aggregation is computed
+	 * from the smallest rollup of the fact table which covers it, if there is
+	 * one.
 	 * @param aggregations
 	 * @param stopSign
 	 * @return
@@ -713,8 +846,250 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	private IAggregationResultSet[] onePassExecute(
 			AggregationDefinition[] aggregations, StopSign stopSign )
 			throws DataException, IOException, BirtException
+	{
+		CubeRollup[] rollups = cube.getRollups( );
+		if ( rollups.length == 0 || !isRollupApplicable( ) )
+		{
+			return onePassExecute( aggregations, cube.getFactTables( ), stopSign );
+		}
+		// group the aggregations by the fact table they are computed from
+		Map aggregationGroups = new LinkedHashMap( );
+		for ( int i = 0; i < aggregations.length; i++ )
+		{
+			CubeRollup rollup = findRollup( aggregations[i], rollups );
+			Object key = rollup == null ? null : rollup.getName( );
+			List group = (List) aggregationGroups.get( key );
+			if ( group == null )
+			{
+				group = new ArrayList( );
+				aggregationGroups.put( key, group );
+			}
+			group.add( Integer.valueOf( i ) );
+		}
+		IAggregationResultSet[] resultSet = new IAggregationResultSet[aggregations.length];
+		for ( Iterator itr = aggregationGroups.values( ).iterator( ); itr.hasNext( ); )
+		{
+			List group = (List) itr.next( );
+			CubeRollup rollup = findRollup( aggregations[( (Integer) group.get( 0 ) ).intValue( )],
+					rollups );
+			AggregationDefinition[] groupAggregations = new AggregationDefinition[group.size( )];
+			for ( int i = 0; i < groupAggregations.length; i++ )
+			{
+				AggregationDefinition aggregation = aggregations[( (Integer) group.get( i ) ).intValue( )];
+				groupAggregations[i] = rollup == null ? aggregation
+						: getRollupAggregation( aggregation, rollup );
+			}
+			IAggregationResultSet[] groupResultSet = onePassExecute( groupAggregations,
+					rollup == null ? cube.getFactTables( ) : new FactTable[]{
+						rollup.getFactTable( )
+					},
+					stopSign );
+			for ( int i = 0; i < groupResultSet.length; i++ )
+			{
+				resultSet[( (Integer) group.get( i ) ).intValue( )] = groupResultSet[i];
+			}
+		}
+		return resultSet;
+	}
+
+	/**
+	 * The rollups can not be used if the rows of the fact table are filtered
+	 * by the measures or by the positions of all dimensions, or if there are
+	 * computed measures, all of which are evaluated on the original rows.
+	 * 
+	 * @return
+	 */
+	private boolean isRollupApplicable( )
+	{
+		if ( !measureFilters.isEmpty( ) )
+			return false;
+		if ( cubePosFilters != null && !cubePosFilters.isEmpty( ) )
+			return false;
+		if ( computedMeasureHelper != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ) != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ).length > 0 )
+			return false;
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param aggregation
+	 * @param rollups
+	 * @return the rollup with the least rows which covers the levels,
+	 *         measures and dimension filters of the aggregation; null if no
+	 *         rollup covers it
+	 */
+	private CubeRollup findRollup( AggregationDefinition aggregation,
+			CubeRollup[] rollups )
+	{
+		CubeRollup result = null;
+		for ( int i = 0; i < rollups.length; i++ )
+		{
+			if ( ( result == null || rollups[i].getRowCount( ) < result.getRowCount( ) )
+					&& isCoveredByRollup( aggregation, rollups[i] ) )
+			{
+				result = rollups[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 
+	 * @param aggregation
+	 * @param rollup
+	 * @return
+	 */
+	private boolean isCoveredByRollup( AggregationDefinition aggregation,
+			CubeRollup rollup )
+	{
+		DimLevel[] levels = aggregation.getLevels( );
+		if ( levels != null )
+		{
+			for ( int i = 0; i < levels.length; i++ )
+			{
+				if ( !isCoveredByRollup( levels[i].getDimensionName( ),
+						levels[i].getLevelName( ),
+						rollup ) )
+				{
+					return false;
+				}
+			}
+		}
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		if ( functions != null )
+		{
+			for ( int i = 0; i < functions.length; i++ )
+			{
+				if ( functions[i].getParaCol( ) != null
+						|| functions[i].getFilterEvalHelper( ) != null
+						|| rollup.getRollupMeasureName( functions[i].getMeasureName( ),
+								functions[i].getFunctionName( ) ) == null )
+				{
+					return false;
+				}
+			}
+		}
+		IDimension[] dimensions = cube.getDimesions( );
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			int levelCount = dimensions[i].getHierarchy( ).getLevels( ).length;
+			if ( rollup.getLevelIndex( i ) == levelCount - 1 )
+			{
+				continue;
+			}
+			// the script filters may refer to any level of the dimension
+			List jsFilters = (List) dimJSFilterMap.get( dimensions[i].getName( ) );
+			if ( jsFilters != null && !jsFilters.isEmpty( ) )
+			{
+				return false;
+			}
+		}
+		for ( int i = 0; i < simpleLevelFilters.size( ); i++ )
+		{
+			SimpleLevelFilter filter = (SimpleLevelFilter) simpleLevelFilters.get( i );
+			if ( !isCoveredByRollup( filter.getDimensionName( ),
+					filter.getLevelName( ),
+					rollup ) )
+			{
+				return false;
+			}
+		}
+		for ( int i = 0; i < levelFilters.size( ); i++ )
+		{
+			LevelFilter filter = (LevelFilter) levelFilters.get( i );
+			if ( !isCoveredByRollup( filter.getDimensionName( ),
+					filter.getLevelName( ),
+					rollup ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param dimensionName
+	 * @param levelName
+	 * @param rollup
+	 * @return whether the level is kept by the rollup
+	 */
+	private boolean isCoveredByRollup( String dimensionName, String levelName,
+			CubeRollup rollup )
+	{
+		IDimension[] dimensions = cube.getDimesions( );
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			if ( dimensions[i].getName( ).equals( dimensionName ) )
+			{
+				int levelIndex = getLevelIndex( (Dimension) dimensions[i],
+						new DimLevel( dimensionName, levelName ) );
+				return levelIndex >= 0
+						&& levelIndex <= rollup.getLevelIndex( i );
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 
+	 * @param aggregation
+	 * @param rollup
+	 * @return the aggregation on the measures of the rollup
+	 */
+	private static AggregationDefinition getRollupAggregation(
+			AggregationDefinition aggregation, CubeRollup rollup )
+	{
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		if ( functions == null )
+		{
+			return aggregation;
+		}
+		AggregationFunctionDefinition[] rollupFunctions = new AggregationFunctionDefinition[functions.length];
+		for ( int i = 0; i < functions.length; i++ )
+		{
+			rollupFunctions[i] = new AggregationFunctionDefinition( functions[i].getName( ),
+					rollup.getRollupMeasureName( functions[i].getMeasureName( ),
+							functions[i].getFunctionName( ) ),
+					functions[i].getFunctionName( ) );
+		}
+		return new AggregationDefinition( aggregation.getLevels( ),
+				aggregation.getSortTypes( ),
+				rollupFunctions );
+	}
+
+	/**
+	 * 
+	 * @param aggregations
+	 * @param factTables
+	 *            the parts of the fact table, or a rollup of it
+	 * @param stopSign
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private IAggregationResultSet[] onePassExecute(
+			AggregationDefinition[] aggregations, FactTable[] factTables,
+			StopSign stopSign ) throws DataException, IOException,
+			BirtException
 	{
 		IDiskArray[] dimPosition = getFilterResult( );
+		SegmentAggregation segmentAggregation = getSegmentAggregation( aggregations,
+				factTables[0],
+				dimPosition,
+				stopSign );
+		AggregationDefinition[] executedAggregations = aggregations;
+		if ( segmentAggregation != null )
+		{
+			executedAggregations = new AggregationDefinition[aggregations.length];
+			for ( int i = 0; i < aggregations.length; i++ )
+			{
+				executedAggregations[i] = getMergeAggregation( aggregations[i] );
+			}
+		}
 
 		int count = 0;
 		for ( int i = 0; i < dimPosition.length; i++ )
@@ -737,24 +1112,27 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 				pos++;
 			}
 		}
-		FactTableRowIterator factTableRowIterator = new FactTableRowIterator( cube.getFactTable( ),
-				validDimensionName,
-				validDimPosition,
-				cube.getDimesions( ),
-				null,
-				stopSign );
-		if ( cubePosFilters != null && !cubePosFilters.isEmpty( ) )
-		{// add fact table filter if it's necessary
-			for ( Iterator itr = cubePosFilters.iterator( ); itr.hasNext( ); )
-			{
-				ICubePosFilter cubePosFilter = (ICubePosFilter) itr.next( );
-				factTableRowIterator.addCubePosFilter( cubePosFilter );
-			}
+		IFactTableRowIterator factTableRowIterator;
+		if ( factTables.length == 1 )
+		{
+			factTableRowIterator = createFactTableRowIterator( factTables[0],
+					validDimensionName,
+					validDimPosition,
+					segmentAggregation,
+					stopSign );
 		}
-		
-		for( int i=0;i<measureFilters.size( );i++)
+		else
 		{
-			factTableRowIterator.addMeasureFilter( (IJSFacttableFilterEvalHelper)measureFilters.get( i ) );
+			IFactTableRowIterator[] partIterators = new IFactTableRowIterator[factTables.length];
+			for ( int i = 0; i < partIterators.length; i++ )
+			{
+				partIterators[i] = createFactTableRowIterator( factTables[i],
+						validDimensionName,
+						validDimPosition,
+						segmentAggregation,
+						stopSign );
+			}
+			factTableRowIterator = new UnionFactTableRowIterator( partIterators );
 		}
 		DimensionResultIterator[] dimensionResultIterators = populateDimensionResultIterator( dimPosition, stopSign );
 
@@ -763,12 +1141,289 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 				computedMeasureHelper );
 		AggregationExecutor aggregationCalculatorExecutor = new AggregationExecutor( new CubeDimensionReader( cube ),
 				dataSet4Aggregation,
-				aggregations,
+				executedAggregations,
 				memoryCacheSize );
 		
 		aggregationCalculatorExecutor.setMaxDataObjectRows( maxDataObjectRows );
 		
-		return aggregationCalculatorExecutor.execute( stopSign );
+		IAggregationResultSet[] resultSet = aggregationCalculatorExecutor.execute( stopSign );
+		if ( segmentAggregation != null && !stopSign.isStopped( ) )
+		{
+			for ( int i = 0; i < resultSet.length; i++ )
+			{
+				resultSet[i] = toCountResultSet( aggregations[i], resultSet[i] );
+			}
+		}
+		return resultSet;
+	}
+
+	/**
+	 * The measure filters are evaluated by scripts, which can not be shared by
+	 * the threads of a parallel scan.
+	 * 
+	 * @return whether the fact table is scanned by the threads of the scan
+	 *         executor
+	 */
+	private boolean isParallelScan( )
+	{
+		return scanThreadCount > 1
+				&& scanExecutor != null && measureFilters.isEmpty( );
+	}
+
+	/**
+	 * The rows of each segment are partially aggregated by the workers of a
+	 * parallel scan if all the aggregations are sums, minimums, maximums or
+	 * counts of the measures of the fact table, and the partial aggregations
+	 * are merged by the aggregation executor.
+	 * 
+	 * @param aggregations
+	 * @param factTable
+	 * @param dimPosition
+	 * @param stopSign
+	 * @return the partial aggregation of the segments; null if the rows of the
+	 *         segments are aggregated one by one
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private SegmentAggregation getSegmentAggregation(
+			AggregationDefinition[] aggregations, FactTable factTable,
+			IDiskArray[] dimPosition, StopSign stopSign ) throws DataException,
+			IOException
+	{
+		// the limit of the data object rows applies to the rows of the fact
+		// table
+		if ( !isParallelScan( ) || maxDataObjectRows > 0 )
+			return null;
+		if ( computedMeasureHelper != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ) != null
+				&& computedMeasureHelper.getAllComputedMeasureInfos( ).length > 0 )
+			return null;
+		IDimension[] dimensions = cube.getDimesions( );
+		int[] levelIndex = new int[dimensions.length];
+		Arrays.fill( levelIndex, -1 );
+		List measureNames = new ArrayList( );
+		List functionNames = new ArrayList( );
+		Set partialMeasureNames = new HashSet( );
+		for ( int i = 0; i < aggregations.length; i++ )
+		{
+			AggregationFunctionDefinition[] functions = aggregations[i].getAggregationFunctions( );
+			for ( int j = 0; functions != null && j < functions.length; j++ )
+			{
+				String functionName = functions[j].getFunctionName( );
+				String measureName = functions[j].getMeasureName( );
+				if ( functions[j].getParaCol( ) != null
+						|| functions[j].getFilterEvalHelper( ) != null
+						|| !SegmentAggregation.isPartialFunction( functionName ) )
+					return null;
+				if ( measureName == null ? !SegmentAggregation.COUNT_FUNC.equalsIgnoreCase( functionName )
+						: factTable.getMeasureIndex( measureName ) < 0 )
+					return null;
+				if ( partialMeasureNames.add( SegmentAggregation.toPartialMeasureName( measureName,
+						functionName ) ) )
+				{
+					measureNames.add( measureName );
+					functionNames.add( functionName );
+				}
+			}
+			DimLevel[] levels = aggregations[i].getLevels( );
+			for ( int j = 0; levels != null && j < levels.length; j++ )
+			{
+				int dimensionIndex = getDimensionIndex( levels[j].getDimensionName( ) );
+				if ( dimensionIndex < 0
+						|| !( dimensions[dimensionIndex] instanceof Dimension ) )
+					return null;
+				int index = getLevelIndex( (Dimension) dimensions[dimensionIndex],
+						levels[j] );
+				if ( index < 0 )
+					return null;
+				levelIndex[dimensionIndex] = Math.max( levelIndex[dimensionIndex],
+						index );
+			}
+		}
+		String[] dimensionNames = new String[dimensions.length];
+		int[][] positionMaps = new int[dimensions.length][];
+		boolean mapped = false;
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			dimensionNames[i] = dimensions[i].getName( );
+			// the filtered positions of a dimension are located as they are
+			if ( dimPosition[i] == null
+					&& dimensions[i] instanceof Dimension
+					&& levelIndex[i] < dimensions[i].getHierarchy( )
+							.getLevels( ).length - 1 )
+			{
+				positionMaps[i] = Cube.getRollupPositions( (Dimension) dimensions[i],
+						levelIndex[i],
+						stopSign );
+				mapped = true;
+			}
+		}
+		// the groups would be hardly fewer than the rows if no position is
+		// mapped
+		if ( !mapped )
+			return null;
+		return new SegmentAggregation( dimensionNames,
+				positionMaps,
+				(String[]) measureNames.toArray( new String[0] ),
+				(String[]) functionNames.toArray( new String[0] ),
+				factTable.getMeasureInfo( ) );
+	}
+
+	/**
+	 * 
+	 * @param dimensionName
+	 * @return the index of the dimension in the cube; -1 if it does not exist
+	 */
+	private int getDimensionIndex( String dimensionName )
+	{
+		IDimension[] dimensions = cube.getDimesions( );
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			if ( dimensions[i].getName( ).equals( dimensionName ) )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @param aggregation
+	 * @return the aggregation which merges the partial aggregations of the
+	 *         segments
+	 */
+	private static AggregationDefinition getMergeAggregation(
+			AggregationDefinition aggregation )
+	{
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		if ( functions == null )
+		{
+			return aggregation;
+		}
+		AggregationFunctionDefinition[] mergeFunctions = new AggregationFunctionDefinition[functions.length];
+		for ( int i = 0; i < functions.length; i++ )
+		{
+			mergeFunctions[i] = new AggregationFunctionDefinition( functions[i].getName( ),
+					SegmentAggregation.toPartialMeasureName( functions[i].getMeasureName( ),
+							functions[i].getFunctionName( ) ),
+					SegmentAggregation.getMergeFunction( functions[i].getFunctionName( ) ) );
+		}
+		return new AggregationDefinition( aggregation.getLevels( ),
+				aggregation.getSortTypes( ),
+				mergeFunctions );
+	}
+
+	/**
+	 * The counts merged from the partial counts of the segments are sums,
+	 * which are converted back to integers.
+	 * 
+	 * @param aggregation
+	 * @param resultSet
+	 *            the result of the merge aggregation
+	 * @return
+	 * @throws IOException
+	 */
+	private static IAggregationResultSet toCountResultSet(
+			AggregationDefinition aggregation, IAggregationResultSet resultSet )
+			throws IOException
+	{
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		boolean[] isCount = new boolean[functions == null ? 0 : functions.length];
+		boolean hasCount = false;
+		for ( int i = 0; i < isCount.length; i++ )
+		{
+			isCount[i] = SegmentAggregation.COUNT_FUNC.equalsIgnoreCase( functions[i].getFunctionName( ) );
+			hasCount = hasCount || isCount[i];
+		}
+		if ( !hasCount )
+		{
+			return resultSet;
+		}
+		IDiskArray rows = new BufferedStructureArray( AggregationResultRow.getCreator( ),
+				Constants.LIST_BUFFER_SIZE );
+		for ( int i = 0; i < resultSet.length( ); i++ )
+		{
+			resultSet.seek( i );
+			IAggregationResultRow row = resultSet.getCurrentRow( );
+			Object[] values = row.getAggregationValues( );
+			Object[] countValues = new Object[values.length];
+			for ( int j = 0; j < values.length; j++ )
+			{
+				countValues[j] = isCount[j] && values[j] instanceof Number
+						? Integer.valueOf( ( (Number) values[j] ).intValue( ) )
+						: values[j];
+			}
+			rows.add( new AggregationResultRow( row.getLevelMembers( ),
+					countValues ) );
+		}
+		AggregationResultSet countResultSet = new AggregationResultSet( aggregation,
+				rows,
+				resultSet.getKeyNames( ),
+				resultSet.getAttributeNames( ) );
+		resultSet.close( );
+		return countResultSet;
+	}
+
+	/**
+	 * 
+	 * @param factTable
+	 * @param validDimensionName
+	 * @param validDimPosition
+	 * @param segmentAggregation
+	 *            the partial aggregation of the segments of a parallel scan;
+	 *            null if the rows are returned one by one
+	 * @param stopSign
+	 * @return
+	 * @throws IOException
+	 */
+	private IFactTableRowIterator createFactTableRowIterator(
+			FactTable factTable, String[] validDimensionName,
+			IDiskArray[] validDimPosition,
+			SegmentAggregation segmentAggregation, StopSign stopSign )
+			throws IOException
+	{
+		if ( isParallelScan( ) )
+		{
+			ParallelFactTableRowIterator parallelRowIterator = new ParallelFactTableRowIterator( factTable,
+					validDimensionName,
+					validDimPosition,
+					scanExecutor,
+					scanThreadCount,
+					stopSign );
+			if ( cubePosFilters != null && !cubePosFilters.isEmpty( ) )
+			{// add fact table filter if it's necessary
+				for ( Iterator itr = cubePosFilters.iterator( ); itr.hasNext( ); )
+				{
+					parallelRowIterator.addCubePosFilter( (ICubePosFilter) itr.next( ) );
+				}
+			}
+			if ( segmentAggregation != null )
+			{
+				parallelRowIterator.setSegmentAggregation( segmentAggregation );
+			}
+			return parallelRowIterator;
+		}
+		FactTableRowIterator rowIterator = new FactTableRowIterator( factTable,
+				validDimensionName,
+				validDimPosition,
+				cube.getDimesions( ),
+				null,
+				stopSign );
+		if ( cubePosFilters != null && !cubePosFilters.isEmpty( ) )
+		{// add fact table filter if it's necessary
+			for ( Iterator itr = cubePosFilters.iterator( ); itr.hasNext( ); )
+			{
+				ICubePosFilter cubePosFilter = (ICubePosFilter) itr.next( );
+				rowIterator.addCubePosFilter( cubePosFilter );
+			}
+		}
+
+		for ( int i = 0; i < measureFilters.size( ); i++ )
+		{
+			rowIterator.addMeasureFilter( (IJSFacttableFilterEvalHelper) measureFilters.get( i ) );
+		}
+		return rowIterator;
 	}
 	
 	
@@ -931,4 +1586,43 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	{
 		return memoryCacheSize;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Set the number of threads which scan the fact table segments. The
+	 * segments are scanned by the current thread if it is not greater than 1.
+	 * 
+	 * @param scanThreadCount
+	 */
+	public void setScanThreadCount( int scanThreadCount )
+	{
+		this.scanThreadCount = scanThreadCount;
+	}
+	
+	public int getScanThreadCount( )
+	{
+		return scanThreadCount;
+	}
+	
+	/**
+	 * Set the executor the fact table segments are scanned on when the scan
+	 * thread count is greater than 1. The executor is shared by the queries of
+	 * a data engine and is not shut down by this helper.
+	 * 
+	 * @param scanExecutor
+	 */
+	public void setScanExecutor( ExecutorService scanExecutor )
+	{
+		this.scanExecutor = scanExecutor;
+	}
+	
+	/**
+	 * Set the cache where the aggregations calculated from the fact table are
+	 * looked up and kept. The aggregations are not cached if it is null.
+	 * 
+	 * @param resultCache
+	 */
+	public void setResultCache( AggregationResultSetCache resultCache )
+	{
+		this.resultCache = resultCache;
+	}
+}
@@ -23,14 +23,17 @@ import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.DataEngineImpl;
 import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
 import org.eclipse.birt.data.engine.olap.data.api.ILevel;
 import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
 import org.eclipse.birt.data.engine.olap.data.impl.Cube;
+import org.eclipse.birt.data.engine.olap.data.impl.CubeRollup;
 import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Hierarchy;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
 
 /**
  * 
@@ -40,6 +43,7 @@ public class CubeMaterializer
 {
 	private IDocumentManager documentManager;
 	private DataEngine dataEngine;
+	private int buildThreadCount = 1;
 	
 	/**
 	 * 
@@ -86,6 +90,61 @@ public class CubeMaterializer
 		setShutdownListener( );
 		documentManager = DocumentManagerFactory.createFileDocumentManager( dataEngine.getSession( ).getTempDir( ));
 	}
+	
+	/**
+	 * 
+	 * @param dataEngine
+	 * @param documentManager
+	 */
+	private CubeMaterializer( DataEngineImpl dataEngine, IDocumentManager documentManager )
+	{
+		this.dataEngine = dataEngine;
+		this.documentManager = documentManager;
+		setShutdownListener( );
+	}
+	
+	/**
+	 * Create a materializer on the cube files saved before by a materializer
+	 * created with the same manager name, so that the cubes in them can be
+	 * appended to. The constructors always start with empty files.
+	 * 
+	 * @param dataEngine
+	 * @param managerName
+	 * @return
+	 * @throws DataException
+	 *             if the files do not exist
+	 * @throws IOException
+	 */
+	public static CubeMaterializer load( DataEngineImpl dataEngine,
+			String managerName ) throws DataException, IOException
+	{
+		DataEngineThreadLocal.getInstance( ).getPathManager( ).setTempPath( dataEngine.getSession( ).getTempDir( ) );
+		IDocumentManager documentManager = DocumentManagerFactory.loadFileDocumentManager( dataEngine.getSession( ).getTempDir( ),
+				managerName );
+		DocManagerMap.getDocManagerMap( )
+				.set( String.valueOf( dataEngine.hashCode( ) ),
+						dataEngine.getSession( ).getTempDir( ) + managerName,
+						documentManager );
+		return new CubeMaterializer( dataEngine, documentManager );
+	}
+	
+	/**
+	 * Create a materializer on the cube files saved before by a materializer
+	 * created with the default manager name.
+	 * 
+	 * @param dataEngine
+	 * @return
+	 * @throws DataException
+	 *             if the files do not exist
+	 * @throws IOException
+	 * @see #load(DataEngineImpl, String)
+	 */
+	public static CubeMaterializer load( DataEngineImpl dataEngine )
+			throws DataException, IOException
+	{
+		return new CubeMaterializer( dataEngine,
+				DocumentManagerFactory.loadFileDocumentManager( dataEngine.getSession( ).getTempDir( ) ) );
+	}
 
 	/**
 	 * 
@@ -97,6 +156,17 @@ public class CubeMaterializer
 		dataEngine.addShutdownListener( new DocManagerReleaser( dataEngine ) );
 	}
 	
+	/**
+	 * Set the number of threads which save the fact tables of the created or
+	 * appended cubes.
+	 * 
+	 * @param buildThreadCount
+	 */
+	public void setBuildThreadCount( int buildThreadCount )
+	{
+		this.buildThreadCount = buildThreadCount;
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -226,14 +296,103 @@ public class CubeMaterializer
 			String[][] DimJointColumnNames, IDimension[] dimensions,
 			IDatasetIterator factTable, String[] measureColumns, String[] measureAggrFunctionNames,
 			long cacheSize, StopSign stopSign ) throws IOException, BirtException
+	{
+		this.createCube( name,
+				factTableJointColumnNames,
+				DimJointColumnNames,
+				dimensions,
+				factTable,
+				measureColumns,
+				measureAggrFunctionNames,
+				null,
+				cacheSize,
+				stopSign );
+	}
+	
+	/**
+	 * Create the cube and materialize a rollup of the fact table for each of
+	 * the level combinations. The aggregations on the levels of a rollup are
+	 * calculated from the smallest such rollup instead of the whole fact
+	 * table.
+	 * 
+	 * @param name
+	 * @param factTableJointColumnNames
+	 * @param DimJointColumnNames
+	 * @param dimensions
+	 * @param factTable
+	 * @param measureColumns
+	 * @param measureAggrFunctionNames
+	 * @param rollupLevels
+	 * @param cacheSize
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void createCube( String name, String[][] factTableJointColumnNames,
+			String[][] DimJointColumnNames, IDimension[] dimensions,
+			IDatasetIterator factTable, String[] measureColumns, String[] measureAggrFunctionNames,
+			DimLevel[][] rollupLevels, long cacheSize, StopSign stopSign ) throws IOException, BirtException
 	{
 		if( dimensions.length == 0 )
 		{
 			throw new DataException( ResourceConstants.MISSING_DIMENSION_IN_CUBE, name );
 		}
 		Cube cube = new Cube( name, documentManager );
+		cube.setBuildThreadCount( buildThreadCount );
 		cube.create(factTableJointColumnNames, DimJointColumnNames, dimensions,
 				factTable, measureColumns, measureAggrFunctionNames, cacheSize, stopSign);
+		if ( rollupLevels != null && rollupLevels.length > 0 )
+		{
+			cube.createRollups( rollupLevels, cacheSize, stopSign );
+		}
+		cube.close( );
+		documentManager.flush( );
+	}
+	
+	/**
+	 * Append the delta rows of the fact table and the new dimension members
+	 * to a created cube, without building the cube again. A cube saved by
+	 * another materializer is appended to through a materializer got by
+	 * load(). The delta rows are
+	 * saved as a new part of the fact table, and the existing members of the
+	 * dimensions keep their positions. The cube document is replaced at last,
+	 * so the cubes loaded before the append keep reading the previous build.
+	 * 
+	 * @param name
+	 * @param factTableJointColumnNames
+	 * @param DimJointColumnNames
+	 * @param dimensionIterators
+	 *            the rows of the new members of each dimension of the cube, in
+	 *            the order the dimensions are created with; null if a
+	 *            dimension has no new member. The rows of the existing members
+	 *            are skipped.
+	 * @param factTable
+	 *            the delta rows of the fact table
+	 * @param measureColumns
+	 * @param measureAggrFunctionNames
+	 * @param cacheSize
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void appendCube( String name, String[][] factTableJointColumnNames,
+			String[][] DimJointColumnNames,
+			IDatasetIterator[] dimensionIterators, IDatasetIterator factTable,
+			String[] measureColumns, String[] measureAggrFunctionNames,
+			long cacheSize, StopSign stopSign ) throws IOException,
+			BirtException
+	{
+		Cube cube = new Cube( name, documentManager );
+		cube.setBuildThreadCount( buildThreadCount );
+		cube.load( stopSign );
+		cube.append( factTableJointColumnNames,
+				DimJointColumnNames,
+				dimensionIterators,
+				factTable,
+				measureColumns,
+				measureAggrFunctionNames,
+				cacheSize,
+				stopSign );
 		cube.close( );
 		documentManager.flush( );
 	}
@@ -252,40 +411,38 @@ public class CubeMaterializer
 		//save cube
 		saveDocObjToReportDocument( NamingUtil.getCubeDocName( cubeName ), writer, stopSign );
 		//save facttable
-		String factTableName = cube.getFactTable( ).getName( );
-		saveDocObjToReportDocument( NamingUtil.getFactTableName( factTableName ), writer, stopSign );
-		saveDocObjToReportDocument( NamingUtil.getFTSUListName( factTableName ), writer, stopSign );
-		//save FTSU
-		IDocumentObject documentObject = documentManager.openDocumentObject( NamingUtil.getFTSUListName( factTableName ) );
-		try
+		FactTable[] factTables = cube.getFactTables( );
+		for ( int i = 0; i < factTables.length; i++ )
 		{
-			String FTSUName = documentObject.readString( );
-			while ( FTSUName != null )
-			{
-				saveDocObjToReportDocument( FTSUName, writer, stopSign );
-				FTSUName = documentObject.readString( );
-			}
+			saveFactTableToReportDocument( factTables[i].getName( ), writer, stopSign );
 		}
-		catch ( EOFException e )
+		//save rollups
+		CubeRollup[] rollups = cube.getRollups( );
+		if ( rollups.length > 0 )
 		{
-
+			saveDocObjToReportDocument( NamingUtil.getRollupListName( cubeName ), writer, stopSign );
+			for ( int i = 0; i < rollups.length; i++ )
+			{
+				saveFactTableToReportDocument( rollups[i].getName( ), writer, stopSign );
+			}
 		}
 		//save dimension
 		IDimension[] dimensions = cube.getDimesions( );
 		for ( int i = 0; i < dimensions.length; i++ )
 		{
-			saveDocObjToReportDocument( NamingUtil.getDimensionDocName( dimensions[i].getName( ) ), writer, stopSign );
+			String storageName = ( (Dimension) dimensions[i] ).getStorageName( );
+			saveDocObjToReportDocument( NamingUtil.getDimensionDocName( storageName ), writer, stopSign );
 			IHierarchy hierarchy = dimensions[i].getHierarchy( );
-			saveDocObjToReportDocument( NamingUtil.getHierarchyDocName( dimensions[i].getName( ), hierarchy.getName( ) ), writer, stopSign );
-			saveDocObjToReportDocument( NamingUtil.getHierarchyOffsetDocName( dimensions[i].getName( ), hierarchy.getName( ) ), writer, stopSign );
+			saveDocObjToReportDocument( NamingUtil.getHierarchyDocName( storageName, hierarchy.getName( ) ), writer, stopSign );
+			saveDocObjToReportDocument( NamingUtil.getHierarchyOffsetDocName( storageName, hierarchy.getName( ) ), writer, stopSign );
 			ILevel[] levels = hierarchy.getLevels( );
 			for ( int j = 0; j < levels.length; j++ )
 			{
-				saveDocObjToReportDocument( NamingUtil.getLevelIndexDocName( dimensions[i].getName( ),
+				saveDocObjToReportDocument( NamingUtil.getLevelIndexDocName( storageName,
 						levels[j].getName( ) ),
 						writer,
 						stopSign );
-				saveDocObjToReportDocument( NamingUtil.getLevelIndexOffsetDocName( dimensions[i].getName( ),
+				saveDocObjToReportDocument( NamingUtil.getLevelIndexOffsetDocName( storageName,
 						levels[j].getName( ) ),
 						writer,
 						stopSign );
@@ -296,6 +453,35 @@ public class CubeMaterializer
 		writer.flush( );
 	}
 	
+	/**
+	 * 
+	 * @param factTableName
+	 * @param writer
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void saveFactTableToReportDocument( String factTableName, IDocArchiveWriter writer, StopSign stopSign ) throws IOException, DataException
+	{
+		saveDocObjToReportDocument( NamingUtil.getFactTableName( factTableName ), writer, stopSign );
+		saveDocObjToReportDocument( NamingUtil.getFTSUListName( factTableName ), writer, stopSign );
+		//save FTSU
+		IDocumentObject documentObject = documentManager.openDocumentObject( NamingUtil.getFTSUListName( factTableName ) );
+		try
+		{
+			String FTSUName = documentObject.readString( );
+			while ( FTSUName != null )
+			{
+				saveDocObjToReportDocument( FTSUName, writer, stopSign );
+				FTSUName = documentObject.readString( );
+			}
+		}
+		catch ( EOFException e )
+		{
+
+		}
+	}
+	
 	/**
 	 * 
 	 * @param name
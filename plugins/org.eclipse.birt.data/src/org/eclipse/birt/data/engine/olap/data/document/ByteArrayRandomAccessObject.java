@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A random access object on a byte array, which grows when it is written past
+ * its end. It does not share any state with the document manager, so it can
+ * be read or written by another thread than the one it is created by.
+ */
+
+class ByteArrayRandomAccessObject implements IRandomAccessObject
+{
+	private byte[] data;
+	private int count;
+	private int pointer;
+
+	/**
+	 * 
+	 * @param data
+	 */
+	ByteArrayRandomAccessObject( byte[] data )
+	{
+		this.data = data;
+		this.count = data.length;
+		this.pointer = 0;
+	}
+
+	/**
+	 * Create an empty random access object.
+	 * 
+	 * @param capacity
+	 *            the initial size of the byte array
+	 */
+	ByteArrayRandomAccessObject( int capacity )
+	{
+		this.data = new byte[Math.max( 1, capacity )];
+		this.count = 0;
+		this.pointer = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#getFilePointer()
+	 */
+	public long getFilePointer( ) throws IOException
+	{
+		return pointer;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#setLength(long)
+	 */
+	public void setLength( long newLength ) throws IOException
+	{
+		if ( newLength < 0 || newLength > Integer.MAX_VALUE )
+		{
+			throw new IOException( "Invalid length " + newLength );
+		}
+		ensureCapacity( (int) newLength );
+		if ( newLength > count )
+		{
+			Arrays.fill( data, count, (int) newLength, (byte) 0 );
+		}
+		count = (int) newLength;
+		pointer = Math.min( pointer, count );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#length()
+	 */
+	public long length( ) throws IOException
+	{
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#seek(long)
+	 */
+	public void seek( long pos ) throws IOException
+	{
+		if ( pos < 0 )
+		{
+			throw new IOException( "Negative seek offset" );
+		}
+		pointer = (int) Math.min( pos, count );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[], int, int)
+	 */
+	public int read( byte[] b, int off, int len ) throws IOException
+	{
+		if ( pointer >= count )
+		{
+			return -1;
+		}
+		len = Math.min( len, count - pointer );
+		System.arraycopy( data, pointer, b, off, len );
+		pointer += len;
+		return len;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[])
+	 */
+	public int read( byte[] b ) throws IOException
+	{
+		return read( b, 0, b.length );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read()
+	 */
+	public int read( ) throws IOException
+	{
+		if ( pointer >= count )
+		{
+			return -1;
+		}
+		return data[pointer++] & 0xff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#write(byte[], int, int)
+	 */
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		ensureCapacity( pointer + len );
+		System.arraycopy( b, off, data, pointer, len );
+		pointer += len;
+		count = Math.max( count, pointer );
+	}
+
+	/**
+	 * 
+	 * @param capacity
+	 */
+	private void ensureCapacity( int capacity )
+	{
+		if ( capacity > data.length )
+		{
+			byte[] newData = new byte[Math.max( capacity, data.length * 2 )];
+			System.arraycopy( data, 0, newData, 0, count );
+			data = newData;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#close()
+	 */
+	public void close( ) throws IOException
+	{
+		data = null;
+	}
+}
@@ -78,6 +78,18 @@ public class DocumentManagerFactory
 		return FileDocumentManager.loadManager( tmpPath, DEFAULT_CUB_MANAGER_NAME );
 	}
 	
+	/**
+	 * 
+	 * @param tempDir
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	static public IDocumentManager loadFileDocumentManager( String tempDir ) throws DataException, IOException
+	{
+		return FileDocumentManager.loadManager( tempDir, DEFAULT_CUB_MANAGER_NAME );
+	}
+	
 	/**
 	 * 
 	 * @param docArchiveWriter
@@ -141,4 +153,20 @@ public class DocumentManagerFactory
 	{
 		return FileDocumentManager.loadManager( dirName, managerName );
 	}
+
+	/**
+	 * Load the files saved by a file document manager as a read only document
+	 * manager, which maps the data file into memory. The returned manager can
+	 * be shared by the threads which read the same cube.
+	 *
+	 * @param dirName
+	 * @param managerName
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	static public IDocumentManager loadMappedFileDocumentManager( String dirName, String managerName ) throws DataException, IOException
+	{
+		return MappedFileDocumentManager.loadManager( dirName, managerName );
+	}
 }
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.olap.data.document;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
@@ -188,4 +189,78 @@ public class DocumentObjectUtil
 				return null;
 		}
 	}
+	
+	/**
+	 * Read the whole content of the document object into a new document object
+	 * kept in memory. The returned object is independent of the document
+	 * manager of the original one, so that it can be read by another thread.
+	 * The original document object is left open.
+	 * 
+	 * @param documentObject
+	 * @return
+	 * @throws IOException
+	 */
+	public static IDocumentObject readToMemory( IDocumentObject documentObject ) throws IOException
+	{
+		byte[] data = new byte[(int) documentObject.length( )];
+		documentObject.seek( 0 );
+		int pos = 0;
+		while ( pos < data.length )
+		{
+			int len = documentObject.read( data, pos, data.length - pos );
+			if ( len <= 0 )
+			{
+				throw new EOFException( );
+			}
+			pos += len;
+		}
+		return new DocumentObject( new BufferedRandomDataAccessObject( new ByteArrayRandomAccessObject( data ),
+				Math.max( 1, Math.min( data.length, 8192 ) ) ) );
+	}
+	/**
+	 * Create an empty document object kept in memory. It is independent of
+	 * any document manager, so it can be written by another thread than the
+	 * one which saves the document, and copied into a document object of the
+	 * document manager later by copy().
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	public static IDocumentObject createMemoryDocumentObject( )
+			throws IOException
+	{
+		return new DocumentObject( new BufferedRandomDataAccessObject( new ByteArrayRandomAccessObject( 8192 ),
+				8192 ) );
+	}
+
+	/**
+	 * Append the whole content of the source document object to the target
+	 * document object at its current file pointer. Both document objects are
+	 * left open.
+	 * 
+	 * @param source
+	 * @param target
+	 * @throws IOException
+	 */
+	public static void copy( IDocumentObject source, IDocumentObject target )
+			throws IOException
+	{
+		source.flush( );
+		long length = source.length( );
+		source.seek( 0 );
+		byte[] buffer = new byte[(int) Math.min( Math.max( length, 1 ), 65536 )];
+		long pos = 0;
+		while ( pos < length )
+		{
+			int len = source.read( buffer,
+					0,
+					(int) Math.min( buffer.length, length - pos ) );
+			if ( len <= 0 )
+			{
+				throw new EOFException( );
+			}
+			target.write( buffer, 0, len );
+			pos += len;
+		}
+	}
 }
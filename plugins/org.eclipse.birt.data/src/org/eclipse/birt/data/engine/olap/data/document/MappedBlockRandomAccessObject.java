@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A read only implementation of the <tt>IRandomAccessObject</tt> interface.
+ * The instance of this class reads the blocks of a document object from the
+ * mapped regions of a MappedFileDocumentManager.
+ */
+
+public class MappedBlockRandomAccessObject implements IRandomAccessObject
+{
+	private MappedFileDocumentManager documentManager;
+	private int[] blocks;
+	private long length;
+	private long position;
+
+	private int regionIndex = -1;
+	private ByteBuffer region = null;
+
+	/**
+	 *
+	 * @param documentManager
+	 * @param blocks
+	 * @param length
+	 */
+	MappedBlockRandomAccessObject( MappedFileDocumentManager documentManager,
+			int[] blocks, long length )
+	{
+		this.documentManager = documentManager;
+		this.blocks = blocks;
+		this.length = length;
+		this.position = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#close()
+	 */
+	public void close( ) throws IOException
+	{
+		region = null;
+		regionIndex = -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#getFilePointer()
+	 */
+	public long getFilePointer( ) throws IOException
+	{
+		return position;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#length()
+	 */
+	public long length( ) throws IOException
+	{
+		return length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[], int, int)
+	 */
+	public int read( byte[] b, int off, int len ) throws IOException
+	{
+		if ( len == 0 )
+		{
+			return 0;
+		}
+		if ( position >= length )
+		{
+			return -1;
+		}
+		int readSize = 0;
+		while ( readSize < len && position < length )
+		{
+			int posInBlock = (int) ( position % IObjectAllocTable.BLOCK_SIZE );
+			int size = (int) Math.min( Math.min( IObjectAllocTable.BLOCK_SIZE
+					- posInBlock, len - readSize ), length - position );
+			ByteBuffer buffer = seekRegion( (long) blocks[(int) ( position / IObjectAllocTable.BLOCK_SIZE )]
+					* IObjectAllocTable.BLOCK_SIZE + posInBlock );
+			if ( buffer.remaining( ) < size )
+			{
+				throw new EOFException( );
+			}
+			buffer.get( b, off + readSize, size );
+			position += size;
+			readSize += size;
+		}
+		return readSize;
+	}
+
+	/**
+	 * Position the view of the region which contains the data file position.
+	 * Since the region size is a multiple of the block size, the rest of the
+	 * block is in the same region.
+	 *
+	 * @param dataFilePosition
+	 * @return
+	 * @throws IOException
+	 */
+	private ByteBuffer seekRegion( long dataFilePosition ) throws IOException
+	{
+		int index = (int) ( dataFilePosition / MappedFileDocumentManager.REGION_SIZE );
+		if ( index != regionIndex )
+		{
+			region = documentManager.getRegion( index ).duplicate( );
+			regionIndex = index;
+		}
+		region.position( (int) ( dataFilePosition % MappedFileDocumentManager.REGION_SIZE ) );
+		return region;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[])
+	 */
+	public int read( byte[] b ) throws IOException
+	{
+		return read( b, 0, b.length );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read()
+	 */
+	public int read( ) throws IOException
+	{
+		byte[] b = new byte[1];
+		int len = read( b );
+		if ( len < 0 )
+		{
+			return -1;
+		}
+		return b[0] & 0xff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#seek(long)
+	 */
+	public void seek( long pos ) throws IOException
+	{
+		this.position = pos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#setLength(long)
+	 */
+	public void setLength( long newLength ) throws IOException
+	{
+		throw new UnsupportedOperationException( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#write(byte[], int, int)
+	 */
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		throw new UnsupportedOperationException( "This is a read only object!" );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+	}
+
+}
@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.core.security.FileSecurity;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+
+/**
+ * A read only implementation of the <tt>IDocumentManager</tt> interface on
+ * the files saved by <tt>FileDocumentManager</tt>. The data file is mapped
+ * into memory in regions which are a multiple of the block size, so a block
+ * never spans two regions, and the regions are mapped when they are first
+ * read. The regions are shared by all the document objects opened by this
+ * manager, and each document object reads them through its own view. So the
+ * reads are served from the page cache without a read call on the file, and
+ * the manager can be used by many threads at the same time, as long as each
+ * thread reads its own document objects.
+ */
+
+public class MappedFileDocumentManager implements IDocumentManager
+{
+	static final int REGION_SIZE = 4096 * IObjectAllocTable.BLOCK_SIZE;
+
+	private HashMap documentObjectMap = null;
+	private int[] nextBlocks = null;
+	private RandomAccessFile dataAccessFile = null;
+	private FileChannel dataChannel = null;
+	private long dataLength;
+	private ByteBuffer[] regions = null;
+
+	/**
+	 *
+	 * @param dirName
+	 * @param managerName
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	static MappedFileDocumentManager loadManager( String dirName,
+			String managerName ) throws DataException, IOException
+	{
+		MappedFileDocumentManager manager = new MappedFileDocumentManager( );
+		manager.load( dirName, managerName );
+		return manager;
+	}
+
+	/**
+	 *
+	 */
+	private MappedFileDocumentManager( )
+	{
+	}
+
+	/**
+	 *
+	 * @param dirName
+	 * @param managerName
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void load( String dirName, String managerName ) throws IOException,
+			DataException
+	{
+		documentObjectMap = new HashMap( );
+
+		File objectFile = getFile( dirName, managerName, "obj" );
+		DataInputStream objectStream = new DataInputStream( new BufferedInputStream( FileSecurity.createFileInputStream( objectFile ) ) );
+		try
+		{
+			while ( true )
+			{
+				ObjectStructure structure = new ObjectStructure( );
+				structure.length = objectStream.readLong( );
+				structure.firstBlock = objectStream.readInt( );
+				structure.name = objectStream.readUTF( );
+				if ( structure.firstBlock >= 0 )
+					documentObjectMap.put( structure.name, structure );
+			}
+		}
+		catch ( EOFException e )
+		{
+		}
+		finally
+		{
+			objectStream.close( );
+		}
+
+		File oatFile = getFile( dirName, managerName, "Oat" );
+		nextBlocks = new int[(int) ( oatFile.length( ) / 4 )];
+		DataInputStream oatStream = new DataInputStream( new BufferedInputStream( FileSecurity.createFileInputStream( oatFile ) ) );
+		try
+		{
+			for ( int i = 0; i < nextBlocks.length; i++ )
+			{
+				nextBlocks[i] = oatStream.readInt( );
+			}
+		}
+		finally
+		{
+			oatStream.close( );
+		}
+
+		File dataFile = getFile( dirName, managerName, "data" );
+		dataAccessFile = FileSecurity.createRandomAccessFile( dataFile, "r" );
+		dataChannel = dataAccessFile.getChannel( );
+		dataLength = dataChannel.size( );
+		regions = new ByteBuffer[(int) ( ( dataLength + REGION_SIZE - 1 ) / REGION_SIZE )];
+	}
+
+	/**
+	 *
+	 * @param dirName
+	 * @param managerName
+	 * @param suffix
+	 * @return
+	 * @throws DataException
+	 */
+	private static File getFile( String dirName, String managerName,
+			String suffix ) throws DataException
+	{
+		File file = new File( dirName
+				+ File.separatorChar + managerName + suffix );
+		if ( !FileSecurity.fileExist( file ) )
+		{
+			throw new DataException( ResourceConstants.OLAPFILE_NOT_FOUND,
+					file.getAbsolutePath( ) );
+		}
+		return file;
+	}
+
+	/**
+	 * Get the mapped region of the data file. The returned buffer is shared,
+	 * so the callers must read it through a duplicate of their own.
+	 *
+	 * @param regionIndex
+	 * @return
+	 * @throws IOException
+	 */
+	synchronized ByteBuffer getRegion( int regionIndex ) throws IOException
+	{
+		if ( regionIndex >= regions.length )
+		{
+			throw new EOFException( );
+		}
+		if ( regions[regionIndex] == null )
+		{
+			long start = (long) regionIndex * REGION_SIZE;
+			regions[regionIndex] = dataChannel.map( FileChannel.MapMode.READ_ONLY,
+					start,
+					Math.min( REGION_SIZE, dataLength - start ) );
+		}
+		return regions[regionIndex];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#close()
+	 */
+	public synchronized void close( ) throws IOException
+	{
+		// The mapped regions are released when the document objects which
+		// read them are garbage collected.
+		if ( dataAccessFile != null )
+		{
+			dataAccessFile.close( );
+			dataAccessFile = null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#createDocumentObject(java.lang.String)
+	 */
+	public IDocumentObject createDocumentObject( String documentObjectName )
+			throws IOException
+	{
+		throw new UnsupportedOperationException( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#exist(java.lang.String)
+	 */
+	public boolean exist( String documentObjectName )
+	{
+		return documentObjectMap.get( documentObjectName ) != null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#openDocumentObject(java.lang.String)
+	 */
+	public IDocumentObject openDocumentObject( String documentObjectName )
+			throws IOException
+	{
+		ObjectStructure objectStructure = (ObjectStructure) documentObjectMap.get( documentObjectName );
+		if ( objectStructure == null )
+		{
+			return null;
+		}
+		return new DocumentObject( new BufferedRandomDataAccessObject( new MappedBlockRandomAccessObject( this,
+				getBlocks( objectStructure.firstBlock ),
+				objectStructure.length ),
+				IObjectAllocTable.BLOCK_SIZE ) );
+	}
+
+	/**
+	 *
+	 * @param firstBlock
+	 * @return the blocks of a document object in order
+	 */
+	private int[] getBlocks( int firstBlock )
+	{
+		List blockList = new ArrayList( );
+		int blockNumber = firstBlock;
+		do
+		{
+			blockList.add( Integer.valueOf( blockNumber ) );
+			blockNumber = blockNumber < nextBlocks.length
+					? nextBlocks[blockNumber] : 0;
+		} while ( blockNumber > 0 );
+
+		int[] blocks = new int[blockList.size( )];
+		for ( int i = 0; i < blocks.length; i++ )
+		{
+			blocks[i] = ( (Integer) blockList.get( i ) ).intValue( );
+		}
+		return blocks;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+
+	}
+
+}
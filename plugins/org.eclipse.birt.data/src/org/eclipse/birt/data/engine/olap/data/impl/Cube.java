@@ -12,12 +12,21 @@
 package org.eclipse.birt.data.engine.olap.data.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.ILevel;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IDatasetIterator;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IDimension;
@@ -25,8 +34,11 @@ import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionRow;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableAccessor;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 
 /**
  * Default implements of ICube interface.
@@ -38,6 +50,11 @@ public class Cube implements ICube
 	protected IDocumentManager documentManager;
 	private IDimension[] dimension;
 	private FactTable factTable;
+	private FactTable[] appendedFactTables = new FactTable[0];
+	private int generation = 0;
+	private String buildId = null;
+	private CubeRollup[] rollups = new CubeRollup[0];
+	private int buildThreadCount = 1;
 
 	private static Logger logger = Logger.getLogger( Cube.class.getName( ) );
 
@@ -57,6 +74,16 @@ public class Cube implements ICube
 		logger.exiting( Cube.class.getName( ), "Cube" );
 	}
 
+	/**
+	 * Set the number of threads which save the fact table of the cube.
+	 * 
+	 * @param buildThreadCount
+	 */
+	public void setBuildThreadCount( int buildThreadCount )
+	{
+		this.buildThreadCount = buildThreadCount;
+	}
+
 	/**
 	 * 
 	 * @param keyColumnNames
@@ -108,13 +135,6 @@ public class Cube implements ICube
 			IDatasetIterator iterator, String[] measureColumnName, String[] measureColumnAggregations,
 			long cacheSize, StopSign stopSign ) throws IOException, BirtException
 	{
-		IDocumentObject documentObject = documentManager.createDocumentObject( NamingUtil.getCubeDocName( name ) );
-		documentObject.writeString( name );
-		documentObject.writeInt( dimension.length );
-		for ( int i = 0; i < dimension.length; i++ )
-		{
-			documentObject.writeString( dimension[i].getName( ) );
-		}
 		this.dimension = dimension;
 		Dimension[] tDimensions = new Dimension[dimension.length];
 		for ( int i = 0; i < tDimensions.length; i++ )
@@ -123,6 +143,7 @@ public class Cube implements ICube
 		}
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
 		factTableConstructor.setMemoryCacheSize( cacheSize );
+		factTableConstructor.setThreadCount( buildThreadCount );
 		factTable = factTableConstructor.saveFactTable( name,
 				factTableJointColumnNames,
 				DimJointColumnNames,
@@ -131,10 +152,148 @@ public class Cube implements ICube
 				measureColumnName,
 				measureColumnAggregations,
 				stopSign );
-		documentObject.close( );
+		saveCubeDocument( );
 		documentManager.flush( );
 	}
 
+	/**
+	 * Append the delta rows of the fact table and the new members of the
+	 * dimensions to the loaded cube. The delta rows are saved as a new part of
+	 * the fact table, and a dimension which has new members is saved in new
+	 * documents where its existing members keep their positions, so neither
+	 * the saved fact table parts nor the documents of the dimensions are
+	 * changed. The cube document, which lists the documents of the
+	 * dimensions and the fact table parts, is saved at last, so a cube loaded
+	 * before keeps reading the documents of the previous build. The rollups
+	 * are not used until they are created again.
+	 * 
+	 * @param factTableJointColumnNames
+	 * @param DimJointColumnNames
+	 * @param dimensionIterators
+	 *            the rows of the new members of each dimension; null if the
+	 *            dimension has no new member
+	 * @param iterator
+	 *            the delta rows of the fact table
+	 * @param measureColumnName
+	 * @param measureColumnAggregations
+	 * @param cacheSize
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void append( String[][] factTableJointColumnNames,
+			String[][] DimJointColumnNames,
+			IDatasetIterator[] dimensionIterators, IDatasetIterator iterator,
+			String[] measureColumnName, String[] measureColumnAggregations,
+			long cacheSize, StopSign stopSign ) throws IOException,
+			BirtException
+	{
+		String[] measureNames = factTable.getMeasureNames( );
+		for ( int i = 0; i < measureNames.length; i++ )
+		{
+			if ( i >= measureColumnName.length
+					|| !measureNames[i].equals( measureColumnName[i] ) )
+			{
+				throw new DataException( ResourceConstants.MEASURE_NAME_NOT_FOUND,
+						measureNames[i] );
+			}
+		}
+		int nextGeneration = generation + 1;
+		IDimension[] nextDimension = new IDimension[dimension.length];
+		Dimension[] tDimensions = new Dimension[dimension.length];
+		for ( int i = 0; i < dimension.length && !stopSign.isStopped( ); i++ )
+		{
+			nextDimension[i] = dimension[i];
+			if ( dimensionIterators != null
+					&& i < dimensionIterators.length
+					&& dimensionIterators[i] != null )
+			{
+				IDimension appendedDimension = DimensionFactory.appendDimension( (Dimension) dimension[i],
+						NamingUtil.getGenerationName( dimension[i].getName( ),
+								nextGeneration ),
+						documentManager,
+						dimensionIterators[i],
+						stopSign );
+				if ( appendedDimension != null )
+				{
+					nextDimension[i] = appendedDimension;
+				}
+			}
+			tDimensions[i] = (Dimension) nextDimension[i];
+		}
+		if ( stopSign.isStopped( ) )
+		{
+			return;
+		}
+		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+		factTableConstructor.setMemoryCacheSize( cacheSize );
+		factTableConstructor.setThreadCount( buildThreadCount );
+		FactTable appendedFactTable = factTableConstructor.saveFactTable( NamingUtil.getGenerationName( name,
+				nextGeneration ),
+				factTableJointColumnNames,
+				DimJointColumnNames,
+				iterator,
+				tDimensions,
+				measureColumnName,
+				measureColumnAggregations,
+				stopSign );
+		if ( stopSign.isStopped( ) )
+		{
+			return;
+		}
+		FactTable[] nextFactTables = new FactTable[appendedFactTables.length + 1];
+		System.arraycopy( appendedFactTables,
+				0,
+				nextFactTables,
+				0,
+				appendedFactTables.length );
+		nextFactTables[appendedFactTables.length] = appendedFactTable;
+		for ( int i = 0; i < dimension.length; i++ )
+		{
+			if ( nextDimension[i] != dimension[i] )
+			{
+				dimension[i].close( );
+			}
+		}
+		dimension = nextDimension;
+		appendedFactTables = nextFactTables;
+		generation = nextGeneration;
+		rollups = new CubeRollup[0];
+		saveCubeDocument( );
+		documentManager.flush( );
+	}
+
+	/**
+	 * Save the names of the dimensions, with the names their documents are
+	 * saved by, the names of the fact table parts appended by the
+	 * incremental builds, and a new build id.
+	 * 
+	 * @throws IOException
+	 */
+	private void saveCubeDocument( ) throws IOException
+	{
+		IDocumentObject documentObject = documentManager.createDocumentObject( NamingUtil.getCubeDocName( name ) );
+		documentObject.writeString( name );
+		documentObject.writeInt( dimension.length );
+		for ( int i = 0; i < dimension.length; i++ )
+		{
+			documentObject.writeString( dimension[i].getName( ) );
+		}
+		documentObject.writeInt( generation );
+		for ( int i = 0; i < dimension.length; i++ )
+		{
+			documentObject.writeString( ( (Dimension) dimension[i] ).getStorageName( ) );
+		}
+		documentObject.writeInt( appendedFactTables.length );
+		for ( int i = 0; i < appendedFactTables.length; i++ )
+		{
+			documentObject.writeString( appendedFactTables[i].getName( ) );
+		}
+		buildId = UUID.randomUUID( ).toString( );
+		documentObject.writeString( buildId );
+		documentObject.close( );
+	}
+
 	/**
 	 * 
 	 * @param factTableJointColumnNames
@@ -179,23 +338,326 @@ public class Cube implements ICube
 
 		documentObject.seek( 0 );
 		name = documentObject.readString( );
-		dimension = new IDimension[documentObject.readInt( )];
-
+		String[] dimensionNames = new String[documentObject.readInt( )];
+		for ( int i = 0; i < dimensionNames.length; i++ )
+		{
+			dimensionNames[i] = documentObject.readString( );
+		}
+		// the cubes saved by earlier versions have no incremental builds
+		String[] storageNames = dimensionNames;
+		String[] appendedFactTableNames = new String[0];
+		if ( documentObject.getFilePointer( ) < documentObject.length( ) )
+		{
+			generation = documentObject.readInt( );
+			storageNames = new String[dimensionNames.length];
+			for ( int i = 0; i < storageNames.length; i++ )
+			{
+				storageNames[i] = documentObject.readString( );
+			}
+			appendedFactTableNames = new String[documentObject.readInt( )];
+			for ( int i = 0; i < appendedFactTableNames.length; i++ )
+			{
+				appendedFactTableNames[i] = documentObject.readString( );
+			}
+			if ( documentObject.getFilePointer( ) < documentObject.length( ) )
+			{
+				buildId = documentObject.readString( );
+			}
+		}
+		documentObject.close( );
+		dimension = new IDimension[dimensionNames.length];
 		for ( int i = 0; i < dimension.length; i++ )
 		{
-			String name = documentObject.readString( );
-			dimension[i] = loadDimension( name );
+			dimension[i] = loadDimension( dimensionNames[i], storageNames[i] );
 		}
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
 		factTable = factTableConstructor.load( name,
 				stopSign );
+		appendedFactTables = new FactTable[appendedFactTableNames.length];
+		for ( int i = 0; i < appendedFactTables.length; i++ )
+		{
+			appendedFactTables[i] = factTableConstructor.load( appendedFactTableNames[i],
+					stopSign );
+		}
+		if ( documentManager.exist( NamingUtil.getRollupListName( name ) ) )
+		{
+			loadRollups( factTableConstructor, stopSign );
+		}
+	}
+
+	/**
+	 * Materialize a rollup of the fact table for each of the level
+	 * combinations. A rollup keeps the given levels, with their parent levels,
+	 * and aggregates the other levels away, so that the aggregations on these
+	 * levels can be calculated from the rollup instead of the whole fact
+	 * table. The sum, min and max of each measure are materialized.
+	 * 
+	 * @param rollupLevels
+	 * @param cacheSize
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void createRollups( DimLevel[][] rollupLevels, long cacheSize,
+			StopSign stopSign ) throws IOException, BirtException
+	{
+		Dimension[] tDimensions = new Dimension[dimension.length];
+		for ( int i = 0; i < tDimensions.length; i++ )
+		{
+			tDimensions[i] = (Dimension) dimension[i];
+		}
+		MeasureInfo[] measureInfo = factTable.getMeasureInfo( );
+		List measureIndex = new ArrayList( );
+		List measureNames = new ArrayList( );
+		List functionNames = new ArrayList( );
+		List rollupMeasureInfo = new ArrayList( );
+		for ( int i = 0; i < measureInfo.length; i++ )
+		{
+			String[] functions = CubeRollup.getRollupFunctions( measureInfo[i].getDataType( ) );
+			for ( int j = 0; j < functions.length; j++ )
+			{
+				measureIndex.add( Integer.valueOf( i ) );
+				measureNames.add( measureInfo[i].getMeasureName( ) );
+				functionNames.add( functions[j] );
+			}
+		}
+		String[] measures = (String[]) measureNames.toArray( new String[0] );
+		String[] functions = (String[]) functionNames.toArray( new String[0] );
+		int[] index = new int[measureIndex.size( )];
+		for ( int i = 0; i < index.length; i++ )
+		{
+			index[i] = ( (Integer) measureIndex.get( i ) ).intValue( );
+			rollupMeasureInfo.add( new MeasureInfo( CubeRollup.toRollupMeasureName( measures[i],
+					functions[i] ),
+					CubeRollup.getRollupDataType( functions[i],
+							measureInfo[index[i]].getDataType( ) ) ) );
+		}
+
+		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+		factTableConstructor.setMemoryCacheSize( cacheSize );
+		rollups = new CubeRollup[rollupLevels.length];
+		for ( int i = 0; i < rollupLevels.length && !stopSign.isStopped( ); i++ )
+		{
+			int[] levelIndex = getRollupLevelIndex( rollupLevels[i] );
+			int[][] rollupPositions = new int[tDimensions.length][];
+			for ( int j = 0; j < tDimensions.length; j++ )
+			{
+				if ( levelIndex[j] < tDimensions[j].getHierarchy( )
+						.getLevels( ).length - 1 )
+				{
+					rollupPositions[j] = getRollupPositions( tDimensions[j],
+							levelIndex[j],
+							stopSign );
+				}
+			}
+			String rollupName = NamingUtil.getRollupName( NamingUtil.getGenerationName( name,
+					generation ),
+					i );
+			int rowCount = factTableConstructor.saveRollupFactTable( rollupName,
+					getFactTables( ),
+					tDimensions,
+					rollupPositions,
+					index,
+					(MeasureInfo[]) rollupMeasureInfo.toArray( new MeasureInfo[0] ),
+					functions,
+					stopSign );
+			rollups[i] = new CubeRollup( rollupName,
+					levelIndex,
+					measures,
+					functions,
+					rowCount );
+			rollups[i].setFactTable( factTableConstructor.load( rollupName,
+					stopSign ) );
+		}
+		if ( stopSign.isStopped( ) )
+		{
+			rollups = new CubeRollup[0];
+			return;
+		}
+		saveRollups( );
+		documentManager.flush( );
+	}
+
+	/**
+	 * 
+	 * @param levels
+	 * @return the index of the lowest given level of each dimension; -1 if no
+	 *         level of the dimension is given
+	 * @throws DataException
+	 */
+	private int[] getRollupLevelIndex( DimLevel[] levels ) throws DataException
+	{
+		int[] levelIndex = new int[dimension.length];
+		Arrays.fill( levelIndex, -1 );
+		for ( int i = 0; i < levels.length; i++ )
+		{
+			int dimensionIndex = -1;
+			for ( int j = 0; j < dimension.length; j++ )
+			{
+				if ( dimension[j].getName( )
+						.equals( levels[i].getDimensionName( ) ) )
+				{
+					dimensionIndex = j;
+					break;
+				}
+			}
+			if ( dimensionIndex < 0 )
+			{
+				throw new DataException( ResourceConstants.NONEXISTENT_DIMENSION,
+						levels[i].getDimensionName( ) );
+			}
+			ILevel[] dimLevels = dimension[dimensionIndex].getHierarchy( )
+					.getLevels( );
+			int index = -1;
+			for ( int j = 0; j < dimLevels.length; j++ )
+			{
+				if ( dimLevels[j].getName( ).equals( levels[i].getLevelName( ) ) )
+				{
+					index = j;
+					break;
+				}
+			}
+			if ( index < 0 )
+			{
+				throw new DataException( ResourceConstants.NONEXISTENT_LEVEL,
+						levels[i].getLevelName( ) );
+			}
+			levelIndex[dimensionIndex] = Math.max( levelIndex[dimensionIndex],
+					index );
+		}
+		return levelIndex;
+	}
+
+	/**
+	 * Map each dimension position to the first position which has the same
+	 * members on the level and its parent levels.
+	 * 
+	 * @param dimension
+	 * @param levelIndex
+	 * @param stopSign
+	 * @return
+	 * @throws IOException
+	 */
+	public static int[] getRollupPositions( Dimension dimension,
+			int levelIndex, StopSign stopSign ) throws IOException
+	{
+		IDiskArray rows = dimension.getAllRows( stopSign );
+		int[] rollupPositions = new int[rows.size( )];
+		Map firstPositions = new HashMap( );
+		for ( int i = 0; i < rollupPositions.length; i++ )
+		{
+			Member[] members = ( (DimensionRow) rows.get( i ) ).getMembers( );
+			List key = new ArrayList( levelIndex + 1 );
+			for ( int j = 0; j <= levelIndex; j++ )
+			{
+				key.add( Arrays.asList( members[j].getKeyValues( ) ) );
+			}
+			Integer firstPosition = (Integer) firstPositions.get( key );
+			if ( firstPosition == null )
+			{
+				firstPosition = Integer.valueOf( i );
+				firstPositions.put( key, firstPosition );
+			}
+			rollupPositions[i] = firstPosition.intValue( );
+		}
+		rows.close( );
+		return rollupPositions;
+	}
+
+	/**
+	 * 
+	 * @throws IOException
+	 */
+	private void saveRollups( ) throws IOException
+	{
+		IDocumentObject documentObject = documentManager.createDocumentObject( NamingUtil.getRollupListName( name ) );
+		documentObject.writeInt( rollups.length );
+		for ( int i = 0; i < rollups.length; i++ )
+		{
+			documentObject.writeString( rollups[i].getName( ) );
+			documentObject.writeInt( rollups[i].getRowCount( ) );
+			int[] levelIndex = rollups[i].getLevelIndex( );
+			documentObject.writeInt( levelIndex.length );
+			for ( int j = 0; j < levelIndex.length; j++ )
+			{
+				documentObject.writeInt( levelIndex[j] );
+			}
+			String[] measureNames = rollups[i].getMeasureNames( );
+			String[] functionNames = rollups[i].getFunctionNames( );
+			documentObject.writeInt( measureNames.length );
+			for ( int j = 0; j < measureNames.length; j++ )
+			{
+				documentObject.writeString( measureNames[j] );
+				documentObject.writeString( functionNames[j] );
+			}
+		}
+		// the rollups are out of date after the cube is appended
+		documentObject.writeInt( generation );
+		documentObject.close( );
+	}
+
+	/**
+	 * 
+	 * @param factTableConstructor
+	 * @param stopSign
+	 * @throws IOException
+	 */
+	private void loadRollups( FactTableAccessor factTableConstructor,
+			StopSign stopSign ) throws IOException
+	{
+		IDocumentObject documentObject = documentManager.openDocumentObject( NamingUtil.getRollupListName( name ) );
+		documentObject.seek( 0 );
+		rollups = new CubeRollup[documentObject.readInt( )];
+		for ( int i = 0; i < rollups.length; i++ )
+		{
+			String rollupName = documentObject.readString( );
+			int rowCount = documentObject.readInt( );
+			int[] levelIndex = new int[documentObject.readInt( )];
+			for ( int j = 0; j < levelIndex.length; j++ )
+			{
+				levelIndex[j] = documentObject.readInt( );
+			}
+			String[] measureNames = new String[documentObject.readInt( )];
+			String[] functionNames = new String[measureNames.length];
+			for ( int j = 0; j < measureNames.length; j++ )
+			{
+				measureNames[j] = documentObject.readString( );
+				functionNames[j] = documentObject.readString( );
+			}
+			rollups[i] = new CubeRollup( rollupName,
+					levelIndex,
+					measureNames,
+					functionNames,
+					rowCount );
+			rollups[i].setFactTable( factTableConstructor.load( rollupName,
+					stopSign ) );
+		}
+		int rollupGeneration = 0;
+		if ( documentObject.getFilePointer( ) < documentObject.length( ) )
+		{
+			rollupGeneration = documentObject.readInt( );
+		}
 		documentObject.close( );
+		if ( rollupGeneration != generation )
+		{
+			rollups = new CubeRollup[0];
+		}
 	}
 
-	protected IDimension loadDimension( String name ) throws DataException,
-			IOException
+	/**
+	 * 
+	 * @param name
+	 * @param storageName
+	 *            the name the documents of the dimension are saved by
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	protected IDimension loadDimension( String name, String storageName )
+			throws DataException, IOException
 	{
 		return DimensionFactory.loadDimension( name,
+				storageName,
 				documentManager );
 	}
 
@@ -217,6 +679,42 @@ public class Cube implements ICube
 		return factTable;
 	}
 
+	/**
+	 * 
+	 * @return the fact table and the parts appended to it by the incremental
+	 *         builds
+	 */
+	public FactTable[] getFactTables( )
+	{
+		FactTable[] factTables = new FactTable[appendedFactTables.length + 1];
+		factTables[0] = factTable;
+		System.arraycopy( appendedFactTables,
+				0,
+				factTables,
+				1,
+				appendedFactTables.length );
+		return factTables;
+	}
+
+	/**
+	 * 
+	 * @return the id which is generated each time the cube is created or
+	 *         appended; null if the cube was saved by an earlier version
+	 */
+	public String getBuildId( )
+	{
+		return buildId;
+	}
+
+	/**
+	 * 
+	 * @return the rollups materialized for the fact table
+	 */
+	public CubeRollup[] getRollups( )
+	{
+		return rollups;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.api.ICube#close()
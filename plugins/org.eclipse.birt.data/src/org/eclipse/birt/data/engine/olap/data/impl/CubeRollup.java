@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl;
+
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * A rollup of the fact table of a cube, which is materialized when the cube is
+ * created. The rollup keeps a level, and its parent levels, of some dimensions
+ * and aggregates the other levels away. Each row of the rollup is saved with
+ * the position of the first dimension row of the kept members, so it can be
+ * aggregated by the dimensions of the cube as a row of the fact table. Only the
+ * aggregation functions whose results can be aggregated again by themselves
+ * are materialized.
+ */
+
+public class CubeRollup
+{
+	public static final String SUM_FUNC = "SUM";//$NON-NLS-1$
+	public static final String MIN_FUNC = "MIN";//$NON-NLS-1$
+	public static final String MAX_FUNC = "MAX";//$NON-NLS-1$
+
+	private String name;
+	private int[] levelIndex;
+	private String[] measureNames;
+	private String[] functionNames;
+	private int rowCount;
+	private FactTable factTable;
+
+	/**
+	 *
+	 * @param name
+	 * @param levelIndex
+	 *            the index of the kept level of each dimension; -1 if all the
+	 *            levels of the dimension are aggregated away
+	 * @param measureNames
+	 *            the fact table measure of each rollup measure
+	 * @param functionNames
+	 *            the aggregation function of each rollup measure
+	 * @param rowCount
+	 */
+	CubeRollup( String name, int[] levelIndex, String[] measureNames,
+			String[] functionNames, int rowCount )
+	{
+		this.name = name;
+		this.levelIndex = levelIndex;
+		this.measureNames = measureNames;
+		this.functionNames = functionNames;
+		this.rowCount = rowCount;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public String getName( )
+	{
+		return name;
+	}
+
+	/**
+	 *
+	 * @param dimensionIndex
+	 * @return the index of the kept level of the dimension; -1 if all the
+	 *         levels of the dimension are aggregated away
+	 */
+	public int getLevelIndex( int dimensionIndex )
+	{
+		return levelIndex[dimensionIndex];
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	int[] getLevelIndex( )
+	{
+		return levelIndex;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	String[] getMeasureNames( )
+	{
+		return measureNames;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	String[] getFunctionNames( )
+	{
+		return functionNames;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public FactTable getFactTable( )
+	{
+		return factTable;
+	}
+
+	/**
+	 *
+	 * @param factTable
+	 */
+	void setFactTable( FactTable factTable )
+	{
+		this.factTable = factTable;
+	}
+
+	/**
+	 *
+	 * @param measureName
+	 * @param functionName
+	 * @return the name of the rollup measure which holds the aggregation of the
+	 *         fact table measure by the function; null if it is not
+	 *         materialized
+	 */
+	public String getRollupMeasureName( String measureName, String functionName )
+	{
+		if ( measureName == null || functionName == null )
+		{
+			return null;
+		}
+		for ( int i = 0; i < measureNames.length; i++ )
+		{
+			if ( measureNames[i].equals( measureName )
+					&& functionNames[i].equalsIgnoreCase( functionName ) )
+			{
+				return toRollupMeasureName( measureNames[i], functionNames[i] );
+			}
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param measureName
+	 * @param functionName
+	 * @return
+	 */
+	static String toRollupMeasureName( String measureName, String functionName )
+	{
+		return measureName + '_' + functionName;
+	}
+
+	/**
+	 *
+	 * @param dataType
+	 * @return the functions materialized for a measure of the data type
+	 */
+	static String[] getRollupFunctions( int dataType )
+	{
+		switch ( dataType )
+		{
+			case DataType.INTEGER_TYPE :
+			case DataType.DOUBLE_TYPE :
+			case DataType.BIGDECIMAL_TYPE :
+				return new String[]{
+						SUM_FUNC, MIN_FUNC, MAX_FUNC
+				};
+			case DataType.STRING_TYPE :
+			case DataType.DATE_TYPE :
+			case DataType.SQL_DATE_TYPE :
+			case DataType.SQL_TIME_TYPE :
+				return new String[]{
+						MIN_FUNC, MAX_FUNC
+				};
+			default :
+				return new String[0];
+		}
+	}
+
+	/**
+	 *
+	 * @param functionName
+	 * @param dataType
+	 *            the data type of the fact table measure
+	 * @return the data type of the rollup measure
+	 */
+	static int getRollupDataType( String functionName, int dataType )
+	{
+		if ( SUM_FUNC.equals( functionName )
+				&& dataType != DataType.BIGDECIMAL_TYPE )
+		{
+			return DataType.DOUBLE_TYPE;
+		}
+		return dataType;
+	}
+}
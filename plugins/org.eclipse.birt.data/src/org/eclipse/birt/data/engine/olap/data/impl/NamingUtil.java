@@ -26,6 +26,9 @@ public class NamingUtil
 	private static final String FACT_TABLE = OLAP_PREFIX + "fact_table_";
 	private static final String FTSU_LIST = OLAP_PREFIX + "ftsu_list_";
 	private static final String AGGREGATION_RS_DOC = OLAP_PREFIX + "rs_doc_";
+	private static final String ROLLUP_LIST = OLAP_PREFIX + "rollup_list_";
+	private static final String ROLLUP = "_rollup_";
+	private static final String GENERATION = "#";
 
 	/**
 	 * 
@@ -112,4 +115,42 @@ public class NamingUtil
 	{
 		return AGGREGATION_RS_DOC + ID;
 	}
+	
+	/**
+	 * 
+	 * @param cubeName
+	 * @return
+	 */
+	public static String getRollupListName( String cubeName )
+	{
+		return ROLLUP_LIST + cubeName;
+	}
+	
+	/**
+	 * 
+	 * @param cubeName
+	 * @param index
+	 * @return the fact table name of the rollup
+	 */
+	public static String getRollupName( String cubeName, int index )
+	{
+		return cubeName + ROLLUP + index;
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 *            the name of a cube, a dimension or a fact table
+	 * @param generation
+	 *            the number of the incremental builds of the cube
+	 * @return the name the documents of the generation are saved by
+	 */
+	public static String getGenerationName( String name, int generation )
+	{
+		if ( generation == 0 )
+		{
+			return name;
+		}
+		return name + GENERATION + generation;
+	}
 }
@@ -34,14 +34,26 @@ public class SecuredCube extends Cube
 		this.notAccessibleDimLvls = notAccessibleDimLvls;
 	}
 	
-	protected IDimension loadDimension( String name ) throws DataException,
-	IOException
+	protected IDimension loadDimension( String name, String storageName )
+			throws DataException, IOException
 	{
 		if( this.notAccessibleDimLvls.containsKey( name ))
-			return DimensionFactory.loadDimension( name, documentManager, this.notAccessibleDimLvls.get( name ) );
+			return DimensionFactory.loadDimension( name, storageName, documentManager, this.notAccessibleDimLvls.get( name ) );
 		
 		return DimensionFactory.loadDimension( name,
+				storageName,
 				documentManager );
 	}
 
+	/*
+	 * The rollups are built on the levels of the dimensions without the
+	 * access restriction, so they are not used by a secured cube.
+	 * 
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.Cube#getRollups()
+	 */
+	public CubeRollup[] getRollups( )
+	{
+		return new CubeRollup[0];
+	}
+
 }
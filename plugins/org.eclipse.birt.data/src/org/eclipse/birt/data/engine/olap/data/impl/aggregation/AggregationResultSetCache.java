@@ -0,0 +1,753 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.api.aggregation.AggregationManager;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.SizeOfUtil;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultRow;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.ISelection;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.CubeRollup;
+import org.eclipse.birt.data.engine.olap.data.impl.EmptySelection;
+import org.eclipse.birt.data.engine.olap.data.impl.MultiKeySelection;
+import org.eclipse.birt.data.engine.olap.data.impl.OneKeySelection;
+import org.eclipse.birt.data.engine.olap.data.impl.RangeSelection;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * A data engine level cache of the aggregation results calculated from the fact
+ * tables of the cubes, bounded by the estimated memory size of the cached rows
+ * and evicted in LRU order. The results are cached in scopes, where a scope
+ * identifies a build of a cube and the normalized filters applied to its
+ * dimensions, so the results of a cube are not reused after it is created or
+ * appended again. Within a scope, an aggregation is answered by a cached
+ * aggregation on the same levels which has its measures and functions, or,
+ * if it only uses the sum, min and max functions, re-aggregated from a cached
+ * aggregation on more levels.
+ * <p>
+ * The cached rows are never handed out, each result set returned by the cache
+ * has its own copy of them, so the callers may sort, clear or close it.
+ */
+public class AggregationResultSetCache
+{
+	private long maxMemorySize;
+	private long memorySize;
+	private LinkedHashMap<String, CacheEntry> entries;
+
+	/**
+	 *
+	 * @param maxMemorySize
+	 *            the max size of the cached rows in bytes
+	 */
+	public AggregationResultSetCache( long maxMemorySize )
+	{
+		this.maxMemorySize = maxMemorySize;
+		this.memorySize = 0;
+		this.entries = new LinkedHashMap<String, CacheEntry>( 16, 0.75f, true );
+	}
+
+	/**
+	 * Set the max size of the cached rows in bytes. Zero or negative number
+	 * disables the cache.
+	 *
+	 * @param maxMemorySize
+	 */
+	public synchronized void setMaxMemorySize( long maxMemorySize )
+	{
+		this.maxMemorySize = maxMemorySize < 0 ? 0 : maxMemorySize;
+		evict( );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public synchronized long getMaxMemorySize( )
+	{
+		return maxMemorySize;
+	}
+
+	/**
+	 *
+	 * @return the estimated size of the cached rows in bytes
+	 */
+	public synchronized long getMemorySize( )
+	{
+		return memorySize;
+	}
+
+	/**
+	 *
+	 * @return the number of cached aggregations
+	 */
+	public synchronized int size( )
+	{
+		return entries.size( );
+	}
+
+	/**
+	 * Remove all the cached aggregations.
+	 */
+	public synchronized void clear( )
+	{
+		entries.clear( );
+		memorySize = 0;
+	}
+
+	/**
+	 * An aggregation is cached if it is not a drilled aggregation, and its
+	 * functions neither have parameters nor filters.
+	 *
+	 * @param aggregation
+	 * @return
+	 */
+	public static boolean isCacheable( AggregationDefinition aggregation )
+	{
+		if ( aggregation.getClass( ) != AggregationDefinition.class )
+			return false;
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		if ( functions == null )
+			return true;
+		for ( int i = 0; i < functions.length; i++ )
+		{
+			if ( functions[i].getParaCol( ) != null
+					|| functions[i].getFilterEvalHelper( ) != null
+					|| functions[i].getParaValue( ) != null )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Append the normalized form of the selections of a filter to the buffer.
+	 *
+	 * @param buffer
+	 * @param selections
+	 * @return false if a selection can not be normalized
+	 */
+	public static boolean appendSelections( StringBuffer buffer,
+			ISelection[] selections )
+	{
+		buffer.append( '[' );
+		for ( int i = 0; i < selections.length; i++ )
+		{
+			if ( selections[i] instanceof OneKeySelection )
+			{
+				buffer.append( "K" );
+				appendKey( buffer,
+						( (OneKeySelection) selections[i] ).getKeyValue( ) );
+			}
+			else if ( selections[i] instanceof MultiKeySelection )
+			{
+				Object[][] keyValues = ( (MultiKeySelection) selections[i] ).getKeyValues( );
+				buffer.append( "M" ).append( keyValues.length );
+				for ( int j = 0; j < keyValues.length; j++ )
+				{
+					appendKey( buffer, keyValues[j] );
+				}
+			}
+			else if ( selections[i] instanceof RangeSelection )
+			{
+				RangeSelection range = (RangeSelection) selections[i];
+				buffer.append( range.isContainsMinKey( ) ? "R[" : "R(" );
+				appendKey( buffer, range.getMin( ) );
+				appendKey( buffer, range.getMax( ) );
+				buffer.append( range.isContainsMaxKey( ) ? ']' : ')' );
+			}
+			else if ( selections[i] instanceof EmptySelection )
+			{
+				buffer.append( "E" );
+			}
+			else
+			{
+				return false;
+			}
+		}
+		buffer.append( ']' );
+		return true;
+	}
+
+	/**
+	 *
+	 * @param buffer
+	 * @param key
+	 */
+	private static void appendKey( StringBuffer buffer, Object[] key )
+	{
+		if ( key == null )
+		{
+			buffer.append( 'N' );
+			return;
+		}
+		buffer.append( '(' );
+		for ( int i = 0; i < key.length; i++ )
+		{
+			if ( key[i] == null )
+			{
+				buffer.append( 'N' );
+				continue;
+			}
+			// the value is prefixed with its length, so that no separator
+			// in the value can make two keys look the same
+			String value = key[i] instanceof Date
+					? String.valueOf( ( (Date) key[i] ).getTime( ) )
+					: key[i].toString( );
+			buffer.append( key[i].getClass( ).getName( ) )
+					.append( ':' )
+					.append( value.length( ) )
+					.append( ':' )
+					.append( value );
+		}
+		buffer.append( ')' );
+	}
+
+	/**
+	 * Return a result set of the aggregation calculated from a cached one, or
+	 * null if no cached aggregation of the scope can answer it.
+	 *
+	 * @param scope
+	 * @param aggregation
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	public IAggregationResultSet get( String scope,
+			AggregationDefinition aggregation ) throws IOException,
+			DataException
+	{
+		CacheEntry entry = null;
+		int[] levelIndex = null;
+		int[] functionIndex = null;
+		boolean reaggregate = false;
+		synchronized ( this )
+		{
+			if ( maxMemorySize <= 0 )
+				return null;
+			for ( Iterator<CacheEntry> itr = entries.values( ).iterator( ); itr.hasNext( ); )
+			{
+				CacheEntry candidate = itr.next( );
+				if ( !candidate.scope.equals( scope ) )
+					continue;
+				int[] candidateLevelIndex = getLevelIndex( candidate.aggregation,
+						aggregation );
+				int[] candidateFunctionIndex = getFunctionIndex( candidate.aggregation,
+						aggregation );
+				if ( candidateLevelIndex == null
+						|| candidateFunctionIndex == null )
+					continue;
+				if ( isSameLevels( candidate.aggregation, aggregation ) )
+				{
+					entry = candidate;
+					levelIndex = candidateLevelIndex;
+					functionIndex = candidateFunctionIndex;
+					reaggregate = false;
+					break;
+				}
+				if ( isReaggregatable( aggregation )
+						&& ( entry == null || candidate.rows.length < entry.rows.length ) )
+				{
+					entry = candidate;
+					levelIndex = candidateLevelIndex;
+					functionIndex = candidateFunctionIndex;
+					reaggregate = true;
+				}
+			}
+			if ( entry == null )
+				return null;
+			// access the entry to keep it in the cache longer
+			entries.get( entry.key );
+		}
+		// the cached rows are not modified, so the copy is made outside of
+		// the lock
+		String[][] keyNames = new String[levelIndex.length][];
+		String[][] attributeNames = new String[levelIndex.length][];
+		for ( int i = 0; i < levelIndex.length; i++ )
+		{
+			keyNames[i] = entry.keyNames == null ? null
+					: entry.keyNames[levelIndex[i]];
+			attributeNames[i] = entry.attributeNames == null ? null
+					: entry.attributeNames[levelIndex[i]];
+		}
+		IAggregationResultRow[] rows = reaggregate ? reaggregate( entry,
+				aggregation,
+				levelIndex,
+				functionIndex ) : project( entry, levelIndex, functionIndex );
+		BufferedStructureArray resultRows = new BufferedStructureArray( AggregationResultRow.getCreator( ),
+				Math.max( rows.length, 1 ) );
+		resultRows.setUseMemoryOnly( true );
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			resultRows.add( rows[i] );
+		}
+		return new AggregationResultSet( aggregation,
+				resultRows,
+				keyNames,
+				attributeNames );
+	}
+
+	/**
+	 * Cache a copy of the rows of the aggregation result set. The result set
+	 * is positioned at its first row again.
+	 *
+	 * @param scope
+	 * @param aggregation
+	 * @param resultSet
+	 * @throws IOException
+	 */
+	public void put( String scope, AggregationDefinition aggregation,
+			IAggregationResultSet resultSet ) throws IOException
+	{
+		long maxSize = getMaxMemorySize( );
+		if ( maxSize <= 0 )
+			return;
+		long size = 0;
+		IAggregationResultRow[] rows = new IAggregationResultRow[resultSet.length( )];
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			resultSet.seek( i );
+			rows[i] = copy( resultSet.getCurrentRow( ) );
+			size += sizeOf( rows[i] );
+			if ( size > maxSize )
+			{
+				// the result set alone would fill up the cache
+				resultSet.seek( 0 );
+				return;
+			}
+		}
+		if ( rows.length > 0 )
+		{
+			resultSet.seek( 0 );
+		}
+		String key = getKey( scope, aggregation );
+		CacheEntry entry = new CacheEntry( key,
+				scope,
+				aggregation,
+				rows,
+				resultSet.getKeyNames( ),
+				resultSet.getAttributeNames( ),
+				size );
+		synchronized ( this )
+		{
+			CacheEntry old = entries.put( key, entry );
+			if ( old != null )
+			{
+				memorySize -= old.size;
+			}
+			memorySize += size;
+			evict( );
+		}
+	}
+
+	/**
+	 * Remove the least recently used aggregations until the cached rows fit
+	 * in the max memory size.
+	 */
+	private void evict( )
+	{
+		Iterator<CacheEntry> itr = entries.values( ).iterator( );
+		while ( memorySize > maxMemorySize && itr.hasNext( ) )
+		{
+			memorySize -= itr.next( ).size;
+			itr.remove( );
+		}
+	}
+
+	/**
+	 *
+	 * @param scope
+	 * @param aggregation
+	 * @return
+	 */
+	private static String getKey( String scope,
+			AggregationDefinition aggregation )
+	{
+		StringBuffer buffer = new StringBuffer( scope );
+		buffer.append( "|L" );
+		DimLevel[] levels = aggregation.getLevels( );
+		int[] sortTypes = aggregation.getSortTypes( );
+		for ( int i = 0; levels != null && i < levels.length; i++ )
+		{
+			buffer.append( levels[i].toString( ) ).append( '/' );
+			buffer.append( sortTypes == null || sortTypes.length <= i
+					? 0 : sortTypes[i] ).append( ';' );
+		}
+		buffer.append( "|F" );
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		for ( int i = 0; functions != null && i < functions.length; i++ )
+		{
+			buffer.append( functions[i].getMeasureName( ) )
+					.append( '/' )
+					.append( functions[i].getFunctionName( ) )
+					.append( ';' );
+		}
+		return buffer.toString( );
+	}
+
+	/**
+	 *
+	 * @param cached
+	 * @param aggregation
+	 * @return the index of each level of the aggregation in the cached
+	 *         aggregation; null if one of them is not cached
+	 */
+	private static int[] getLevelIndex( AggregationDefinition cached,
+			AggregationDefinition aggregation )
+	{
+		DimLevel[] levels = aggregation.getLevels( );
+		DimLevel[] cachedLevels = cached.getLevels( );
+		int[] levelIndex = new int[levels == null ? 0 : levels.length];
+		for ( int i = 0; i < levelIndex.length; i++ )
+		{
+			levelIndex[i] = -1;
+			for ( int j = 0; cachedLevels != null && j < cachedLevels.length; j++ )
+			{
+				// the qualified names tell the attributes apart
+				if ( cachedLevels[j].toString( ).equals( levels[i].toString( ) ) )
+				{
+					levelIndex[i] = j;
+					break;
+				}
+			}
+			if ( levelIndex[i] < 0 )
+				return null;
+		}
+		return levelIndex;
+	}
+
+	/**
+	 *
+	 * @param cached
+	 * @param aggregation
+	 * @return the index of each function of the aggregation in the cached
+	 *         aggregation; null if one of them is not cached
+	 */
+	private static int[] getFunctionIndex( AggregationDefinition cached,
+			AggregationDefinition aggregation )
+	{
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		AggregationFunctionDefinition[] cachedFunctions = cached.getAggregationFunctions( );
+		int[] functionIndex = new int[functions == null ? 0
+				: functions.length];
+		for ( int i = 0; i < functionIndex.length; i++ )
+		{
+			functionIndex[i] = -1;
+			for ( int j = 0; cachedFunctions != null
+					&& j < cachedFunctions.length; j++ )
+			{
+				if ( isEqual( cachedFunctions[j].getMeasureName( ),
+						functions[i].getMeasureName( ) )
+						&& isEqual( cachedFunctions[j].getFunctionName( ),
+								functions[i].getFunctionName( ) ) )
+				{
+					functionIndex[i] = j;
+					break;
+				}
+			}
+			if ( functionIndex[i] < 0 )
+				return null;
+		}
+		return functionIndex;
+	}
+
+	/**
+	 *
+	 * @param cached
+	 * @param aggregation
+	 * @return whether the aggregations are on the same levels in the same
+	 *         order and with the same sort types
+	 */
+	private static boolean isSameLevels( AggregationDefinition cached,
+			AggregationDefinition aggregation )
+	{
+		DimLevel[] levels = aggregation.getLevels( );
+		DimLevel[] cachedLevels = cached.getLevels( );
+		int levelCount = levels == null ? 0 : levels.length;
+		if ( levelCount != ( cachedLevels == null ? 0 : cachedLevels.length ) )
+			return false;
+		for ( int i = 0; i < levelCount; i++ )
+		{
+			if ( !levels[i].toString( ).equals( cachedLevels[i].toString( ) )
+					|| getSortType( aggregation, i ) != getSortType( cached, i ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param aggregation
+	 * @param levelIndex
+	 * @return
+	 */
+	private static int getSortType( AggregationDefinition aggregation,
+			int levelIndex )
+	{
+		int[] sortTypes = aggregation.getSortTypes( );
+		return sortTypes == null || sortTypes.length <= levelIndex ? 0
+				: sortTypes[levelIndex];
+	}
+
+	/**
+	 *
+	 * @param aggregation
+	 * @return whether the aggregation can be calculated from an aggregation
+	 *         on more levels, which are the same functions as the rollups use
+	 */
+	private static boolean isReaggregatable( AggregationDefinition aggregation )
+	{
+		AggregationFunctionDefinition[] functions = aggregation.getAggregationFunctions( );
+		for ( int i = 0; functions != null && i < functions.length; i++ )
+		{
+			String functionName = functions[i].getFunctionName( );
+			if ( !CubeRollup.SUM_FUNC.equalsIgnoreCase( functionName )
+					&& !CubeRollup.MIN_FUNC.equalsIgnoreCase( functionName )
+					&& !CubeRollup.MAX_FUNC.equalsIgnoreCase( functionName ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param entry
+	 * @param levelIndex
+	 * @param functionIndex
+	 * @return the copy of the cached rows with the given functions
+	 */
+	private static IAggregationResultRow[] project( CacheEntry entry,
+			int[] levelIndex, int[] functionIndex )
+	{
+		IAggregationResultRow[] rows = new IAggregationResultRow[entry.rows.length];
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			rows[i] = new AggregationResultRow( projectMembers( entry.rows[i],
+					levelIndex ), projectValues( entry.rows[i], functionIndex ) );
+		}
+		return rows;
+	}
+
+	/**
+	 * Sort the cached rows by the levels of the aggregation, and aggregate the
+	 * values of the rows of the same members again.
+	 *
+	 * @param entry
+	 * @param aggregation
+	 * @param levelIndex
+	 * @param functionIndex
+	 * @return
+	 * @throws DataException
+	 */
+	private static IAggregationResultRow[] reaggregate( CacheEntry entry,
+			AggregationDefinition aggregation, int[] levelIndex,
+			int[] functionIndex ) throws DataException
+	{
+		IAggregationResultRow[] sortedRows = new IAggregationResultRow[entry.rows.length];
+		System.arraycopy( entry.rows, 0, sortedRows, 0, sortedRows.length );
+		AggregationResultRowComparator comparator = new AggregationResultRowComparator( levelIndex,
+				aggregation.getSortTypes( ) );
+		Arrays.sort( sortedRows, comparator );
+
+		Accumulator[] accumulators = new Accumulator[functionIndex.length];
+		for ( int i = 0; i < accumulators.length; i++ )
+		{
+			IAggrFunction function = AggregationManager.getInstance( )
+					.getAggregation( aggregation.getAggregationFunctions( )[i].getFunctionName( ) );
+			accumulators[i] = function.newAccumulator( );
+		}
+		List result = new ArrayList( );
+		int start = 0;
+		while ( start < sortedRows.length )
+		{
+			int end = start + 1;
+			while ( end < sortedRows.length
+					&& comparator.compare( sortedRows[start], sortedRows[end] ) == 0 )
+			{
+				end++;
+			}
+			Object[] values = null;
+			if ( accumulators.length > 0 )
+			{
+				values = new Object[accumulators.length];
+				for ( int i = 0; i < accumulators.length; i++ )
+				{
+					accumulators[i].start( );
+					for ( int j = start; j < end; j++ )
+					{
+						Object[] cachedValues = sortedRows[j].getAggregationValues( );
+						accumulators[i].onRow( new Object[]{
+							cachedValues == null ? null
+									: cachedValues[functionIndex[i]]
+						} );
+					}
+					accumulators[i].finish( );
+					values[i] = accumulators[i].getValue( );
+				}
+			}
+			result.add( new AggregationResultRow( projectMembers( sortedRows[start],
+					levelIndex ),
+					values ) );
+			start = end;
+		}
+		return (IAggregationResultRow[]) result.toArray( new IAggregationResultRow[result.size( )] );
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param levelIndex
+	 * @return
+	 */
+	private static Member[] projectMembers( IAggregationResultRow row,
+			int[] levelIndex )
+	{
+		if ( levelIndex.length == 0 || row.getLevelMembers( ) == null )
+			return null;
+		Member[] members = new Member[levelIndex.length];
+		for ( int i = 0; i < members.length; i++ )
+		{
+			members[i] = row.getLevelMembers( )[levelIndex[i]];
+		}
+		return members;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param functionIndex
+	 * @return
+	 */
+	private static Object[] projectValues( IAggregationResultRow row,
+			int[] functionIndex )
+	{
+		if ( functionIndex.length == 0 || row.getAggregationValues( ) == null )
+			return null;
+		Object[] values = new Object[functionIndex.length];
+		for ( int i = 0; i < values.length; i++ )
+		{
+			values[i] = row.getAggregationValues( )[functionIndex[i]];
+		}
+		return values;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return
+	 */
+	private static IAggregationResultRow copy( IAggregationResultRow row )
+	{
+		return new AggregationResultRow( row.getLevelMembers( ) == null ? null
+				: (Member[]) row.getLevelMembers( ).clone( ),
+				row.getAggregationValues( ) == null ? null
+						: (Object[]) row.getAggregationValues( ).clone( ) );
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return the estimated memory size of the row
+	 */
+	private static long sizeOf( IAggregationResultRow row )
+	{
+		long size = 16;
+		Member[] members = row.getLevelMembers( );
+		if ( members != null )
+		{
+			size += SizeOfUtil.getArraySize( members.length );
+			for ( int i = 0; i < members.length; i++ )
+			{
+				if ( members[i] != null )
+				{
+					size += 16
+							+ sizeOf( members[i].getKeyValues( ) )
+							+ sizeOf( members[i].getAttributes( ) );
+				}
+			}
+		}
+		return size + sizeOf( row.getAggregationValues( ) );
+	}
+
+	/**
+	 *
+	 * @param values
+	 * @return
+	 */
+	private static long sizeOf( Object[] values )
+	{
+		if ( values == null )
+			return 0;
+		long size = SizeOfUtil.getArraySize( values.length );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( values[i] != null )
+			{
+				size += SizeOfUtil.sizeOf( DataType.getDataType( values[i].getClass( ) ) );
+			}
+		}
+		return size;
+	}
+
+	/**
+	 *
+	 * @param s1
+	 * @param s2
+	 * @return
+	 */
+	private static boolean isEqual( String s1, String s2 )
+	{
+		return s1 == null ? s2 == null : s1.equals( s2 );
+	}
+
+	/**
+	 * The cached rows of an aggregation.
+	 */
+	private static class CacheEntry
+	{
+		private String key;
+		private String scope;
+		private AggregationDefinition aggregation;
+		private IAggregationResultRow[] rows;
+		private String[][] keyNames;
+		private String[][] attributeNames;
+		private long size;
+
+		CacheEntry( String key, String scope,
+				AggregationDefinition aggregation,
+				IAggregationResultRow[] rows, String[][] keyNames,
+				String[][] attributeNames, long size )
+		{
+			this.key = key;
+			this.scope = scope;
+			this.aggregation = aggregation;
+			this.rows = rows;
+			this.keyNames = keyNames;
+			this.attributeNames = attributeNames;
+			this.size = size;
+		}
+	}
+}
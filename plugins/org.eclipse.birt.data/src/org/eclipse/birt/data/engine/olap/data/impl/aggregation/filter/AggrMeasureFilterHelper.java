@@ -260,7 +260,7 @@ public class AggrMeasureFilterHelper
 					}
 					else
 					{
-						dimPositions[j] = SetUtil.getIntersection( dimPositions[j],
+						dimPositions[j] = SetUtil.getPositionIntersection( dimPositions[j],
 								positions );
 					}
 				}
@@ -310,7 +310,7 @@ public class AggrMeasureFilterHelper
 					}
 					else
 					{
-						dimPositions[j] = SetUtil.getIntersection( dimPositions[j],
+						dimPositions[j] = SetUtil.getPositionIntersection( dimPositions[j],
 								positions );
 					}
 				}
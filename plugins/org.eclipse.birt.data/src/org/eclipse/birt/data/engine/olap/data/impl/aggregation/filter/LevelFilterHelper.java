@@ -104,7 +104,7 @@ public class LevelFilterHelper
 		{// top/bottom dimension filters
 			IDiskArray result2 = getTopbottomFilterPositions( topBottomfilterList,
 					isBreakHierarchy );
-			return SetUtil.getIntersection( result, result2 );
+			return SetUtil.getPositionIntersection( result, result2 );
 		}
 	}
 
@@ -161,7 +161,7 @@ public class LevelFilterHelper
 			}
 			else
 			{
-				result = SetUtil.getIntersection( result, dimPositionArray );
+				result = SetUtil.getPositionIntersection( result, dimPositionArray );
 			}
 		}
 		return result == null ? dimPosition : result;
@@ -27,7 +27,6 @@ import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
 import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
 import org.eclipse.birt.data.engine.olap.data.util.BufferedPrimitiveDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
-import org.eclipse.birt.data.engine.olap.data.util.DiskIndex;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.IndexKey;
 import org.eclipse.birt.data.engine.script.ScriptConstants;
@@ -40,6 +39,7 @@ public class Dimension implements IDimension
 {
 	
 	protected String name = null;
+	protected String storageName = null;
 	protected IDocumentManager documentManager = null;
 	private IDocumentObject documentObj = null;
 	private Hierarchy hierarchy = null;
@@ -60,15 +60,34 @@ public class Dimension implements IDimension
 	public Dimension( String name, IDocumentManager documentManager,
 			 Hierarchy hierarchy, boolean isTime )
 			throws DataException, IOException
+	{
+		this( name, name, documentManager, hierarchy, isTime );
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param storageName
+	 *            the name the documents of the dimension are saved by
+	 * @param documentManager
+	 * @param hierarchy
+	 * @param isTime
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	public Dimension( String name, String storageName,
+			IDocumentManager documentManager, Hierarchy hierarchy,
+			boolean isTime ) throws DataException, IOException
 	{
 		Object[] params = {
 				name, documentManager, hierarchy, Boolean.valueOf( isTime )
 		};
 		logger.entering( Dimension.class.getName( ), ScriptConstants.DIMENSION_SCRIPTABLE, params );
 		this.name = name;
+		this.storageName = storageName;
 		this.documentManager = documentManager;
 		this.isTime = isTime;
-		documentObj = documentManager.createDocumentObject( NamingUtil.getDimensionDocName( name ) );
+		documentObj = documentManager.createDocumentObject( NamingUtil.getDimensionDocName( storageName ) );
 		documentObj.writeBoolean( isTime );
 		documentObj.writeString( hierarchy.getName( ) );
 		ILevel[] levels = hierarchy.getLevels( );
@@ -84,7 +103,7 @@ public class Dimension implements IDimension
 		logger.exiting( Dimension.class.getName( ), ScriptConstants.DIMENSION_SCRIPTABLE );
 	}
 
-	Dimension( String name, IDocumentManager documentManager )
+	Dimension( String name, String storageName, IDocumentManager documentManager )
 			throws IOException, DataException
 	{
 		Object[] params = {
@@ -92,6 +111,7 @@ public class Dimension implements IDimension
 		};
 		logger.entering( Dimension.class.getName( ), ScriptConstants.DIMENSION_SCRIPTABLE, params );
 		this.name = name;
+		this.storageName = storageName;
 		this.documentManager = documentManager;
 		loadFromDisk( );
 		logger.exiting( Dimension.class.getName( ), ScriptConstants.DIMENSION_SCRIPTABLE );
@@ -99,7 +119,7 @@ public class Dimension implements IDimension
 
 	protected void loadFromDisk( ) throws IOException, DataException
 	{
-		documentObj = documentManager.openDocumentObject( NamingUtil.getDimensionDocName( name ) );
+		documentObj = documentManager.openDocumentObject( NamingUtil.getDimensionDocName( storageName ) );
 		if ( documentObj == null )
 		{
 			throw new DataException( ResourceConstants.DIMENSION_NOT_EXIST,
@@ -127,7 +147,7 @@ public class Dimension implements IDimension
 	
 	protected Hierarchy loadHierarchy( String hierarchyName )
 	{
-		return new Hierarchy( documentManager, name, hierarchyName );
+		return new Hierarchy( documentManager, storageName, hierarchyName );
 	}
 	
 	/*
@@ -206,10 +226,7 @@ public class Dimension implements IDimension
 	public IDiskArray find( Level level, Object[] keyValue )
 			throws IOException, DataException
 	{
-		DiskIndex index = level.getDiskIndex( );
-		if ( index == null )
-			return null;
-		return index.find( keyValue );
+		return level.find( keyValue );
 	}
 
 	/**
@@ -254,10 +271,7 @@ public class Dimension implements IDimension
 	public IndexKey findFirst( Level level, Object[] keyValue )
 			throws IOException, DataException
 	{
-		DiskIndex index = level.getDiskIndex( );
-		if ( index == null )
-			return null;
-		return index.findFirst( keyValue );
+		return level.findFirst( keyValue );
 	}
 	
 
@@ -302,6 +316,17 @@ public class Dimension implements IDimension
 		return name;
 	}
 	
+	/**
+	 * 
+	 * @return the name the documents of the dimension are saved by, which
+	 *         differs from the dimension name after new members are appended
+	 *         to the dimension
+	 */
+	public String getStorageName( )
+	{
+		return storageName;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.eclipse.birt.data.olap.data.api.IDimension#getHierarchy()
 	 */
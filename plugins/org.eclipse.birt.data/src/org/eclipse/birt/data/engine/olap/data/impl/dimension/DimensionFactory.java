@@ -40,18 +40,70 @@ public class DimensionFactory
 		return new Dimension( name, documentManager, hierarchy, isTime );
 	}
 	
+	/**
+	 * Create a dimension which has the members of the base dimension and the
+	 * new members from the iterator. The members of the base dimension keep
+	 * their positions, and the documents of the base dimension are not
+	 * changed.
+	 * 
+	 * @param baseDimension
+	 * @param storageName
+	 *            the name the documents of the created dimension are saved by
+	 * @param documentManager
+	 * @param iterator
+	 * @param stopSign
+	 * @return the created dimension; null if there is no new member
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public static IDimension appendDimension( Dimension baseDimension,
+			String storageName, IDocumentManager documentManager,
+			IDatasetIterator iterator, StopSign stopSign ) throws IOException,
+			BirtException
+	{
+		Hierarchy baseHierarchy = (Hierarchy) baseDimension.getHierarchy( );
+		Hierarchy hierarchy = new Hierarchy( documentManager,
+				storageName,
+				baseHierarchy.getName( ) );
+		if ( !hierarchy.appendAndSaveHierarchy( baseHierarchy,
+				iterator,
+				stopSign ) )
+		{
+			return null;
+		}
+		return new Dimension( baseDimension.getName( ),
+				storageName,
+				documentManager,
+				hierarchy,
+				baseDimension.isTime( ) );
+	}
+	
 	public static IDimension loadDimension( String name,
 			IDocumentManager documentManager ) throws DataException,
 			IOException
 	{
-		return new Dimension( name, documentManager );
+		return loadDimension( name, name, documentManager );
+	}
+	
+	public static IDimension loadDimension( String name, String storageName,
+			IDocumentManager documentManager ) throws DataException,
+			IOException
+	{
+		return new Dimension( name, storageName, documentManager );
 	}
 
 	public static IDimension loadDimension( String name,
 			IDocumentManager documentManager, Set<String> notAccessibleLevels ) throws DataException,
 			IOException
 	{
-		return new SecuredDimension( name, documentManager, notAccessibleLevels );
+		return loadDimension( name, name, documentManager, notAccessibleLevels );
+	}
+	
+	public static IDimension loadDimension( String name, String storageName,
+			IDocumentManager documentManager, Set<String> notAccessibleLevels ) throws DataException,
+			IOException
+	{
+		return new SecuredDimension( name, storageName, documentManager, notAccessibleLevels );
 	}
 	
 	public static IDimension createTimeDimension( String name,
@@ -12,16 +12,12 @@
 package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
-import org.eclipse.birt.data.engine.cache.Constants;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.api.ISelection;
-import org.eclipse.birt.data.engine.olap.data.util.BaseDiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.IndexKey;
-import org.eclipse.birt.data.engine.olap.data.util.PrimitiveDiskSortedStack;
-import org.eclipse.birt.data.engine.olap.data.util.SetUtil;
+import org.eclipse.birt.data.engine.olap.data.util.PositionBitmap;
 
 /**
  * 
@@ -39,65 +35,47 @@ public class DimensionFilterHelper
 	 */
 	public static IDiskArray find( Level[] levels, ISelection[][] filters ) throws IOException, DataException
 	{
-		ArrayList filterResults = new ArrayList( );
+		PositionBitmap result = null;
 		for ( int i = 0; i < levels.length; i++ )
 		{
-			filterResults.add( find(levels[i], filters[i]) );
+			PositionBitmap levelResult = find( levels[i], filters[i] );
+			result = result == null ? levelResult : result.and( levelResult );
+			if ( result.isEmpty( ) )
+			{
+				break;
+			}
 		}
-		PrimitiveDiskSortedStack[] stackResults = new PrimitiveDiskSortedStack[filterResults.size( )];
-		System.arraycopy( filterResults.toArray( ),
-				0,
-				stackResults,
-				0,
-				stackResults.length );
-		int maxLen = 0;
-		for( int i = 0; i < stackResults.length; i++ )
+		if ( result == null )
 		{
-			if( maxLen < stackResults[i].size( ) )
-				maxLen = stackResults[i].size( );
+			result = new PositionBitmap( );
 		}
-		IDiskArray AndFilterResults = SetUtil.getIntersection( stackResults, maxLen );
-		return AndFilterResults;
+		return result.toDiskArray( );
 	}
 	
 	/**
 	 * 
 	 * @param level
 	 * @param filter
-	 * @return
+	 * @return the bitmap of the positions selected by the filter
 	 * @throws IOException
 	 * @throws DataException
 	 */
-	private static BaseDiskSortedStack find(Level level, ISelection[] filter) throws IOException, DataException
+	private static PositionBitmap find( Level level, ISelection[] filter ) throws IOException, DataException
 	{
-		IDiskArray indexKeyArray = null;
-		if( level.getDiskIndex() != null )
-			indexKeyArray = level.getDiskIndex().find( filter );
+		PositionBitmap result = new PositionBitmap( );
+		IDiskArray indexKeyArray = level.find( filter );
 		if ( indexKeyArray != null )
 		{
-			int len = 0;
-			for ( int i = 0; i < indexKeyArray.size( ); i++ )
-			{
-				IndexKey key = (IndexKey) indexKeyArray.get( i );
-				len += key.getDimensionPos().length;
-			}
-			PrimitiveDiskSortedStack resultStack = new PrimitiveDiskSortedStack( len,
-					true,
-					true );
 			for ( int i = 0; i < indexKeyArray.size( ); i++ )
 			{
 				IndexKey key = (IndexKey) indexKeyArray.get( i );
 				int[] pos = key.getDimensionPos( );
 				for( int j = 0; j < pos.length; j++ )
 				{
-					resultStack.push( Integer.valueOf( pos[j] ) );
+					result.add( pos[j] );
 				}
 			}
-			return resultStack;
-		}
-		else
-		{
-			return new PrimitiveDiskSortedStack( 1, true, true );
 		}
+		return result;
 	}
 }
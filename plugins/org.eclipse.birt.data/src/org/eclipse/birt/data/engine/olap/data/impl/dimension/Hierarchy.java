@@ -12,7 +12,10 @@
 package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -120,10 +123,6 @@ public class Hierarchy implements IHierarchy
 		
 		DiskSortedStack sortedDimensionSet = getSortedDimRows( datasetIterator,
 				levelDefs );
-				
-		documentObj.seek( 4 );
-		saveHierarchyMetadata( datasetIterator,
-				levelDefs );
 		
 		int[][] keyDataType = new int[levelDefs.length][];
 		int[][] attributesDataType = new int[levelDefs.length][];
@@ -144,16 +143,15 @@ public class Hierarchy implements IHierarchy
 			}
 		}
 		
+		documentObj.seek( 4 );
+		saveHierarchyMetadata( levelDefs, keyDataType, attributesDataType );
+		
 		int size = saveHierarchyRows( levelDefs,
 				keyDataType,
 				attributesDataType,
 				sortedDimensionSet,
 				stopSign );
-		// save dimension member size
-		int savedPointer = (int) documentObj.getFilePointer( );
-		documentObj.seek( 0 );
-		documentObj.writeInt( size );
-		documentObj.seek( savedPointer );
+		saveHierarchySize( size );
 		
 		closeWriteDocuemntObject( );
 		
@@ -161,6 +159,153 @@ public class Hierarchy implements IHierarchy
 		
 	}
 	
+	/**
+	 * Save the members of the base hierarchy and the new members from the
+	 * dataset iterator in this hierarchy. The members of the base hierarchy
+	 * keep their positions and the new members are appended after them, so
+	 * the fact table rows saved with the base hierarchy are still valid. The
+	 * rows of the dataset iterator whose detail members are already in the
+	 * base hierarchy are skipped. Nothing is saved if there is no new member.
+	 * 
+	 * @param baseHierarchy
+	 * @param datasetIterator
+	 * @param stopSign
+	 * @return whether there is any new member
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public boolean appendAndSaveHierarchy( Hierarchy baseHierarchy,
+			IDatasetIterator datasetIterator, StopSign stopSign )
+			throws IOException, BirtException
+	{
+		Level[] baseLevels = (Level[]) baseHierarchy.getLevels( );
+		ILevelDefn[] levelDefs = new ILevelDefn[baseLevels.length];
+		int[][] keyDataType = new int[baseLevels.length][];
+		int[][] attributesDataType = new int[baseLevels.length][];
+		for ( int i = 0; i < baseLevels.length; i++ )
+		{
+			LevelDefinition levelDef = new LevelDefinition( baseLevels[i].getName( ),
+					baseLevels[i].getKeyColNames( ),
+					baseLevels[i].getAttributeNames( ) );
+			levelDef.setTimeType( baseLevels[i].getLeveType( ) );
+			levelDefs[i] = levelDef;
+			keyDataType[i] = baseLevels[i].getKeyDataType( );
+			attributesDataType[i] = baseLevels[i].getAttributeDataTypes( );
+		}
+		
+		List newRows = getNewDimRows( baseHierarchy,
+				getSortedDimRows( datasetIterator, levelDefs ),
+				stopSign );
+		if ( newRows.isEmpty( ) || stopSign.isStopped( ) )
+		{
+			return false;
+		}
+		
+		documentObj = createHierarchyDocumentObject( );
+		offsetDocObj = createLevelOffsetDocumentObject( );
+		documentObj.seek( 4 );
+		saveHierarchyMetadata( levelDefs, keyDataType, attributesDataType );
+		
+		IDiskArray baseRows = baseHierarchy.readAllRows( stopSign );
+		int size = baseRows.size( ) + newRows.size( );
+		IDiskArray[] indexKeyLists = new IDiskArray[levelDefs.length];
+		for ( int i = 0; i < indexKeyLists.length; i++ )
+		{
+			indexKeyLists[i] = new BufferedStructureArray( IndexKey.getCreator( ),
+					Math.min( size, Constants.MAX_LIST_BUFFER_SIZE ) );
+		}
+		int currentIndex = 0;
+		for ( int i = 0; i < baseRows.size( ) && !stopSign.isStopped( ); i++ )
+		{
+			saveHierarchyRow( (DimensionRow) baseRows.get( i ),
+					currentIndex++,
+					indexKeyLists,
+					keyDataType,
+					attributesDataType );
+		}
+		baseRows.close( );
+		for ( int i = 0; i < newRows.size( ) && !stopSign.isStopped( ); i++ )
+		{
+			saveHierarchyRow( (DimensionRow) newRows.get( i ),
+					currentIndex++,
+					indexKeyLists,
+					keyDataType,
+					attributesDataType );
+		}
+		createLevels( levelDefs,
+				keyDataType,
+				attributesDataType,
+				indexKeyLists,
+				currentIndex );
+		saveHierarchySize( currentIndex );
+		
+		closeWriteDocuemntObject( );
+		
+		openReadDocuemntObject( );
+		return true;
+	}
+	
+	/**
+	 * 
+	 * @param baseHierarchy
+	 * @param sortedDimensionSet
+	 * @param stopSign
+	 * @return the rows whose detail members are not in the base hierarchy
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static List getNewDimRows( Hierarchy baseHierarchy,
+			DiskSortedStack sortedDimensionSet, StopSign stopSign )
+			throws IOException, DataException
+	{
+		Level[] baseLevels = (Level[]) baseHierarchy.getLevels( );
+		Level detailLevel = baseLevels[baseLevels.length - 1];
+		List newRows = new ArrayList( );
+		Map newDetailMembers = new HashMap( );
+		Object obj = sortedDimensionSet.pop( );
+		while ( obj != null && !stopSign.isStopped( ) )
+		{
+			DimensionRow dimRow = (DimensionRow) obj;
+			Member[] levelMembers = dimRow.getMembers( );
+			Member detailMember = levelMembers[levelMembers.length - 1];
+			DimensionRow existingRow = (DimensionRow) newDetailMembers.get( detailMember );
+			if ( existingRow == null )
+			{
+				IndexKey indexKey = detailLevel.findFirst( detailMember.getKeyValues( ) );
+				if ( indexKey != null )
+				{
+					existingRow = baseHierarchy.readRowByPosition( indexKey.getDimensionPos( )[0] );
+				}
+			}
+			if ( existingRow == null )
+			{
+				newRows.add( dimRow );
+				newDetailMembers.put( detailMember, dimRow );
+			}
+			else if ( !Arrays.equals( existingRow.getMembers( ), levelMembers ) )
+			{
+				throw new DataException( ResourceConstants.DETAIL_MEMBER_HAVE_MULTI_PARENT,
+						detailMember.getKeyValues( )[0] );
+			}
+			obj = sortedDimensionSet.pop( );
+		}
+		return newRows;
+	}
+	
+	/**
+	 * 
+	 * @param size
+	 * @throws IOException
+	 */
+	private void saveHierarchySize( int size ) throws IOException
+	{
+		// save dimension member size
+		int savedPointer = (int) documentObj.getFilePointer( );
+		documentObj.seek( 0 );
+		documentObj.writeInt( size );
+		documentObj.seek( savedPointer );
+	}
+	
 	/**
 	 * 
 	 * @throws IOException
@@ -261,36 +406,40 @@ public class Hierarchy implements IHierarchy
 
 	/**
 	 * 
-	 * @param iterator
 	 * @param levelDefs
+	 * @param keyDataType
+	 * @param attributesDataType
 	 * @throws IOException
-	 * @throws BirtException
 	 */
-	private void saveHierarchyMetadata( IDatasetIterator iterator, ILevelDefn[] levelDefs )
-			throws IOException, BirtException
+	private void saveHierarchyMetadata( ILevelDefn[] levelDefs,
+			int[][] keyDataType, int[][] attributesDataType )
+			throws IOException
 	{
 		documentObj.writeInt( levelDefs.length );
 		for ( int i = 0; i < levelDefs.length; i++ )
 		{
-			saveLevelMetadata( iterator, levelDefs[i] );
+			saveLevelMetadata( levelDefs[i],
+					keyDataType[i],
+					attributesDataType[i] );
 		}
 	}
 	
 	/**
 	 * 
-	 * @param iterator
 	 * @param levelDef
+	 * @param keyDataType
+	 * @param attributesDataType
 	 * @throws IOException
-	 * @throws BirtException
 	 */
-	private void saveLevelMetadata( IDatasetIterator iterator, ILevelDefn levelDef ) throws IOException, BirtException
+	private void saveLevelMetadata( ILevelDefn levelDef, int[] keyDataType,
+			int[] attributesDataType ) throws IOException
 	{
 		documentObj.writeString( levelDef.getLevelName( ) );
 		documentObj.writeInt( levelDef.getKeyColumns( ).length );
 		for ( int i = 0; i < levelDef.getKeyColumns( ).length; i++ )
 		{
 			documentObj.writeString( levelDef.getKeyColumns( )[i] );
-			documentObj.writeInt( iterator.getFieldType( levelDef.getKeyColumns( )[i] ) );
+			documentObj.writeInt( keyDataType[i] );
 		}
 		String[] attributes = levelDef.getAttributeColumns( );
 		if ( attributes != null )
@@ -299,7 +448,7 @@ public class Hierarchy implements IHierarchy
 			for ( int j = 0; j < attributes.length; j++ )
 			{
 				documentObj.writeString( attributes[j] );
-				documentObj.writeInt( iterator.getFieldType( attributes[j] ) );
+				documentObj.writeInt( attributesDataType[j] );
 			}
 		}
 		else
@@ -340,26 +489,15 @@ public class Hierarchy implements IHierarchy
 
 		Object obj = sortedDimensionSet.pop( );
 		int currentIndex = 0;
-		IndexKey indexKey = null;
 		while ( obj != null )
 		{
 			if ( stopSign.isStopped( ) )
 				break;
 			DimensionRow dimRows = (DimensionRow) obj;
-			Member[] levelMembers = dimRows.getMembers();
-			for ( int i = 0; i < indexKeyLists.length; i++ )
-			{
-				indexKey = new IndexKey( );
-				indexKey.setKey( levelMembers[i].getKeyValues() );
-				indexKey.setOffset( new int[]{(int) documentObj.getFilePointer( ) } );
-				indexKey.setDimensionPos( new int[]{ currentIndex } );
-				indexKeyLists[i].add( indexKey );
-			}
-			// write row offset
-			offsetDocObj.writeInt( (int) documentObj.getFilePointer( ) );
-			// write hierarchy rows
 			sortedDimMembers.push( dimRows.getMembers()[levelDefs.length-1] );
-			writeDimensionRow( dimRows,
+			saveHierarchyRow( dimRows,
+					currentIndex,
+					indexKeyLists,
 					keyDataType,
 					attributesDataType );
 			
@@ -367,6 +505,59 @@ public class Hierarchy implements IHierarchy
 			currentIndex++;
 		}
 		validateDimensionMembers( sortedDimMembers );
+		createLevels( levelDefs,
+				keyDataType,
+				attributesDataType,
+				indexKeyLists,
+				currentIndex );
+		return currentIndex;
+	}
+	
+	/**
+	 * 
+	 * @param dimRows
+	 * @param position
+	 * @param indexKeyLists
+	 * @param keyDataType
+	 * @param attributesDataType
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void saveHierarchyRow( DimensionRow dimRows, int position,
+			IDiskArray[] indexKeyLists, int[][] keyDataType,
+			int[][] attributesDataType ) throws IOException, DataException
+	{
+		Member[] levelMembers = dimRows.getMembers();
+		for ( int i = 0; i < indexKeyLists.length; i++ )
+		{
+			IndexKey indexKey = new IndexKey( );
+			indexKey.setKey( levelMembers[i].getKeyValues() );
+			indexKey.setOffset( new int[]{(int) documentObj.getFilePointer( ) } );
+			indexKey.setDimensionPos( new int[]{ position } );
+			indexKeyLists[i].add( indexKey );
+		}
+		// write row offset
+		offsetDocObj.writeInt( (int) documentObj.getFilePointer( ) );
+		// write hierarchy rows
+		writeDimensionRow( dimRows,
+				keyDataType,
+				attributesDataType );
+	}
+	
+	/**
+	 * 
+	 * @param levelDefs
+	 * @param keyDataType
+	 * @param attributesDataType
+	 * @param indexKeyLists
+	 * @param size
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void createLevels( ILevelDefn[] levelDefs, int[][] keyDataType,
+			int[][] attributesDataType, IDiskArray[] indexKeyLists, int size )
+			throws IOException, DataException
+	{
 		DiskIndex[] diskIndex = new DiskIndex[indexKeyLists.length];
 		for ( int i = 0; i < indexKeyLists.length; i++ )
 		{
@@ -383,7 +574,7 @@ public class Hierarchy implements IHierarchy
 					levelDefs[i],
 					keyDataType[i],
 					attributesDataType[i],
-					currentIndex,
+					size,
 					diskIndex[i]);
 			levels[i].setLevelType( levelDefs[i].getTimeType( ) );
 		}
@@ -391,7 +582,6 @@ public class Hierarchy implements IHierarchy
 		{
 			this.levelMap.put( levels[i].getName( ), levels[i] );
 		}
-		return currentIndex;
 	}
 	
 	/**
@@ -14,15 +14,19 @@ package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 import java.io.IOException;
 import java.util.logging.Logger;
 
+import org.eclipse.birt.data.engine.cache.Constants;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.api.ILevel;
+import org.eclipse.birt.data.engine.olap.data.api.ISelection;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.util.BufferedPrimitiveDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.DataType;
 import org.eclipse.birt.data.engine.olap.data.util.DiskIndex;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.IndexKey;
+import org.eclipse.birt.data.engine.olap.data.util.MemberDictionary;
 
 /**
  * Describes a level. A level is composed of member located at this level.
@@ -39,6 +43,8 @@ public class Level implements ILevel
 	private String levelType;
 	
 	private DiskIndex diskIndex = null;
+	private IndexKey[] memberKeys = null;
+	private MemberDictionary memberDictionary = null;
 	
 	private static Logger logger = Logger.getLogger( Level.class.getName( ) );
 
@@ -252,11 +258,33 @@ public class Level implements ILevel
 	}
 
 	/**
+	 * Set the index of the level members. If the level has no more members
+	 * than Constants.MAX_IN_MEMORY_LEVEL_SIZE, they are also loaded into a
+	 * member dictionary, which answers the lookups without reading the index.
+	 * 
 	 * @param diskIndex the diskIndex to set
+	 * @throws IOException
+	 * @throws DataException
 	 */
-	void setDiskIndex( DiskIndex diskIndex )
+	void setDiskIndex( DiskIndex diskIndex ) throws IOException, DataException
 	{
 		this.diskIndex = diskIndex;
+		this.memberKeys = null;
+		this.memberDictionary = null;
+		if ( diskIndex != null
+				&& diskIndex.getKeyCount( ) <= Constants.MAX_IN_MEMORY_LEVEL_SIZE )
+		{
+			IDiskArray indexKeyArray = diskIndex.findAll( );
+			IndexKey[] keys = new IndexKey[indexKeyArray.size( )];
+			Object[][] keyValues = new Object[keys.length][];
+			for ( int i = 0; i < keys.length; i++ )
+			{
+				keys[i] = (IndexKey) indexKeyArray.get( i );
+				keyValues[i] = keys[i].getKey( );
+			}
+			this.memberKeys = keys;
+			this.memberDictionary = new MemberDictionary( keyValues );
+		}
 	}
 
 	/**
@@ -267,8 +295,102 @@ public class Level implements ILevel
 		return diskIndex;
 	}
 	
+	/**
+	 * 
+	 * @param selections
+	 * @return the index keys of the members selected by any of the
+	 *         selections; null if the level has no member
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	IDiskArray find( ISelection[] selections ) throws IOException,
+			DataException
+	{
+		if ( memberDictionary != null )
+		{
+			return toIndexKeyArray( memberDictionary.find( selections ) );
+		}
+		if ( diskIndex == null )
+		{
+			return null;
+		}
+		return diskIndex.find( selections );
+	}
+
+	/**
+	 * 
+	 * @param keyValue
+	 * @return the index keys of the member; null if the level has no member
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	IDiskArray find( Object[] keyValue ) throws IOException, DataException
+	{
+		if ( memberDictionary != null )
+		{
+			int index = memberDictionary.indexOf( keyValue );
+			return toIndexKeyArray( index < 0 ? new int[0] : new int[]{
+				index
+			} );
+		}
+		if ( diskIndex == null )
+		{
+			return null;
+		}
+		return diskIndex.find( keyValue );
+	}
+
+	/**
+	 * 
+	 * @param keyValue
+	 * @return the index key of the member; null if it is not found
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	IndexKey findFirst( Object[] keyValue ) throws IOException, DataException
+	{
+		if ( memberDictionary != null )
+		{
+			int index = memberDictionary.indexOf( keyValue );
+			return index < 0 ? null : memberKeys[index];
+		}
+		if ( diskIndex == null )
+		{
+			return null;
+		}
+		return diskIndex.findFirst( keyValue );
+	}
+
+	/**
+	 * 
+	 * @param memberIndex
+	 * @return
+	 * @throws IOException
+	 */
+	private IDiskArray toIndexKeyArray( int[] memberIndex ) throws IOException
+	{
+		IDiskArray result = new BufferedStructureArray( IndexKey.getCreator( ),
+				Math.max( 1, Math.min( memberIndex.length,
+						Constants.MAX_LIST_BUFFER_SIZE ) ) );
+		for ( int i = 0; i < memberIndex.length; i++ )
+		{
+			result.add( memberKeys[memberIndex[i]] );
+		}
+		return result;
+	}
+
 	public IDiskArray getAllPosition( ) throws DataException, IOException
 	{
+		if ( memberKeys != null )
+		{
+			IDiskArray result = new BufferedPrimitiveDiskArray( Math.max( 1,
+					memberKeys.length ) );
+			for ( int i = 0; i < memberKeys.length; i++ )
+			{
+				result.add( Integer.valueOf( memberKeys[i].getDimensionPos( )[0] ) );
+			}
+			return result;
+		}
 		IDiskArray indexKeyArray = diskIndex.findAll(  );
 		IDiskArray result = new BufferedPrimitiveDiskArray( indexKeyArray.size( ) );
 		for ( int i = 0; i < indexKeyArray.size( ); i++ )
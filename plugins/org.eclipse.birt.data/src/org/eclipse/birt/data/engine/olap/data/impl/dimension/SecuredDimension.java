@@ -30,7 +30,7 @@ public class SecuredDimension extends Dimension
 
 	private Set<String> inaccessibleLevels = new HashSet<String>();
 
-	SecuredDimension( String name, IDocumentManager documentManager, Set<String> notAccessibleLevels )
+	SecuredDimension( String name, String storageName, IDocumentManager documentManager, Set<String> notAccessibleLevels )
 			throws IOException, DataException
 	{
 		Object[] params = {
@@ -40,6 +40,7 @@ public class SecuredDimension extends Dimension
 				ScriptConstants.DIMENSION_SCRIPTABLE,
 				params );
 		this.name = name;
+		this.storageName = storageName;
 		this.documentManager = documentManager;
 		this.inaccessibleLevels = notAccessibleLevels;
 		loadFromDisk( );
@@ -50,6 +51,6 @@ public class SecuredDimension extends Dimension
 	
 	protected Hierarchy loadHierarchy( String hierarchyName )
 	{
-		return new SecuredHierarchy( documentManager, name, hierarchyName, this.inaccessibleLevels );
+		return new SecuredHierarchy( documentManager, storageName, hierarchyName, this.inaccessibleLevels );
 	}
 }
@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentObjectUtil;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * A fact table segment saved in the columnar layout. The dimension positions
+ * of the rows are bit packed column by column, relative to the min position of
+ * the dimension in the segment, and the values of each measure are saved in a
+ * column of their own, so that the reader only decodes the measure columns
+ * which are asked for. The layout of a segment is:
+ *
+ * <pre>
+ * row count
+ * dimension count, and the min position, max position and bit width of each dimension
+ * measure count, and the offset of each measure column
+ * packed dimension columns
+ * measure columns, each of which is a null bitmap followed by the non-null values
+ * </pre>
+ */
+
+class ColumnarFactTableSegment
+{
+	private IDocumentObject documentObject;
+	private MeasureInfo[] measureInfo;
+
+	private int rowCount;
+	private int[] minPosition;
+	private int[] maxPosition;
+	private int[] bitWidth;
+	private int[] measureOffset;
+	private long dimensionOffset;
+
+	private int[][] dimensionColumns;
+	private Object[][] measureColumns;
+
+	/**
+	 * Read the header of the segment. The columns are decoded when they are
+	 * accessed.
+	 *
+	 * @param documentObject
+	 * @param measureInfo
+	 * @throws IOException
+	 */
+	ColumnarFactTableSegment( IDocumentObject documentObject,
+			MeasureInfo[] measureInfo ) throws IOException
+	{
+		this.documentObject = documentObject;
+		this.measureInfo = measureInfo;
+		documentObject.seek( 0 );
+		rowCount = documentObject.readInt( );
+		int dimensionCount = documentObject.readInt( );
+		minPosition = new int[dimensionCount];
+		maxPosition = new int[dimensionCount];
+		bitWidth = new int[dimensionCount];
+		for ( int i = 0; i < dimensionCount; i++ )
+		{
+			minPosition[i] = documentObject.readInt( );
+			maxPosition[i] = documentObject.readInt( );
+			bitWidth[i] = documentObject.readInt( );
+		}
+		measureOffset = new int[documentObject.readInt( )];
+		for ( int i = 0; i < measureOffset.length; i++ )
+		{
+			measureOffset[i] = documentObject.readInt( );
+		}
+		dimensionOffset = documentObject.getFilePointer( );
+		measureColumns = new Object[measureOffset.length][];
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @param dimensionIndex
+	 * @return the min position of the dimension in this segment
+	 */
+	int getMinPosition( int dimensionIndex )
+	{
+		return minPosition[dimensionIndex];
+	}
+
+	/**
+	 *
+	 * @param dimensionIndex
+	 * @return the max position of the dimension in this segment
+	 */
+	int getMaxPosition( int dimensionIndex )
+	{
+		return maxPosition[dimensionIndex];
+	}
+
+	/**
+	 * Whether one of the sorted positions falls in the range of the dimension
+	 * positions of this segment. If not, no row of the segment is selected by
+	 * the positions.
+	 *
+	 * @param dimensionIndex
+	 * @param sortedPositions
+	 * @return
+	 */
+	boolean isInRange( int dimensionIndex, int[] sortedPositions )
+	{
+		int index = Arrays.binarySearch( sortedPositions,
+				minPosition[dimensionIndex] );
+		if ( index >= 0 )
+		{
+			return true;
+		}
+		index = -index - 1;
+		return index < sortedPositions.length
+				&& sortedPositions[index] <= maxPosition[dimensionIndex];
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return
+	 * @throws IOException
+	 */
+	int[] getDimensionPosition( int row ) throws IOException
+	{
+		if ( dimensionColumns == null )
+		{
+			readDimensionColumns( );
+		}
+		int[] position = new int[dimensionColumns.length];
+		for ( int i = 0; i < position.length; i++ )
+		{
+			position[i] = dimensionColumns[i][row];
+		}
+		return position;
+	}
+
+	/**
+	 *
+	 * @param measureIndex
+	 * @param row
+	 * @return
+	 * @throws IOException
+	 */
+	Object getMeasure( int measureIndex, int row ) throws IOException
+	{
+		if ( measureColumns[measureIndex] == null )
+		{
+			measureColumns[measureIndex] = readMeasureColumn( measureIndex );
+		}
+		return measureColumns[measureIndex][row];
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	private void readDimensionColumns( ) throws IOException
+	{
+		documentObject.seek( dimensionOffset );
+		int[][] columns = new int[minPosition.length][];
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			byte[] packed = new byte[getPackedLength( rowCount, bitWidth[i] )];
+			readFully( documentObject, packed );
+			columns[i] = unpack( packed, rowCount, bitWidth[i], minPosition[i] );
+		}
+		dimensionColumns = columns;
+	}
+
+	/**
+	 *
+	 * @param measureIndex
+	 * @return
+	 * @throws IOException
+	 */
+	private Object[] readMeasureColumn( int measureIndex ) throws IOException
+	{
+		documentObject.seek( measureOffset[measureIndex] );
+		byte[] nullBitmap = new byte[( rowCount + 7 ) / 8];
+		readFully( documentObject, nullBitmap );
+		int dataType = measureInfo[measureIndex].getDataType( );
+		Object[] values = new Object[rowCount];
+		for ( int row = 0; row < rowCount; row++ )
+		{
+			if ( ( nullBitmap[row >> 3] & ( 1 << ( row & 7 ) ) ) == 0 )
+			{
+				continue;
+			}
+			switch ( dataType )
+			{
+				case DataType.INTEGER_TYPE :
+					values[row] = Integer.valueOf( documentObject.readInt( ) );
+					break;
+				case DataType.DOUBLE_TYPE :
+					values[row] = new Double( documentObject.readDouble( ) );
+					break;
+				default :
+					values[row] = DocumentObjectUtil.readValue( documentObject,
+							dataType );
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Save the rows of a segment in the columnar layout from the beginning of
+	 * the document object, and truncate the document object to the end of the
+	 * segment.
+	 *
+	 * @param documentObject
+	 * @param dimensionPositions
+	 *            the dimension positions of each row
+	 * @param measureValues
+	 *            the measure values of each row
+	 * @param dimensionCount
+	 * @param measureInfo
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	static void save( IDocumentObject documentObject,
+			int[][] dimensionPositions, Object[][] measureValues,
+			int dimensionCount, MeasureInfo[] measureInfo )
+			throws IOException, DataException
+	{
+		int rowCount = dimensionPositions.length;
+		documentObject.seek( 0 );
+		documentObject.writeInt( rowCount );
+
+		// write the stats of the dimension positions
+		int[] min = new int[dimensionCount];
+		int[] width = new int[dimensionCount];
+		documentObject.writeInt( dimensionCount );
+		for ( int i = 0; i < dimensionCount; i++ )
+		{
+			min[i] = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for ( int row = 0; row < rowCount; row++ )
+			{
+				min[i] = Math.min( min[i], dimensionPositions[row][i] );
+				max = Math.max( max, dimensionPositions[row][i] );
+			}
+			if ( rowCount == 0 )
+			{
+				min[i] = max = 0;
+			}
+			width[i] = 32 - Integer.numberOfLeadingZeros( max - min[i] );
+			documentObject.writeInt( min[i] );
+			documentObject.writeInt( max );
+			documentObject.writeInt( width[i] );
+		}
+
+		// reserve the offsets of the measure columns
+		documentObject.writeInt( measureInfo.length );
+		long offsetPointer = documentObject.getFilePointer( );
+		for ( int i = 0; i < measureInfo.length; i++ )
+		{
+			documentObject.writeInt( 0 );
+		}
+
+		int[] column = new int[rowCount];
+		for ( int i = 0; i < dimensionCount; i++ )
+		{
+			for ( int row = 0; row < rowCount; row++ )
+			{
+				column[row] = dimensionPositions[row][i] - min[i];
+			}
+			byte[] packed = pack( column, width[i] );
+			documentObject.write( packed, 0, packed.length );
+		}
+
+		int[] offset = new int[measureInfo.length];
+		for ( int i = 0; i < measureInfo.length; i++ )
+		{
+			offset[i] = (int) documentObject.getFilePointer( );
+			byte[] nullBitmap = new byte[( rowCount + 7 ) / 8];
+			for ( int row = 0; row < rowCount; row++ )
+			{
+				if ( measureValues[row][i] != null )
+				{
+					nullBitmap[row >> 3] |= 1 << ( row & 7 );
+				}
+			}
+			documentObject.write( nullBitmap, 0, nullBitmap.length );
+			int dataType = measureInfo[i].getDataType( );
+			for ( int row = 0; row < rowCount; row++ )
+			{
+				Object value = measureValues[row][i];
+				if ( value == null )
+				{
+					continue;
+				}
+				switch ( dataType )
+				{
+					case DataType.INTEGER_TYPE :
+						documentObject.writeInt( ( (Number) value ).intValue( ) );
+						break;
+					case DataType.DOUBLE_TYPE :
+						documentObject.writeDouble( ( (Number) value ).doubleValue( ) );
+						break;
+					default :
+						DocumentObjectUtil.writeValue( documentObject,
+								dataType,
+								value );
+				}
+			}
+		}
+
+		long end = documentObject.getFilePointer( );
+		documentObject.seek( offsetPointer );
+		for ( int i = 0; i < offset.length; i++ )
+		{
+			documentObject.writeInt( offset[i] );
+		}
+		documentObject.seek( end );
+		documentObject.setLength( end );
+	}
+
+	/**
+	 *
+	 * @param rowCount
+	 * @param bitWidth
+	 * @return
+	 */
+	private static int getPackedLength( int rowCount, int bitWidth )
+	{
+		return (int) ( ( (long) rowCount * bitWidth + 7 ) / 8 );
+	}
+
+	/**
+	 * Pack the non-negative values of the bit width into bytes, lowest bit
+	 * first.
+	 *
+	 * @param values
+	 * @param bitWidth
+	 * @return
+	 */
+	static byte[] pack( int[] values, int bitWidth )
+	{
+		byte[] packed = new byte[getPackedLength( values.length, bitWidth )];
+		long buffer = 0;
+		int bufferBits = 0;
+		int index = 0;
+		for ( int i = 0; i < values.length; i++ )
+		{
+			buffer |= ( (long) values[i] ) << bufferBits;
+			bufferBits += bitWidth;
+			while ( bufferBits >= 8 )
+			{
+				packed[index++] = (byte) buffer;
+				buffer >>>= 8;
+				bufferBits -= 8;
+			}
+		}
+		if ( bufferBits > 0 )
+		{
+			packed[index] = (byte) buffer;
+		}
+		return packed;
+	}
+
+	/**
+	 *
+	 * @param packed
+	 * @param count
+	 * @param bitWidth
+	 * @param base
+	 *            the value added to each unpacked value
+	 * @return
+	 */
+	static int[] unpack( byte[] packed, int count, int bitWidth, int base )
+	{
+		int[] values = new int[count];
+		long mask = ( 1L << bitWidth ) - 1;
+		long buffer = 0;
+		int bufferBits = 0;
+		int index = 0;
+		for ( int i = 0; i < count; i++ )
+		{
+			while ( bufferBits < bitWidth )
+			{
+				buffer |= ( packed[index++] & 0xFFL ) << bufferBits;
+				bufferBits += 8;
+			}
+			values[i] = base + (int) ( buffer & mask );
+			buffer >>>= bitWidth;
+			bufferBits -= bitWidth;
+		}
+		return values;
+	}
+
+	/**
+	 *
+	 * @param documentObject
+	 * @param b
+	 * @throws IOException
+	 */
+	private static void readFully( IDocumentObject documentObject, byte[] b )
+			throws IOException
+	{
+		int pos = 0;
+		while ( pos < b.length )
+		{
+			int len = documentObject.read( b, pos, b.length - pos );
+			if ( len <= 0 )
+			{
+				throw new EOFException( );
+			}
+			pos += len;
+		}
+	}
+}
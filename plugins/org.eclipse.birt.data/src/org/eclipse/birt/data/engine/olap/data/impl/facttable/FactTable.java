@@ -24,11 +24,22 @@ import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.Di
 
 public class FactTable
 {
+	/**
+	 * Each segment is saved as rows of the combined dimension position followed
+	 * by all the measure values.
+	 */
+	static final int ROW_FORMAT = 0;
+	/**
+	 * Each segment is saved by ColumnarFactTableSegment.
+	 */
+	static final int COLUMNAR_FORMAT = 1;
+
 	private String name;
 	private DimensionInfo[] dimensionInfo;
 	private MeasureInfo[] measureInfo;
 	private int segmentCount;
 	private DimensionDivision[] dimensionDivision;
+	private int format;
 	
 	private IDocumentManager documentManager;
 	private CombinedPositionContructor combinedPositionCalculator;
@@ -42,10 +53,11 @@ public class FactTable
 	 * @param measureInfo
 	 * @param segmentCount
 	 * @param dimensionDivision
+	 * @param format
 	 */
 	FactTable( String name, IDocumentManager documentManager, DimensionInfo[] dimensionInfo,
 			MeasureInfo[] measureInfo, int segmentCount,
-			DimensionDivision[] dimensionDivision )
+			DimensionDivision[] dimensionDivision, int format )
 	{
 		Object[] params = {
 				name,
@@ -62,6 +74,7 @@ public class FactTable
 		this.segmentCount = segmentCount;
 		this.dimensionDivision = dimensionDivision;
 		this.documentManager = documentManager;
+		this.format = format;
 		this.combinedPositionCalculator = new CombinedPositionContructor( dimensionDivision );
 		logger.exiting( FactTable.class.getName( ), "FactTable" );
 	}
@@ -140,6 +153,16 @@ public class FactTable
 	}
 	
 
+	/**
+	 * 
+	 * @return whether the segments are saved in the columnar layout
+	 */
+	public boolean isColumnar( )
+	{
+		return format == COLUMNAR_FORMAT;
+	}
+	
+
 	/**
 	 * 
 	 * @return
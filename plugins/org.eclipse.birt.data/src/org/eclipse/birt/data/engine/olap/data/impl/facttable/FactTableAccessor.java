@@ -13,10 +13,13 @@ package org.eclipse.birt.data.engine.olap.data.impl.facttable;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -47,6 +50,7 @@ import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.Bytes;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.MemberDictionary;
 import org.eclipse.birt.data.engine.olap.data.util.StructureDiskArray;
 
 /**
@@ -58,6 +62,8 @@ public class FactTableAccessor
 	private IDocumentManager documentManager =null;
 	private static Logger logger = Logger.getLogger( FactTableAccessor.class.getName( ) );
 	private long memoryCacheSize = 0;
+	private boolean columnar = true;
+	private int threadCount = 1;
 	
 	public FactTableAccessor( IDocumentManager documentManager )
 	{
@@ -85,6 +91,17 @@ public class FactTableAccessor
 			String[] measureColumnName, String[] measureColumnAggregations, StopSign stopSign )
 			throws BirtException, IOException
 	{
+		if ( threadCount > 1 && memoryCacheSize == 0 )
+		{
+			return saveFactTableInParallel( factTableName,
+					factTableJointColumnNames,
+					DimJointColumnNames,
+					iterator,
+					dimensions,
+					measureColumnName,
+					measureColumnAggregations,
+					stopSign );
+		}
 		FacttableRowContainer sortedFactTableRows = null;
 		if ( measureColumnAggregations == null || measureColumnAggregations.length == 0)
 		{
@@ -101,19 +118,33 @@ public class FactTableAccessor
 					measureColumnAggregations,
 					stopSign );
 		}
-		int segmentCount = getSegmentCount( sortedFactTableRows.size( ) );
-
-		DimensionInfo[] dimensionInfo = getDimensionInfo( dimensions );
 		MeasureInfo[] measureInfo = getMeasureInfo( iterator, measureColumnName );
-		
-		saveFactTableMetadata( factTableName,
-				dimensionInfo,
+
+		DimensionPositionSeeker[] dimensionSeekers = getDimensionSeekers( DimJointColumnNames,
+				dimensions,
+				stopSign );
+		return saveSortedFactTableRows( factTableName,
+				factTableJointColumnNames,
+				sortedFactTableRows,
+				dimensions,
+				dimensionSeekers,
 				measureInfo,
-				segmentCount );
+				stopSign );
+	}
 
-		DimensionDivision[] subDimensions = calculateDimensionDivision( getDimensionMemberCount( dimensions ),
-				segmentCount );
-		
+	/**
+	 * 
+	 * @param DimJointColumnNames
+	 * @param dimensions
+	 * @param stopSign
+	 * @return
+	 * @throws BirtException
+	 * @throws IOException
+	 */
+	private DimensionPositionSeeker[] getDimensionSeekers(
+			String[][] DimJointColumnNames, Dimension[] dimensions,
+			StopSign stopSign ) throws BirtException, IOException
+	{
 		int[][][] columnIndex = getColumnIndex( DimJointColumnNames, dimensions );
 		DimensionPositionSeeker[] dimensionSeekers = new DimensionPositionSeeker[dimensions.length];
 		for ( int i = 0; i < dimensionSeekers.length; i++ )
@@ -121,7 +152,219 @@ public class FactTableAccessor
 			dimensionSeekers[i] = new DimensionPositionSeeker( getDimCombinatedKey( columnIndex[i],
 					dimensions[i].getAllRows( stopSign ) ) );
 		}
-		
+		return dimensionSeekers;
+	}
+
+	/**
+	 * Save the fact table with a ParallelFactTableWriter. The dimension
+	 * positions of the rows are found, and the segments are sorted, aggregated
+	 * and encoded, on the worker threads, while the document manager is only
+	 * accessed by the calling thread. The rows of a segment are saved in the
+	 * order of their dimension positions instead of their dimension keys.
+	 * 
+	 * @param factTableName
+	 * @param factTableJointColumnNames
+	 * @param DimJointColumnNames
+	 * @param iterator
+	 * @param dimensions
+	 * @param measureColumnName
+	 * @param measureColumnAggregations
+	 * @param stopSign
+	 * @return
+	 * @throws BirtException
+	 * @throws IOException
+	 */
+	private FactTable saveFactTableInParallel( String factTableName,
+			String[][] factTableJointColumnNames,
+			String[][] DimJointColumnNames, IDatasetIterator iterator,
+			Dimension[] dimensions, String[] measureColumnName,
+			String[] measureColumnAggregations, StopSign stopSign )
+			throws BirtException, IOException
+	{
+		MeasureInfo[] measureInfo = getMeasureInfo( iterator, measureColumnName );
+		DimensionPositionSeeker[] dimensionSeekers = getDimensionSeekers( DimJointColumnNames,
+				dimensions,
+				stopSign );
+		IAggrFunction[] functions = null;
+		if ( measureColumnAggregations != null
+				&& measureColumnAggregations.length > 0 )
+		{
+			functions = new IAggrFunction[measureColumnAggregations.length];
+			for ( int i = 0; i < measureColumnAggregations.length; i++ )
+			{
+				functions[i] = AggregationManager.getInstance( )
+						.getAggregation( measureColumnAggregations[i] );
+			}
+		}
+		ParallelFactTableWriter writer = new ParallelFactTableWriter( threadCount,
+				columnar,
+				stopSign );
+		try
+		{
+			writer.readRows( factTableName,
+					iterator,
+					factTableJointColumnNames,
+					measureColumnName,
+					dimensions,
+					dimensionSeekers );
+			int segmentCount = getSegmentCount( writer.getRowCount( ) );
+			DimensionInfo[] dimensionInfo = getDimensionInfo( dimensions );
+			int format = columnar ? FactTable.COLUMNAR_FORMAT
+					: FactTable.ROW_FORMAT;
+			saveFactTableMetadata( factTableName,
+					dimensionInfo,
+					measureInfo,
+					segmentCount,
+					format );
+			DimensionDivision[] subDimensions = calculateDimensionDivision( getDimensionMemberCount( dimensions ),
+					segmentCount );
+			FTSUNameSaveHelper saveHelper = new FTSUNameSaveHelper( documentManager,
+					factTableName );
+			writer.writeSegments( documentManager,
+					factTableName,
+					subDimensions,
+					new CombinedPositionContructor( subDimensions ),
+					measureInfo,
+					functions,
+					saveHelper );
+			saveHelper.save( );
+			if ( writer.getInvalidRowCount( ) > 0 )
+			{
+				logger.warning( "The fact table of cube "
+						+ factTableName + " has "
+						+ writer.getInvalidRowCount( )
+						+ "invalid rows where the value of dimension key does not exist in dimension." );
+			}
+			documentManager.flush( );
+			return new FactTable( factTableName,
+					documentManager,
+					dimensionInfo,
+					measureInfo,
+					segmentCount,
+					subDimensions,
+					format );
+		}
+		finally
+		{
+			writer.close( );
+		}
+	}
+
+	/**
+	 * Save a rollup of the fact table. Each row of the rollup is an aggregation
+	 * of the fact table rows whose dimension positions are mapped to the same
+	 * positions by the rollup positions, and each measure of the rollup is
+	 * calculated by the aggregation function on a measure of the fact table.
+	 *
+	 * @param rollupName
+	 * @param factTables
+	 *            the parts of the fact table
+	 * @param dimensions
+	 * @param rollupPositions
+	 *            the rollup position of each dimension position; null if the
+	 *            positions of the dimension are kept
+	 * @param measureIndex
+	 *            the index of the fact table measure of each rollup measure
+	 * @param rollupMeasureInfo
+	 * @param measureAggregations
+	 * @param stopSign
+	 * @return the row count of the rollup
+	 * @throws BirtException
+	 * @throws IOException
+	 */
+	public int saveRollupFactTable( String rollupName, FactTable[] factTables,
+			Dimension[] dimensions, int[][] rollupPositions,
+			int[] measureIndex, MeasureInfo[] rollupMeasureInfo,
+			String[] measureAggregations, StopSign stopSign )
+			throws BirtException, IOException
+	{
+		DiskSortedStack sortedRows = new DiskSortedStack( 10000,
+				true,
+				false,
+				FactTableRow.getCreator( ) );
+		sortedRows.setUseMemoryOnly( memoryCacheSize == 0 );
+		for ( int part = 0; part < factTables.length; part++ )
+		{
+			FactTableRowIterator iterator = new FactTableRowIterator( factTables[part],
+					new String[0],
+					new IDiskArray[0],
+					stopSign );
+			while ( iterator.next( ) && !stopSign.isStopped( ) )
+			{
+				DimensionKey[] dimensionKeys = new DimensionKey[dimensions.length];
+				for ( int i = 0; i < dimensionKeys.length; i++ )
+				{
+					int position = iterator.getDimensionPosition( i );
+					if ( rollupPositions[i] != null )
+					{
+						position = rollupPositions[i][position];
+					}
+					dimensionKeys[i] = new DimensionKey( 1 );
+					dimensionKeys[i].getKeyValues( )[0] = Integer.valueOf( position );
+				}
+				Object[] measures = new Object[measureIndex.length];
+				for ( int i = 0; i < measures.length; i++ )
+				{
+					measures[i] = iterator.getMeasure( measureIndex[i] );
+				}
+				FactTableRow factTableRow = new FactTableRow( );
+				factTableRow.setDimensionKeys( dimensionKeys );
+				factTableRow.setMeasures( measures );
+				sortedRows.push( factTableRow );
+			}
+			iterator.close( );
+		}
+		FacttableRowContainer aggregatedRows = aggregateSortedFacttableRows( sortedRows,
+				measureAggregations,
+				stopSign );
+		int rowCount = aggregatedRows.size( );
+		saveSortedFactTableRows( rollupName,
+				null,
+				aggregatedRows,
+				dimensions,
+				null,
+				rollupMeasureInfo,
+				stopSign );
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @param factTableName
+	 * @param factTableJointColumnNames
+	 * @param sortedFactTableRows
+	 * @param dimensions
+	 * @param dimensionSeekers
+	 *            the seekers of the dimension positions by the dimension keys;
+	 *            null if each dimension key holds the dimension position
+	 * @param measureInfo
+	 * @param stopSign
+	 * @return
+	 * @throws BirtException
+	 * @throws IOException
+	 */
+	private FactTable saveSortedFactTableRows( String factTableName,
+			String[][] factTableJointColumnNames,
+			FacttableRowContainer sortedFactTableRows, Dimension[] dimensions,
+			DimensionPositionSeeker[] dimensionSeekers,
+			MeasureInfo[] measureInfo, StopSign stopSign )
+			throws BirtException, IOException
+	{
+		int segmentCount = getSegmentCount( sortedFactTableRows.size( ) );
+
+		DimensionInfo[] dimensionInfo = getDimensionInfo( dimensions );
+
+		int format = columnar ? FactTable.COLUMNAR_FORMAT
+				: FactTable.ROW_FORMAT;
+		saveFactTableMetadata( factTableName,
+				dimensionInfo,
+				measureInfo,
+				segmentCount,
+				format );
+
+		DimensionDivision[] subDimensions = calculateDimensionDivision( getDimensionMemberCount( dimensions ),
+				segmentCount );
+
 		int[] dimensionPosition = new int[dimensions.length];
 		DocumentObjectCache documentObjectManager = new DocumentObjectCache( documentManager );
 		CombinedPositionContructor combinedPositionCalculator = new CombinedPositionContructor( subDimensions );
@@ -135,6 +378,11 @@ public class FactTableAccessor
 			invalidDimensionKey = false;
 			for ( int i = 0; i < dimensionPosition.length; i++ )
 			{
+				if ( dimensionSeekers == null )
+				{
+					dimensionPosition[i] = ( (Integer) currentRow.getDimensionKeys( )[i].getKeyValues( )[0] ).intValue( );
+					continue;
+				}
 				dimensionPosition[i] = dimensionSeekers[i].find( currentRow.getDimensionKeys()[i] );
 				if ( dimensionPosition[i] < 0 )
 				{
@@ -159,7 +407,13 @@ public class FactTableAccessor
 			String FTSUDocName = FTSUDocumentObjectNamingUtil.getDocumentObjectName( 
 					NamingUtil.getFactTableName( factTableName ),
 					subDimensionIndex );
-			saveHelper.add( FTSUDocName );
+			if ( saveHelper.add( FTSUDocName, subDimensionIndex )
+					&& documentManager.exist( FTSUDocName ) )
+			{
+				// replace the segment of a previous build of the fact table,
+				// since the cached document objects are appended to
+				documentManager.createDocumentObject( FTSUDocName ).close( );
+			}
 			
 			IDocumentObject documentObject = documentObjectManager.getIDocumentObject( FTSUDocName );
 			documentObject.writeBytes( new Bytes( combinedPositionCalculator.
@@ -181,29 +435,116 @@ public class FactTableAccessor
 				+ "invalid rows where the value of dimension key does not exist in dimension.");
 		}
 		documentObjectManager.closeAll( );
+		if ( columnar )
+		{
+			saveColumnarSegments( saveHelper,
+					combinedPositionCalculator,
+					dimensions.length,
+					measureInfo,
+					stopSign );
+		}
 		documentManager.flush( );
 		return new FactTable( factTableName,
 				documentManager,
 				dimensionInfo,
 				measureInfo,
 				segmentCount,
-				subDimensions);
+				subDimensions,
+				format );
 		
 	}
 
+	/**
+	 * Convert the segments saved in the row layout to the columnar layout. The
+	 * rows of a segment are read into memory and encoded by
+	 * ColumnarFactTableSegment in a memory document object, which is then
+	 * copied over the segment, as ParallelFactTableWriter does. Encoding it
+	 * in place, where ColumnarFactTableSegment seeks back to write the offsets
+	 * of the measure columns, corrupted the positions of the segment.
+	 * 
+	 * @param saveHelper
+	 * @param combinedPositionCalculator
+	 * @param dimensionCount
+	 * @param measureInfo
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void saveColumnarSegments( FTSUNameSaveHelper saveHelper,
+			CombinedPositionContructor combinedPositionCalculator,
+			int dimensionCount, MeasureInfo[] measureInfo, StopSign stopSign )
+			throws IOException, DataException
+	{
+		int[] measureDataType = new int[measureInfo.length];
+		for ( int i = 0; i < measureDataType.length; i++ )
+		{
+			measureDataType[i] = measureInfo[i].getDataType( );
+		}
+		Iterator segmentIterator = saveHelper.getSegments( )
+				.entrySet( )
+				.iterator( );
+		while ( segmentIterator.hasNext( ) && !stopSign.isStopped( ) )
+		{
+			Map.Entry segment = (Map.Entry) segmentIterator.next( );
+			int[] subDimensionIndex = (int[]) segment.getValue( );
+			IDocumentObject documentObject = documentManager.openDocumentObject( (String) segment.getKey( ) );
+			List dimensionPositions = new ArrayList( );
+			List measureValues = new ArrayList( );
+			long length = documentObject.length( );
+			documentObject.seek( 0 );
+			while ( documentObject.getFilePointer( ) < length )
+			{
+				dimensionPositions.add( combinedPositionCalculator.calculateDimensionPosition( subDimensionIndex,
+						documentObject.readBytes( ).bytesValue( ) ) );
+				measureValues.add( DocumentObjectUtil.readValue( documentObject,
+						measureDataType ) );
+			}
+			IDocumentObject encodedSegment = DocumentObjectUtil.createMemoryDocumentObject( );
+			ColumnarFactTableSegment.save( encodedSegment,
+					(int[][]) dimensionPositions.toArray( new int[dimensionPositions.size( )][] ),
+					(Object[][]) measureValues.toArray( new Object[measureValues.size( )][] ),
+					dimensionCount,
+					measureInfo );
+			documentObject.seek( 0 );
+			DocumentObjectUtil.copy( encodedSegment, documentObject );
+			documentObject.setLength( encodedSegment.length( ) );
+			documentObject.close( );
+			encodedSegment.close( );
+		}
+	}
+
 	private FacttableRowContainer populatedSortedFacttableRowsWithAggregationCalculation(
 			String[][] factTableJointColumnNames, IDatasetIterator iterator,
 			String[] measureColumnName, String[] measureColumnAggregations,
 			StopSign stopSign ) throws BirtException, IOException,
 			DataException
 	{
-		FacttableRowContainer sortedFactTableRows;
 		DiskSortedStack sortedRows = getSortedFactTableRows( iterator,
 				factTableJointColumnNames,
 				measureColumnName,
 				false,
 				stopSign );
-		
+		return aggregateSortedFacttableRows( sortedRows,
+				measureColumnAggregations,
+				stopSign );
+	}
+
+	/**
+	 * Aggregate the measures of the sorted rows which have the same dimension
+	 * keys.
+	 *
+	 * @param sortedRows
+	 * @param measureColumnAggregations
+	 * @param stopSign
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private FacttableRowContainer aggregateSortedFacttableRows(
+			DiskSortedStack sortedRows, String[] measureColumnAggregations,
+			StopSign stopSign ) throws DataException, IOException
+	{
+		FacttableRowContainer sortedFactTableRows;
 		final StructureDiskArray aggregatedRows = new StructureDiskArray( FactTableRow.getCreator( ) );
 		IAggrFunction[] functions = new IAggrFunction[measureColumnAggregations.length];
 		for ( int i = 0; i < measureColumnAggregations.length; i++ )
@@ -455,12 +796,13 @@ public class FactTableAccessor
 	 * @param dimensionInfo
 	 * @param measureInfo
 	 * @param segmentNumber
+	 * @param format
 	 * @throws IOException
 	 * @throws BirtException
 	 */
 	private void saveFactTableMetadata( String factTableName,
 			DimensionInfo[] dimensionInfo, MeasureInfo[] measureInfo,
-			int segmentNumber ) throws IOException, BirtException
+			int segmentNumber, int format ) throws IOException, BirtException
 	{
 		IDocumentObject documentObject = 
 			documentManager.createDocumentObject( NamingUtil.getFactTableName( factTableName ) );
@@ -480,6 +822,8 @@ public class FactTableAccessor
 		}
 		// write segment count
 		documentObject.writeInt( segmentNumber );
+		// write segment format
+		documentObject.writeInt( format );
 		documentObject.close( );
 	}
 	
@@ -488,6 +832,29 @@ public class FactTableAccessor
 		this.memoryCacheSize = memoryCacheSize;
 	}
 
+	/**
+	 * Set the number of threads which save a fact table. When it is greater
+	 * than 1 and no memory cache size is set, the rows are positioned and the
+	 * segments are sorted and encoded by a pool of worker threads.
+	 * 
+	 * @param threadCount
+	 */
+	public void setThreadCount( int threadCount )
+	{
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Set whether the segments of the saved fact tables are in the columnar
+	 * layout, which is the default. Fact tables in both layouts can be loaded.
+	 * 
+	 * @param columnar
+	 */
+	public void setColumnar( boolean columnar )
+	{
+		this.columnar = columnar;
+	}
+
 	private static int getObjectSize( int[] dataType) {
 		int size = 0;
 		for( int i = 0; i < dataType.length; i++ )
@@ -646,7 +1013,7 @@ public class FactTableAccessor
 	 * @param dimensionDivision
 	 * @return
 	 */
-	private static int[] getSubDimensionIndex( int[] dimensionPosition,
+	static int[] getSubDimensionIndex( int[] dimensionPosition,
 			DimensionDivision[] dimensionDivision )
 	{
 		assert dimensionPosition.length == dimensionDivision.length;
@@ -684,6 +1051,12 @@ public class FactTableAccessor
 			measureInfo[i] = new MeasureInfo(documentObject.readString( ), documentObject.readInt( ));
 		}
 		segmentNumber = documentObject.readInt( );
+		// the fact tables saved by earlier versions have no segment format
+		int format = FactTable.ROW_FORMAT;
+		if ( documentObject.getFilePointer( ) < documentObject.length( ) )
+		{
+			format = documentObject.readInt( );
+		}
 		
 		int[] dimensionMemberCount = new int[dimensionInfo.length];
 		for( int i = 0;i<dimensionInfo.length;i++)
@@ -698,7 +1071,8 @@ public class FactTableAccessor
 				dimensionInfo,
 				measureInfo,
 				segmentNumber,
-				subDimensions ); 
+				subDimensions,
+				format ); 
 	}
 	
 	/**
@@ -783,13 +1157,26 @@ class FTSUNameSaveHelper
 	/**
 	 * 
 	 * @param name
+	 * @param subDimensionIndex
+	 * @return whether the segment is added for the first time
 	 */
-	void add( String name )
+	boolean add( String name, int[] subDimensionIndex )
 	{
 		if ( !map.containsKey( name ) )
 		{
-			map.put( name, null );
+			map.put( name, subDimensionIndex.clone( ) );
+			return true;
 		}
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @return the map of segment name and sub dimension index
+	 */
+	Map getSegments( )
+	{
+		return map;
 	}
 	
 	/**
@@ -888,6 +1275,7 @@ class DimensionDivider
 	{
 		private IDiskArray diskMemberArray;
 		private DimensionKey[] memberArray;
+		private MemberDictionary memberDictionary;
 		private int diskPostion;
 		private int position;
 
@@ -908,9 +1296,22 @@ class DimensionDivider
 			{
 				this.memberArray = new DimensionKey[members.size( )];
 			}
+			Object[][] keyValues = new Object[memberArray.length][];
+			boolean distinct = true;
 			for ( int i = 0; i < memberArray.length; i++ )
 			{
 				memberArray[i] = (DimensionKey) members.get( i );
+				keyValues[i] = memberArray[i].getKeyValues( );
+				if ( i > 0 && memberArray[i - 1].compareTo( memberArray[i] ) == 0 )
+				{
+					distinct = false;
+				}
+			}
+			// the dictionary needs distinct keys. When several dimension rows
+			// share a key, the binary search keeps picking the same row of them.
+			if ( distinct )
+			{
+				this.memberDictionary = new MemberDictionary( keyValues );
 			}
 			if ( members.size( ) > memberArray.length )
 			{
@@ -951,7 +1352,7 @@ class DimensionDivider
 		 */
 		int find( DimensionKey key ) throws IOException
 		{
-			int result = binarySearch( key );
+			int result = findInMemory( key );
 			if ( result >= 0 )
 			{
 				return result;
@@ -968,9 +1369,11 @@ class DimensionDivider
 		 * @param key
 		 * @return
 		 */
-		private int binarySearch( DimensionKey key )
+		private int findInMemory( DimensionKey key )
 		{
-			int result = Arrays.binarySearch( memberArray, key );
+			int result = memberDictionary != null
+					? memberDictionary.indexOf( key.getKeyValues( ) )
+					: Arrays.binarySearch( memberArray, key );
 			if( result >= 0 )
 			{
 				return memberArray[result].getDimensionPos();
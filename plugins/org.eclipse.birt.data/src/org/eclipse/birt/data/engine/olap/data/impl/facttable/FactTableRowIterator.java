@@ -14,7 +14,6 @@ package org.eclipse.birt.data.engine.olap.data.impl.facttable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -37,6 +36,7 @@ import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableAccessor.F
 import org.eclipse.birt.data.engine.olap.data.util.Bytes;
 import org.eclipse.birt.data.engine.olap.data.util.DataType;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.PositionBitmap;
 import org.eclipse.birt.data.engine.olap.util.filter.ICubePosFilter;
 import org.eclipse.birt.data.engine.olap.util.filter.IFacttableRow;
 import org.eclipse.birt.data.engine.olap.util.filter.IJSFacttableFilterEvalHelper;
@@ -57,6 +57,8 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	private List[] selectedSubDim = null;
 
 	private IDocumentObject currentSegment;
+	private ColumnarFactTableSegment columnarSegment;
+	private int currentRow;
 	private int[] currentPos;
 	private Object[] currentMeasureValues;		//current values for measures
 	private MeasureMap currentMeasureMap;	//<name, value> map for current measures
@@ -66,6 +68,7 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	private StopSign stopSign;
 	
 	private int[][] selectedPosOfCurSegment;
+	private PositionBitmap[] selectedBitmapOfCurSegment;
 	
 	private IComputedMeasureHelper computedMeasureHelper;
 
@@ -84,6 +87,10 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	private boolean readMeasure = false;
 	private int[] measureSize;
 	
+	//whether the segments are read into the iterators of single segment
+	private boolean segmentSplit = false;
+	private boolean singleSegment = false;
+	
 	/**
 	 * 
 	 * @param factTable
@@ -119,6 +126,7 @@ public class FactTableRowIterator implements IFactTableRowIterator
 		this.selectedPos = dimensionPos;
 		this.selectedSubDim = new List[factTable.getDimensionInfo( ).length];
 		this.selectedPosOfCurSegment = new int[factTable.getDimensionInfo( ).length][];
+		this.selectedBitmapOfCurSegment = new PositionBitmap[factTable.getDimensionInfo( ).length];
 		this.stopSign = stopSign;
 		this.measureFilters = new ArrayList( );
 		this.cubePosFilters = new ArrayList( );
@@ -161,6 +169,47 @@ public class FactTableRowIterator implements IFactTableRowIterator
 				"FactTableRowIterator" );
 	}
 
+	/**
+	 * Create an iterator on the rows of the current segment of the given
+	 * iterator. The segment has been read into memory and the iterator does not
+	 * share any mutable state with the given one, so it can be iterated by
+	 * another thread. Computed measures and measure filters are not supported.
+	 * 
+	 * @param iterator
+	 * @param segment
+	 * @throws IOException
+	 */
+	private FactTableRowIterator( FactTableRowIterator iterator,
+			IDocumentObject segment ) throws IOException
+	{
+		this.factTable = iterator.factTable;
+		this.dimensionIndex = iterator.dimensionIndex;
+		this.subDimensionIndex = iterator.subDimensionIndex;
+		this.selectedPosOfCurSegment = (int[][]) iterator.selectedPosOfCurSegment.clone( );
+		this.selectedBitmapOfCurSegment = (PositionBitmap[]) iterator.selectedBitmapOfCurSegment.clone( );
+		this.stopSign = iterator.stopSign;
+		this.measureSize = iterator.measureSize;
+		this.measureFilters = new ArrayList( );
+		this.cubePosFilters = new ArrayList( );
+		for ( int i = 0; i < iterator.cubePosFilters.size( ); i++ )
+		{
+			addCubePosFilter( ( (CubePosFilterHelper) iterator.cubePosFilters.get( i ) ).getCubePosFilter( ) );
+		}
+		this.currentPos = new int[factTable.getDimensionInfo( ).length];
+		this.currentMeasureValues = new Object[factTable.getMeasureInfo( ).length];
+		this.currentMeasureMap = new MeasureMap( this.factTable.getMeasureInfo( ) );
+		computeAllMeasureInfo( );
+		
+		this.singleSegment = true;
+		this.currentSegment = segment;
+		if ( factTable.isColumnar( ) )
+		{
+			columnarSegment = new ColumnarFactTableSegment( currentSegment,
+					factTable.getMeasureInfo( ) );
+			currentRow = -1;
+		}
+	}
+
 	/**
 	 * Filter sub dimensions by dimension position array. The filter result is
 	 * saved in the variable selectedSubDim.
@@ -224,6 +273,10 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	 */
 	public boolean next( ) throws IOException, DataException
 	{
+		if ( factTable.isColumnar( ) )
+		{
+			return nextColumnarRow( );
+		}
 		while ( !stopSign.isStopped( ) )
 		{
 			try
@@ -266,6 +319,42 @@ public class FactTableRowIterator implements IFactTableRowIterator
 		return next( );
 	}
 	
+	/**
+	 * Moves down one row in the columnar segments. Only the dimension
+	 * positions are decoded here, the measure columns are decoded when a
+	 * measure is accessed.
+	 * 
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private boolean nextColumnarRow( ) throws IOException, DataException
+	{
+		while ( columnarSegment != null && !stopSign.isStopped( ) )
+		{
+			while ( ++currentRow < columnarSegment.getRowCount( ) )
+			{
+				currentPos = columnarSegment.getDimensionPosition( currentRow );
+				readMeasure = false;
+				if ( isSelectedRow( ) )
+				{
+					if ( !readMeasure )
+						readMeasure( );
+					return true;
+				}
+				if ( stopSign.isStopped( ) )
+				{
+					return false;
+				}
+			}
+			if ( !nextSegment( ) )
+			{
+				return false;
+			}
+		}
+		return false;
+	}
+	
 	public Member getMember( int dimIndex, int levelIndex )
 			throws DataException, IOException
 	{
@@ -351,7 +440,7 @@ public class FactTableRowIterator implements IFactTableRowIterator
 		{
 			if ( dimensionIndex[i] != -1 )
 			{
-				if( Arrays.binarySearch( selectedPosOfCurSegment[i], currentPos[i] ) < 0 )
+				if( !selectedBitmapOfCurSegment[i].contains( currentPos[i] ) )
 					return false;
 			}
 		}
@@ -401,12 +490,14 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	 */
 	private void readMeasure() throws IOException, DataException
 	{
-		for ( int i = 0; i < this.currentMeasureValues.length; i++ )
+		if ( columnarSegment == null )
 		{
-			currentMeasureValues[i] = DocumentObjectUtil.readValue( currentSegment,
-				factTable.getMeasureInfo()[i].getDataType( ) );
+			for ( int i = 0; i < this.currentMeasureValues.length; i++ )
+			{
+				currentMeasureValues[i] = DocumentObjectUtil.readValue( currentSegment,
+						factTable.getMeasureInfo( )[i].getDataType( ) );
+			}
 		}
-		currentMeasureMap.setMeasureValue( currentMeasureValues );
 		if ( computedMeasureHelper != null )
 		{
 			try
@@ -450,6 +541,10 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	 */
 	private boolean nextSegment( ) throws IOException
 	{
+		if ( singleSegment )
+		{
+			return false;
+		}
 		while ( true )
 		{
 			if ( stopSign.isStopped( ) )
@@ -473,6 +568,12 @@ public class FactTableRowIterator implements IFactTableRowIterator
 				currentSegment.close( );
 			
 			currentSegment = factTable.getDocumentManager( ).openDocumentObject( FTSUDocName );
+			if ( factTable.isColumnar( ) )
+			{
+				columnarSegment = new ColumnarFactTableSegment( currentSegment,
+						factTable.getMeasureInfo( ) );
+				currentRow = -1;
+			}
 			
 			for ( int i = 0; i < dimensionIndex.length; i++ )
 			{
@@ -487,13 +588,74 @@ public class FactTableRowIterator implements IFactTableRowIterator
 						selectedPosOfCurSegment[i][j] = ( (Integer) selectedPos[dimensionIndex[i]].get( selectedSubDimension.start
 								+ j ) ).intValue( );
 					}
+					selectedBitmapOfCurSegment[i] = PositionBitmap.valueOf( selectedPosOfCurSegment[i] );
 				}
 			}
+			if ( columnarSegment != null && !isSelectedSegment( ) )
+			{
+				currentSegment.close( );
+				currentSegment = null;
+				columnarSegment = null;
+				continue;
+			}
 			break;
 		}
 		return true;
 	}
 
+	/**
+	 * Moves down one segment and returns an iterator on the selected rows of
+	 * it. The segment is read into memory by the current thread, and the
+	 * returned iterator can be iterated by another thread, so that the
+	 * segments are decoded and filtered in parallel while the document is only
+	 * accessed by one thread. This iterator can not be iterated by next()
+	 * any more once this method is called.
+	 * 
+	 * @return the iterator on the next segment, or null if there is no more
+	 *         segment
+	 * @throws IOException
+	 */
+	FactTableRowIterator nextSegmentIterator( ) throws IOException
+	{
+		assert !existMeasureFilter && computedMeasureHelper == null;
+		if ( segmentSplit )
+		{
+			if ( !nextSegment( ) )
+			{
+				return null;
+			}
+		}
+		else if ( currentSegment == null )
+		{
+			return null;
+		}
+		segmentSplit = true;
+		IDocumentObject segment = DocumentObjectUtil.readToMemory( currentSegment );
+		currentSegment.close( );
+		currentSegment = null;
+		columnarSegment = null;
+		return new FactTableRowIterator( this, segment );
+	}
+
+	/**
+	 * Whether the range of the dimension positions in the current columnar
+	 * segment covers some of the selected positions of each dimension.
+	 * 
+	 * @return
+	 */
+	private boolean isSelectedSegment( )
+	{
+		for ( int i = 0; i < dimensionIndex.length; i++ )
+		{
+			if ( dimensionIndex[i] != -1
+					&& !columnarSegment.isInRange( i, selectedPosOfCurSegment[i] ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionCount()
@@ -571,10 +733,21 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasure(int)
 	 */
-	public Object getMeasure( int measureIndex )
+	public Object getMeasure( int measureIndex ) throws DataException
 	{
 		if ( measureIndex < currentMeasureValues.length )
 		{
+			if ( columnarSegment != null )
+			{
+				try
+				{
+					return columnarSegment.getMeasure( measureIndex, currentRow );
+				}
+				catch ( IOException e )
+				{
+					throw new DataException( e.getLocalizedMessage( ), e );
+				}
+			}
 			return currentMeasureValues[measureIndex];
 		}
 		else
@@ -653,7 +826,6 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	class MeasureMap implements IFacttableRow
 	{
 		private MeasureInfo[] measureInfos = null;
-		private Object[] measureValues = null;
 		/**
 		 * 
 		 * @param measureInfo
@@ -663,26 +835,17 @@ public class FactTableRowIterator implements IFactTableRowIterator
 			this.measureInfos = measureInfo;
 		}
 		
-		/**
-		 * 
-		 * @param measureValues
-		 */
-		void setMeasureValue( Object[] measureValues )
-		{
-			this.measureValues = measureValues;
-		}
-		
 		/*
 		 * (non-Javadoc)
 		 * @see org.eclipse.birt.data.engine.olap.data.api.IMeasureList#getMeasureValue(java.lang.String)
 		 */
-		public Object getMeasureValue( String measureName )
+		public Object getMeasureValue( String measureName ) throws DataException
 		{
 			for ( int i = 0; i < measureInfos.length; i++ )
 			{
 				if ( measureInfos[i].getMeasureName().equals( measureName ) )
 				{
-					return measureValues[i];
+					return getMeasure( i );
 				}
 			}
 			return null;
@@ -782,6 +945,11 @@ class CubePosFilterHelper
 		this.filterDimPos = new int[filterDimensionNames.length];
 	}
 	
+	ICubePosFilter getCubePosFilter( )
+	{
+		return cubePosFilter;
+	}
+	
 	boolean getFilterResult( int[] dimensionPositions )
 	{
 		for ( int i = 0; i < filterDimensionIndexes.length; i++ )
@@ -52,8 +52,9 @@ public interface IFactTableRowIterator
 	 * 
 	 * @param measureIndex
 	 * @return
+	 * @throws DataException
 	 */
-	public Object getMeasure( int measureIndex );
+	public Object getMeasure( int measureIndex ) throws DataException;
 	
 	/**
 	 * 
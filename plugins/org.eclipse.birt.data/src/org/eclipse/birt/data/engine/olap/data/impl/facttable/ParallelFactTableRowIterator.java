@@ -0,0 +1,560 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.eclipse.birt.data.engine.olap.util.filter.ICubePosFilter;
+
+/**
+ * An iterator on the rows of a fact table which decodes and filters the fact
+ * table segments on the worker threads of an executor shared by the queries of
+ * a data engine. The segments are read from the document by the thread which
+ * calls next(), since the document manager can not be accessed concurrently,
+ * and the selected rows of each segment are collected by a worker. The rows
+ * are returned in the same order as FactTableRowIterator does, and at most
+ * twice as many segments as the worker threads are read ahead of the current
+ * one. If a segment aggregation is set, the workers return the partial
+ * aggregations of the segments instead of their rows. Measure filters and
+ * computed measures are not supported, since the script scopes they are
+ * evaluated in can not be shared by threads.
+ */
+
+public class ParallelFactTableRowIterator implements IFactTableRowIterator
+{
+	private FactTable factTable;
+	private FactTableRowIterator segmentIterator;
+	private int threadCount;
+	private StopSign stopSign;
+	private SegmentAggregation segmentAggregation;
+	private int[][] positionMaps;
+	private int[] measureIndex;
+
+	private ExecutorService executor;
+	private boolean started = false;
+	private LinkedList pendingSegments;
+	private boolean noMoreSegment = false;
+
+	private List currentRows;
+	private int currentRowIndex;
+	private Row currentRow;
+
+	/**
+	 *
+	 * @param factTable
+	 * @param dimensionName
+	 * @param dimensionPos
+	 * @param executor
+	 *            the executor the segments are scanned on, which is not shut
+	 *            down by this iterator
+	 * @param threadCount
+	 *            the number of threads the segments are read ahead for
+	 * @param stopSign
+	 * @throws IOException
+	 */
+	public ParallelFactTableRowIterator( FactTable factTable,
+			String[] dimensionName, IDiskArray[] dimensionPos,
+			ExecutorService executor, int threadCount, StopSign stopSign )
+			throws IOException
+	{
+		this.factTable = factTable;
+		this.segmentIterator = new FactTableRowIterator( factTable,
+				dimensionName,
+				dimensionPos,
+				stopSign );
+		this.executor = executor;
+		this.threadCount = Math.max( 1, threadCount );
+		this.stopSign = stopSign;
+		this.pendingSegments = new LinkedList( );
+	}
+
+	/**
+	 * Create an executor of daemon threads to scan the fact table segments.
+	 * The number of its threads can be raised later by
+	 * ThreadPoolExecutor.setMaximumPoolSize and setCorePoolSize.
+	 *
+	 * @param threadCount
+	 * @return
+	 */
+	public static ThreadPoolExecutor newExecutor( int threadCount )
+	{
+		threadCount = Math.max( 1, threadCount );
+		return new ThreadPoolExecutor( threadCount,
+				threadCount,
+				0L,
+				TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>( ),
+				new WorkerThreadFactory( ) );
+	}
+
+	/**
+	 * The cube position filters must be added before the first call of
+	 * next().
+	 *
+	 * @param cubePosFilter
+	 */
+	public void addCubePosFilter( ICubePosFilter cubePosFilter )
+	{
+		assert !started;
+		segmentIterator.addCubePosFilter( cubePosFilter );
+	}
+
+	/**
+	 * Let the workers return the partial aggregations of the segments, whose
+	 * measures are the partial measures of the segment aggregation. It must be
+	 * set before the first call of next().
+	 * 
+	 * @param segmentAggregation
+	 */
+	public void setSegmentAggregation( SegmentAggregation segmentAggregation )
+	{
+		assert !started;
+		this.segmentAggregation = segmentAggregation;
+		this.positionMaps = new int[getDimensionCount( )][];
+		String[] dimensionNames = segmentAggregation.getDimensionNames( );
+		for ( int i = 0; i < dimensionNames.length; i++ )
+		{
+			int dimensionIndex = factTable.getDimensionIndex( dimensionNames[i] );
+			if ( dimensionIndex >= 0 )
+			{
+				positionMaps[dimensionIndex] = segmentAggregation.getPositionMaps( )[i];
+			}
+		}
+		String[] measureNames = segmentAggregation.getMeasureNames( );
+		this.measureIndex = new int[measureNames.length];
+		for ( int i = 0; i < measureNames.length; i++ )
+		{
+			measureIndex[i] = measureNames[i] == null ? -1
+					: factTable.getMeasureIndex( measureNames[i] );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#next()
+	 */
+	public boolean next( ) throws IOException, DataException
+	{
+		if ( !started )
+		{
+			started = true;
+			submitSegments( );
+		}
+		while ( !stopSign.isStopped( ) )
+		{
+			if ( currentRows != null && ++currentRowIndex < currentRows.size( ) )
+			{
+				currentRow = (Row) currentRows.get( currentRowIndex );
+				return true;
+			}
+			currentRows = null;
+			if ( pendingSegments.isEmpty( ) )
+			{
+				break;
+			}
+			Future segment = (Future) pendingSegments.removeFirst( );
+			submitSegments( );
+			currentRows = getRows( segment );
+			currentRowIndex = -1;
+		}
+		currentRow = null;
+		shutdown( );
+		return false;
+	}
+
+	/**
+	 * Read the segments ahead of the current one and submit them to the
+	 * workers.
+	 *
+	 * @throws IOException
+	 */
+	private void submitSegments( ) throws IOException
+	{
+		while ( !noMoreSegment
+				&& pendingSegments.size( ) < threadCount * 2
+				&& !stopSign.isStopped( ) )
+		{
+			FactTableRowIterator iterator = segmentIterator.nextSegmentIterator( );
+			if ( iterator == null )
+			{
+				noMoreSegment = true;
+				break;
+			}
+			Callable task;
+			if ( segmentAggregation == null )
+			{
+				task = new SegmentTask( iterator );
+			}
+			else
+			{
+				task = new SegmentAggregationTask( iterator,
+						positionMaps,
+						measureIndex,
+						segmentAggregation.getFunctions( ) );
+			}
+			pendingSegments.add( executor.submit( task ) );
+		}
+	}
+
+	/**
+	 *
+	 * @param segment
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private List getRows( Future segment ) throws IOException,
+			DataException
+	{
+		try
+		{
+			return (List) segment.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new DataException( e.getLocalizedMessage( ), e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof IOException )
+			{
+				throw (IOException) cause;
+			}
+			if ( cause instanceof DataException )
+			{
+				throw (DataException) cause;
+			}
+			throw new DataException( cause.getLocalizedMessage( ), cause );
+		}
+	}
+
+	/**
+	 * Cancel the segments which are not returned yet. The executor is left
+	 * running for the other queries.
+	 */
+	private void shutdown( )
+	{
+		for ( Iterator itr = pendingSegments.iterator( ); itr.hasNext( ); )
+		{
+			( (Future) itr.next( ) ).cancel( true );
+		}
+		pendingSegments.clear( );
+		noMoreSegment = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#close()
+	 */
+	public void close( ) throws DataException, IOException
+	{
+		shutdown( );
+		currentRows = null;
+		segmentIterator.close( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionCount()
+	 */
+	public int getDimensionCount( )
+	{
+		return factTable.getDimensionInfo( ).length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionIndex(java.lang.String)
+	 */
+	public int getDimensionIndex( String dimensionName )
+	{
+		return factTable.getDimensionIndex( dimensionName );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionPosition(int)
+	 */
+	public int getDimensionPosition( int dimensionIndex )
+	{
+		return currentRow.position[dimensionIndex];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionPosition()
+	 */
+	public int[] getDimensionPosition( )
+	{
+		return currentRow.position;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasure(int)
+	 */
+	public Object getMeasure( int measureIndex )
+	{
+		if ( measureIndex < currentRow.measures.length )
+		{
+			return currentRow.measures[measureIndex];
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureCount()
+	 */
+	public int getMeasureCount( )
+	{
+		return getMeasureInfos( ).length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureInfos()
+	 */
+	public MeasureInfo[] getMeasureInfos( )
+	{
+		if ( segmentAggregation != null )
+		{
+			return segmentAggregation.getPartialMeasureInfo( );
+		}
+		return factTable.getMeasureInfo( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureIndex(java.lang.String)
+	 */
+	public int getMeasureIndex( String measureName )
+	{
+		if ( segmentAggregation != null )
+		{
+			return segmentAggregation.getPartialMeasureIndex( measureName );
+		}
+		return factTable.getMeasureIndex( measureName );
+	}
+
+	/**
+	 * A selected row of a segment.
+	 */
+	private static class Row
+	{
+		private int[] position;
+		private Object[] measures;
+
+		Row( int[] position, Object[] measures )
+		{
+			this.position = position;
+			this.measures = measures;
+		}
+	}
+
+	/**
+	 * Collects the selected rows of a segment.
+	 */
+	private static class SegmentTask implements Callable
+	{
+		private FactTableRowIterator iterator;
+
+		SegmentTask( FactTableRowIterator iterator )
+		{
+			this.iterator = iterator;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Object call( ) throws Exception
+		{
+			List rows = new ArrayList( );
+			int measureCount = iterator.getMeasureCount( );
+			try
+			{
+				while ( iterator.next( ) )
+				{
+					Object[] measures = new Object[measureCount];
+					for ( int i = 0; i < measureCount; i++ )
+					{
+						measures[i] = iterator.getMeasure( i );
+					}
+					rows.add( new Row( (int[]) iterator.getDimensionPosition( )
+							.clone( ), measures ) );
+				}
+			}
+			finally
+			{
+				iterator.close( );
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * Aggregates the selected rows of a segment by their mapped dimension
+	 * positions. The groups are returned in the order they are found.
+	 */
+	private static class SegmentAggregationTask implements Callable
+	{
+		private FactTableRowIterator iterator;
+		private int[][] positionMaps;
+		private int[] measureIndex;
+		private IAggrFunction[] functions;
+
+		SegmentAggregationTask( FactTableRowIterator iterator,
+				int[][] positionMaps, int[] measureIndex,
+				IAggrFunction[] functions )
+		{
+			this.iterator = iterator;
+			this.positionMaps = positionMaps;
+			this.measureIndex = measureIndex;
+			this.functions = functions;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Object call( ) throws Exception
+		{
+			Map groups = new LinkedHashMap( );
+			try
+			{
+				while ( iterator.next( ) )
+				{
+					int[] position = (int[]) iterator.getDimensionPosition( )
+							.clone( );
+					for ( int i = 0; i < position.length; i++ )
+					{
+						if ( positionMaps[i] != null )
+						{
+							position[i] = positionMaps[i][position[i]];
+						}
+					}
+					PositionKey key = new PositionKey( position );
+					Accumulator[] accumulators = (Accumulator[]) groups.get( key );
+					if ( accumulators == null )
+					{
+						accumulators = new Accumulator[functions.length];
+						for ( int i = 0; i < accumulators.length; i++ )
+						{
+							accumulators[i] = functions[i].newAccumulator( );
+							accumulators[i].start( );
+						}
+						groups.put( key, accumulators );
+					}
+					for ( int i = 0; i < accumulators.length; i++ )
+					{
+						// a count of the rows is passed no argument
+						accumulators[i].onRow( measureIndex[i] < 0 ? null
+								: new Object[]{
+									iterator.getMeasure( measureIndex[i] )
+								} );
+					}
+				}
+			}
+			finally
+			{
+				iterator.close( );
+			}
+			List rows = new ArrayList( groups.size( ) );
+			for ( Iterator itr = groups.entrySet( ).iterator( ); itr.hasNext( ); )
+			{
+				Map.Entry entry = (Map.Entry) itr.next( );
+				Accumulator[] accumulators = (Accumulator[]) entry.getValue( );
+				Object[] measures = new Object[accumulators.length];
+				for ( int i = 0; i < accumulators.length; i++ )
+				{
+					accumulators[i].finish( );
+					measures[i] = accumulators[i].getValue( );
+				}
+				rows.add( new Row( ( (PositionKey) entry.getKey( ) ).position,
+						measures ) );
+			}
+			return rows;
+		}
+	}
+
+	/**
+	 * The mapped dimension positions of a group of rows.
+	 */
+	private static class PositionKey
+	{
+		private int[] position;
+
+		PositionKey( int[] position )
+		{
+			this.position = position;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode( )
+		{
+			return Arrays.hashCode( position );
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals( Object obj )
+		{
+			return obj instanceof PositionKey
+					&& Arrays.equals( position, ( (PositionKey) obj ).position );
+		}
+	}
+
+	/**
+	 * Creates the daemon worker threads.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory
+	{
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		public Thread newThread( Runnable r )
+		{
+			Thread thread = new Thread( r, "BIRT fact table scan" );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,597 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.api.cube.IDatasetIterator;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentObjectUtil;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionKey;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.CombinedPositionContructor;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.DimensionPositionSeeker;
+import org.eclipse.birt.data.engine.olap.data.util.Bytes;
+
+/**
+ * Saves the rows of a fact table on a pool of worker threads. The rows are
+ * read from the data set by the calling thread in chunks, and the workers find
+ * the dimension positions of the rows of each chunk. Since the segment count
+ * depends on the row count, the rows are divided into segments after all of
+ * them are read; then each segment is sorted, aggregated and encoded into a
+ * document object in memory by a worker. The document manager can not be
+ * accessed concurrently, so the encoded segments are copied into it by the
+ * calling thread, and at most twice as many segments as the worker threads
+ * are encoded ahead of the one being copied. The rows of a segment are saved
+ * in the order of their dimension positions.
+ */
+
+class ParallelFactTableWriter
+{
+	private static final int CHUNK_SIZE = 10000;
+	private static Logger logger = Logger.getLogger( ParallelFactTableWriter.class.getName( ) );
+
+	private int threadCount;
+	private boolean columnar;
+	private StopSign stopSign;
+	private ExecutorService executor;
+
+	private List chunks;
+	private int rowCount;
+	private int invalidRowCount;
+
+	/**
+	 *
+	 * @param threadCount
+	 * @param columnar
+	 * @param stopSign
+	 */
+	ParallelFactTableWriter( int threadCount, boolean columnar,
+			StopSign stopSign )
+	{
+		this.threadCount = Math.max( 1, threadCount );
+		this.columnar = columnar;
+		this.stopSign = stopSign;
+		this.chunks = new ArrayList( );
+		this.executor = Executors.newFixedThreadPool( this.threadCount,
+				new WorkerThreadFactory( ) );
+	}
+
+	/**
+	 * Read all rows of the data set and find their dimension positions. The
+	 * rows whose dimension keys do not exist in the dimensions are dropped.
+	 *
+	 * @param factTableName
+	 * @param iterator
+	 * @param keyColumnNames
+	 * @param measureColumnNames
+	 * @param dimensions
+	 * @param dimensionSeekers
+	 * @throws BirtException
+	 * @throws IOException
+	 */
+	void readRows( String factTableName, IDatasetIterator iterator,
+			String[][] keyColumnNames, String[] measureColumnNames,
+			Dimension[] dimensions, DimensionPositionSeeker[] dimensionSeekers )
+			throws BirtException, IOException
+	{
+		int[][] levelKeyColumnIndex = new int[keyColumnNames.length][];
+		int[] measureColumnIndex = new int[measureColumnNames.length];
+		for ( int i = 0; i < keyColumnNames.length; i++ )
+		{
+			levelKeyColumnIndex[i] = new int[keyColumnNames[i].length];
+			for ( int j = 0; j < keyColumnNames[i].length; j++ )
+			{
+				levelKeyColumnIndex[i][j] = iterator.getFieldIndex( keyColumnNames[i][j] );
+			}
+		}
+		for ( int i = 0; i < measureColumnIndex.length; i++ )
+		{
+			measureColumnIndex[i] = iterator.getFieldIndex( measureColumnNames[i] );
+		}
+
+		List pendingChunks = new ArrayList( );
+		DimensionKey[][] keys = new DimensionKey[CHUNK_SIZE][];
+		Object[][] measures = new Object[CHUNK_SIZE][];
+		int size = 0;
+		while ( iterator.next( ) && !stopSign.isStopped( ) )
+		{
+			DimensionKey[] dimensionKeys = new DimensionKey[levelKeyColumnIndex.length];
+			for ( int i = 0; i < levelKeyColumnIndex.length; i++ )
+			{
+				dimensionKeys[i] = new DimensionKey( levelKeyColumnIndex[i].length );
+				for ( int j = 0; j < levelKeyColumnIndex[i].length; j++ )
+				{
+					if ( levelKeyColumnIndex[i][j] >= 0 )
+						dimensionKeys[i].getKeyValues( )[j] = iterator.getValue( levelKeyColumnIndex[i][j] );
+				}
+			}
+			Object[] rowMeasures = new Object[measureColumnIndex.length];
+			for ( int i = 0; i < measureColumnIndex.length; i++ )
+			{
+				rowMeasures[i] = iterator.getValue( measureColumnIndex[i] );
+			}
+			keys[size] = dimensionKeys;
+			measures[size] = rowMeasures;
+			size++;
+			if ( size == CHUNK_SIZE )
+			{
+				pendingChunks.add( executor.submit( new PositionTask( factTableName,
+						keyColumnNames,
+						dimensions,
+						dimensionSeekers,
+						keys,
+						measures,
+						size ) ) );
+				keys = new DimensionKey[CHUNK_SIZE][];
+				measures = new Object[CHUNK_SIZE][];
+				size = 0;
+			}
+		}
+		if ( size > 0 )
+		{
+			pendingChunks.add( executor.submit( new PositionTask( factTableName,
+					keyColumnNames,
+					dimensions,
+					dimensionSeekers,
+					keys,
+					measures,
+					size ) ) );
+		}
+		for ( int i = 0; i < pendingChunks.size( ); i++ )
+		{
+			RowChunk chunk = (RowChunk) getResult( (Future) pendingChunks.get( i ) );
+			rowCount += chunk.rows.length;
+			invalidRowCount += chunk.invalidRowCount;
+			chunks.add( chunk );
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of rows whose dimension positions are found
+	 */
+	int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @return the number of rows whose dimension keys do not exist in the
+	 *         dimensions
+	 */
+	int getInvalidRowCount( )
+	{
+		return invalidRowCount;
+	}
+
+	/**
+	 * Divide the rows into segments, and save each segment in a document
+	 * object of the document manager.
+	 *
+	 * @param documentManager
+	 * @param factTableName
+	 * @param subDimensions
+	 * @param combinedPositionCalculator
+	 * @param measureInfo
+	 * @param aggregationFunctions
+	 *            the functions which aggregate the measures of the rows with
+	 *            the same dimension positions; null if the rows are not
+	 *            aggregated
+	 * @param saveHelper
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	void writeSegments( IDocumentManager documentManager,
+			String factTableName, DimensionDivision[] subDimensions,
+			CombinedPositionContructor combinedPositionCalculator,
+			MeasureInfo[] measureInfo, IAggrFunction[] aggregationFunctions,
+			FTSUNameSaveHelper saveHelper ) throws IOException, DataException
+	{
+		Map segments = new TreeMap( );
+		for ( int i = 0; i < chunks.size( ) && !stopSign.isStopped( ); i++ )
+		{
+			Row[] rows = ( (RowChunk) chunks.get( i ) ).rows;
+			for ( int j = 0; j < rows.length; j++ )
+			{
+				int[] subDimensionIndex = FactTableAccessor.getSubDimensionIndex( rows[j].position,
+						subDimensions );
+				Long segmentKey = Long.valueOf( getSegmentKey( subDimensionIndex,
+						subDimensions ) );
+				Segment segment = (Segment) segments.get( segmentKey );
+				if ( segment == null )
+				{
+					segment = new Segment( FactTableAccessor.FTSUDocumentObjectNamingUtil.getDocumentObjectName( NamingUtil.getFactTableName( factTableName ),
+							subDimensionIndex ),
+							subDimensionIndex );
+					segments.put( segmentKey, segment );
+				}
+				segment.rows.add( rows[j] );
+			}
+		}
+		chunks.clear( );
+
+		LinkedList pendingSegments = new LinkedList( );
+		Iterator segmentIterator = segments.values( ).iterator( );
+		while ( !stopSign.isStopped( ) )
+		{
+			while ( segmentIterator.hasNext( )
+					&& pendingSegments.size( ) < threadCount * 2 )
+			{
+				Segment segment = (Segment) segmentIterator.next( );
+				pendingSegments.add( new Object[]{
+						segment,
+						executor.submit( new SegmentTask( segment,
+								combinedPositionCalculator,
+								measureInfo,
+								aggregationFunctions,
+								columnar ) )
+				} );
+				segmentIterator.remove( );
+			}
+			if ( pendingSegments.isEmpty( ) )
+			{
+				break;
+			}
+			Object[] pending = (Object[]) pendingSegments.removeFirst( );
+			Segment segment = (Segment) pending[0];
+			IDocumentObject encodedSegment = (IDocumentObject) getResult( (Future) pending[1] );
+			IDocumentObject documentObject = documentManager.createDocumentObject( segment.name );
+			DocumentObjectUtil.copy( encodedSegment, documentObject );
+			documentObject.close( );
+			encodedSegment.close( );
+			saveHelper.add( segment.name, segment.subDimensionIndex );
+		}
+	}
+
+	/**
+	 *
+	 * @param subDimensionIndex
+	 * @param subDimensions
+	 * @return a number which identifies the segment
+	 */
+	private static long getSegmentKey( int[] subDimensionIndex,
+			DimensionDivision[] subDimensions )
+	{
+		long key = 0;
+		for ( int i = 0; i < subDimensionIndex.length; i++ )
+		{
+			key = key * subDimensions[i].getRanges( ).length
+					+ subDimensionIndex[i];
+		}
+		return key;
+	}
+
+	/**
+	 *
+	 * @param future
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static Object getResult( Future future ) throws IOException,
+			DataException
+	{
+		try
+		{
+			return future.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			throw new DataException( e.getLocalizedMessage( ), e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof IOException )
+			{
+				throw (IOException) cause;
+			}
+			if ( cause instanceof DataException )
+			{
+				throw (DataException) cause;
+			}
+			throw new DataException( cause.getLocalizedMessage( ), cause );
+		}
+	}
+
+	/**
+	 * Stop the worker threads.
+	 */
+	void close( )
+	{
+		executor.shutdownNow( );
+		chunks.clear( );
+	}
+
+	/**
+	 * A fact table row with its dimension positions.
+	 */
+	private static class Row
+	{
+		private int[] position;
+		private Object[] measures;
+
+		Row( int[] position, Object[] measures )
+		{
+			this.position = position;
+			this.measures = measures;
+		}
+	}
+
+	/**
+	 * The rows of a chunk whose dimension positions are found.
+	 */
+	private static class RowChunk
+	{
+		private Row[] rows;
+		private int invalidRowCount;
+
+		RowChunk( Row[] rows, int invalidRowCount )
+		{
+			this.rows = rows;
+			this.invalidRowCount = invalidRowCount;
+		}
+	}
+
+	/**
+	 * The rows of a segment.
+	 */
+	private static class Segment
+	{
+		private String name;
+		private int[] subDimensionIndex;
+		private List rows;
+
+		Segment( String name, int[] subDimensionIndex )
+		{
+			this.name = name;
+			this.subDimensionIndex = subDimensionIndex;
+			this.rows = new ArrayList( );
+		}
+	}
+
+	/**
+	 * Orders the rows by their dimension positions.
+	 */
+	private static class RowComparator implements Comparator
+	{
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+		 */
+		public int compare( Object o1, Object o2 )
+		{
+			int[] position1 = ( (Row) o1 ).position;
+			int[] position2 = ( (Row) o2 ).position;
+			for ( int i = 0; i < position1.length; i++ )
+			{
+				if ( position1[i] != position2[i] )
+				{
+					return position1[i] < position2[i] ? -1 : 1;
+				}
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Finds the dimension positions of the rows of a chunk. The dimension
+	 * position seekers are only read, so they are shared by the workers.
+	 */
+	private static class PositionTask implements Callable
+	{
+		private String factTableName;
+		private String[][] keyColumnNames;
+		private Dimension[] dimensions;
+		private DimensionPositionSeeker[] dimensionSeekers;
+		private DimensionKey[][] keys;
+		private Object[][] measures;
+		private int size;
+
+		PositionTask( String factTableName, String[][] keyColumnNames,
+				Dimension[] dimensions,
+				DimensionPositionSeeker[] dimensionSeekers,
+				DimensionKey[][] keys, Object[][] measures, int size )
+		{
+			this.factTableName = factTableName;
+			this.keyColumnNames = keyColumnNames;
+			this.dimensions = dimensions;
+			this.dimensionSeekers = dimensionSeekers;
+			this.keys = keys;
+			this.measures = measures;
+			this.size = size;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Object call( ) throws Exception
+		{
+			List rows = new ArrayList( size );
+			int invalidRowCount = 0;
+			for ( int row = 0; row < size; row++ )
+			{
+				int[] position = new int[dimensionSeekers.length];
+				boolean invalidDimensionKey = false;
+				for ( int i = 0; i < position.length; i++ )
+				{
+					position[i] = dimensionSeekers[i].find( keys[row][i] );
+					if ( position[i] < 0 )
+					{
+						invalidDimensionKey = true;
+						logger.fine( "The fact table of cube "
+								+ factTableName
+								+ " has an invalid data row where the value of dimension key "
+								+ Arrays.toString( keyColumnNames[i] )
+								+ " is " + keys[row][i].toString( )
+								+ " which however does not exist in dimension "
+								+ dimensions[i].getName( ) + "." );
+					}
+				}
+				if ( invalidDimensionKey )
+				{
+					invalidRowCount++;
+					continue;
+				}
+				rows.add( new Row( position, measures[row] ) );
+			}
+			keys = null;
+			measures = null;
+			return new RowChunk( (Row[]) rows.toArray( new Row[rows.size( )] ),
+					invalidRowCount );
+		}
+	}
+
+	/**
+	 * Sorts, aggregates and encodes the rows of a segment into a document
+	 * object in memory.
+	 */
+	private static class SegmentTask implements Callable
+	{
+		private Segment segment;
+		private CombinedPositionContructor combinedPositionCalculator;
+		private MeasureInfo[] measureInfo;
+		private IAggrFunction[] aggregationFunctions;
+		private boolean columnar;
+
+		SegmentTask( Segment segment,
+				CombinedPositionContructor combinedPositionCalculator,
+				MeasureInfo[] measureInfo,
+				IAggrFunction[] aggregationFunctions, boolean columnar )
+		{
+			this.segment = segment;
+			this.combinedPositionCalculator = combinedPositionCalculator;
+			this.measureInfo = measureInfo;
+			this.aggregationFunctions = aggregationFunctions;
+			this.columnar = columnar;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Object call( ) throws Exception
+		{
+			Row[] rows = (Row[]) segment.rows.toArray( new Row[segment.rows.size( )] );
+			segment.rows = null;
+			Arrays.sort( rows, new RowComparator( ) );
+			if ( aggregationFunctions != null )
+			{
+				rows = aggregate( rows );
+			}
+			IDocumentObject documentObject = DocumentObjectUtil.createMemoryDocumentObject( );
+			if ( columnar )
+			{
+				int[][] positions = new int[rows.length][];
+				Object[][] measures = new Object[rows.length][];
+				for ( int i = 0; i < rows.length; i++ )
+				{
+					positions[i] = rows[i].position;
+					measures[i] = rows[i].measures;
+				}
+				ColumnarFactTableSegment.save( documentObject,
+						positions,
+						measures,
+						segment.subDimensionIndex.length,
+						measureInfo );
+			}
+			else
+			{
+				for ( int i = 0; i < rows.length; i++ )
+				{
+					documentObject.writeBytes( new Bytes( combinedPositionCalculator.calculateCombinedPosition( segment.subDimensionIndex,
+							rows[i].position )
+							.toByteArray( ) ) );
+					for ( int j = 0; j < measureInfo.length; j++ )
+					{
+						DocumentObjectUtil.writeValue( documentObject,
+								measureInfo[j].getDataType( ),
+								rows[i].measures[j] );
+					}
+				}
+			}
+			documentObject.flush( );
+			return documentObject;
+		}
+
+		/**
+		 * Aggregate the measures of the sorted rows which have the same
+		 * dimension positions.
+		 *
+		 * @param rows
+		 * @return
+		 * @throws DataException
+		 */
+		private Row[] aggregate( Row[] rows ) throws DataException
+		{
+			FTAggregationHelper aggrHelper = new FTAggregationHelper( aggregationFunctions );
+			RowComparator comparator = new RowComparator( );
+			FactTableRow factTableRow = new FactTableRow( );
+			List result = new ArrayList( );
+			for ( int i = 0; i < rows.length; i++ )
+			{
+				boolean last = i == rows.length - 1
+						|| comparator.compare( rows[i], rows[i + 1] ) != 0;
+				factTableRow.setMeasures( rows[i].measures );
+				aggrHelper.onRow( last, factTableRow );
+				if ( last )
+				{
+					result.add( new Row( rows[i].position,
+							aggrHelper.getCurrentValues( ) ) );
+				}
+			}
+			return (Row[]) result.toArray( new Row[result.size( )] );
+		}
+	}
+
+	/**
+	 * Creates the daemon worker threads.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory
+	{
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		public Thread newThread( Runnable r )
+		{
+			Thread thread = new Thread( r, "BIRT fact table build" );
+			thread.setDaemon( true );
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import org.eclipse.birt.data.engine.api.aggregation.AggregationManager;
+import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.DataResourceHandle;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * The partial aggregation of each segment of a fact table, which is calculated
+ * by the workers of a parallel scan. The rows of a segment are grouped by their
+ * dimension positions, each of which is first mapped to the first position of
+ * its member on the lowest level the query needs, and every group is returned
+ * as one row whose measures are the partial aggregations. The partial
+ * aggregations are merged on the query thread by aggregating them again: the
+ * sums, minimums and maximums by the same function and the counts by a sum.
+ */
+
+public class SegmentAggregation
+{
+	public static final String SUM_FUNC = "SUM";
+	public static final String MIN_FUNC = "MIN";
+	public static final String MAX_FUNC = "MAX";
+	public static final String COUNT_FUNC = "COUNT";
+
+	private String[] dimensionNames;
+	private int[][] positionMaps;
+	private String[] measureNames;
+	private String[] functionNames;
+	private IAggrFunction[] functions;
+	private MeasureInfo[] partialMeasureInfo;
+
+	/**
+	 *
+	 * @param dimensionNames
+	 * @param positionMaps
+	 *            the position each dimension position is mapped to; null if
+	 *            the positions of the dimension are kept
+	 * @param measureNames
+	 *            the measures of the fact table which are aggregated; null for
+	 *            a count of the rows
+	 * @param functionNames
+	 *            SUM, MIN, MAX or COUNT
+	 * @param measureInfo
+	 *            the measures of the fact table
+	 * @throws DataException
+	 */
+	public SegmentAggregation( String[] dimensionNames, int[][] positionMaps,
+			String[] measureNames, String[] functionNames,
+			MeasureInfo[] measureInfo ) throws DataException
+	{
+		this.dimensionNames = dimensionNames;
+		this.positionMaps = positionMaps;
+		this.measureNames = measureNames;
+		this.functionNames = new String[functionNames.length];
+		this.functions = new IAggrFunction[functionNames.length];
+		this.partialMeasureInfo = new MeasureInfo[functionNames.length];
+		for ( int i = 0; i < functionNames.length; i++ )
+		{
+			this.functionNames[i] = functionNames[i].toUpperCase( );
+			// the functions are looked up once on the query thread and
+			// shared by the workers, which create an accumulator per group
+			this.functions[i] = AggregationManager.getInstance( )
+					.getAggregation( this.functionNames[i] );
+			if ( this.functions[i] == null )
+			{
+				throw new DataException( DataResourceHandle.getInstance( )
+						.getMessage( ResourceConstants.UNSUPPORTED_FUNCTION )
+						+ functionNames[i] );
+			}
+			this.partialMeasureInfo[i] = new MeasureInfo( toPartialMeasureName( measureNames[i],
+					this.functionNames[i] ),
+					getPartialDataType( this.functionNames[i],
+							getDataType( measureInfo, measureNames[i] ) ) );
+		}
+	}
+
+	/**
+	 *
+	 * @param functionName
+	 * @return whether the function can be partially aggregated by the segments
+	 */
+	public static boolean isPartialFunction( String functionName )
+	{
+		return SUM_FUNC.equalsIgnoreCase( functionName )
+				|| MIN_FUNC.equalsIgnoreCase( functionName )
+				|| MAX_FUNC.equalsIgnoreCase( functionName )
+				|| COUNT_FUNC.equalsIgnoreCase( functionName );
+	}
+
+	/**
+	 *
+	 * @param functionName
+	 * @return the function which merges the partial aggregations of the
+	 *         function
+	 */
+	public static String getMergeFunction( String functionName )
+	{
+		if ( COUNT_FUNC.equalsIgnoreCase( functionName ) )
+		{
+			return SUM_FUNC;
+		}
+		return functionName.toUpperCase( );
+	}
+
+	/**
+	 *
+	 * @param measureName
+	 * @param functionName
+	 * @return the name of the measure the partial aggregations of the function
+	 *         are returned in
+	 */
+	public static String toPartialMeasureName( String measureName,
+			String functionName )
+	{
+		return ( measureName == null ? "" : measureName )
+				+ '_' + functionName.toUpperCase( );
+	}
+
+	/**
+	 *
+	 * @param functionName
+	 * @param dataType
+	 * @return the data type of the partial aggregations of a measure
+	 */
+	private static int getPartialDataType( String functionName, int dataType )
+	{
+		if ( COUNT_FUNC.equals( functionName ) )
+		{
+			return DataType.INTEGER_TYPE;
+		}
+		if ( SUM_FUNC.equals( functionName )
+				&& dataType != DataType.BIGDECIMAL_TYPE )
+		{
+			return DataType.DOUBLE_TYPE;
+		}
+		return dataType;
+	}
+
+	/**
+	 *
+	 * @param measureInfo
+	 * @param measureName
+	 * @return
+	 */
+	private static int getDataType( MeasureInfo[] measureInfo,
+			String measureName )
+	{
+		for ( int i = 0; measureName != null && i < measureInfo.length; i++ )
+		{
+			if ( measureInfo[i].getMeasureName( ).equals( measureName ) )
+			{
+				return measureInfo[i].getDataType( );
+			}
+		}
+		return DataType.UNKNOWN_TYPE;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public String[] getDimensionNames( )
+	{
+		return dimensionNames;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int[][] getPositionMaps( )
+	{
+		return positionMaps;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public String[] getMeasureNames( )
+	{
+		return measureNames;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public IAggrFunction[] getFunctions( )
+	{
+		return functions;
+	}
+
+	/**
+	 *
+	 * @return the measures of the rows returned by the segments
+	 */
+	public MeasureInfo[] getPartialMeasureInfo( )
+	{
+		return partialMeasureInfo;
+	}
+
+	/**
+	 *
+	 * @param measureName
+	 * @return the index of the partial measure; -1 if it does not exist
+	 */
+	public int getPartialMeasureIndex( String measureName )
+	{
+		for ( int i = 0; i < partialMeasureInfo.length; i++ )
+		{
+			if ( partialMeasureInfo[i].getMeasureName( ).equals( measureName ) )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+}
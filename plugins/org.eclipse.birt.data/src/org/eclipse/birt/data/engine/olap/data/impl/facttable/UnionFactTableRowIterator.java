@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+
+/**
+ * An iterator on the rows of the parts of a fact table, which are appended to
+ * the cube by the incremental builds. The parts have the same dimensions and
+ * measures, and their rows are returned one part after another.
+ */
+
+public class UnionFactTableRowIterator implements IFactTableRowIterator
+{
+	private IFactTableRowIterator[] iterators;
+	private int currentIndex = 0;
+
+	/**
+	 *
+	 * @param iterators
+	 *            the iterators on the parts of the fact table
+	 */
+	public UnionFactTableRowIterator( IFactTableRowIterator[] iterators )
+	{
+		assert iterators.length > 0;
+		this.iterators = iterators;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#next()
+	 */
+	public boolean next( ) throws IOException, DataException
+	{
+		while ( currentIndex < iterators.length )
+		{
+			if ( iterators[currentIndex].next( ) )
+			{
+				return true;
+			}
+			if ( currentIndex == iterators.length - 1 )
+			{
+				break;
+			}
+			currentIndex++;
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#close()
+	 */
+	public void close( ) throws DataException, IOException
+	{
+		for ( int i = 0; i < iterators.length; i++ )
+		{
+			iterators[i].close( );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionCount()
+	 */
+	public int getDimensionCount( )
+	{
+		return iterators[currentIndex].getDimensionCount( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionIndex(java.lang.String)
+	 */
+	public int getDimensionIndex( String dimensionName )
+	{
+		return iterators[currentIndex].getDimensionIndex( dimensionName );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionPosition(int)
+	 */
+	public int getDimensionPosition( int dimensionIndex )
+	{
+		return iterators[currentIndex].getDimensionPosition( dimensionIndex );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionPosition()
+	 */
+	public int[] getDimensionPosition( )
+	{
+		return iterators[currentIndex].getDimensionPosition( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasure(int)
+	 */
+	public Object getMeasure( int measureIndex ) throws DataException
+	{
+		return iterators[currentIndex].getMeasure( measureIndex );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureCount()
+	 */
+	public int getMeasureCount( )
+	{
+		return iterators[currentIndex].getMeasureCount( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureInfos()
+	 */
+	public MeasureInfo[] getMeasureInfos( )
+	{
+		return iterators[currentIndex].getMeasureInfos( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getMeasureIndex(java.lang.String)
+	 */
+	public int getMeasureIndex( String measureName )
+	{
+		return iterators[currentIndex].getMeasureIndex( measureName );
+	}
+}
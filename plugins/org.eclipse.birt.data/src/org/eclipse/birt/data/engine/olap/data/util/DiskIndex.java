@@ -136,6 +136,15 @@ public class DiskIndex
 		return name;
 	}
 
+	/**
+	 * 
+	 * @return the number of distinct keys in the index
+	 */
+	public int getKeyCount( )
+	{
+		return keyCount;
+	}
+
 	/**
 	 * 
 	 * @throws IOException
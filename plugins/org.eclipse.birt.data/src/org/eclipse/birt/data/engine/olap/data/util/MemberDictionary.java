@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.util.Date;
+
+import org.eclipse.birt.data.engine.olap.data.api.ISelection;
+import org.eclipse.birt.data.engine.olap.data.impl.MultiKeySelection;
+import org.eclipse.birt.data.engine.olap.data.impl.OneKeySelection;
+
+/**
+ * An in memory dictionary of the member keys of a level, which is used instead
+ * of a DiskIndex when the members fit in memory. The keys are kept in the
+ * order of CompareUtil, so the range selections are found by binary search,
+ * and an open addressing hash table finds a key in one probe. The hash table
+ * is only used when every key column has one data type whose equals() agrees
+ * with CompareUtil, and when the searched key has the same data types;
+ * otherwise the key is found by binary search. The dictionary is not modified
+ * after it is created, so it can be read by many threads.
+ */
+
+public class MemberDictionary
+{
+	private Object[][] keys;
+	private Class[] keyClasses;
+	private int[] hashTable;
+	private int hashMask;
+
+	/**
+	 *
+	 * @param sortedKeys
+	 *            the distinct keys in the order of CompareUtil
+	 */
+	public MemberDictionary( Object[][] sortedKeys )
+	{
+		this.keys = sortedKeys;
+		this.keyClasses = getKeyClasses( sortedKeys );
+		if ( keyClasses != null )
+		{
+			createHashTable( );
+		}
+	}
+
+	/**
+	 *
+	 * @param sortedKeys
+	 * @return the data type of each key column; null if the keys can not be
+	 *         hashed
+	 */
+	private static Class[] getKeyClasses( Object[][] sortedKeys )
+	{
+		if ( sortedKeys.length == 0 )
+		{
+			return null;
+		}
+		Class[] classes = new Class[sortedKeys[0].length];
+		for ( int i = 0; i < sortedKeys.length; i++ )
+		{
+			if ( sortedKeys[i].length != classes.length )
+			{
+				return null;
+			}
+			for ( int j = 0; j < classes.length; j++ )
+			{
+				if ( sortedKeys[i][j] == null )
+				{
+					continue;
+				}
+				if ( classes[j] == null )
+				{
+					if ( !isHashable( sortedKeys[i][j].getClass( ) ) )
+					{
+						return null;
+					}
+					classes[j] = sortedKeys[i][j].getClass( );
+				}
+				else if ( classes[j] != sortedKeys[i][j].getClass( ) )
+				{
+					return null;
+				}
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 *
+	 * @param keyClass
+	 * @return whether equals() of the data type agrees with its compareTo()
+	 */
+	private static boolean isHashable( Class keyClass )
+	{
+		return keyClass == String.class
+				|| keyClass == Integer.class || keyClass == Long.class
+				|| keyClass == Double.class || keyClass == Boolean.class
+				|| Date.class.isAssignableFrom( keyClass );
+	}
+
+	/**
+	 *
+	 */
+	private void createHashTable( )
+	{
+		int capacity = 2;
+		while ( capacity < keys.length * 2 )
+		{
+			capacity <<= 1;
+		}
+		hashTable = new int[capacity];
+		hashMask = capacity - 1;
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			int slot = hash( keys[i] ) & hashMask;
+			while ( hashTable[slot] != 0 )
+			{
+				slot = ( slot + 1 ) & hashMask;
+			}
+			hashTable[slot] = i + 1;
+		}
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return
+	 */
+	private static int hash( Object[] key )
+	{
+		int h = 17;
+		for ( int i = 0; i < key.length; i++ )
+		{
+			h = 37 * h + ( key[i] == null ? 0 : key[i].hashCode( ) );
+		}
+		return h ^ ( h >>> 16 );
+	}
+
+	/**
+	 *
+	 * @return the number of keys
+	 */
+	public int size( )
+	{
+		return keys.length;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return
+	 */
+	public Object[] getKey( int index )
+	{
+		return keys[index];
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the index of the key; -1 if it is not in the dictionary
+	 */
+	public int indexOf( Object[] key )
+	{
+		if ( hashTable != null && isSameClasses( key ) )
+		{
+			int slot = hash( key ) & hashMask;
+			while ( hashTable[slot] != 0 )
+			{
+				if ( isEqual( keys[hashTable[slot] - 1], key ) )
+				{
+					return hashTable[slot] - 1;
+				}
+				slot = ( slot + 1 ) & hashMask;
+			}
+			return -1;
+		}
+		int index = lowerBound( key );
+		if ( index < keys.length
+				&& CompareUtil.compare( keys[index], key ) == 0 )
+		{
+			return index;
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return
+	 */
+	private boolean isSameClasses( Object[] key )
+	{
+		if ( key.length != keyClasses.length )
+		{
+			return false;
+		}
+		for ( int i = 0; i < key.length; i++ )
+		{
+			if ( key[i] != null
+					&& keyClasses[i] != null
+					&& key[i].getClass( ) != keyClasses[i] )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param key1
+	 * @param key2
+	 * @return
+	 */
+	private static boolean isEqual( Object[] key1, Object[] key2 )
+	{
+		for ( int i = 0; i < key1.length; i++ )
+		{
+			if ( key1[i] == null ? key2[i] != null : !key1[i].equals( key2[i] ) )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the index of the first key which is not less than the key
+	 */
+	public int lowerBound( Object[] key )
+	{
+		int low = 0;
+		int high = keys.length;
+		while ( low < high )
+		{
+			int mid = ( low + high ) >>> 1;
+			if ( CompareUtil.compare( keys[mid], key ) < 0 )
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return the index of the first key which is greater than the key
+	 */
+	public int upperBound( Object[] key )
+	{
+		int low = 0;
+		int high = keys.length;
+		while ( low < high )
+		{
+			int mid = ( low + high ) >>> 1;
+			if ( CompareUtil.compare( keys[mid], key ) <= 0 )
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Find the keys selected by any of the selections. The key selections are
+	 * found in the hash table, and the other selections are checked on the
+	 * keys between their minimum and maximum keys.
+	 *
+	 * @param selections
+	 * @return the index of the selected keys in ascending order
+	 */
+	public int[] find( ISelection[] selections )
+	{
+		boolean[] selected = new boolean[keys.length];
+		int count = 0;
+		for ( int i = 0; i < selections.length; i++ )
+		{
+			if ( selections[i] instanceof OneKeySelection )
+			{
+				count += select( ( (OneKeySelection) selections[i] ).getKeyValue( ),
+						selected );
+			}
+			else if ( selections[i] instanceof MultiKeySelection )
+			{
+				Object[][] keyValues = ( (MultiKeySelection) selections[i] ).getKeyValues( );
+				for ( int j = 0; j < keyValues.length; j++ )
+				{
+					count += select( keyValues[j], selected );
+				}
+			}
+			else
+			{
+				int start = selections[i].getMin( ) == null ? 0
+						: lowerBound( selections[i].getMin( ) );
+				int end = selections[i].getMax( ) == null ? keys.length
+						: upperBound( selections[i].getMax( ) );
+				for ( int j = start; j < end; j++ )
+				{
+					if ( !selected[j] && selections[i].isSelected( keys[j] ) )
+					{
+						selected[j] = true;
+						count++;
+					}
+				}
+			}
+		}
+		int[] result = new int[count];
+		int index = 0;
+		for ( int i = 0; i < selected.length && index < count; i++ )
+		{
+			if ( selected[i] )
+			{
+				result[index++] = i;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param selected
+	 * @return 1 if the key is newly selected; 0 otherwise
+	 */
+	private int select( Object[] key, boolean[] selected )
+	{
+		if ( key == null )
+		{
+			return 0;
+		}
+		int index = indexOf( key );
+		if ( index < 0 || selected[index] )
+		{
+			return 0;
+		}
+		selected[index] = true;
+		return 1;
+	}
+}
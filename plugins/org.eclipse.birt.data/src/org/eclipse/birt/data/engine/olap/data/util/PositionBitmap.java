@@ -0,0 +1,622 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+
+import org.eclipse.birt.data.engine.cache.Constants;
+
+/**
+ * A compressed bitmap of non-negative dimension positions. The positions are
+ * partitioned by their high 16 bits into chunks. A chunk with at most 4096
+ * positions keeps the low 16 bits of them in a sorted array, and a denser
+ * chunk keeps them in a bitmap of 65536 bits, so that membership checks,
+ * intersections and unions are done on the chunks instead of merging sorted
+ * lists of positions.
+ */
+
+public class PositionBitmap
+{
+	private static final int ARRAY_MAX_SIZE = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	private char[] keys;
+	private Container[] containers;
+	private int chunkCount;
+
+	/**
+	 *
+	 */
+	public PositionBitmap( )
+	{
+		this.keys = new char[4];
+		this.containers = new Container[4];
+		this.chunkCount = 0;
+	}
+
+	/**
+	 *
+	 * @param positions
+	 * @return
+	 */
+	public static PositionBitmap valueOf( int[] positions )
+	{
+		PositionBitmap bitmap = new PositionBitmap( );
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			bitmap.add( positions[i] );
+		}
+		return bitmap;
+	}
+
+	/**
+	 *
+	 * @param positions
+	 *            a disk array of Integer positions
+	 * @return
+	 * @throws IOException
+	 */
+	public static PositionBitmap valueOf( IDiskArray positions )
+			throws IOException
+	{
+		PositionBitmap bitmap = new PositionBitmap( );
+		for ( int i = 0; i < positions.size( ); i++ )
+		{
+			bitmap.add( ( (Integer) positions.get( i ) ).intValue( ) );
+		}
+		return bitmap;
+	}
+
+	/**
+	 *
+	 * @param position
+	 */
+	public void add( int position )
+	{
+		assert position >= 0;
+		char key = (char) ( position >>> 16 );
+		int index;
+		// the positions are usually added in ascending order
+		if ( chunkCount > 0 && keys[chunkCount - 1] == key )
+		{
+			index = chunkCount - 1;
+		}
+		else
+		{
+			index = indexOf( key );
+			if ( index < 0 )
+			{
+				index = -index - 1;
+				insertChunk( index, key, new ArrayContainer( ) );
+			}
+		}
+		containers[index] = containers[index].add( (char) position );
+	}
+
+	/**
+	 *
+	 * @param position
+	 * @return
+	 */
+	public boolean contains( int position )
+	{
+		if ( position < 0 )
+		{
+			return false;
+		}
+		int index = indexOf( (char) ( position >>> 16 ) );
+		return index >= 0 && containers[index].contains( (char) position );
+	}
+
+	/**
+	 *
+	 * @return the number of positions in the bitmap
+	 */
+	public int size( )
+	{
+		int size = 0;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			size += containers[i].size( );
+		}
+		return size;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public boolean isEmpty( )
+	{
+		return chunkCount == 0;
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return a new bitmap of the positions in both bitmaps
+	 */
+	public PositionBitmap and( PositionBitmap other )
+	{
+		PositionBitmap result = new PositionBitmap( );
+		int i = 0, j = 0;
+		while ( i < chunkCount && j < other.chunkCount )
+		{
+			if ( keys[i] < other.keys[j] )
+			{
+				i++;
+			}
+			else if ( keys[i] > other.keys[j] )
+			{
+				j++;
+			}
+			else
+			{
+				Container container = containers[i].and( other.containers[j] );
+				if ( container.size( ) > 0 )
+				{
+					result.insertChunk( result.chunkCount, keys[i], container );
+				}
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param other
+	 * @return a new bitmap of the positions in either bitmap
+	 */
+	public PositionBitmap or( PositionBitmap other )
+	{
+		PositionBitmap result = new PositionBitmap( );
+		int i = 0, j = 0;
+		while ( i < chunkCount || j < other.chunkCount )
+		{
+			if ( j >= other.chunkCount
+					|| ( i < chunkCount && keys[i] < other.keys[j] ) )
+			{
+				result.insertChunk( result.chunkCount,
+						keys[i],
+						containers[i].copy( ) );
+				i++;
+			}
+			else if ( i >= chunkCount || keys[i] > other.keys[j] )
+			{
+				result.insertChunk( result.chunkCount,
+						other.keys[j],
+						other.containers[j].copy( ) );
+				j++;
+			}
+			else
+			{
+				result.insertChunk( result.chunkCount,
+						keys[i],
+						containers[i].or( other.containers[j] ) );
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return the positions in ascending order
+	 */
+	public int[] toArray( )
+	{
+		int[] result = new int[size( )];
+		int offset = 0;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			offset = containers[i].toArray( keys[i] << 16, result, offset );
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return a disk array of the Integer positions in ascending order
+	 * @throws IOException
+	 */
+	public IDiskArray toDiskArray( ) throws IOException
+	{
+		int[] positions = toArray( );
+		IDiskArray result = new BufferedPrimitiveDiskArray( Math.min( positions.length,
+				Constants.LIST_BUFFER_SIZE ) );
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			result.add( Integer.valueOf( positions[i] ) );
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @return
+	 */
+	private int indexOf( char key )
+	{
+		int low = 0;
+		int high = chunkCount - 1;
+		while ( low <= high )
+		{
+			int mid = ( low + high ) >>> 1;
+			if ( keys[mid] < key )
+			{
+				low = mid + 1;
+			}
+			else if ( keys[mid] > key )
+			{
+				high = mid - 1;
+			}
+			else
+			{
+				return mid;
+			}
+		}
+		return -( low + 1 );
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param key
+	 * @param container
+	 */
+	private void insertChunk( int index, char key, Container container )
+	{
+		if ( chunkCount == keys.length )
+		{
+			char[] newKeys = new char[keys.length * 2];
+			System.arraycopy( keys, 0, newKeys, 0, chunkCount );
+			keys = newKeys;
+			Container[] newContainers = new Container[containers.length * 2];
+			System.arraycopy( containers, 0, newContainers, 0, chunkCount );
+			containers = newContainers;
+		}
+		System.arraycopy( keys, index, keys, index + 1, chunkCount - index );
+		System.arraycopy( containers,
+				index,
+				containers,
+				index + 1,
+				chunkCount - index );
+		keys[index] = key;
+		containers[index] = container;
+		chunkCount++;
+	}
+
+	/**
+	 * The low 16 bits of the positions in a chunk.
+	 */
+	private static abstract class Container
+	{
+		/**
+		 * Add the value and return the container which holds the result,
+		 * which may be a new container of another kind.
+		 */
+		abstract Container add( char value );
+
+		abstract boolean contains( char value );
+
+		abstract int size( );
+
+		abstract Container and( Container other );
+
+		abstract Container or( Container other );
+
+		abstract Container copy( );
+
+		/**
+		 * Copy the values added by the high bits to the result from the
+		 * offset, and return the offset after the last copied value.
+		 */
+		abstract int toArray( int high, int[] result, int offset );
+	}
+
+	/**
+	 * A container of the sorted values.
+	 */
+	private static class ArrayContainer extends Container
+	{
+		private char[] values;
+		private int size;
+
+		ArrayContainer( )
+		{
+			this( new char[4], 0 );
+		}
+
+		ArrayContainer( char[] values, int size )
+		{
+			this.values = values;
+			this.size = size;
+		}
+
+		Container add( char value )
+		{
+			int index;
+			if ( size == 0 || values[size - 1] < value )
+			{
+				index = size;
+			}
+			else
+			{
+				index = binarySearch( values, size, value );
+				if ( index >= 0 )
+				{
+					return this;
+				}
+				index = -index - 1;
+			}
+			if ( size == ARRAY_MAX_SIZE )
+			{
+				return toBitmap( ).add( value );
+			}
+			if ( size == values.length )
+			{
+				char[] newValues = new char[Math.min( ARRAY_MAX_SIZE,
+						values.length * 2 )];
+				System.arraycopy( values, 0, newValues, 0, size );
+				values = newValues;
+			}
+			System.arraycopy( values, index, values, index + 1, size - index );
+			values[index] = value;
+			size++;
+			return this;
+		}
+
+		boolean contains( char value )
+		{
+			return binarySearch( values, size, value ) >= 0;
+		}
+
+		int size( )
+		{
+			return size;
+		}
+
+		Container and( Container other )
+		{
+			char[] result = new char[size];
+			int count = 0;
+			if ( other instanceof ArrayContainer )
+			{
+				ArrayContainer array = (ArrayContainer) other;
+				int i = 0, j = 0;
+				while ( i < size && j < array.size )
+				{
+					if ( values[i] < array.values[j] )
+					{
+						i++;
+					}
+					else if ( values[i] > array.values[j] )
+					{
+						j++;
+					}
+					else
+					{
+						result[count++] = values[i];
+						i++;
+						j++;
+					}
+				}
+			}
+			else
+			{
+				for ( int i = 0; i < size; i++ )
+				{
+					if ( other.contains( values[i] ) )
+					{
+						result[count++] = values[i];
+					}
+				}
+			}
+			return new ArrayContainer( result, count );
+		}
+
+		Container or( Container other )
+		{
+			if ( other instanceof BitmapContainer )
+			{
+				return other.or( this );
+			}
+			ArrayContainer array = (ArrayContainer) other;
+			char[] result = new char[size + array.size];
+			int count = 0;
+			int i = 0, j = 0;
+			while ( i < size || j < array.size )
+			{
+				if ( j >= array.size
+						|| ( i < size && values[i] < array.values[j] ) )
+				{
+					result[count++] = values[i++];
+				}
+				else if ( i >= size || values[i] > array.values[j] )
+				{
+					result[count++] = array.values[j++];
+				}
+				else
+				{
+					result[count++] = values[i];
+					i++;
+					j++;
+				}
+			}
+			ArrayContainer container = new ArrayContainer( result, count );
+			return count > ARRAY_MAX_SIZE ? container.toBitmap( ) : container;
+		}
+
+		Container copy( )
+		{
+			char[] copy = new char[size];
+			System.arraycopy( values, 0, copy, 0, size );
+			return new ArrayContainer( copy, size );
+		}
+
+		int toArray( int high, int[] result, int offset )
+		{
+			for ( int i = 0; i < size; i++ )
+			{
+				result[offset++] = high | values[i];
+			}
+			return offset;
+		}
+
+		private static int binarySearch( char[] values, int size, char value )
+		{
+			int low = 0;
+			int high = size - 1;
+			while ( low <= high )
+			{
+				int mid = ( low + high ) >>> 1;
+				if ( values[mid] < value )
+				{
+					low = mid + 1;
+				}
+				else if ( values[mid] > value )
+				{
+					high = mid - 1;
+				}
+				else
+				{
+					return mid;
+				}
+			}
+			return -( low + 1 );
+		}
+
+		private BitmapContainer toBitmap( )
+		{
+			BitmapContainer bitmap = new BitmapContainer( );
+			for ( int i = 0; i < size; i++ )
+			{
+				bitmap.add( values[i] );
+			}
+			return bitmap;
+		}
+	}
+
+	/**
+	 * A container of a bitmap of 65536 bits.
+	 */
+	private static class BitmapContainer extends Container
+	{
+		private long[] words;
+		private int size;
+
+		BitmapContainer( )
+		{
+			this.words = new long[BITMAP_WORDS];
+			this.size = 0;
+		}
+
+		Container add( char value )
+		{
+			long bit = 1L << value;
+			if ( ( words[value >>> 6] & bit ) == 0 )
+			{
+				words[value >>> 6] |= bit;
+				size++;
+			}
+			return this;
+		}
+
+		boolean contains( char value )
+		{
+			return ( words[value >>> 6] & ( 1L << value ) ) != 0;
+		}
+
+		int size( )
+		{
+			return size;
+		}
+
+		Container and( Container other )
+		{
+			if ( other instanceof ArrayContainer )
+			{
+				return other.and( this );
+			}
+			BitmapContainer bitmap = (BitmapContainer) other;
+			BitmapContainer result = new BitmapContainer( );
+			for ( int i = 0; i < BITMAP_WORDS; i++ )
+			{
+				result.words[i] = words[i] & bitmap.words[i];
+				result.size += Long.bitCount( result.words[i] );
+			}
+			return result.size > ARRAY_MAX_SIZE ? (Container) result
+					: result.toArrayContainer( );
+		}
+
+		Container or( Container other )
+		{
+			BitmapContainer result = (BitmapContainer) copy( );
+			if ( other instanceof ArrayContainer )
+			{
+				ArrayContainer array = (ArrayContainer) other;
+				for ( int i = 0; i < array.size; i++ )
+				{
+					result.add( array.values[i] );
+				}
+				return result;
+			}
+			BitmapContainer bitmap = (BitmapContainer) other;
+			result.size = 0;
+			for ( int i = 0; i < BITMAP_WORDS; i++ )
+			{
+				result.words[i] |= bitmap.words[i];
+				result.size += Long.bitCount( result.words[i] );
+			}
+			return result;
+		}
+
+		Container copy( )
+		{
+			BitmapContainer copy = new BitmapContainer( );
+			System.arraycopy( words, 0, copy.words, 0, BITMAP_WORDS );
+			copy.size = size;
+			return copy;
+		}
+
+		int toArray( int high, int[] result, int offset )
+		{
+			for ( int i = 0; i < BITMAP_WORDS; i++ )
+			{
+				long word = words[i];
+				while ( word != 0 )
+				{
+					result[offset++] = high
+							| ( i << 6 ) | Long.numberOfTrailingZeros( word );
+					word &= word - 1;
+				}
+			}
+			return offset;
+		}
+
+		private ArrayContainer toArrayContainer( )
+		{
+			char[] values = new char[size];
+			int[] positions = new int[size];
+			toArray( 0, positions, 0 );
+			for ( int i = 0; i < size; i++ )
+			{
+				values[i] = (char) positions[i];
+			}
+			return new ArrayContainer( values, size );
+		}
+	}
+}
@@ -167,6 +167,26 @@ public class SetUtil
 		return result;
 	}
 	
+	/**
+	 * Get the intersection from two disk arrays of Integer dimension positions.
+	 * The positions are intersected by their bitmaps, so the arrays do not need
+	 * to be sorted. The result is sorted in ascending order.
+	 * 
+	 * @param array1
+	 * @param array2
+	 * @return
+	 * @throws IOException
+	 */
+	public static IDiskArray getPositionIntersection( IDiskArray array1,
+			IDiskArray array2 ) throws IOException
+	{
+		PositionBitmap bitmap = PositionBitmap.valueOf( array1 )
+				.and( PositionBitmap.valueOf( array2 ) );
+		array1.close( );
+		array2.close( );
+		return bitmap.toDiskArray( );
+	}
+	
 	/**
 	 * 
 	 * @param a
@@ -26,6 +26,7 @@ import javax.olap.cursor.CubeCursor;
 import org.eclipse.birt.core.data.ExpressionUtil;
 import org.eclipse.birt.core.data.IDimLevel;
 import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.DataEngine;
 import org.eclipse.birt.data.engine.api.DataEngineContext;
 import org.eclipse.birt.data.engine.api.IBaseExpression;
 import org.eclipse.birt.data.engine.api.IBaseQueryResults;
@@ -50,6 +51,7 @@ import org.eclipse.birt.data.engine.olap.data.api.IBindingValueFetcher;
 import org.eclipse.birt.data.engine.olap.data.api.cube.DocManagerMap;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
 import org.eclipse.birt.data.engine.olap.data.document.CubeRADocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.BindingValueFetcher;
@@ -278,6 +280,7 @@ public class CubeQueryResults implements ICubeQueryResults
 		executor.getFacttableBasedFilterHelpers( ).addAll( this.preparedQuery.getInternalFilters( ) );
 		
 		IDocumentManager documentManager = getDocumentManager( executor );
+		IDocumentManager mappedDocumentManager = null;
 		ICube cube = null;
 		
 		try
@@ -285,17 +288,33 @@ public class CubeQueryResults implements ICubeQueryResults
 			// need not load cube in render task.
 			if ( !isStandAloneQuery( cubeQueryDefinition,
 					session.getEngineContext( ) ) )
-				cube = loadCube( documentManager, executor );
+			{
+				mappedDocumentManager = getMappedDocumentManager( documentManager,
+						executor );
+				cube = loadCube( mappedDocumentManager != null
+						? mappedDocumentManager : documentManager, executor );
+			}
 		}
 		catch ( Exception ex )
 		{
+			if ( mappedDocumentManager != null )
+				mappedDocumentManager.close( );
 			throw new DataException( ResourceConstants.FAIL_LOAD_CUBE, ex );
 		}
 
 		BirtCubeView bcv = new BirtCubeView( executor, cube, appContext, fetcher );		
-		CubeCursor cubeCursor = bcv.getCubeCursor( stopSign, cube );
-		if ( cube != null )
-			cube.close( );
+		CubeCursor cubeCursor;
+		try
+		{
+			cubeCursor = bcv.getCubeCursor( stopSign, cube );
+			if ( cube != null )
+				cube.close( );
+		}
+		finally
+		{
+			if ( mappedDocumentManager != null )
+				mappedDocumentManager.close( );
+		}
 
 		String newResultSetId = executor.getQueryResultsId( );
 		if ( newResultSetId != null )
@@ -355,6 +374,55 @@ public class CubeQueryResults implements ICubeQueryResults
 				executor.getContext( ).getDocReader( ) );
 	}
 
+	/**
+	 * Load a memory mapped view of the files of the cube, if the cube is
+	 * created by this data engine and DataEngine.CUBE_MAPPED_FILE is set. The
+	 * caller closes the returned manager.
+	 * 
+	 * @param documentManager
+	 * @param executor
+	 * @return the mapped document manager, null if the cube is not read
+	 *         through a mapped view
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private IDocumentManager getMappedDocumentManager(
+			IDocumentManager documentManager, CubeQueryExecutor executor )
+			throws DataException, IOException
+	{
+		if ( documentManager == null
+				|| !isMappedFileEnabled( )
+				|| preparedQuery.isFromDataMart( ) )
+			return null;
+		String managerName = String.valueOf( executor.getSession( )
+				.getEngine( )
+				.hashCode( ) );
+		if ( documentManager != DocManagerMap.getDocManagerMap( )
+				.get( managerName,
+						executor.getSession( ).getTempDir( ) + managerName ) )
+			return null;
+		// the cube files are mapped after the buffered bytes are written
+		documentManager.flush( );
+		return DocumentManagerFactory.loadMappedFileDocumentManager( executor.getSession( )
+				.getTempDir( ),
+				managerName );
+	}
+
+	/**
+	 * 
+	 * @return whether DataEngine.CUBE_MAPPED_FILE is set in the application
+	 *         context
+	 */
+	private boolean isMappedFileEnabled( )
+	{
+		if ( appContext == null )
+			return false;
+		Object value = appContext.get( DataEngine.CUBE_MAPPED_FILE );
+		if ( value instanceof Boolean )
+			return ( (Boolean) value ).booleanValue( );
+		return value != null && "true".equalsIgnoreCase( value.toString( ) );
+	}
+
 	/**
 	 * 
 	 * @param cubeName
@@ -121,6 +121,15 @@ public class QueryExecutor
 		
 		cubeQueryExecutorHelper.setMemoryCacheSize( CacheUtil.computeMemoryBufferSize( view.getAppContext( ) ) );
 		cubeQueryExecutorHelper.setMaxDataObjectRows( CacheUtil.getMaxRows( view.getAppContext( ) ) );
+		int scanThreadCount = CacheUtil.getCubeScanThreadCount( view.getAppContext( ) );
+		cubeQueryExecutorHelper.setScanThreadCount( scanThreadCount );
+		if ( scanThreadCount > 1 )
+		{
+			cubeQueryExecutorHelper.setScanExecutor( executor.getSession( )
+					.getCubeScanExecutor( scanThreadCount ) );
+		}
+		cubeQueryExecutorHelper.setResultCache( executor.getSession( )
+				.getCubeResultCache( view.getAppContext( ) ) );
 		
 		cubeQueryExecutorHelper.addJSFilter( executor.getDimensionFilterEvalHelpers( ) );
 		cubeQueryExecutorHelper.addSimpleLevelFilter( executor.getdimensionSimpleFilter( ) );
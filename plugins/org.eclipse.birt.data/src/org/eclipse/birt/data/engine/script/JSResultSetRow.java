@@ -10,9 +10,6 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.script;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.eclipse.birt.core.data.DataTypeUtil;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.JavascriptEvalUtil;
@@ -42,7 +39,13 @@ public class JSResultSetRow extends ScriptableObject
 	private IExecutorHelper helper;
 	private ScriptContext cx;
 	private int currRowIndex;
-	private Map valueCacheMap;
+	
+	// binding name to slot of the per row value cache
+	private RowSlotBinding slotBinding;
+	private Object[] slotValues;
+	private int[] slotGeneration;
+	// increased each time the current row changes
+	private int rowGeneration;
 	
 	/** */
 	private static final long serialVersionUID = 649424371394281464L;
@@ -62,7 +65,10 @@ public class JSResultSetRow extends ScriptableObject
 		this.helper = helper;
 		this.cx = cx;
 		this.currRowIndex = -1;
-		this.valueCacheMap = new HashMap( );
+		this.slotBinding = new RowSlotBinding( );
+		this.slotValues = new Object[0];
+		this.slotGeneration = new int[0];
+		this.rowGeneration = 1;
 	}
 	
 	/*
@@ -135,9 +141,12 @@ public class JSResultSetRow extends ScriptableObject
 			return Integer.valueOf( rowIndex );
 		}
 		
-		if ( rowIndex == currRowIndex && valueCacheMap.containsKey( name ) )
+		int slot = slotBinding.getSlot( name );
+		if ( slot != RowSlotBinding.UNBOUND
+				&& rowIndex == currRowIndex
+				&& slotGeneration[slot] == rowGeneration )
 		{
-			return valueCacheMap.get( name );
+			return slotValues[slot];
 		}
 		else
 		{
@@ -178,14 +187,43 @@ public class JSResultSetRow extends ScriptableObject
 			}
 			if ( this.currRowIndex != rowIndex )
 			{
-				this.valueCacheMap.clear( );
+				this.rowGeneration++;
 				this.currRowIndex = rowIndex;
 			}
-			valueCacheMap.put( name, value );
+			if ( slot == RowSlotBinding.UNBOUND )
+				slot = bindSlot( name );
+			slotValues[slot] = value;
+			slotGeneration[slot] = rowGeneration;
 			return value;
 		}
 	}
 	
+	/**
+	 * Bind the name to a new slot of the value cache.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	private int bindSlot( String name )
+	{
+		int slot = slotBinding.bindNext( name );
+		if ( slot >= slotValues.length )
+		{
+			int length = Math.max( 8, slotValues.length * 2 );
+			Object[] values = new Object[length];
+			int[] generation = new int[length];
+			System.arraycopy( slotValues, 0, values, 0, slotValues.length );
+			System.arraycopy( slotGeneration,
+					0,
+					generation,
+					0,
+					slotGeneration.length );
+			slotValues = values;
+			slotGeneration = generation;
+		}
+		return slot;
+	}
+	
 	/**
 	 * @param rsObject
 	 * @param index
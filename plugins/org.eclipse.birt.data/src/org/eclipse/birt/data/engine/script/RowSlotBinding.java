@@ -0,0 +1,154 @@
+/*
+ *************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *
+ *************************************************************************
+ */
+package org.eclipse.birt.data.engine.script;
+
+/**
+ * Binds the column names accessed through row["name"] to integer slots. The
+ * names are resolved once, and every later access with the same name is a
+ * probe in an open addressing table followed by an array read. The names given
+ * by compiled scripts are the same String instances on each call, and String
+ * caches its hash code, so a probe neither allocates nor re-hashes the name.
+ */
+public final class RowSlotBinding
+{
+	/**
+	 * The value returned when the name has not been bound.
+	 */
+	public static final int UNBOUND = Integer.MIN_VALUE;
+
+	private String[] names;
+	private int[] slots;
+	private int size;
+
+	/**
+	 * Constructor.
+	 */
+	public RowSlotBinding( )
+	{
+		this.names = new String[16];
+		this.slots = new int[16];
+		this.size = 0;
+	}
+
+	/**
+	 * Return the slot bound to the given name, or UNBOUND.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public int getSlot( String name )
+	{
+		int mask = names.length - 1;
+		int i = name.hashCode( ) & mask;
+		String key;
+		while ( ( key = names[i] ) != null )
+		{
+			if ( key == name || key.equals( name ) )
+				return slots[i];
+			i = ( i + 1 ) & mask;
+		}
+		return UNBOUND;
+	}
+
+	/**
+	 * Bind the name to the given slot.
+	 *
+	 * @param name
+	 * @param slot
+	 */
+	public void bind( String name, int slot )
+	{
+		if ( ( size + 1 ) * 2 > names.length )
+			rehash( names.length * 2 );
+		if ( insert( names, slots, name, slot ) )
+			size++;
+	}
+
+	/**
+	 * Bind the name to the next free slot if it has not been bound, and return
+	 * its slot. The slots given by this method start from zero.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public int bindNext( String name )
+	{
+		int slot = getSlot( name );
+		if ( slot == UNBOUND )
+		{
+			slot = size;
+			bind( name, slot );
+		}
+		return slot;
+	}
+
+	/**
+	 *
+	 * @return the number of names bound
+	 */
+	public int size( )
+	{
+		return size;
+	}
+
+	/**
+	 * Remove all the bindings.
+	 */
+	public void clear( )
+	{
+		for ( int i = 0; i < names.length; i++ )
+			names[i] = null;
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @param newCapacity
+	 */
+	private void rehash( int newCapacity )
+	{
+		String[] newNames = new String[newCapacity];
+		int[] newSlots = new int[newCapacity];
+		for ( int i = 0; i < names.length; i++ )
+		{
+			if ( names[i] != null )
+				insert( newNames, newSlots, names[i], slots[i] );
+		}
+		names = newNames;
+		slots = newSlots;
+	}
+
+	/**
+	 *
+	 * @return true if a new entry is added
+	 */
+	private static boolean insert( String[] names, int[] slots, String name,
+			int slot )
+	{
+		int mask = names.length - 1;
+		int i = name.hashCode( ) & mask;
+		while ( names[i] != null )
+		{
+			if ( names[i].equals( name ) )
+			{
+				slots[i] = slot;
+				return false;
+			}
+			i = ( i + 1 ) & mask;
+		}
+		names[i] = name;
+		slots[i] = slot;
+		return true;
+	}
+}
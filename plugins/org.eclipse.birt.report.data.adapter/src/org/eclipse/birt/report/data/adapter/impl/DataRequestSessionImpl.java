@@ -982,6 +982,7 @@ public class DataRequestSessionImpl extends DataRequestSession
 						cubeMetaMap.get( cubeHandle ),
 						appContext );
 			}
+			cubeMaterializer.setBuildThreadCount( computeBuildThreadCount( appContext ) );
 			cubeMaterializer.createCube( cubeHandle.getQualifiedName( ),
 					factTableKey,
 					dimensionKey,
@@ -1005,6 +1006,30 @@ public class DataRequestSessionImpl extends DataRequestSession
 		
 	}
 	
+	/**
+	 * 
+	 * @param appContext
+	 * @return the number of threads which save the fact table of a cube, 1 if
+	 *         it is not specified or invalid
+	 */
+	private static int computeBuildThreadCount( Map appContext )
+	{
+		if ( appContext == null
+				|| appContext.get( DataEngine.CUBE_BUILD_THREAD_COUNT ) == null )
+			return 1;
+		try
+		{
+			return Math.max( 1,
+					Integer.parseInt( appContext.get( DataEngine.CUBE_BUILD_THREAD_COUNT )
+							.toString( ) ) );
+		}
+		catch ( NumberFormatException e )
+		{
+			logger.log( Level.WARNING, "Invalid cube build thread count", e );
+			return 1;
+		}
+	}
+	
 	public static long computeMemoryBufferSize( Map appContext )
 	{
 		//here a simple assumption, that 1M memory can accommodate 2000 rows
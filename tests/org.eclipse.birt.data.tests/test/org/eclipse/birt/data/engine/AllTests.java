@@ -87,9 +87,15 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.executor.transform.group.GroupByRowKeyCountTest.class);
 		
 		/* in package org.eclipse.birt.data.engine.expression */
+		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ColumnReferenceExpressionTest.class);
+		suite.addTestSuite( org.eclipse.birt.data.engine.expression.CompiledScriptCacheTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ComplexExpressionCompilerTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ExpressionCompilerTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ExpressionCompilerUtilTest.class);
+		suite.addTestSuite( org.eclipse.birt.data.engine.expression.ExpressionOptimizerTest.class);
+		
+		/* in package org.eclipse.birt.data.engine.script */
+		suite.addTestSuite( org.eclipse.birt.data.engine.script.RowSlotBindingTest.class);
 		
 		/* in package org.eclipse.birt.data.engine.impl.rd */
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.rd.ViewingTest2.class);
@@ -106,6 +112,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.ScriptEvalTest.class);
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.ConfigFileParserTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.impl.IncreCacheDataSetTest.class);
+		suite.addTestSuite( org.eclipse.birt.data.engine.impl.PreparedQueryCacheTest.class);
 		
 		
 		/* in package org.eclipse.birt.data.engine.impl.binding  */
@@ -126,6 +133,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.document.CachedDocumentObjectManagerTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.document.DocumentManagerTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.document.FileDocumentManagerTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.document.MappedFileDocumentManagerTest.class );
 		
 		/* in package org.eclipse.birt.data.engine.olap.data.impl*/
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.CubeAggregationTest.class );
@@ -138,6 +146,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionTest2.class );
 		
 		/* in package org.eclipse.birt.data.engine.olap.data.impl.facttable */
+		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.facttable.ColumnarFactTableSegmentTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionSegmentsTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableHelperTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableHelperTest2.class );
@@ -150,8 +159,10 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArrayTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.DiskIndexTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.DiskSortedStackTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.MemberDictionaryTest.class );
 
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.ObjectArrayUtilTest.class );
+		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.PositionBitmapTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.PrimaryDiskArrayTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.PrimarySortedStackTest.class );
 		suite.addTestSuite( org.eclipse.birt.data.engine.olap.data.util.SetUtilTest.class );
@@ -13,6 +13,7 @@ package org.eclipse.birt.data.engine.binding;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -201,6 +202,44 @@ public class ColumnBindingTest extends APITestCase
 		checkOutputFile( );
 	}
 	
+	/**
+	 * Bindings with the same expression share their value only when the
+	 * expression is free of side effect, so a call of Math.random( ) is
+	 * evaluated for each binding on every row.
+	 * 
+	 * @throws Exception
+	 */
+	public void testImpureBindingNotShared( ) throws Exception
+	{
+		QueryDefinition queryDefn = newReportQuery( );
+
+		String[] name = new String[]{
+				"random1", "random2", "abs1", "abs2"
+		};
+		ScriptExpression[] se = new ScriptExpression[name.length];
+		se[0] = new ScriptExpression( "Math.random( ) + dataSetRow.AMOUNT" );
+		se[1] = new ScriptExpression( "Math.random( ) + dataSetRow.AMOUNT" );
+		se[2] = new ScriptExpression( "Math.abs( dataSetRow.AMOUNT )" );
+		se[3] = new ScriptExpression( "Math.abs( dataSetRow.AMOUNT )" );
+		for ( int i = 0; i < name.length; i++ )
+			queryDefn.addResultSetExpression( name[i], se[i] );
+
+		IResultIterator ri = executeQuery( queryDefn );
+		int rowCount = 0;
+		List values = new ArrayList( );
+		while ( ri.next( ) )
+		{
+			assertFalse( ri.getValue( "random1" )
+					.equals( ri.getValue( "random2" ) ) );
+			assertEquals( ri.getValue( "abs1" ), ri.getValue( "abs2" ) );
+			values.add( ri.getValue( "random1" ) );
+			rowCount++;
+		}
+		ri.close( );
+		assertTrue( rowCount > 1 );
+		assertEquals( rowCount, new HashSet( values ).size( ) );
+	}
+	
 	/**
 	 * @throws Exception
 	 */
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the field index bound by a column reference for each result class.
+ */
+public class ColumnReferenceExpressionTest extends TestCase
+{
+
+	/**
+	 * The index is resolved again when the result class changes.
+	 * 
+	 * @throws DataException
+	 */
+	public void testGetFieldIndex( ) throws DataException
+	{
+		ResultClass first = getResultClass( new String[]{
+				"a", "b"
+		} );
+		ResultClass second = getResultClass( new String[]{
+				"b", "c", "a"
+		} );
+		ColumnReferenceExpression expr = new ColumnReferenceExpression( "row",
+				"a" );
+		assertEquals( 1, expr.getFieldIndex( first ) );
+		assertEquals( 1, expr.getFieldIndex( first ) );
+		assertEquals( 3, expr.getFieldIndex( second ) );
+		assertEquals( 1, expr.getFieldIndex( first ) );
+		assertEquals( -1, expr.getFieldIndex( null ) );
+
+		ColumnReferenceExpression unknown = new ColumnReferenceExpression( "row",
+				"d" );
+		assertTrue( unknown.getFieldIndex( first ) <= 0 );
+
+		ColumnReferenceExpression indexed = new ColumnReferenceExpression( "row",
+				2 );
+		assertEquals( 2, indexed.getFieldIndex( second ) );
+	}
+
+	/**
+	 * 
+	 * @param names
+	 * @return
+	 * @throws DataException
+	 */
+	private ResultClass getResultClass( String[] names ) throws DataException
+	{
+		List columnList = new ArrayList( );
+		for ( int i = 0; i < names.length; i++ )
+		{
+			columnList.add( new ResultFieldMetadata( i + 1,
+					names[i],
+					names[i],
+					String.class,
+					String.class.getName( ),
+					false ) );
+		}
+		return new ResultClass( columnList );
+	}
+}
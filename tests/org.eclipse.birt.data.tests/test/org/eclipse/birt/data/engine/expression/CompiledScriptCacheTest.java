@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.script.ScriptContext;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * Test case for CompiledScriptCache
+ */
+public class CompiledScriptCacheTest extends TestCase
+{
+	private ExpressionCompiler compiler;
+	private ScriptContext cx;
+	private Scriptable scope;
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp( ) throws Exception
+	{
+		super.setUp( );
+		compiler = new ExpressionCompiler( );
+		cx = new ScriptContext( );
+		scope = Context.getCurrentContext( ).initStandardObjects( );
+		CompiledScriptCache.getInstance( ).clear( );
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown( ) throws Exception
+	{
+		CompiledScriptCache.getInstance( )
+				.setCapacity( CompiledScriptCache.DEFAULT_CAPACITY );
+		CompiledScriptCache.getInstance( ).clear( );
+		cx.close( );
+		super.tearDown( );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testKey( ) throws Exception
+	{
+		Context context = Context.getCurrentContext( );
+		String key1 = CompiledScriptCache.getKey( compiler.parse( "1 + a * 2",
+				context ) );
+		String key2 = CompiledScriptCache.getKey( compiler.parse( "1+a*2",
+				context ) );
+		String key3 = CompiledScriptCache.getKey( compiler.parse( "1 + b * 2",
+				context ) );
+		String key4 = CompiledScriptCache.getKey( compiler.parse( "(1 + a) * 2",
+				context ) );
+		assertNotNull( key1 );
+		assertEquals( key1, key2 );
+		assertFalse( key1.equals( key3 ) );
+		assertFalse( key1.equals( key4 ) );
+
+		assertNull( CompiledScriptCache.getKey( compiler.parse( "/a+/.test( b )",
+				context ) ) );
+		assertNull( CompiledScriptCache.getKey( compiler.parse( "if ( a ) b; else c;",
+				context ) ) );
+		assertNull( CompiledScriptCache.getKey( compiler.parse( "var x = { y: 1 }; x.y",
+				context ) ) );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testSharedScript( ) throws Exception
+	{
+		scope.put( "a", scope, Integer.valueOf( 3 ) );
+		CompiledExpression expr1 = compiler.compile( "a * 2 + 1", null, cx );
+		assertEquals( 1, CompiledScriptCache.getInstance( ).size( ) );
+		CompiledExpression expr2 = new ExpressionCompiler( ).compile( "a*2+1",
+				null,
+				cx );
+		assertEquals( 1, CompiledScriptCache.getInstance( ).size( ) );
+		assertEquals( Double.valueOf( 7 ), expr1.evaluate( cx, scope ) );
+		assertEquals( Double.valueOf( 7 ), expr2.evaluate( cx, scope ) );
+
+		new ExpressionCompiler( ).compile( "a * 3 + 1", null, cx );
+		assertEquals( 2, CompiledScriptCache.getInstance( ).size( ) );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testCapacity( ) throws Exception
+	{
+		CompiledScriptCache.getInstance( ).setCapacity( 2 );
+		compiler.compile( "a + 1", null, cx );
+		compiler.compile( "a + 2", null, cx );
+		compiler.compile( "a + 3", null, cx );
+		assertEquals( 2, CompiledScriptCache.getInstance( ).size( ) );
+
+		// shrinking keeps the most recently used scripts
+		CompiledScriptCache.getInstance( ).setCapacity( 1 );
+		assertEquals( 1, CompiledScriptCache.getInstance( ).size( ) );
+
+		CompiledScriptCache.getInstance( ).setCapacity( 0 );
+		compiler.compile( "a + 4", null, cx );
+		assertEquals( 0, CompiledScriptCache.getInstance( ).size( ) );
+	}
+
+	/**
+	 * The capacity of the system property falls back to the default value on
+	 * bad input.
+	 */
+	public void testParseCapacity( )
+	{
+		assertEquals( CompiledScriptCache.DEFAULT_CAPACITY,
+				CompiledScriptCache.parseCapacity( null ) );
+		assertEquals( CompiledScriptCache.DEFAULT_CAPACITY,
+				CompiledScriptCache.parseCapacity( "abc" ) );
+		assertEquals( 20, CompiledScriptCache.parseCapacity( " 20 " ) );
+		assertEquals( 0, CompiledScriptCache.parseCapacity( "-5" ) );
+	}
+}
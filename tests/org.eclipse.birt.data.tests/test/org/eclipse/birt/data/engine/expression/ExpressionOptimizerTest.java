@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.expression;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.script.ScriptContext;
+
+/**
+ * Test case for ExpressionOptimizer
+ */
+public class ExpressionOptimizerTest extends TestCase
+{
+	private ExpressionCompiler compiler;
+	private ScriptContext cx;
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp( ) throws Exception
+	{
+		super.setUp( );
+		compiler = new ExpressionCompiler( );
+		cx = new ScriptContext( );
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown( ) throws Exception
+	{
+		cx.close( );
+		super.tearDown( );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testConstantFolding( ) throws Exception
+	{
+		CompiledExpression expr = compiler.compile( "1 + 2 * 3", null, cx );
+		assertEquals( CompiledExpression.TYPE_CONSTANT_EXPR, expr.getType( ) );
+		assertEquals( Double.valueOf( 7 ), ( (ConstantExpression) expr ).getValue( ) );
+
+		expr = compiler.compile( "'a' + 'b'", null, cx );
+		assertEquals( CompiledExpression.TYPE_CONSTANT_EXPR, expr.getType( ) );
+		assertEquals( "ab", ( (ConstantExpression) expr ).getValue( ) );
+
+		expr = compiler.compile( "1 < 2 && !false", null, cx );
+		assertEquals( CompiledExpression.TYPE_CONSTANT_EXPR, expr.getType( ) );
+		assertEquals( Boolean.TRUE, ( (ConstantExpression) expr ).getValue( ) );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testNoFolding( ) throws Exception
+	{
+		assertEquals( CompiledExpression.TYPE_COMPLEX_EXPR,
+				compiler.compile( "row.a + 2 * 3", null, cx ).getType( ) );
+		assertEquals( CompiledExpression.TYPE_COMPLEX_EXPR,
+				compiler.compile( "Math.random( ) + 1", null, cx ).getType( ) );
+		assertEquals( CompiledExpression.TYPE_COMPLEX_EXPR,
+				compiler.compile( "new Date( ).getTime( ) > 0", null, cx )
+						.getType( ) );
+	}
+
+	/**
+	 *
+	 * @throws Exception
+	 */
+	public void testSideEffect( ) throws Exception
+	{
+		assertTrue( ( (ComplexExpression) compiler.compile( "row.a * 2 + row.b",
+				null,
+				cx ) ).isSideEffectFree( ) );
+		assertFalse( ( (ComplexExpression) compiler.compile( "x = row.a + 1",
+				null,
+				cx ) ).isSideEffectFree( ) );
+		assertFalse( ( (ComplexExpression) compiler.compile( "row.a + (x++)",
+				null,
+				cx ) ).isSideEffectFree( ) );
+	}
+
+	/**
+	 * Calls are side effect free only for the pure builtin functions.
+	 *
+	 * @throws Exception
+	 */
+	public void testCallSideEffect( ) throws Exception
+	{
+		assertTrue( isSideEffectFree( "Math.abs( row.a ) + Math.max( row.a, row.b )" ) );
+		assertTrue( isSideEffectFree( "parseInt( row.a )" ) );
+		assertFalse( isSideEffectFree( "Math.random( ) + row.a" ) );
+		assertFalse( isSideEffectFree( "Math.abs( counter( ) ) + row.a" ) );
+		assertFalse( isSideEffectFree( "counter( ) + row.a" ) );
+		assertFalse( isSideEffectFree( "row.a.toString( )" ) );
+		assertFalse( isSideEffectFree( "new Date( ).getTime( ) + row.a" ) );
+		assertFalse( isSideEffectFree( "new Number( row.a )" ) );
+	}
+
+	/**
+	 *
+	 * @param text
+	 * @return
+	 * @throws Exception
+	 */
+	private boolean isSideEffectFree( String text ) throws Exception
+	{
+		CompiledExpression expr = compiler.compile( text, null, cx );
+		assertEquals( CompiledExpression.TYPE_COMPLEX_EXPR, expr.getType( ) );
+		return ( (ComplexExpression) expr ).isSideEffectFree( );
+	}
+}
@@ -11,11 +11,17 @@
 package org.eclipse.birt.data.engine.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.data.engine.api.APITestCase;
+import org.eclipse.birt.data.engine.api.DataEngine;
 import org.eclipse.birt.data.engine.api.IGroupDefinition;
 import org.eclipse.birt.data.engine.api.IJoinCondition;
 import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
@@ -28,6 +34,7 @@ import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.JoinCondition;
 import org.eclipse.birt.data.engine.api.querydefn.JointDataSetDesign;
 import org.eclipse.birt.data.engine.api.querydefn.OdaDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.OdaDataSourceDesign;
 import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
 import org.eclipse.birt.data.engine.core.DataException;
@@ -51,6 +58,8 @@ public class JointDataSetTest extends APITestCase
 	//
 	private static int CARTESIAN_POPULATOR = 0;
 	private static int BINARY_TREE_POPULATOR = 1;
+	private static int HASH_JOIN_POPULATOR = 2;
+	private static int PRESORTED_POPULATOR = 3;
 	private static boolean ADD_FETCH_LIMIT = false;
 	private ScriptContext cx;
 	/*
@@ -155,6 +164,211 @@ public class JointDataSetTest extends APITestCase
 		checkOutputFile( );
 	}
 	
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testInnerJoin_HASH( ) throws Exception
+	{
+		assertSameRows( basicJoinTest( IJointDataSetDesign.INNER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.INNER_JOIN, HASH_JOIN_POPULATOR ) );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testLeftOuterJoin_HASH( ) throws Exception
+	{
+		assertSameRows( basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, HASH_JOIN_POPULATOR ) );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testRightOuterJoin_HASH( ) throws Exception
+	{
+		assertSameRows( basicJoinTest( IJointDataSetDesign.RIGHT_OUTER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.RIGHT_OUTER_JOIN, HASH_JOIN_POPULATOR ) );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testFullOuterJoin_HASH( ) throws Exception
+	{
+		assertSameRows( basicJoinTest( IJointDataSetDesign.FULL_OUTER_JOIN, CARTESIAN_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.FULL_OUTER_JOIN, HASH_JOIN_POPULATOR ) );
+	}
+
+	/**
+	 * The BigDecimal keys are hashed with the same hash code as the equal
+	 * integer keys.
+	 * 
+	 * @throws Exception
+	 */
+	public void testBigDecimalKeyJoin_HASH( ) throws Exception
+	{
+		String leftKey = "new java.math.BigDecimal( dataSetRow.ID ).setScale( 2 )";
+		assertSameRows( basicJoinTest( IJointDataSetDesign.INNER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.INNER_JOIN,
+						HASH_JOIN_POPULATOR,
+						leftKey,
+						"dataSetRow.ID" ) );
+		assertSameRows( basicJoinTest( IJointDataSetDesign.FULL_OUTER_JOIN, CARTESIAN_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.FULL_OUTER_JOIN,
+						HASH_JOIN_POPULATOR,
+						leftKey,
+						"new java.math.BigDecimal( dataSetRow.ID )" ) );
+	}
+
+	/**
+	 * The right data set of another data source is executed on a worker
+	 * thread of the data engine.
+	 * 
+	 * @throws Exception
+	 */
+	public void testParallelExecution( ) throws Exception
+	{
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) ( (DataEngineImpl) this.dataEngine ).getSession( )
+				.getJointDataSetExecutor( );
+		String expected = parallelJoinTest( false, null );
+		long taskCount = executor.getTaskCount( );
+		assertEquals( expected, parallelJoinTest( true, null ) );
+		assertEquals( taskCount + 1, executor.getTaskCount( ) );
+	}
+
+	/**
+	 * The right data set whose data source has scripts is executed on this
+	 * thread after the left one.
+	 * 
+	 * @throws Exception
+	 */
+	public void testParallelExecutionFallback( ) throws Exception
+	{
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) ( (DataEngineImpl) this.dataEngine ).getSession( )
+				.getJointDataSetExecutor( );
+		String expected = parallelJoinTest( false, null );
+		long taskCount = executor.getTaskCount( );
+		assertEquals( expected, parallelJoinTest( true, "var opened = true;" ) );
+		assertEquals( taskCount, executor.getTaskCount( ) );
+	}
+
+	/**
+	 * Join two data sets of two data sources.
+	 * 
+	 * @param isParallel
+	 * @param beforeOpenScript
+	 *            the script of the data source of the right data set
+	 * @return
+	 * @throws Exception
+	 */
+	private String parallelJoinTest( boolean isParallel,
+			String beforeOpenScript ) throws Exception
+	{
+		OdaDataSourceDesign source = (OdaDataSourceDesign) this.dataSource;
+		OdaDataSourceDesign dataSource2 = new OdaDataSourceDesign( "dataSource2" );
+		dataSource2.setExtensionID( source.getExtensionID( ) );
+		if ( source.getPublicProperties( ) != null )
+		{
+			Iterator itr = source.getPublicProperties( ).entrySet( ).iterator( );
+			while ( itr.hasNext( ) )
+			{
+				Map.Entry entry = (Map.Entry) itr.next( );
+				dataSource2.addPublicProperty( (String) entry.getKey( ),
+						(String) entry.getValue( ) );
+			}
+		}
+		if ( source.getPrivateProperties( ) != null )
+		{
+			Iterator itr = source.getPrivateProperties( ).entrySet( ).iterator( );
+			while ( itr.hasNext( ) )
+			{
+				Map.Entry entry = (Map.Entry) itr.next( );
+				dataSource2.addPrivateProperty( (String) entry.getKey( ),
+						(String) entry.getValue( ) );
+			}
+		}
+		dataSource2.setBeforeOpenScript( beforeOpenScript );
+		dataEngine.defineDataSource( dataSource2 );
+
+		newDataSet( "dset1", "Select ID, CITY FROM "
+				+ this.getTestTableName( ) + " where ID > 4 order by ID asc" );
+		OdaDataSetDesign dset2 = newDataSet( "dset2", "Select ID, SKU FROM "
+				+ this.getTestTableName( ) + " where ID < 20 order by ID asc" );
+		dset2.setDataSource( dataSource2.getName( ) );
+		dataEngine.defineDataSet( dset2 );
+
+		List a = new ArrayList( );
+		a.add( new JoinCondition( new ScriptExpression( "dataSetRow.ID" ),
+				new ScriptExpression( "dataSetRow.ID" ),
+				IJoinCondition.OP_EQ ) );
+		JointDataSetDesign dset3 = new JointDataSetDesign( "dset3",
+				"dset1",
+				"dset2",
+				IJointDataSetDesign.INNER_JOIN,
+				a );
+		dataEngine.defineDataSet( dset3 );
+
+		QueryDefinition query = this.newReportQuery( dset3 );
+		query.addResultSetExpression( "CITY",
+				new ScriptExpression( "dataSetRow[\"dset1::CITY\"]" ) );
+		query.addResultSetExpression( "SKU",
+				new ScriptExpression( "dataSetRow[\"dset2::SKU\"]" ) );
+		Map appContext = new HashMap( );
+		appContext.put( DataEngine.JOINT_DATA_SET_PARALLEL_EXECUTION,
+				Boolean.valueOf( isParallel ) );
+		IQueryResults qr = this.dataEngine.prepare( query, appContext )
+				.execute( null );
+		org.eclipse.birt.data.engine.api.IResultIterator ri = qr.getResultIterator( );
+		String s = "";
+		while ( ri.next( ) )
+		{
+			s += ri.getValue( "CITY" ) + "\t" + ri.getValue( "SKU" ) + "\n";
+		}
+		qr.close( );
+		return s;
+	}
+
+	/**
+	 * The data sets are ordered by ID in SQL.
+	 * 
+	 * @throws Exception
+	 */
+	public void testInnerJoin_PRESORTED( ) throws Exception
+	{
+		assertEquals( basicJoinTest( IJointDataSetDesign.INNER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.INNER_JOIN, PRESORTED_POPULATOR ) );
+	}
+
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	public void testLeftOuterJoin_PRESORTED( ) throws Exception
+	{
+		assertEquals( basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, BINARY_TREE_POPULATOR ),
+				basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, PRESORTED_POPULATOR ) );
+	}
+
+	/**
+	 * The hash join returns the rows in another order.
+	 * 
+	 * @param expected
+	 * @param actual
+	 */
+	private static void assertSameRows( String expected, String actual )
+	{
+		String[] expectedRows = expected.split( "\n" );
+		String[] actualRows = actual.split( "\n" );
+		Arrays.sort( expectedRows );
+		Arrays.sort( actualRows );
+		assertEquals( Arrays.asList( expectedRows ), Arrays.asList( actualRows ) );
+	}
+
 	/**
 	 * 
 	 * @throws Exception
@@ -365,6 +579,26 @@ public class JointDataSetTest extends APITestCase
 	 * @throws DataException
 	 */
 	private String basicJoinTest( int joinType, int populateType ) throws Exception, BirtException, DataException
+	{
+		return basicJoinTest( joinType,
+				populateType,
+				"dataSetRow.ID",
+				"dataSetRow.ID" );
+	}
+
+	/**
+	 * 
+	 * @param joinType
+	 * @param populateType
+	 * @param leftKey
+	 *            the join key expression of the left data set
+	 * @param rightKey
+	 *            the join key expression of the right data set
+	 * @return
+	 * @throws Exception
+	 */
+	private String basicJoinTest( int joinType, int populateType,
+			String leftKey, String rightKey ) throws Exception
 	{
 		OdaDataSetDesign dset1 = newDataSet( "dset1", "Select ID, CITY, STORE FROM "
 				+ this.getTestTableName( ) + " where ID > 4 and ID <> 7 and ID <> 9 order by ID asc");
@@ -402,7 +636,7 @@ public class JointDataSetTest extends APITestCase
 		JointResultMetadata meta = new JointResultMetadata( resultClass, isFromLeft, index );
 		//JoinConditionMatcher matcher = new JoinConditionMatcher( qr1.getResultIterator( ).getScope( ), qr2.getResultIterator( ).getScope( ), new JoinConditionExpression(new ScriptExpression("row.ID"),new ScriptExpression("row.ID"),0));
 		List a = new ArrayList();
-		a.add( new JoinCondition(new ScriptExpression("dataSetRow.ID"),new ScriptExpression("dataSetRow.ID"),IJoinCondition.OP_EQ) );
+		a.add( new JoinCondition(new ScriptExpression(leftKey),new ScriptExpression(rightKey),IJoinCondition.OP_EQ) );
 		JoinConditionMatcher matcher = new JoinConditionMatcher( ((ResultIterator)qr1.getResultIterator( )).getOdiResult( ),((ResultIterator)qr2.getResultIterator( )).getOdiResult( ),qr1.getQueryScope( ), qr2.getQueryScope( ),cx,  a);
 		IDataSetPopulator populator = null;
 		
@@ -414,6 +648,10 @@ public class JointDataSetTest extends APITestCase
 		
 		if( populateType == BINARY_TREE_POPULATOR) 
 			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
+		else if( populateType == PRESORTED_POPULATOR )
+			populator = JointDataSetPopulatorFactory.getPresortedDataSetPopulator(it1, it2, meta, matcher, joinType, true, true, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
+		else if( populateType == HASH_JOIN_POPULATOR )
+			populator = JointDataSetPopulatorFactory.getHashJoinDataSetPopulator(it1, it2, meta, matcher, joinType, fetchRowLimit);
 		else 
 			populator = JointDataSetPopulatorFactory.getCartesianJointDataSetPopulator(it1, it2, meta, matcher, joinType,  ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
 		
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IPreparedQuery;
+import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.InputParameterBinding;
+import org.eclipse.birt.data.engine.api.querydefn.ParameterDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+
+import testutil.BaseTestCase;
+
+/**
+ * Test case for PreparedQueryCache
+ */
+public class PreparedQueryCacheTest extends BaseTestCase
+{
+	private DataEngine dataEngine;
+	private Map appContext;
+
+	/*
+	 * @see testutil.BaseTestCase#setUp()
+	 */
+	protected void setUp( ) throws Exception
+	{
+		super.setUp( );
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				null,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		dataEngine = DataEngine.newDataEngine( context );
+
+		ScriptDataSourceDesign dataSource = new ScriptDataSourceDesign( "ds" );
+		dataEngine.defineDataSource( dataSource );
+		dataEngine.defineDataSet( newDataSet( 5 ) );
+
+		appContext = new HashMap( );
+		appContext.put( DataEngine.PREPARED_QUERY_CACHE_SIZE, "10" );
+	}
+
+	/*
+	 * @see testutil.BaseTestCase#tearDown()
+	 */
+	protected void tearDown( ) throws Exception
+	{
+		dataEngine.shutdown( );
+		super.tearDown( );
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testReuse( ) throws BirtException
+	{
+		IPreparedQuery query1 = dataEngine.prepare( newQuery( "column1" ),
+				appContext );
+		QueryDefinition queryDefn2 = newQuery( "column1" );
+		IPreparedQuery query2 = dataEngine.prepare( queryDefn2, appContext );
+		assertSame( query1, getPreparedQuery( query2 ) );
+		assertSame( queryDefn2, query2.getReportQueryDefn( ) );
+		assertEquals( 5, countRows( query1 ) );
+		assertEquals( 5, countRows( query2 ) );
+
+		assertNotSame( query1,
+				getPreparedQuery( dataEngine.prepare( newQuery( "column2" ),
+						appContext ) ) );
+	}
+
+	/**
+	 * Queries of the same structure but different names are prepared
+	 * separately, so that their results are saved under their own names.
+	 *
+	 * @throws BirtException
+	 */
+	public void testName( ) throws BirtException
+	{
+		QueryDefinition queryDefn1 = newQuery( "column1" );
+		queryDefn1.setName( "query1" );
+		QueryDefinition queryDefn2 = newQuery( "column1" );
+		queryDefn2.setName( "query2" );
+		IPreparedQuery query1 = dataEngine.prepare( queryDefn1, appContext );
+		IPreparedQuery query2 = dataEngine.prepare( queryDefn2, appContext );
+		assertNotSame( query1, query2 );
+		assertEquals( "query1", query1.getReportQueryDefn( ).getName( ) );
+		assertEquals( "query2", query2.getReportQueryDefn( ).getName( ) );
+
+		QueryDefinition queryDefn3 = newQuery( "column1" );
+		queryDefn3.setName( "query1" );
+		assertSame( query1,
+				getPreparedQuery( dataEngine.prepare( queryDefn3, appContext ) ) );
+
+		QueryDefinition tempQueryDefn = newQuery( "column1" );
+		tempQueryDefn.setName( "query1" );
+		tempQueryDefn.setAsTempQuery( );
+		assertNotSame( query1,
+				getPreparedQuery( dataEngine.prepare( tempQueryDefn, appContext ) ) );
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testInvalidation( ) throws BirtException
+	{
+		IPreparedQuery query1 = dataEngine.prepare( newQuery( "column1" ),
+				appContext );
+
+		// an equal data set design keeps the prepared query
+		dataEngine.defineDataSet( newDataSet( 5 ) );
+		assertSame( query1,
+				getPreparedQuery( dataEngine.prepare( newQuery( "column1" ),
+						appContext ) ) );
+
+		dataEngine.defineDataSet( newDataSet( 3 ) );
+		IPreparedQuery query2 = dataEngine.prepare( newQuery( "column1" ),
+				appContext );
+		assertNotSame( query1, getPreparedQuery( query2 ) );
+		assertEquals( 3, countRows( query2 ) );
+
+		Map otherContext = new HashMap( appContext );
+		otherContext.put( "key", "value" );
+		assertNotSame( query2,
+				getPreparedQuery( dataEngine.prepare( newQuery( "column1" ),
+						otherContext ) ) );
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testDisabled( ) throws BirtException
+	{
+		assertNotSame( dataEngine.prepare( newQuery( "column1" ) ),
+				getPreparedQuery( dataEngine.prepare( newQuery( "column1" ) ) ) );
+
+		appContext.put( DataEngine.PREPARED_QUERY_CACHE_SIZE, "0" );
+		assertNotSame( dataEngine.prepare( newQuery( "column1" ), appContext ),
+				getPreparedQuery( dataEngine.prepare( newQuery( "column1" ),
+						appContext ) ) );
+	}
+
+	/**
+	 * The input parameter bindings of the later query definition are bound
+	 * when the reused prepared query is executed.
+	 *
+	 * @throws BirtException
+	 */
+	public void testParameterBinding( ) throws BirtException
+	{
+		ScriptDataSetDesign dataSet = newDataSet( 5 );
+		dataSet.addParameter( new ParameterDefinition( "limit",
+				DataType.INTEGER_TYPE,
+				true,
+				false ) );
+		dataSet.setFetchScript( "if ( i >= inputParams[\"limit\"] ) return false; i++; row.column1 = i; return true;" );
+		dataEngine.defineDataSet( dataSet );
+
+		QueryDefinition queryDefn1 = newQuery( "column1" );
+		queryDefn1.addInputParamBinding( new InputParameterBinding( "limit",
+				new ScriptExpression( "2" ) ) );
+		IPreparedQuery query1 = dataEngine.prepare( queryDefn1, appContext );
+		assertEquals( 2, countRows( query1 ) );
+
+		final int[] bound = new int[1];
+		QueryDefinition queryDefn2 = newQuery( "column1" );
+		queryDefn2.addInputParamBinding( new InputParameterBinding( "limit",
+				new ScriptExpression( "2" ) ) {
+
+			public IBaseExpression getExpr( )
+			{
+				bound[0]++;
+				return super.getExpr( );
+			}
+		} );
+		IPreparedQuery query2 = dataEngine.prepare( queryDefn2, appContext );
+		assertSame( query1, getPreparedQuery( query2 ) );
+		bound[0] = 0;
+		assertEquals( 2, countRows( query2 ) );
+		assertTrue( bound[0] > 0 );
+		assertSame( queryDefn1, query1.getReportQueryDefn( ) );
+	}
+
+	/**
+	 *
+	 * @param query
+	 * @return the cached prepared query which is reused by the query
+	 */
+	private static IPreparedQuery getPreparedQuery( IPreparedQuery query )
+	{
+		if ( query instanceof PreparedQueryCache.ReusedPreparedQuery )
+			return ( (PreparedQueryCache.ReusedPreparedQuery) query ).getPreparedQuery( );
+		return query;
+	}
+
+	/**
+	 *
+	 * @param rowCount
+	 * @return
+	 */
+	private ScriptDataSetDesign newDataSet( int rowCount )
+	{
+		ScriptDataSetDesign dataSet = new ScriptDataSetDesign( "test" );
+		dataSet.setDataSource( "ds" );
+		dataSet.addResultSetHint( new ColumnDefinition( "column1" ) );
+		dataSet.setOpenScript( "i = 0;" );
+		dataSet.setFetchScript( "if ( i >= "
+				+ rowCount + " ) return false; i++; row.column1 = i; return true;" );
+		return dataSet;
+	}
+
+	/**
+	 *
+	 * @param bindingName
+	 * @return
+	 * @throws BirtException
+	 */
+	private QueryDefinition newQuery( String bindingName )
+			throws BirtException
+	{
+		QueryDefinition qd = new QueryDefinition( );
+		qd.setDataSetName( "test" );
+		qd.addBinding( new Binding( bindingName,
+				new ScriptExpression( "dataSetRow[\"column1\"]",
+						DataType.INTEGER_TYPE ) ) );
+		return qd;
+	}
+
+	/**
+	 *
+	 * @param query
+	 * @return
+	 * @throws BirtException
+	 */
+	private int countRows( IPreparedQuery query ) throws BirtException
+	{
+		IResultIterator it = query.execute( null ).getResultIterator( );
+		int count = 0;
+		while ( it.next( ) )
+			count++;
+		it.close( );
+		return count;
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Test the layout of the expression values which are saved by column.
+ */
+public class ColumnSaveUtilTest extends TestCase
+{
+	private static final int ROW_COUNT = 2500;
+
+	/**
+	 * Every binding of every chunk is read from its own block.
+	 *
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	public void testSaveByColumn( ) throws DataException, IOException
+	{
+		Set exprNames = new LinkedHashSet( );
+		exprNames.add( "id" );
+		exprNames.add( "name" );
+		exprNames.add( "mixed" );
+		Map bindingNameType = new HashMap( );
+		bindingNameType.put( "id", Integer.valueOf( DataType.INTEGER_TYPE ) );
+		bindingNameType.put( "name", Integer.valueOf( DataType.STRING_TYPE ) );
+		bindingNameType.put( "mixed", Integer.valueOf( DataType.ANY_TYPE ) );
+
+		ByteArrayOutputStream valueOs = new ByteArrayOutputStream( );
+		ByteArrayOutputStream indexOs = new ByteArrayOutputStream( );
+		ColumnSaveUtil saveUtil = new ColumnSaveUtil( valueOs,
+				indexOs,
+				exprNames,
+				new HashMap( ),
+				bindingNameType );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			// the odd rows are not saved, and they have null values
+			if ( i % 2 == 1 )
+				continue;
+			Map valueMap = new HashMap( );
+			valueMap.put( "id", Integer.valueOf( i ) );
+			valueMap.put( "name", "name" + i );
+			valueMap.put( "mixed", i % 4 == 0 ? (Object) Integer.valueOf( i )
+					: (Object) String.valueOf( i ) );
+			saveUtil.saveExprValue( i, valueMap );
+		}
+		saveUtil.saveFinish( ROW_COUNT );
+
+		DataInputStream indexDis = new DataInputStream( new ByteArrayInputStream( indexOs.toByteArray( ) ) );
+		assertEquals( ROW_COUNT, IOUtil.readInt( indexDis ) );
+		int chunkSize = IOUtil.readInt( indexDis );
+		assertEquals( ColumnSaveUtil.CHUNK_SIZE, chunkSize );
+		assertEquals( 3, IOUtil.readInt( indexDis ) );
+		assertEquals( "id", IOUtil.readString( indexDis ) );
+		assertEquals( DataType.INTEGER_TYPE, IOUtil.readInt( indexDis ) );
+		assertEquals( "name", IOUtil.readString( indexDis ) );
+		assertEquals( DataType.STRING_TYPE, IOUtil.readInt( indexDis ) );
+		assertEquals( "mixed", IOUtil.readString( indexDis ) );
+		assertEquals( DataType.ANY_TYPE, IOUtil.readInt( indexDis ) );
+		assertEquals( 0, IOUtil.readInt( indexDis ) );
+		int chunkCount = IOUtil.readInt( indexDis );
+		assertEquals( ( ROW_COUNT + chunkSize - 1 ) / chunkSize, chunkCount );
+		long[] offsets = new long[chunkCount * 3];
+		for ( int i = 0; i < offsets.length; i++ )
+			offsets[i] = IOUtil.readLong( indexDis );
+		byte[] values = valueOs.toByteArray( );
+		assertEquals( values.length, IOUtil.readLong( indexDis ) );
+
+		// read the blocks of the bindings backwards to make sure that the
+		// offsets are used
+		for ( int expr = 2; expr >= 0; expr-- )
+		{
+			for ( int chunk = 0; chunk < chunkCount; chunk++ )
+			{
+				int count = Math.min( chunkSize, ROW_COUNT - chunk
+						* chunkSize );
+				long offset = offsets[chunk * 3 + expr];
+				DataInputStream valueDis = new DataInputStream( new ByteArrayInputStream( values,
+						(int) offset,
+						values.length - (int) offset ) );
+				Object[] chunkValues = new Object[count];
+				ColumnSaveUtil.readBlock( valueDis,
+						chunkValues,
+						count,
+						getClass( ).getClassLoader( ) );
+				for ( int i = 0; i < count; i++ )
+				{
+					int row = chunk * chunkSize + i;
+					assertEquals( getExpectedValue( expr, row ), chunkValues[i] );
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param expr
+	 * @param row
+	 * @return
+	 */
+	private static Object getExpectedValue( int expr, int row )
+	{
+		if ( row % 2 == 1 )
+			return null;
+		if ( expr == 0 )
+			return Integer.valueOf( row );
+		if ( expr == 1 )
+			return "name" + row;
+		return row % 4 == 0 ? (Object) Integer.valueOf( row )
+				: (Object) String.valueOf( row );
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMap;
+import org.eclipse.birt.data.engine.impl.document.viewing.ZoneMapFilter;
+
+/**
+ * Test the zone map of the saved rows and the blocks skipped by it.
+ */
+public class ZoneMapSaveUtilTest extends TestCase
+{
+	private static final int ROW_COUNT = 5000;
+
+	// the rows which are not saved
+	private static final int GAP_START = 3000;
+	private static final int GAP_END = 3100;
+
+	private ZoneMap zoneMap;
+
+	/*
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	protected void setUp( ) throws Exception
+	{
+		Map bindingNameType = new HashMap( );
+		bindingNameType.put( "number", Integer.valueOf( DataType.INTEGER_TYPE ) );
+		bindingNameType.put( "name", Integer.valueOf( DataType.STRING_TYPE ) );
+		bindingNameType.put( ExprMetaUtil.POS_NAME,
+				Integer.valueOf( DataType.INTEGER_TYPE ) );
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream( );
+		ZoneMapSaveUtil saveUtil = new ZoneMapSaveUtil( outputStream,
+				bindingNameType );
+		for ( int i = 0; i < ROW_COUNT; i++ )
+		{
+			if ( i >= GAP_START && i < GAP_END )
+				continue;
+			Map valueMap = new HashMap( );
+			// the sixth row of every block has a null value
+			valueMap.put( "number", i % ZoneMapSaveUtil.BLOCK_SIZE == 5
+					? null : Integer.valueOf( i ) );
+			valueMap.put( "name", "name" + i );
+			saveUtil.saveExprValue( i, valueMap );
+		}
+		saveUtil.saveFinish( ROW_COUNT - 1 );
+
+		zoneMap = new ZoneMap( new ByteArrayInputStream( outputStream.toByteArray( ) ) );
+	}
+
+	/**
+	 *
+	 */
+	public void testZoneMap( )
+	{
+		assertEquals( ROW_COUNT, zoneMap.getRowCount( ) );
+		assertEquals( ZoneMapSaveUtil.BLOCK_SIZE, zoneMap.getBlockSize( ) );
+		assertEquals( 5, zoneMap.getBlockCount( ) );
+		assertEquals( ROW_COUNT - 4 * ZoneMapSaveUtil.BLOCK_SIZE,
+				zoneMap.getBlockRowCount( 4 ) );
+		assertTrue( zoneMap.contains( "number" ) );
+		assertTrue( zoneMap.contains( "name" ) );
+		assertFalse( zoneMap.contains( ExprMetaUtil.POS_NAME ) );
+		assertEquals( DataType.INTEGER_TYPE, zoneMap.getDataType( "number" ) );
+	}
+
+	/**
+	 *
+	 */
+	public void testSkipBlocks( )
+	{
+		// the blocks of the rows which are not saved are never skipped
+		ZoneMapFilter filter = newFilter( "number",
+				IConditionalExpression.OP_EQ,
+				new Object[]{
+					Double.valueOf( 4500 )
+				} );
+		assertEquals( 2048, filter.nextCandidateRow( 0 ) );
+		assertEquals( 3072, filter.nextCandidateRow( 3072 ) );
+		assertEquals( 4200, filter.nextCandidateRow( 4200 ) );
+
+		filter = newFilter( "number",
+				IConditionalExpression.OP_IN,
+				new Object[]{
+						Double.valueOf( 100 ), Double.valueOf( 99999 )
+				} );
+		assertEquals( 1, filter.nextCandidateRow( 1 ) );
+		assertEquals( 2048, filter.nextCandidateRow( 1024 ) );
+		assertEquals( -1, filter.nextCandidateRow( 4096 ) );
+
+		filter = newFilter( "number",
+				IConditionalExpression.OP_BETWEEN,
+				new Object[]{
+						Double.valueOf( 1500 ), Double.valueOf( 1200 )
+				} );
+		assertEquals( 1024, filter.nextCandidateRow( 0 ) );
+
+		// a null value may be less than any number
+		filter = newFilter( "number",
+				IConditionalExpression.OP_LT,
+				new Object[]{
+					Double.valueOf( 0 )
+				} );
+		assertEquals( 1024, filter.nextCandidateRow( 1024 ) );
+
+		filter = newFilter( "number",
+				IConditionalExpression.OP_NULL,
+				new Object[0] );
+		assertEquals( 4096, filter.nextCandidateRow( 4096 ) );
+		filter = newFilter( "name",
+				IConditionalExpression.OP_NULL,
+				new Object[0] );
+		assertEquals( 2048, filter.nextCandidateRow( 0 ) );
+		assertEquals( -1, filter.nextCandidateRow( 4096 ) );
+
+		// the string values have no range
+		filter = newFilter( "name",
+				IConditionalExpression.OP_EQ,
+				new Object[]{
+					Double.valueOf( 1 )
+				} );
+		assertEquals( 7, filter.nextCandidateRow( 7 ) );
+	}
+
+	/**
+	 *
+	 */
+	public void testUnsupportedPredicate( )
+	{
+		ZoneMapFilter filter = new ZoneMapFilter( zoneMap );
+		assertFalse( filter.addPredicate( "unknown",
+				IConditionalExpression.OP_EQ,
+				new Object[]{
+					Double.valueOf( 1 )
+				} ) );
+		assertFalse( filter.addPredicate( "number",
+				IConditionalExpression.OP_NE,
+				new Object[]{
+					Double.valueOf( 1 )
+				} ) );
+		assertTrue( filter.isEmpty( ) );
+	}
+
+	/**
+	 * @param name
+	 * @param operator
+	 * @param operands
+	 * @return
+	 */
+	private ZoneMapFilter newFilter( String name, int operator,
+			Object[] operands )
+	{
+		ZoneMapFilter filter = new ZoneMapFilter( zoneMap );
+		assertTrue( filter.addPredicate( name, operator, operands ) );
+		return filter;
+	}
+}
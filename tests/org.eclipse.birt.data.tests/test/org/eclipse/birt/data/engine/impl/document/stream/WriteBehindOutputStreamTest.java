@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.document.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the stream which is written by the writer threads.
+ */
+public class WriteBehindOutputStreamTest extends TestCase
+{
+
+	/**
+	 * The bytes are written in the same order, and all of them are written
+	 * when the stream is closed.
+	 *
+	 * @throws IOException
+	 */
+	public void testWrite( ) throws IOException
+	{
+		ByteArrayOutputStream target = new ByteArrayOutputStream( );
+		ByteArrayOutputStream expected = new ByteArrayOutputStream( );
+		WriteBehindOutputStream stream = new WriteBehindOutputStream( target );
+		DataOutputStream dos = new DataOutputStream( stream );
+		DataOutputStream expectedDos = new DataOutputStream( expected );
+		byte[] large = new byte[WriteBehindOutputStream.BATCH_SIZE * 3 + 7];
+		Arrays.fill( large, (byte) 5 );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			dos.writeInt( i );
+			expectedDos.writeInt( i );
+			if ( i % 10000 == 0 )
+			{
+				dos.write( large );
+				expectedDos.write( large );
+				dos.flush( );
+			}
+		}
+		dos.close( );
+		// the second close does nothing
+		dos.close( );
+		// FilterOutputStream of some JREs flushes each time it is closed
+		stream.flush( );
+
+		assertTrue( Arrays.equals( expected.toByteArray( ), target.toByteArray( ) ) );
+	}
+
+	/**
+	 * The exception of the background thread is thrown to the writing thread.
+	 */
+	public void testException( )
+	{
+		OutputStream target = new OutputStream( ) {
+
+			private int count;
+
+			public void write( int b ) throws IOException
+			{
+				if ( ++count > WriteBehindOutputStream.BATCH_SIZE )
+					throw new IOException( "full" );
+			}
+		};
+		WriteBehindOutputStream stream = new WriteBehindOutputStream( target );
+		try
+		{
+			for ( int i = 0; i < WriteBehindOutputStream.BATCH_SIZE
+					* ( WriteBehindOutputStream.MAX_PENDING_BATCHES + 4 ); i++ )
+			{
+				stream.write( i );
+			}
+			stream.close( );
+			fail( );
+		}
+		catch ( IOException e )
+		{
+			assertEquals( "full", e.getMessage( ) );
+		}
+	}
+
+	/**
+	 * The exception of the batch written by close( ) is thrown by close( ),
+	 * after the wrapped stream is closed.
+	 */
+	public void testExceptionOnClose( )
+	{
+		final boolean[] closed = new boolean[1];
+		OutputStream target = new OutputStream( ) {
+
+			public void write( int b ) throws IOException
+			{
+				throw new IOException( "full" );
+			}
+
+			public void close( ) throws IOException
+			{
+				closed[0] = true;
+			}
+		};
+		WriteBehindOutputStream stream = new WriteBehindOutputStream( target );
+		try
+		{
+			stream.write( new byte[100] );
+			stream.close( );
+			fail( );
+		}
+		catch ( IOException e )
+		{
+			assertEquals( "full", e.getMessage( ) );
+		}
+		assertTrue( closed[0] );
+		try
+		{
+			// the exception is not lost when the stream is flushed later
+			stream.flush( );
+			fail( );
+		}
+		catch ( IOException e )
+		{
+			assertEquals( "full", e.getMessage( ) );
+		}
+	}
+
+	/**
+	 * close( ) waits until the slow writer thread writes all of the bytes.
+	 *
+	 * @throws IOException
+	 */
+	public void testCloseWaitsForWriter( ) throws IOException
+	{
+		ByteArrayOutputStream target = new ByteArrayOutputStream( ) {
+
+			public synchronized void write( byte[] b, int off, int len )
+			{
+				try
+				{
+					Thread.sleep( 20 );
+				}
+				catch ( InterruptedException e )
+				{
+				}
+				super.write( b, off, len );
+			}
+		};
+		WriteBehindOutputStream stream = new WriteBehindOutputStream( target );
+		byte[] bytes = new byte[WriteBehindOutputStream.BATCH_SIZE * 5 + 3];
+		Arrays.fill( bytes, (byte) 1 );
+		stream.write( bytes );
+		stream.close( );
+		assertEquals( bytes.length, target.size( ) );
+	}
+
+	/**
+	 * The streams which are open at the same time share the writer threads,
+	 * even when there are more streams than writer threads.
+	 *
+	 * @throws IOException
+	 */
+	public void testSharedWriters( ) throws IOException
+	{
+		ExecutorService executor = Executors.newSingleThreadExecutor( );
+		try
+		{
+			ByteArrayOutputStream[] targets = new ByteArrayOutputStream[3];
+			WriteBehindOutputStream[] streams = new WriteBehindOutputStream[targets.length];
+			for ( int i = 0; i < targets.length; i++ )
+			{
+				targets[i] = new ByteArrayOutputStream( );
+				streams[i] = new WriteBehindOutputStream( targets[i], executor );
+			}
+			byte[] bytes = new byte[WriteBehindOutputStream.BATCH_SIZE];
+			for ( int n = 0; n < WriteBehindOutputStream.MAX_PENDING_BATCHES * 2; n++ )
+			{
+				for ( int i = 0; i < streams.length; i++ )
+				{
+					Arrays.fill( bytes, (byte) ( n + i ) );
+					streams[i].write( bytes );
+				}
+			}
+			for ( int i = 0; i < streams.length; i++ )
+			{
+				streams[i].close( );
+				byte[] written = targets[i].toByteArray( );
+				assertEquals( WriteBehindOutputStream.BATCH_SIZE
+						* WriteBehindOutputStream.MAX_PENDING_BATCHES * 2,
+						written.length );
+				for ( int n = 0; n < WriteBehindOutputStream.MAX_PENDING_BATCHES * 2; n++ )
+				{
+					assertEquals( (byte) ( n + i ),
+							written[n * WriteBehindOutputStream.BATCH_SIZE] );
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdown( );
+		}
+	}
+}
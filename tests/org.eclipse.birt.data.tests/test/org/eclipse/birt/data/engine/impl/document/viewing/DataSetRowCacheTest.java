@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.document.viewing;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the cache of the decoded data set rows shared by the viewing queries.
+ */
+public class DataSetRowCacheTest extends TestCase
+{
+
+	/**
+	 * The blocks are cached by data set and block index.
+	 */
+	public void testGetAndPut( )
+	{
+		DataSetRowCache cache = new DataSetRowCache( 1000 );
+		Object[][] rows = new Object[][]{
+				new Object[]{ "a", Integer.valueOf( 1 ) },
+				new Object[]{ "b", Integer.valueOf( 2 ) }
+		};
+		cache.putBlock( "ds1", 0, rows, 100 );
+		assertSame( rows, cache.getBlock( "ds1", 0 ) );
+		assertNull( cache.getBlock( "ds1", 1 ) );
+		assertNull( cache.getBlock( "ds2", 0 ) );
+		assertEquals( 100, cache.getMemorySize( ) );
+
+		// a block larger than the cache is not cached
+		cache.putBlock( "ds1", 1, rows, 2000 );
+		assertNull( cache.getBlock( "ds1", 1 ) );
+		assertEquals( 1, cache.size( ) );
+
+		cache.clear( );
+		assertNull( cache.getBlock( "ds1", 0 ) );
+		assertEquals( 0, cache.getMemorySize( ) );
+	}
+
+	/**
+	 * The blocks of the data sets which are not read are removed before the
+	 * others, each in LRU order.
+	 */
+	public void testEvict( )
+	{
+		DataSetRowCache cache = new DataSetRowCache( 300 );
+		cache.open( "ds1" );
+		cache.open( "ds1" );
+		cache.putBlock( "ds1", 0, new Object[0][], 100 );
+		cache.putBlock( "ds2", 0, new Object[0][], 100 );
+		cache.putBlock( "ds1", 1, new Object[0][], 100 );
+		cache.putBlock( "ds1", 2, new Object[0][], 100 );
+		assertNull( cache.getBlock( "ds2", 0 ) );
+		assertNotNull( cache.getBlock( "ds1", 0 ) );
+		assertEquals( 300, cache.getMemorySize( ) );
+
+		cache.open( "ds2" );
+		cache.putBlock( "ds2", 1, new Object[0][], 100 );
+		assertNull( cache.getBlock( "ds1", 1 ) );
+		assertNotNull( cache.getBlock( "ds1", 0 ) );
+		assertNotNull( cache.getBlock( "ds2", 1 ) );
+
+		cache.close( "ds1" );
+		assertEquals( 1, cache.getReaderCount( "ds1" ) );
+		cache.close( "ds1" );
+		assertEquals( 0, cache.getReaderCount( "ds1" ) );
+		// the blocks of ds1 are kept until the cache is full
+		assertNotNull( cache.getBlock( "ds1", 2 ) );
+		cache.putBlock( "ds2", 2, new Object[0][], 100 );
+		assertNull( cache.getBlock( "ds1", 0 ) );
+		assertNotNull( cache.getBlock( "ds1", 2 ) );
+		assertNotNull( cache.getBlock( "ds2", 1 ) );
+
+		cache.setMaxMemorySize( 0 );
+		assertEquals( 0, cache.size( ) );
+		assertEquals( 0, cache.getMemorySize( ) );
+	}
+}
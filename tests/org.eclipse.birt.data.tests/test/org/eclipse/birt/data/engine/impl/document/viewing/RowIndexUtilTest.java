@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.document.viewing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.archive.FileArchiveReader;
+import org.eclipse.birt.core.archive.FileArchiveWriter;
+
+/**
+ * Test the row index information which is read by row.
+ */
+public class RowIndexUtilTest extends TestCase
+{
+
+	/**
+	 * The row index of a row after the next row is read without the rows in
+	 * between, and the rows after it are read in order.
+	 */
+	public void testReadByRow( )
+	{
+		ByteArrayOutputStream os = new ByteArrayOutputStream( );
+		RowIndexUtil writer = new RowIndexUtil( os );
+		for ( int i = 0; i < 100; i++ )
+			writer.write( i * 3 );
+		writer.close( );
+
+		RowIndexUtil reader = new RowIndexUtil( new ByteArrayInputStream( os.toByteArray( ) ) );
+		assertEquals( 0, reader.read( ) );
+		assertEquals( 3, reader.read( 1 ) );
+		assertEquals( 30, reader.read( 10 ) );
+		assertEquals( 33, reader.read( ) );
+		assertEquals( 36, reader.read( 12 ) );
+		assertEquals( 297, reader.read( 99 ) );
+		assertEquals( -1, reader.read( ) );
+		reader.close( );
+	}
+
+	/**
+	 * -1 is returned for a row after the last row, whether the input stream
+	 * is random access or not.
+	 * 
+	 * @throws Exception
+	 */
+	public void testReadAfterLastRow( ) throws Exception
+	{
+		ByteArrayOutputStream os = new ByteArrayOutputStream( );
+		RowIndexUtil writer = new RowIndexUtil( os );
+		for ( int i = 0; i < 10; i++ )
+			writer.write( i );
+		writer.close( );
+
+		RowIndexUtil reader = new RowIndexUtil( new ByteArrayInputStream( os.toByteArray( ) ) );
+		assertEquals( -1, reader.read( 20 ) );
+		reader.close( );
+
+		File file = File.createTempFile( "rowIndex", null );
+		FileArchiveWriter archiveWriter = new FileArchiveWriter( file.getPath( ) );
+		archiveWriter.initialize( );
+		writer = new RowIndexUtil( archiveWriter.createRandomAccessStream( "rowIndex" ) );
+		for ( int i = 0; i < 10; i++ )
+			writer.write( i );
+		writer.close( );
+		archiveWriter.finish( );
+
+		FileArchiveReader archiveReader = new FileArchiveReader( file.getPath( ) );
+		archiveReader.open( );
+		reader = new RowIndexUtil( archiveReader.getStream( "rowIndex" ) );
+		assertEquals( 9, reader.read( 9 ) );
+		assertEquals( -1, reader.read( ) );
+		assertEquals( -1, reader.read( 20 ) );
+		reader.close( );
+		archiveReader.close( );
+		file.delete( );
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.group;
+
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.data.DateTimeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.IGroupDefinition;
+
+import com.ibm.icu.util.Calendar;
+import com.ibm.icu.util.TimeZone;
+import com.ibm.icu.util.ULocale;
+
+/**
+ * Test case for the year, quarter and month group calculators
+ */
+public class DateGroupCalculatorTest extends TestCase
+{
+	private static final ULocale locale = ULocale.US;
+	private static final TimeZone timeZone = TimeZone.getTimeZone( "GMT+08:00" );
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testDefaultStart( ) throws BirtException
+	{
+		DateTimeUtil util = new DateTimeUtil( locale, timeZone );
+		Date start = newDate( 1970, 0, 1 );
+		Date[] dates = getDates( );
+		for ( int range = 1; range <= 3; range++ )
+		{
+			ICalculator year = newCalculator( IGroupDefinition.YEAR_INTERVAL,
+					null,
+					range );
+			ICalculator quarter = newCalculator( IGroupDefinition.QUARTER_INTERVAL,
+					null,
+					range );
+			ICalculator month = newCalculator( IGroupDefinition.MONTH_INTERVAL,
+					null,
+					range );
+			for ( int i = 0; i < dates.length; i++ )
+			{
+				Date date = new Date( dates[i].getTime( ) );
+				assertEquals( key( util.diffYear( start, date ), range ),
+						year.calculate( dates[i] ) );
+				assertEquals( key( util.diffQuarter( start, date ), range ),
+						quarter.calculate( dates[i] ) );
+				assertEquals( key( util.diffMonth( start, date ), range ),
+						month.calculate( dates[i] ) );
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testIntervalStart( ) throws BirtException
+	{
+		DateTimeUtil util = new DateTimeUtil( locale, timeZone );
+		Date start = newDate( 2000, 4, 15 );
+		Date[] dates = getDates( );
+		ICalculator year = newCalculator( IGroupDefinition.YEAR_INTERVAL,
+				start,
+				2 );
+		ICalculator quarter = newCalculator( IGroupDefinition.QUARTER_INTERVAL,
+				start,
+				2 );
+		ICalculator month = newCalculator( IGroupDefinition.MONTH_INTERVAL,
+				start,
+				2 );
+		for ( int i = 0; i < dates.length; i++ )
+		{
+			Date date = new Date( dates[i].getTime( ) );
+			assertEquals( key( util.diffYear( start, date ), 2 ),
+					year.calculate( dates[i] ) );
+			assertEquals( key( util.diffQuarter( start, date ), 2 ),
+					quarter.calculate( dates[i] ) );
+			assertEquals( key( util.diffMonth( start, date ), 2 ),
+					month.calculate( dates[i] ) );
+		}
+		assertEquals( new Double( -1 ), month.calculate( null ) );
+	}
+
+	/**
+	 *
+	 * @param interval
+	 * @param start
+	 * @param range
+	 * @return
+	 * @throws BirtException
+	 */
+	private static ICalculator newCalculator( int interval, Date start,
+			int range ) throws BirtException
+	{
+		return GroupCalculatorFactory.getGroupCalculator( interval,
+				start,
+				range,
+				DataType.DATE_TYPE,
+				locale,
+				timeZone );
+	}
+
+	/**
+	 *
+	 * @param diff
+	 * @param range
+	 * @return the expected group key, -1 if the date is before the start
+	 */
+	private static Double key( int diff, int range )
+	{
+		return new Double( diff < 0 ? -1 : Math.floor( (double) diff / range ) );
+	}
+
+	/**
+	 *
+	 * @return the dates around the year, quarter and month boundaries. A
+	 *         java.sql.Date is grouped in the time zone of the calculator.
+	 */
+	private static Date[] getDates( )
+	{
+		Date[] dates = new Date[]{
+				newDate( 1999, 11, 31 ),
+				newDate( 2000, 0, 1 ),
+				newDate( 2000, 2, 31 ),
+				newDate( 2000, 3, 1 ),
+				newDate( 2000, 4, 14 ),
+				newDate( 2000, 4, 15 ),
+				newDate( 2003, 8, 30 ),
+				newDate( 2010, 11, 31 ),
+				new java.sql.Date( newDate( 2000, 3, 1 ).getTime( ) ),
+				new java.sql.Date( newDate( 2007, 6, 1 ).getTime( ) )
+		};
+		return dates;
+	}
+
+	/**
+	 *
+	 * @param year
+	 * @param month
+	 * @param day
+	 * @return the start of the day in the test time zone
+	 */
+	private static Date newDate( int year, int month, int day )
+	{
+		Calendar c = Calendar.getInstance( timeZone, locale );
+		c.clear( );
+		c.set( year, month, day );
+		return c.getTime( );
+	}
+}
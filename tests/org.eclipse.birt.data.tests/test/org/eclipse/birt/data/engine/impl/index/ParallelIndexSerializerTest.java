@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Test the index which is built on its own thread.
+ */
+public class ParallelIndexSerializerTest extends TestCase
+{
+
+	/**
+	 * All pairs are put into the wrapped indexes in order on their own
+	 * threads, and the indexes are closed after the last pair.
+	 *
+	 * @throws DataException
+	 */
+	public void testPutAndClose( ) throws DataException
+	{
+		List indexes = new ArrayList( );
+		RecordingIndex[] recordings = new RecordingIndex[3];
+		for ( int i = 0; i < recordings.length; i++ )
+		{
+			recordings[i] = new RecordingIndex( );
+			indexes.add( new ParallelIndexSerializer( recordings[i], null ) );
+		}
+		int count = ParallelIndexSerializer.BATCH_SIZE * 40 + 3;
+		for ( int row = 0; row < count; row++ )
+		{
+			for ( int i = 0; i < indexes.size( ); i++ )
+			{
+				( (IIndexSerializer) indexes.get( i ) ).put( "key" + row % 7,
+						Integer.valueOf( row ) );
+			}
+		}
+		ParallelIndexSerializer.close( indexes );
+
+		for ( int i = 0; i < recordings.length; i++ )
+		{
+			assertTrue( recordings[i].closed );
+			assertNotSame( Thread.currentThread( ), recordings[i].thread );
+			assertEquals( count, recordings[i].rowIds.size( ) );
+			for ( int row = 0; row < count; row++ )
+				assertEquals( Integer.valueOf( row ), recordings[i].rowIds.get( row ) );
+		}
+	}
+
+	/**
+	 * The exception of the index thread is thrown by close.
+	 */
+	public void testException( )
+	{
+		RecordingIndex recording = new RecordingIndex( );
+		recording.failAt = 10;
+		ParallelIndexSerializer index = new ParallelIndexSerializer( recording,
+				null );
+		try
+		{
+			for ( int row = 0; row < ParallelIndexSerializer.BATCH_SIZE
+					* ( ParallelIndexSerializer.MAX_PENDING_BATCHES + 4 ); row++ )
+			{
+				index.put( null, Integer.valueOf( row ) );
+			}
+			index.close( );
+			fail( );
+		}
+		catch ( DataException e )
+		{
+			assertFalse( recording.closed );
+		}
+	}
+
+	/**
+	 * The index which records the row ids which are put into it.
+	 */
+	private static class RecordingIndex implements IIndexSerializer
+	{
+		private List rowIds = new ArrayList( );
+		private int failAt = -1;
+		private boolean closed;
+		private Thread thread;
+
+		public Object put( Object o1, Object o2 ) throws DataException
+		{
+			if ( rowIds.size( ) == failAt )
+				throw new DataException( "fail" );
+			thread = Thread.currentThread( );
+			rowIds.add( o2 );
+			return null;
+		}
+
+		public void close( ) throws DataException
+		{
+			closed = true;
+		}
+	}
+}
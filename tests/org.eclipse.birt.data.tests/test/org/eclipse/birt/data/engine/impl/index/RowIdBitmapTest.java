@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ *
+ */
+
+public class RowIdBitmapTest extends TestCase
+{
+
+	/**
+	 *
+	 * @param seed
+	 * @param count
+	 * @param range
+	 * @return
+	 */
+	private static Set<Integer> createRowIds( long seed, int count, int range )
+	{
+		Random random = new Random( seed );
+		Set<Integer> rowIds = new HashSet<Integer>( );
+		for ( int i = 0; i < count; i++ )
+		{
+			rowIds.add( Integer.valueOf( random.nextInt( range ) ) );
+		}
+		return rowIds;
+	}
+
+	/**
+	 *
+	 * @param expected
+	 * @param bitmap
+	 */
+	private static void assertSameRowIds( Set<Integer> expected,
+			RowIdBitmap bitmap )
+	{
+		assertEquals( expected.size( ), bitmap.size( ) );
+		int[] rowIds = bitmap.toIntArray( );
+		Iterator<Integer> it = new TreeSet<Integer>( expected ).iterator( );
+		for ( int i = 0; i < rowIds.length; i++ )
+		{
+			assertEquals( it.next( ).intValue( ), rowIds[i] );
+		}
+		assertEquals( expected, bitmap );
+	}
+
+	public void testAddAndRemove( )
+	{
+		RowIdBitmap bitmap = new RowIdBitmap( );
+		assertTrue( bitmap.add( 5 ) );
+		assertFalse( bitmap.add( 5 ) );
+		assertTrue( bitmap.add( 70000 ) );
+		assertTrue( bitmap.add( 1 ) );
+		assertTrue( bitmap.contains( 5 ) );
+		assertTrue( bitmap.contains( Integer.valueOf( 70000 ) ) );
+		assertFalse( bitmap.contains( 4 ) );
+		assertFalse( bitmap.contains( "5" ) );
+		assertEquals( 3, bitmap.size( ) );
+
+		int[] rowIds = bitmap.toIntArray( );
+		assertEquals( 1, rowIds[0] );
+		assertEquals( 5, rowIds[1] );
+		assertEquals( 70000, rowIds[2] );
+
+		assertTrue( bitmap.remove( 70000 ) );
+		assertFalse( bitmap.remove( 70000 ) );
+		assertEquals( 2, bitmap.size( ) );
+		bitmap.clear( );
+		assertTrue( bitmap.isEmpty( ) );
+	}
+
+	public void testDenseChunks( )
+	{
+		// more than 4096 rows in a chunk are kept in a bitmap
+		Set<Integer> expected = createRowIds( 1, 50000, 200000 );
+		RowIdBitmap bitmap = RowIdBitmap.valueOf( expected );
+		assertSameRowIds( expected, bitmap );
+
+		Iterator<Integer> it = bitmap.iterator( );
+		while ( it.hasNext( ) )
+		{
+			Integer rowId = it.next( );
+			if ( rowId.intValue( ) % 3 != 0 )
+			{
+				it.remove( );
+				expected.remove( rowId );
+			}
+		}
+		assertSameRowIds( expected, bitmap );
+	}
+
+	public void testAndOr( )
+	{
+		int[][] sizes = new int[][]{
+				{
+						100, 100
+				}, {
+						100, 60000
+				}, {
+						60000, 100
+				}, {
+						60000, 60000
+				}
+		};
+		for ( int i = 0; i < sizes.length; i++ )
+		{
+			Set<Integer> set1 = createRowIds( i, sizes[i][0], 150000 );
+			Set<Integer> set2 = createRowIds( i + 100, sizes[i][1], 150000 );
+			RowIdBitmap bitmap1 = RowIdBitmap.valueOf( set1 );
+			RowIdBitmap bitmap2 = RowIdBitmap.valueOf( set2 );
+
+			Set<Integer> expected = new HashSet<Integer>( set1 );
+			expected.retainAll( set2 );
+			assertSameRowIds( expected, bitmap1.and( bitmap2 ) );
+
+			expected = new HashSet<Integer>( set1 );
+			expected.addAll( set2 );
+			assertSameRowIds( expected, bitmap1.or( bitmap2 ) );
+
+			// the operands are not changed
+			assertSameRowIds( set1, bitmap1 );
+			assertSameRowIds( set2, bitmap2 );
+		}
+	}
+
+	public void testIndexFilterEvaluator( ) throws DataException
+	{
+		Map<Object, Set<Integer>> countries = new HashMap<Object, Set<Integer>>( );
+		Map<Object, Set<Integer>> cities = new HashMap<Object, Set<Integer>>( );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			put( countries, "country" + ( i % 10 ), i );
+			put( cities, "city" + ( i % 7 ), i );
+		}
+		IDataSetIndex countryIndex = new MapIndex( countries );
+		IDataSetIndex cityIndex = new MapIndex( cities );
+
+		IndexFilterEvaluator and = new IndexFilterEvaluator( IndexFilterEvaluator.AND );
+		assertTrue( and.addPredicate( countryIndex,
+				"country3",
+				IConditionalExpression.OP_EQ ) );
+		assertTrue( and.addPredicate( cityIndex,
+				"city2",
+				IConditionalExpression.OP_EQ ) );
+		// not supported predicates are left to the caller
+		assertFalse( and.addPredicate( cityIndex,
+				"city",
+				IConditionalExpression.OP_LIKE ) );
+		assertTrue( and.isIndexed( ) );
+		Set<Integer> expected = new HashSet<Integer>( );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			if ( i % 10 == 3 && i % 7 == 2 )
+			{
+				expected.add( Integer.valueOf( i ) );
+			}
+		}
+		assertSameRowIds( expected, and.evaluate( ) );
+
+		IndexFilterEvaluator or = new IndexFilterEvaluator( IndexFilterEvaluator.OR );
+		assertTrue( or.addPredicate( and ) );
+		assertTrue( or.addPredicate( countryIndex,
+				"country4",
+				IConditionalExpression.OP_EQ ) );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			if ( i % 10 == 4 )
+			{
+				expected.add( Integer.valueOf( i ) );
+			}
+		}
+		assertSameRowIds( expected, or.evaluate( ) );
+
+		assertFalse( or.addPredicate( cityIndex,
+				"city",
+				IConditionalExpression.OP_LIKE ) );
+		assertFalse( or.isIndexed( ) );
+		assertNull( or.evaluate( ) );
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param key
+	 * @param rowId
+	 */
+	private static void put( Map<Object, Set<Integer>> index, Object key,
+			int rowId )
+	{
+		Set<Integer> rowIds = index.get( key );
+		if ( rowIds == null )
+		{
+			rowIds = new HashSet<Integer>( );
+			index.put( key, rowIds );
+		}
+		rowIds.add( Integer.valueOf( rowId ) );
+	}
+
+	/**
+	 * An index which only supports OP_EQ.
+	 */
+	private static class MapIndex implements IDataSetIndex
+	{
+		private Map<Object, Set<Integer>> index;
+
+		MapIndex( Map<Object, Set<Integer>> index )
+		{
+			this.index = index;
+		}
+
+		public Set<Integer> getKeyIndex( Object key, int filterType )
+				throws DataException
+		{
+			Set<Integer> rowIds = index.get( key );
+			return rowIds == null ? new HashSet<Integer>( ) : rowIds;
+		}
+
+		public boolean supportFilter( int filterType ) throws DataException
+		{
+			return filterType == IConditionalExpression.OP_EQ;
+		}
+
+		public Object[] getAllKeyValues( ) throws DataException
+		{
+			return index.keySet( ).toArray( );
+		}
+
+		public Set<Integer> getAllKeyRows( ) throws DataException
+		{
+			List<Integer> rowIds = new ArrayList<Integer>( );
+			for ( Set<Integer> value : index.values( ) )
+			{
+				rowIds.add( value.iterator( ).next( ) );
+			}
+			return new HashSet<Integer>( rowIds );
+		}
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.rd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ConditionalExpression;
+import org.eclipse.birt.data.engine.api.querydefn.FilterDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+
+import testutil.ConfigText;
+
+/**
+ * Test case for the filters of the presentation queries which select the data
+ * set rows by the indexes of the index columns.
+ */
+public class IndexedViewingTest extends RDTestCase
+{
+	private String queryResultID;
+
+	/*
+	 * @see org.eclipse.birt.data.engine.api.APITestCase#getDataSourceInfo()
+	 */
+	protected DataSourceInfo getDataSourceInfo( )
+	{
+		return new DataSourceInfo( ConfigText.getString( "Api.TestData.TableName" ),
+				ConfigText.getString( "Api.TestData.TableSQL" ),
+				ConfigText.getString( "Api.TestData.TestDataFileName" ) );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.rd.RDTestCase#useFolderArchive()
+	 */
+	protected boolean useFolderArchive( )
+	{
+		return true;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.impl.rd.RDTestCase#setUp()
+	 */
+	public void setUp( ) throws Exception
+	{
+		super.setUp( );
+		ColumnDefinition column = new ColumnDefinition( "AMOUNT" );
+		column.setDataType( DataType.INTEGER_TYPE );
+		column.setIndexColumn( true );
+		dataSet.addResultSetHint( column );
+		myGenDataEngine.defineDataSet( dataSet );
+
+		QueryDefinition qd = newQuery( );
+		IQueryResults qr = myGenDataEngine.prepare( qd ).execute( scope );
+		queryResultID = qr.getID( );
+		IResultIterator ri = qr.getResultIterator( );
+		while ( ri.next( ) )
+			;
+		ri.close( );
+		qr.close( );
+		myGenDataEngine.shutdown( );
+		myGenDataEngine.clearCache( dataSource, dataSet );
+		closeArchiveWriter( );
+
+		DataEngineContext context = newContext( DataEngineContext.MODE_UPDATE,
+				fileName,
+				fileName );
+		context.setTmpdir( this.getTempDir( ) );
+		myPreDataEngine = DataEngine.newDataEngine( context );
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testRange( ) throws BirtException
+	{
+		assertEquals( getRows( "row.AMOUNT_1 > 100 && row.AMOUNT_1 <= 700" ),
+				getRows( new ConditionalExpression[]{
+						new ConditionalExpression( "row.AMOUNT_1",
+								IConditionalExpression.OP_GT,
+								"100" ),
+						new ConditionalExpression( "row.AMOUNT_1",
+								IConditionalExpression.OP_LE,
+								"700" )
+				} ) );
+	}
+
+	/**
+	 *
+	 * @throws BirtException
+	 */
+	public void testEqualAndIn( ) throws BirtException
+	{
+		List values = new ArrayList( );
+		values.add( "400" );
+		values.add( "7000" );
+		assertEquals( getRows( "row.AMOUNT_1 == 400 || row.AMOUNT_1 == 7000" ),
+				getRows( new ConditionalExpression[]{
+					new ConditionalExpression( "dataSetRow[\"AMOUNT\"]",
+							IConditionalExpression.OP_IN,
+							values )
+				} ) );
+		assertEquals( getRows( "row.AMOUNT_1 == 400" ),
+				getRows( new ConditionalExpression[]{
+					new ConditionalExpression( "row.AMOUNT_1",
+							IConditionalExpression.OP_EQ,
+							"400" )
+				} ) );
+		assertEquals( getRows( "row.AMOUNT_1 >= 100 && row.AMOUNT_1 <= 400 && row.COUNTRY_1 == 'US'" ),
+				getRows( new ConditionalExpression[]{
+						new ConditionalExpression( "dataSetRow[\"AMOUNT\"]",
+								IConditionalExpression.OP_BETWEEN,
+								"100",
+								"400" ),
+						new ConditionalExpression( "row.COUNTRY_1",
+								IConditionalExpression.OP_EQ,
+								"'US'" )
+				} ) );
+	}
+
+	/**
+	 * The filters which can not be answered by the indexes select all rows.
+	 *
+	 * @throws BirtException
+	 */
+	public void testNotIndexed( ) throws BirtException
+	{
+		assertEquals( getRows( "row.AMOUNT_1 > 150.5" ),
+				getRows( new ConditionalExpression[]{
+					new ConditionalExpression( "row.AMOUNT_1",
+							IConditionalExpression.OP_GT,
+							"150.5" )
+				} ) );
+		assertEquals( getRows( "row.AMOUNT_1 * 2 > 300" ),
+				getRows( new ConditionalExpression[]{
+					new ConditionalExpression( "row.AMOUNT_1 * 2",
+							IConditionalExpression.OP_GT,
+							"300" )
+				} ) );
+	}
+
+	/**
+	 *
+	 * @param filters
+	 * @return the rows of the presentation query with the filters
+	 * @throws BirtException
+	 */
+	private List getRows( ConditionalExpression[] filters )
+			throws BirtException
+	{
+		QueryDefinition qd = newQuery( );
+		for ( int i = 0; i < filters.length; i++ )
+			qd.addFilter( new FilterDefinition( filters[i] ) );
+		List rows = getRows( qd );
+		assertTrue( rows.size( ) > 0 && rows.size( ) < getRows( newQuery( ) ).size( ) );
+		return rows;
+	}
+
+	/**
+	 *
+	 * @param filter
+	 * @return the rows of the presentation query with the script filter, which
+	 *         is not answered by the indexes
+	 * @throws BirtException
+	 */
+	private List getRows( String filter ) throws BirtException
+	{
+		QueryDefinition qd = newQuery( );
+		qd.addFilter( new FilterDefinition( new ScriptExpression( filter ) ) );
+		return getRows( qd );
+	}
+
+	/**
+	 *
+	 * @param qd
+	 * @return the row id and values of each row
+	 * @throws BirtException
+	 */
+	private List getRows( QueryDefinition qd ) throws BirtException
+	{
+		qd.setQueryResultsID( queryResultID );
+		IQueryResults qr = myPreDataEngine.prepare( qd ).execute( null );
+		IResultIterator ri = qr.getResultIterator( );
+		List rows = new ArrayList( );
+		while ( ri.next( ) )
+			rows.add( ri.getRowId( )
+					+ ":" + ri.getValue( "COUNTRY_1" ) + ":"
+					+ ri.getValue( "AMOUNT_1" ) );
+		ri.close( );
+		qr.close( );
+		return rows;
+	}
+
+	/**
+	 *
+	 * @return
+	 * @throws BirtException
+	 */
+	private QueryDefinition newQuery( ) throws BirtException
+	{
+		QueryDefinition qd = newReportQuery( );
+		qd.addBinding( new Binding( "COUNTRY_1",
+				new ScriptExpression( "dataSetRow.COUNTRY" ) ) );
+		qd.addBinding( new Binding( "AMOUNT_1",
+				new ScriptExpression( "dataSetRow.AMOUNT" ) ) );
+		return qd;
+	}
+}
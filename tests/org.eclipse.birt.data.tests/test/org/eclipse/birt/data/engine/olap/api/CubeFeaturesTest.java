@@ -15,7 +15,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.olap.OLAPException;
 import javax.olap.cursor.CubeCursor;
@@ -157,6 +159,87 @@ public class CubeFeaturesTest extends BaseTestCase
 		engine.shutdown( );
 	}
 	
+	/**
+	 * Test the cube read through a memory mapped view of its files.
+	 * 
+	 * @throws Exception
+	 */
+	public void testMappedFile( ) throws Exception
+	{
+		ICubeQueryDefinition cqd = new CubeQueryDefinition( cubeName );
+		IEdgeDefinition columnEdge = cqd.createEdge( ICubeQueryDefinition.COLUMN_EDGE );
+		IEdgeDefinition rowEdge = cqd.createEdge( ICubeQueryDefinition.ROW_EDGE );
+		IDimensionDefinition dim1 = columnEdge.createDimension( "dimension1" );
+		IHierarchyDefinition hier1 = dim1.createHierarchy( "dimension1" );
+		hier1.createLevel( "level11" );
+		hier1.createLevel( "level12" );
+		hier1.createLevel( "level13" );
+
+		IDimensionDefinition dim2 = rowEdge.createDimension( "dimension2" );
+		IHierarchyDefinition hier2 = dim2.createHierarchy( "dimension2" );
+		hier2.createLevel( "level21" );
+
+		cqd.createMeasure( "measure1" );
+
+		IBinding binding1 = new Binding( "edge1level1" );
+		binding1.setExpression( new ScriptExpression( "dimension[\"dimension1\"][\"level11\"]" ) );
+		cqd.addBinding( binding1 );
+
+		IBinding binding2 = new Binding( "edge1level2" );
+		binding2.setExpression( new ScriptExpression( "dimension[\"dimension1\"][\"level12\"]" ) );
+		cqd.addBinding( binding2 );
+
+		IBinding binding3 = new Binding( "edge1level3" );
+		binding3.setExpression( new ScriptExpression( "dimension[\"dimension1\"][\"level13\"]" ) );
+		cqd.addBinding( binding3 );
+
+		IBinding binding4 = new Binding( "edge2level1" );
+		binding4.setExpression( new ScriptExpression( "dimension[\"dimension2\"][\"level21\"]" ) );
+		cqd.addBinding( binding4 );
+
+		IBinding binding5 = new Binding( "measure1" );
+		binding5.setExpression( new ScriptExpression( "measure[\"measure1\"]" ) );
+		cqd.addBinding( binding5 );
+
+		List columnEdgeBindingNames = new ArrayList( );
+		columnEdgeBindingNames.add( "edge1level1" );
+		columnEdgeBindingNames.add( "edge1level2" );
+		columnEdgeBindingNames.add( "edge1level3" );
+
+		List rowEdgeBindingNames = new ArrayList( );
+		rowEdgeBindingNames.add( "edge2level1" );
+
+		DataEngineImpl engine = (DataEngineImpl)DataEngine.newDataEngine( createPresentationContext( ) );
+		this.createCube( engine );
+
+		CubeCursor cursor = engine.prepare( cqd, null )
+				.execute( null )
+				.getCubeCursor( );
+		String expected = this.getOutputFromCursor( cursor,
+				columnEdgeBindingNames,
+				rowEdgeBindingNames,
+				"measure1",
+				null,
+				null,
+				null );
+		close( cursor );
+
+		Map appContext = new HashMap( );
+		appContext.put( DataEngine.CUBE_MAPPED_FILE, "true" );
+		cursor = engine.prepare( cqd, appContext )
+				.execute( null )
+				.getCubeCursor( );
+		assertEquals( expected, this.getOutputFromCursor( cursor,
+				columnEdgeBindingNames,
+				rowEdgeBindingNames,
+				"measure1",
+				null,
+				null,
+				null ) );
+		close( cursor );
+		engine.shutdown( );
+	}
+
 	/**
 	 * Test query without any measure.
 	 * Only edge cursors make sense in this case.
@@ -12,7 +12,9 @@ package org.eclipse.birt.data.engine.olap.cursor;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.olap.OLAPException;
 import javax.olap.cursor.CubeCursor;
@@ -347,6 +349,98 @@ public class CursorNavigatorTest extends BaseTestCase
 		close( dataCursor );
 	}
 	
+	/**
+	 * Navigate the edges with the fetch windows, and compare the positions
+	 * with the ones of the edges populated at once.
+	 * 
+	 * @throws Exception
+	 */
+	public void testNavigatorWithFetchWindow( ) throws Exception
+	{
+		String expected = navigateEdges( new HashMap( ) );
+		int[] windowSizes = new int[]{
+				1, 2, 5
+		};
+		for ( int i = 0; i < windowSizes.length; i++ )
+		{
+			Map appContext = new HashMap( );
+			appContext.put( DataEngine.CUBECURSOR_FETCH_WINDOW_ON_COLUMN_EDGE,
+					String.valueOf( windowSizes[i] ) );
+			appContext.put( DataEngine.CUBECURSOR_FETCH_WINDOW_ON_ROW_EDGE,
+					String.valueOf( windowSizes[i] ) );
+			assertEquals( expected, navigateEdges( appContext ) );
+		}
+	}
+
+	/**
+	 * 
+	 * @param appContext
+	 * @return
+	 * @throws Exception
+	 */
+	private String navigateEdges( Map appContext ) throws Exception
+	{
+		ICubeQueryDefinition cqd = creator.createQueryDefinition( );
+
+		IBinding rowGrandTotal = new Binding( "rowGrandTotal" );
+		rowGrandTotal.setAggrFunction( IBuildInAggregation.TOTAL_SUM_FUNC );
+		rowGrandTotal.setExpression( new ScriptExpression("measure[\"measure1\"]") );
+		rowGrandTotal.addAggregateOn( "dimension[\"dimension5\"][\"level21\"]" );
+		rowGrandTotal.addAggregateOn( "dimension[\"dimension6\"][\"level22\"]" );
+
+		cqd.addBinding( rowGrandTotal );
+
+		BirtCubeView cubeView = new BirtCubeView( new CubeQueryExecutor( null,
+				cqd,
+				de.getSession( ),
+				this.scope,
+				de.getContext( ) ), cube, appContext, null );
+		CubeCursor dataCursor = cubeView.getCubeCursor( new StopSign( ), cube );
+
+		EdgeCursor rowCursor = cubeView.getRowEdgeView( ).getEdgeCursor( );
+		EdgeCursor columnCursor = cubeView.getColumnEdgeView( ).getEdgeCursor( );
+		DimensionCursor countryCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 0 );
+		DimensionCursor cityCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 1 );
+
+		String out = "";
+		rowCursor.first( );
+		columnCursor.setPosition( 7 );
+		out += countryCursor.getObject( 0 ) + " " + cityCursor.getObject( 0 ) + "\n";
+		out += countryCursor.getEdgeStart( ) + " " + countryCursor.getEdgeEnd( ) + "\n";
+		columnCursor.beforeFirst( );
+		while ( columnCursor.next( ) )
+		{
+			out += columnCursor.getPosition( ) + ": ";
+			out += countryCursor.getObject( 0 ) + " " + cityCursor.getObject( 0 );
+			out += " " + countryCursor.getEdgeStart( ) + " " + countryCursor.getEdgeEnd( );
+			out += " " + cityCursor.getEdgeStart( ) + " " + cityCursor.getEdgeEnd( );
+			out += " " + cityCursor.isLast( ) + "\n";
+		}
+		columnCursor.last( );
+		out += columnCursor.getPosition( ) + " " + countryCursor.isLast( ) + "\n";
+		while ( columnCursor.previous( ) )
+		{
+			out += columnCursor.getPosition( ) + ": ";
+			out += countryCursor.getObject( 0 ) + " " + cityCursor.getObject( 0 ) + "\n";
+		}
+		rowCursor.beforeFirst( );
+		while ( rowCursor.next( ) )
+		{
+			out += rowCursor.getPosition( ) + ": ";
+			for ( int i = 0; i < rowCursor.getDimensionCursor( ).size( ); i++ )
+			{
+				DimensionCursor cursor = (DimensionCursor) rowCursor.getDimensionCursor( )
+						.get( i );
+				out += cursor.getObject( 0 ) + " " + cursor.getEdgeEnd( ) + " ";
+			}
+			out += dataCursor.getObject( "rowGrandTotal" ) + "\n";
+		}
+		close( dataCursor );
+		return out;
+	}
+
 	public void testNavigatorOnSubCursor( ) throws DataException, OLAPException, IOException
 	{
 		ICubeQueryDefinition cqd = creator.createQueryDefinition( );
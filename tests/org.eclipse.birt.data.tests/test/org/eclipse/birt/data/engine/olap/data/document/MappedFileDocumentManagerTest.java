@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ */
+
+public class MappedFileDocumentManagerTest extends TestCase
+{
+	private static final String MANAGER_NAME = "mappedTest";
+	private String dirName;
+
+	protected void setUp( ) throws Exception
+	{
+		super.setUp( );
+		dirName = System.getProperty( "java.io.tmpdir" );
+	}
+
+	/**
+	 * Write the document objects with a file document manager, and interleave
+	 * their blocks in the data file.
+	 *
+	 * @param objectCount
+	 * @param intCount
+	 * @throws Exception
+	 */
+	private void createDocument( int objectCount, int intCount )
+			throws Exception
+	{
+		IDocumentManager fileManager = DocumentManagerFactory.createFileDocumentManager( dirName,
+				MANAGER_NAME );
+		IDocumentObject[] objects = new IDocumentObject[objectCount];
+		for ( int i = 0; i < objectCount; i++ )
+		{
+			fileManager.createDocumentObject( "obj" + i );
+			objects[i] = fileManager.openDocumentObject( "obj" + i );
+		}
+		for ( int j = 0; j < intCount; j++ )
+		{
+			for ( int i = 0; i < objectCount; i++ )
+			{
+				objects[i].writeInt( i * intCount + j );
+			}
+		}
+		for ( int i = 0; i < objectCount; i++ )
+		{
+			objects[i].writeString( "end" + i );
+			objects[i].close( );
+		}
+		fileManager.flush( );
+		fileManager.close( );
+	}
+
+	public void testRead( ) throws Exception
+	{
+		createDocument( 3, 5000 );
+
+		IDocumentManager manager = DocumentManagerFactory.loadMappedFileDocumentManager( dirName,
+				MANAGER_NAME );
+		assertTrue( manager.exist( "obj1" ) );
+		assertFalse( manager.exist( "obj3" ) );
+		assertNull( manager.openDocumentObject( "obj3" ) );
+		for ( int i = 0; i < 3; i++ )
+		{
+			IDocumentObject object = manager.openDocumentObject( "obj" + i );
+			// the string is written as a null flag byte and UTF
+			assertEquals( 5000 * 4 + 7, object.length( ) );
+			for ( int j = 0; j < 5000; j++ )
+			{
+				assertEquals( i * 5000 + j, object.readInt( ) );
+			}
+			assertEquals( "end" + i, object.readString( ) );
+			try
+			{
+				object.readByte( );
+				fail( );
+			}
+			catch ( IOException e )
+			{
+				assertTrue( e instanceof EOFException );
+			}
+			object.seek( 4 * 2500 );
+			assertEquals( i * 5000 + 2500, object.readInt( ) );
+			object.close( );
+		}
+		manager.close( );
+	}
+
+	public void testReadOnly( ) throws Exception
+	{
+		createDocument( 1, 10 );
+
+		IDocumentManager manager = DocumentManagerFactory.loadMappedFileDocumentManager( dirName,
+				MANAGER_NAME );
+		try
+		{
+			manager.createDocumentObject( "obj1" );
+			fail( );
+		}
+		catch ( UnsupportedOperationException e )
+		{
+		}
+		manager.close( );
+	}
+
+	public void testConcurrentRead( ) throws Exception
+	{
+		createDocument( 2, 20000 );
+
+		final IDocumentManager manager = DocumentManagerFactory.loadMappedFileDocumentManager( dirName,
+				MANAGER_NAME );
+		final Throwable[] errors = new Throwable[8];
+		Thread[] threads = new Thread[errors.length];
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			final int index = t;
+			threads[t] = new Thread( ) {
+
+				public void run( )
+				{
+					try
+					{
+						int i = index % 2;
+						IDocumentObject object = manager.openDocumentObject( "obj"
+								+ i );
+						for ( int j = 0; j < 20000; j++ )
+						{
+							assertEquals( i * 20000 + j, object.readInt( ) );
+						}
+						object.close( );
+					}
+					catch ( Throwable e )
+					{
+						errors[index] = e;
+					}
+				}
+			};
+			threads[t].start( );
+		}
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			threads[t].join( );
+			assertNull( errors[t] );
+		}
+		manager.close( );
+	}
+}
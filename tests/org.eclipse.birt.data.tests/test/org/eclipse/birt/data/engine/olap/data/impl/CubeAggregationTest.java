@@ -16,7 +16,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.core.archive.compound.ArchiveFile;
@@ -55,11 +58,13 @@ import org.eclipse.birt.data.engine.olap.data.api.cube.IHierarchy;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
 import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResultSetCache;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.filter.LevelFilter;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.ParallelFactTableRowIterator;
 import org.eclipse.birt.data.engine.olap.data.util.DataType;
 import org.eclipse.birt.data.engine.olap.impl.query.CubeElementFactory;
 import org.eclipse.birt.data.engine.olap.util.filter.BaseDimensionFilterEvalHelper;
@@ -1209,6 +1214,534 @@ public class CubeAggregationTest extends BaseTestCase
 	
 	
 	
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testCube1AggregationWithRollup( ) throws IOException, BirtException
+	{
+		List expected = executeRollupAggregations( );
+
+		Cube cube = new Cube( "cube1", documentManager );
+		cube.load( new StopSign( ) );
+		cube.createRollups( new DimLevel[][]{
+				new DimLevel[]{
+					dimLevel11
+				}, new DimLevel[]{
+						dimLevel12, dimLevel21
+				}
+		}, 0, new StopSign( ) );
+		cube.close( );
+		assertEquals( 2, cube.getRollups( ).length );
+		assertTrue( cube.getRollups( )[0].getRowCount( ) <= cube.getRollups( )[1].getRowCount( ) );
+		assertEquals( 0, cube.getRollups( )[0].getLevelIndex( 0 ) );
+		assertEquals( -1, cube.getRollups( )[0].getLevelIndex( 1 ) );
+		assertEquals( 1, cube.getRollups( )[1].getLevelIndex( 0 ) );
+		assertEquals( 0, cube.getRollups( )[1].getLevelIndex( 1 ) );
+		assertEquals( "measure1_SUM",
+				cube.getRollups( )[0].getRollupMeasureName( "measure1",
+						IBuildInAggregation.TOTAL_SUM_FUNC ) );
+		assertNull( cube.getRollups( )[0].getRollupMeasureName( "measure1",
+				IBuildInAggregation.TOTAL_AVE_FUNC ) );
+
+		// the aggregations are calculated from the rollups by the loaded cube
+		assertEquals( expected, executeRollupAggregations( ) );
+	}
+
+	/**
+	 * 
+	 * @return
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private List executeRollupAggregations( ) throws IOException, BirtException
+	{
+		return executeAggregations( null, createRollupAggregations( ) );
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	private AggregationDefinition[] createRollupAggregations( )
+	{
+		AggregationFunctionDefinition[] functions = new AggregationFunctionDefinition[]{
+				new AggregationFunctionDefinition( "sum", "measure1",
+						IBuildInAggregation.TOTAL_SUM_FUNC ),
+				new AggregationFunctionDefinition( "min", "measure1",
+						IBuildInAggregation.TOTAL_MIN_FUNC ),
+				new AggregationFunctionDefinition( "max", "measure2",
+						IBuildInAggregation.TOTAL_MAX_FUNC )
+		};
+		AggregationDefinition[] aggregations = new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+					dimLevel11
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						dimLevel12, dimLevel21
+				}, new int[]{
+						IDimensionSortDefn.SORT_ASC, IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( new DimLevel[]{
+					new DimLevel( "dimension1", "level13" )
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( null, null, functions )
+		};
+		return aggregations;
+	}
+
+	/**
+	 * 
+	 * @param resultCache
+	 * @param aggregations
+	 * @return
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private List executeAggregations( AggregationResultSetCache resultCache,
+			AggregationDefinition[] aggregations ) throws IOException,
+			BirtException
+	{
+		return executeAggregations( resultCache, aggregations, null );
+	}
+
+	/**
+	 * 
+	 * @param resultCache
+	 * @param aggregations
+	 * @param scanExecutor
+	 *            the executor the fact table is scanned on by two threads;
+	 *            null if it is scanned by the query thread
+	 * @return
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private List executeAggregations( AggregationResultSetCache resultCache,
+			AggregationDefinition[] aggregations, ExecutorService scanExecutor )
+			throws IOException, BirtException
+	{
+		CubeQueryExecutorHelper cubeQueryExcutorHelper = new CubeQueryExecutorHelper( CubeQueryExecutorHelper.loadCube( "cube1",
+				documentManager,
+				new StopSign( ) ) );
+		if ( scanExecutor != null )
+		{
+			cubeQueryExcutorHelper.setScanThreadCount( 2 );
+			cubeQueryExcutorHelper.setScanExecutor( scanExecutor );
+		}
+		ISelection[][] filter = new ISelection[1][1];
+		filter[0][0] = SelectionFactory.createRangeSelection( new Object[]{
+			"1"
+		}, new Object[]{
+			"3"
+		}, true, false );
+		cubeQueryExcutorHelper.addFilter( new LevelFilter( dimLevel21, filter[0] ) );
+		cubeQueryExcutorHelper.setResultCache( resultCache );
+		IAggregationResultSet[] resultSet = cubeQueryExcutorHelper.execute( aggregations,
+				new StopSign( ) );
+		List result = new ArrayList( );
+		for ( int i = 0; i < resultSet.length; i++ )
+		{
+			for ( int j = 0; j < resultSet[i].length( ); j++ )
+			{
+				resultSet[i].seek( j );
+				List row = new ArrayList( );
+				row.add( Integer.valueOf( i ) );
+				for ( int k = 0; aggregations[i].getLevels( ) != null
+						&& k < aggregations[i].getLevels( ).length; k++ )
+				{
+					row.add( Arrays.asList( resultSet[i].getLevelKeyValue( k ) ) );
+				}
+				for ( int k = 0; k < aggregations[i].getAggregationFunctions( ).length; k++ )
+				{
+					row.add( resultSet[i].getAggregationValue( k ) );
+				}
+				result.add( row );
+			}
+			resultSet[i].close( );
+		}
+		return result;
+	}
+
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testCube1AggregationWithResultCache( ) throws IOException,
+			BirtException
+	{
+		AggregationDefinition[] aggregations = createRollupAggregations( );
+		List expected = executeAggregations( null, aggregations );
+
+		AggregationResultSetCache resultCache = new AggregationResultSetCache( 10 * 1024 * 1024 );
+		assertEquals( expected, executeAggregations( resultCache, aggregations ) );
+		assertEquals( 4, resultCache.size( ) );
+		assertTrue( resultCache.getMemorySize( ) > 0 );
+		// all the aggregations are answered by the cache
+		assertEquals( expected, executeAggregations( resultCache, aggregations ) );
+		assertEquals( 4, resultCache.size( ) );
+
+		// re-aggregated from the aggregation on level12 and level21
+		AggregationDefinition[] coarser = new AggregationDefinition[]{
+			new AggregationDefinition( new DimLevel[]{
+				dimLevel21
+			}, new int[]{
+				IDimensionSortDefn.SORT_DESC
+			}, aggregations[1].getAggregationFunctions( ) )
+		};
+		List coarserResult = executeAggregations( resultCache, coarser );
+		assertEquals( 4, resultCache.size( ) );
+		assertEquals( executeAggregations( null, coarser ), coarserResult );
+
+		// the other functions are not re-aggregated
+		AggregationDefinition[] average = new AggregationDefinition[]{
+			new AggregationDefinition( new DimLevel[]{
+				dimLevel21
+			}, new int[]{
+				IDimensionSortDefn.SORT_ASC
+			}, new AggregationFunctionDefinition[]{
+				new AggregationFunctionDefinition( "ave", "measure1",
+						IBuildInAggregation.TOTAL_AVE_FUNC )
+			} )
+		};
+		assertEquals( executeAggregations( null, average ),
+				executeAggregations( resultCache, average ) );
+		assertEquals( 5, resultCache.size( ) );
+
+		// the cached results of the previous build are not used
+		createCube1( documentManager );
+		assertEquals( expected, executeAggregations( resultCache, aggregations ) );
+		assertEquals( 9, resultCache.size( ) );
+
+		resultCache.setMaxMemorySize( 0 );
+		assertEquals( 0, resultCache.size( ) );
+		assertEquals( 0, resultCache.getMemorySize( ) );
+	}
+
+	/**
+	 * The sums, minimums, maximums and counts are partially aggregated by the
+	 * threads of a parallel scan, and the other functions are calculated from
+	 * the rows of the fact table.
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testCube1AggregationWithParallelScan( ) throws IOException,
+			BirtException
+	{
+		AggregationFunctionDefinition[] functions = new AggregationFunctionDefinition[]{
+				new AggregationFunctionDefinition( "sum", "measure1",
+						IBuildInAggregation.TOTAL_SUM_FUNC ),
+				new AggregationFunctionDefinition( "min", "measure2",
+						IBuildInAggregation.TOTAL_MIN_FUNC ),
+				new AggregationFunctionDefinition( "max", "measure1",
+						IBuildInAggregation.TOTAL_MAX_FUNC ),
+				new AggregationFunctionDefinition( "count", "measure1",
+						IBuildInAggregation.TOTAL_COUNT_FUNC ),
+				new AggregationFunctionDefinition( "rowCount", null,
+						IBuildInAggregation.TOTAL_COUNT_FUNC )
+		};
+		AggregationDefinition[] aggregations = createRollupAggregations( );
+		for ( int i = 0; i < aggregations.length; i++ )
+		{
+			aggregations[i] = new AggregationDefinition( aggregations[i].getLevels( ),
+					aggregations[i].getSortTypes( ),
+					functions );
+		}
+		ExecutorService executor = ParallelFactTableRowIterator.newExecutor( 2 );
+		try
+		{
+			List expected = executeAggregations( null, aggregations );
+			assertEquals( expected,
+					executeAggregations( null, aggregations, executor ) );
+
+			AggregationDefinition[] average = new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+					dimLevel11
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, new AggregationFunctionDefinition[]{
+						functions[0],
+						new AggregationFunctionDefinition( "ave", "measure1",
+								IBuildInAggregation.TOTAL_AVE_FUNC )
+				} )
+			};
+			assertEquals( executeAggregations( null, average ),
+					executeAggregations( null, average, executor ) );
+		}
+		finally
+		{
+			executor.shutdown( );
+		}
+	}
+
+	/**
+	 * The aggregation result cache belongs to the session of a data engine,
+	 * and is sized once.
+	 * 
+	 * @throws BirtException
+	 */
+	public void testResultCacheOfSession( ) throws BirtException
+	{
+		Map appContext = new HashMap( );
+		assertNull( engine.getSession( ).getCubeResultCache( appContext ) );
+		appContext.put( DataEngine.CUBE_RESULT_CACHE_SIZE, "10" );
+		AggregationResultSetCache resultCache = engine.getSession( )
+				.getCubeResultCache( appContext );
+		assertNotNull( resultCache );
+		assertEquals( 10 * 1024 * 1024, resultCache.getMaxMemorySize( ) );
+
+		appContext.put( DataEngine.CUBE_RESULT_CACHE_SIZE, "1" );
+		assertSame( resultCache, engine.getSession( )
+				.getCubeResultCache( appContext ) );
+		assertEquals( 10 * 1024 * 1024, resultCache.getMaxMemorySize( ) );
+
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				null,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		DataEngineImpl otherEngine = (DataEngineImpl) DataEngine.newDataEngine( context );
+		AggregationResultSetCache otherCache = otherEngine.getSession( )
+				.getCubeResultCache( appContext );
+		assertNotSame( resultCache, otherCache );
+		assertEquals( 1024 * 1024, otherCache.getMaxMemorySize( ) );
+		otherEngine.shutdown( );
+	}
+
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testCube1AggregationWithAppend( ) throws IOException, BirtException
+	{
+		Cube cube = new Cube( "cube1", documentManager );
+		cube.load( new StopSign( ) );
+		cube.createRollups( new DimLevel[][]{
+			new DimLevel[]{
+				dimLevel21
+			}
+		}, 0, new StopSign( ) );
+		cube.close( );
+		Cube previousCube = new Cube( "cube1", documentManager );
+		previousCube.load( new StopSign( ) );
+		assertEquals( 1, previousCube.getRollups( ).length );
+		assertEquals( Arrays.asList( new Object[]{
+				Arrays.asList( new Object[]{
+						"1", new Double( 6 )
+				} ), Arrays.asList( new Object[]{
+						"2", new Double( 22 )
+				} ), Arrays.asList( new Object[]{
+						"3", new Double( 38 )
+				} )
+		} ), executeSumAggregation( previousCube, dimLevel21 ) );
+
+		appendToCube1( materializer );
+
+		cube = new Cube( "cube1", documentManager );
+		cube.load( new StopSign( ) );
+		assertEquals( 0, cube.getRollups( ).length );
+		assertEquals( 2, cube.getFactTables( ).length );
+		assertEquals( 13, cube.getDimesions( )[0].length( ) );
+		assertEquals( 4, cube.getDimesions( )[1].length( ) );
+		assertEquals( 13, cube.getDimesions( )[2].length( ) );
+		assertEquals( "dimension2",
+				cube.getDimesions( )[1].getName( ) );
+		assertFalse( "dimension2".equals( ( (Dimension) cube.getDimesions( )[1] ).getStorageName( ) ) );
+		// the existing members keep their positions
+		assertEquals( "4",
+				( (Dimension) cube.getDimesions( )[1] ).getRowByPosition( 3 )
+						.getMembers( )[0].getKeyValues( )[0] );
+		assertEquals( Arrays.asList( new Object[]{
+				Arrays.asList( new Object[]{
+						"1", new Double( 206 )
+				} ), Arrays.asList( new Object[]{
+						"2", new Double( 22 )
+				} ), Arrays.asList( new Object[]{
+						"3", new Double( 38 )
+				} ), Arrays.asList( new Object[]{
+						"4", new Double( 100 )
+				} )
+		} ), executeSumAggregation( cube, dimLevel21 ) );
+		assertEquals( Arrays.asList( new Object[]{
+				Arrays.asList( new Object[]{
+						"4", new Double( 100 )
+				} )
+		} ),
+				executeSumAggregation( cube, dimLevel11 ).subList( 3, 4 ) );
+		cube.close( );
+
+		// the cube loaded before the append still reads the previous build
+		assertEquals( Arrays.asList( new Object[]{
+				Arrays.asList( new Object[]{
+						"1", new Double( 6 )
+				} ), Arrays.asList( new Object[]{
+						"2", new Double( 22 )
+				} ), Arrays.asList( new Object[]{
+						"3", new Double( 38 )
+				} )
+		} ), executeSumAggregation( previousCube, dimLevel21 ) );
+		previousCube.close( );
+	}
+
+	/**
+	 * A materializer loaded on the files of a closed one appends to the cube
+	 * saved by it.
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testCube1AppendAfterReload( ) throws IOException,
+			BirtException
+	{
+		materializer.close( );
+		documentManager.close( );
+
+		CubeMaterializer secondMaterializer = CubeMaterializer.load( engine );
+		documentManager = secondMaterializer.getDocumentManager( );
+		appendToCube1( secondMaterializer );
+		secondMaterializer.close( );
+
+		Cube cube = new Cube( "cube1", documentManager );
+		cube.load( new StopSign( ) );
+		assertEquals( 2, cube.getFactTables( ).length );
+		assertEquals( 4, cube.getDimesions( )[1].length( ) );
+		assertEquals( Arrays.asList( new Object[]{
+				Arrays.asList( new Object[]{
+						"1", new Double( 206 )
+				} ), Arrays.asList( new Object[]{
+						"2", new Double( 22 )
+				} ), Arrays.asList( new Object[]{
+						"3", new Double( 38 )
+				} ), Arrays.asList( new Object[]{
+						"4", new Double( 100 )
+				} )
+		} ), executeSumAggregation( cube, dimLevel21 ) );
+		cube.close( );
+	}
+
+	/**
+	 * Append a new member of each dimension and two fact table rows to cube1.
+	 * 
+	 * @param materializer
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private void appendToCube1( CubeMaterializer materializer )
+			throws IOException, BirtException
+	{
+		// a new member of each dimension; the member 12 of dimension3 exists
+		DimensionForTest dimension1Iterator = new DimensionForTest( new String[]{
+				"col11", "col12", "col13"
+		} );
+		dimension1Iterator.setLevelMember( 0, new String[]{
+			"4"
+		} );
+		dimension1Iterator.setLevelMember( 1, new int[]{
+			4
+		} );
+		dimension1Iterator.setLevelMember( 2, new int[]{
+			13
+		} );
+		DimensionForTest dimension2Iterator = new DimensionForTest( new String[]{
+			"level21"
+		} );
+		dimension2Iterator.setLevelMember( 0, new String[]{
+			"4"
+		} );
+		DimensionForTest dimension3Iterator = new DimensionForTest( new String[]{
+			"level31"
+		} );
+		dimension3Iterator.setLevelMember( 0, new int[]{
+				12, 13
+		} );
+		DimensionForTest factTable = new DimensionForTest( new String[]{
+				"col13", "level21", "level31", "measure1", "measure2"
+		} );
+		factTable.setLevelMember( 0, new int[]{
+				13, 1
+		} );
+		factTable.setLevelMember( 1, new String[]{
+				"4", "1"
+		} );
+		factTable.setLevelMember( 2, new int[]{
+				13, 1
+		} );
+		factTable.setLevelMember( 3, new int[]{
+				100, 200
+		} );
+		factTable.setLevelMember( 4, new Object[]{
+				new Double( 100 ), new Double( 200 )
+		} );
+		String[][] keyColumnNames = new String[][]{
+				{
+					"col13"
+				}, {
+					"level21"
+				}, {
+					"level31"
+				}
+		};
+		materializer.appendCube( "cube1",
+				keyColumnNames,
+				keyColumnNames,
+				new IDatasetIterator[]{
+						dimension1Iterator,
+						dimension2Iterator,
+						dimension3Iterator
+				},
+				factTable,
+				new String[]{
+						"measure1", "measure2"
+				},
+				null,
+				0,
+				new StopSign( ) );
+	}
+
+	/**
+	 * 
+	 * @param cube
+	 * @param dimLevel
+	 * @return the level key and the sum of measure1 of each row
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private List executeSumAggregation( Cube cube, DimLevel dimLevel )
+			throws IOException, BirtException
+	{
+		CubeQueryExecutorHelper cubeQueryExcutorHelper = new CubeQueryExecutorHelper( cube );
+		AggregationDefinition[] aggregations = new AggregationDefinition[]{
+			new AggregationDefinition( new DimLevel[]{
+				dimLevel
+			}, new int[]{
+				IDimensionSortDefn.SORT_ASC
+			}, new AggregationFunctionDefinition[]{
+				new AggregationFunctionDefinition( "sum", "measure1",
+						IBuildInAggregation.TOTAL_SUM_FUNC )
+			} )
+		};
+		IAggregationResultSet[] resultSet = cubeQueryExcutorHelper.execute( aggregations,
+				new StopSign( ) );
+		List result = new ArrayList( );
+		for ( int i = 0; i < resultSet[0].length( ); i++ )
+		{
+			resultSet[0].seek( i );
+			result.add( Arrays.asList( new Object[]{
+					resultSet[0].getLevelKeyValue( 0 )[0],
+					resultSet[0].getAggregationValue( 0 )
+			} ) );
+		}
+		resultSet[0].close( );
+		return result;
+	}
+
 	private void createCube2( ) throws IOException, BirtException
 	{
 		Dimension[] dimensions = new Dimension[2];
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * Test case for ColumnarFactTableSegment
+ */
+public class ColumnarFactTableSegmentTest extends TestCase
+{
+
+	/**
+	 *
+	 */
+	public void testPack( )
+	{
+		int[] values = {
+				0, 5, 7, 1, 6, 3, 2, 4, 7
+		};
+		byte[] packed = ColumnarFactTableSegment.pack( values, 3 );
+		assertEquals( 4, packed.length );
+		int[] unpacked = ColumnarFactTableSegment.unpack( packed,
+				values.length,
+				3,
+				100 );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			assertEquals( values[i] + 100, unpacked[i] );
+		}
+
+		values = new int[]{
+				0x7fffffff, 0, 12345678
+		};
+		unpacked = ColumnarFactTableSegment.unpack( ColumnarFactTableSegment.pack( values,
+				31 ),
+				values.length,
+				31,
+				0 );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			assertEquals( values[i], unpacked[i] );
+		}
+
+		assertEquals( 0, ColumnarFactTableSegment.pack( new int[10], 0 ).length );
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testSaveAndLoad( ) throws IOException, BirtException
+	{
+		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( );
+		MeasureInfo[] measureInfo = new MeasureInfo[]{
+				new MeasureInfo( "measure1", DataType.INTEGER_TYPE ),
+				new MeasureInfo( "measure2", DataType.DOUBLE_TYPE ),
+				new MeasureInfo( "measure3", DataType.STRING_TYPE )
+		};
+		int[][] positions = new int[100][];
+		Object[][] measures = new Object[100][];
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			positions[i] = new int[]{
+					20, 1000 + i, 1000 - i * 3
+			};
+			measures[i] = new Object[]{
+					i % 7 == 0 ? null : Integer.valueOf( i ),
+					new Double( i / 2.0 ),
+					i % 5 == 0 ? null : "s" + i
+			};
+		}
+
+		IDocumentObject documentObject = documentManager.createDocumentObject( "segment" );
+		// leave some bytes of a longer segment to be truncated
+		documentObject.write( new byte[10000], 0, 10000 );
+		ColumnarFactTableSegment.save( documentObject,
+				positions,
+				measures,
+				3,
+				measureInfo );
+		long length = documentObject.length( );
+		assertTrue( length < 10000 );
+		documentObject.close( );
+
+		documentObject = documentManager.openDocumentObject( "segment" );
+		ColumnarFactTableSegment segment = new ColumnarFactTableSegment( documentObject,
+				measureInfo );
+		assertEquals( 100, segment.getRowCount( ) );
+		assertEquals( 20, segment.getMinPosition( 0 ) );
+		assertEquals( 20, segment.getMaxPosition( 0 ) );
+		assertEquals( 1000, segment.getMinPosition( 1 ) );
+		assertEquals( 1099, segment.getMaxPosition( 1 ) );
+		assertEquals( 703, segment.getMinPosition( 2 ) );
+		assertEquals( 1000, segment.getMaxPosition( 2 ) );
+
+		assertTrue( segment.isInRange( 1, new int[]{
+				5, 1050
+		} ) );
+		assertTrue( segment.isInRange( 1, new int[]{
+				1000
+		} ) );
+		assertFalse( segment.isInRange( 1, new int[]{
+				5, 999, 1100
+		} ) );
+
+		// read the measures out of the order they are saved
+		for ( int i = positions.length - 1; i >= 0; i-- )
+		{
+			assertEquals( measures[i][2], segment.getMeasure( 2, i ) );
+		}
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			int[] position = segment.getDimensionPosition( i );
+			for ( int j = 0; j < position.length; j++ )
+			{
+				assertEquals( positions[i][j], position[j] );
+			}
+			assertEquals( measures[i][0], segment.getMeasure( 0, i ) );
+			assertEquals( measures[i][1], segment.getMeasure( 1, i ) );
+		}
+		documentObject.close( );
+		documentManager.close( );
+	}
+}
@@ -17,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import junit.framework.TestCase;
 
@@ -225,12 +226,23 @@ public class FactTableHelperTest extends TestCase
 	public void testFactTableSaveAndLoad1( ) throws IOException, BirtException
 	{
 		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( );
-		testFactTableSaveAndLoad1( documentManager );
+		testFactTableSaveAndLoad1( documentManager, true );
 		documentManager.close( );
 	}
 	
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testFactTableSaveAndLoadRowFormat( ) throws IOException, BirtException
+	{
+		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( );
+		testFactTableSaveAndLoad1( documentManager, false );
+		documentManager.close( );
+	}
 
-	private void testFactTableSaveAndLoad1( IDocumentManager documentManager ) throws IOException, BirtException
+	private void testFactTableSaveAndLoad1( IDocumentManager documentManager, boolean columnar ) throws IOException, BirtException
 	{
 		Dimension[] dimensions = new Dimension[3];
 		
@@ -267,6 +279,7 @@ public class FactTableHelperTest extends TestCase
 		measureColumnName[0] = "measure1";
 		measureColumnName[1] = "measure2";
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+		factTableConstructor.setColumnar( columnar );
 		FactTable factTable = factTableConstructor.saveFactTable( NamingUtil.getFactTableName( "threeDimensions" ),
 				CubeUtility.getKeyColNames(dimensions),
 				CubeUtility.getKeyColNames(dimensions),
@@ -278,6 +291,7 @@ public class FactTableHelperTest extends TestCase
 		factTable = factTableConstructor.load( NamingUtil.getFactTableName( "threeDimensions" ),
 				new StopSign( ) );
 		assertEquals(factTable.getSegmentCount( ), 1);
+		assertEquals( columnar, factTable.isColumnar( ) );
 		assertEquals(factTable.getDimensionInfo( )[0].getDimensionName(), "dimension1" );
 		assertEquals(factTable.getDimensionInfo( )[0].getDimensionLength(), 3 );
 		assertEquals(factTable.getDimensionInfo( )[1].getDimensionName(), "dimension2" );
@@ -326,6 +340,44 @@ public class FactTableHelperTest extends TestCase
 		assertEquals(new Double(212), facttableRowIterator.getMeasure( 1 ));
 		
 		assertFalse( facttableRowIterator.next( ));
+		
+		// the parallel scan returns the same rows in the same order
+		ExecutorService executor = ParallelFactTableRowIterator.newExecutor( 2 );
+		ParallelFactTableRowIterator parallelRowIterator = new ParallelFactTableRowIterator( factTable,
+				dimensionNames,
+				dimensionPosition,
+				executor,
+				2,
+				new StopSign( ) );
+		int[][] expectedPositions = {
+				{
+						0, 1, 3
+				}, {
+						0, 1, 4
+				}, {
+						1, 2, 5
+				}, {
+						1, 2, 6
+				}
+		};
+		int[] expectedMeasures = {
+				121, 122, 211, 212
+		};
+		for ( int i = 0; i < expectedPositions.length; i++ )
+		{
+			assertTrue( parallelRowIterator.next( ) );
+			equal( expectedPositions[i],
+					parallelRowIterator.getDimensionPosition( ) );
+			assertEquals( new Integer( expectedMeasures[i] ),
+					parallelRowIterator.getMeasure( 0 ) );
+			assertEquals( new Double( expectedMeasures[i] ),
+					parallelRowIterator.getMeasure( 1 ) );
+		}
+		assertFalse( parallelRowIterator.next( ) );
+		parallelRowIterator.close( );
+		// the executor is left to the other iterators
+		assertFalse( executor.isShutdown( ) );
+		executor.shutdown( );
 	}
 	
 	/**
@@ -571,6 +623,116 @@ public class FactTableHelperTest extends TestCase
 		System.out.println( "Finish iterator... time: "  + (System.currentTimeMillis( ) - startTime)/1000);
 	}
 	
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testFactTableSaveInParallel( ) throws IOException,
+			BirtException
+	{
+		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( );
+		testFactTableSaveInParallel( documentManager, true, null );
+		documentManager.close( );
+	}
+
+	/**
+	 * 
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	public void testFactTableSaveInParallelWithAggregation( )
+			throws IOException, BirtException
+	{
+		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( );
+		testFactTableSaveInParallel( documentManager, false, new String[]{
+				"SUM", "SUM"
+		} );
+		documentManager.close( );
+	}
+
+	private void testFactTableSaveInParallel( IDocumentManager documentManager,
+			boolean columnar, String[] measureAggregations )
+			throws IOException, BirtException
+	{
+		Dimension[] dimensions = new Dimension[3];
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			String[] levelNames = new String[]{
+				"dimension" + ( i + 1 )
+			};
+			DimensionForTest iterator = new DimensionForTest( levelNames );
+			int[] data = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[i]];
+			for ( int j = 0; j < data.length; j++ )
+			{
+				data[j] = j;
+			}
+			iterator.setLevelMember( 0, data );
+			ILevelDefn[] levelDefs = new ILevelDefn[]{
+				new LevelDefinition( levelNames[0], levelNames, null )
+			};
+			dimensions[i] = (Dimension) DimensionFactory.createDimension( levelNames[0],
+					documentManager,
+					iterator,
+					levelDefs,
+					false,
+					new StopSign( ) );
+		}
+		String[] measureColumnName = new String[]{
+				"measure1", "measure2"
+		};
+		FactTable[] factTables = new FactTable[2];
+		int[] threadCount = new int[]{
+				1, 4
+		};
+		for ( int i = 0; i < factTables.length; i++ )
+		{
+			FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+			factTableConstructor.setColumnar( columnar );
+			factTableConstructor.setThreadCount( threadCount[i] );
+			factTableConstructor.saveFactTable( NamingUtil.getFactTableName( "bigThreeDimensions"
+					+ i ),
+					CubeUtility.getKeyColNames( dimensions ),
+					CubeUtility.getKeyColNames( dimensions ),
+					new BigLevelsAndFactTableDataset( ),
+					dimensions,
+					measureColumnName,
+					measureAggregations,
+					new StopSign( ) );
+			factTables[i] = factTableConstructor.load( NamingUtil.getFactTableName( "bigThreeDimensions"
+					+ i ),
+					new StopSign( ) );
+			assertEquals( columnar, factTables[i].isColumnar( ) );
+		}
+		assertTrue( factTables[0].getSegmentCount( ) > 1 );
+		assertEquals( factTables[0].getSegmentCount( ),
+				factTables[1].getSegmentCount( ) );
+
+		// the fact table saved in parallel has the same rows
+		FactTableRowIterator expected = new FactTableRowIterator( factTables[0],
+				new String[0],
+				new IDiskArray[0],
+				new StopSign( ) );
+		FactTableRowIterator actual = new FactTableRowIterator( factTables[1],
+				new String[0],
+				new IDiskArray[0],
+				new StopSign( ) );
+		int rowCount = 0;
+		while ( expected.next( ) )
+		{
+			assertTrue( actual.next( ) );
+			equal( expected.getDimensionPosition( ),
+					actual.getDimensionPosition( ) );
+			assertEquals( expected.getMeasure( 0 ), actual.getMeasure( 0 ) );
+			assertEquals( expected.getMeasure( 1 ), actual.getMeasure( 1 ) );
+			rowCount++;
+		}
+		assertFalse( actual.next( ) );
+		assertEquals( 100 * 100 * 10, rowCount );
+		expected.close( );
+		actual.close( );
+	}
+	
 	private static String[] distinct( String[] sValues )
 	{
 		Arrays.sort( sValues );
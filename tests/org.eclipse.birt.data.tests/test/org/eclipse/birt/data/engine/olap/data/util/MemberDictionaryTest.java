@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.math.BigDecimal;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.data.engine.olap.data.api.ISelection;
+import org.eclipse.birt.data.engine.olap.data.impl.SelectionFactory;
+
+/**
+ *
+ */
+
+public class MemberDictionaryTest extends TestCase
+{
+
+	/**
+	 *
+	 * @param count
+	 * @return the keys 0, 2, 4, ... as integers
+	 */
+	private static Object[][] createIntegerKeys( int count )
+	{
+		Object[][] keys = new Object[count][];
+		for ( int i = 0; i < count; i++ )
+		{
+			keys[i] = new Object[]{
+				Integer.valueOf( i * 2 )
+			};
+		}
+		return keys;
+	}
+
+	public void testIndexOf( )
+	{
+		MemberDictionary dictionary = new MemberDictionary( createIntegerKeys( 1000 ) );
+		assertEquals( 1000, dictionary.size( ) );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			assertEquals( i, dictionary.indexOf( new Object[]{
+				Integer.valueOf( i * 2 )
+			} ) );
+			assertEquals( -1, dictionary.indexOf( new Object[]{
+				Integer.valueOf( i * 2 + 1 )
+			} ) );
+		}
+		// keys of another data type are found by binary search
+		assertEquals( 5, dictionary.indexOf( new Object[]{
+			Double.valueOf( 10 )
+		} ) );
+	}
+
+	public void testMultiColumnKeys( )
+	{
+		Object[][] keys = new Object[][]{
+				{
+						"a", Integer.valueOf( 1 )
+				}, {
+						"a", Integer.valueOf( 2 )
+				}, {
+						"b", null
+				}, {
+						"b", Integer.valueOf( 1 )
+				}
+		};
+		MemberDictionary dictionary = new MemberDictionary( keys );
+		assertEquals( 1, dictionary.indexOf( new Object[]{
+				"a", Integer.valueOf( 2 )
+		} ) );
+		assertEquals( 2, dictionary.indexOf( new Object[]{
+				"b", null
+		} ) );
+		assertEquals( -1, dictionary.indexOf( new Object[]{
+				"c", Integer.valueOf( 1 )
+		} ) );
+	}
+
+	public void testNotHashableKeys( )
+	{
+		Object[][] keys = new Object[][]{
+				{
+					new BigDecimal( "1.0" )
+				}, {
+					new BigDecimal( "2.0" )
+				}
+		};
+		MemberDictionary dictionary = new MemberDictionary( keys );
+		assertEquals( 0, dictionary.indexOf( new Object[]{
+			new BigDecimal( "1.00" )
+		} ) );
+		assertEquals( -1, dictionary.indexOf( new Object[]{
+			new BigDecimal( "3" )
+		} ) );
+	}
+
+	public void testBounds( )
+	{
+		MemberDictionary dictionary = new MemberDictionary( createIntegerKeys( 10 ) );
+		assertEquals( 0, dictionary.lowerBound( new Object[]{
+			Integer.valueOf( -1 )
+		} ) );
+		assertEquals( 3, dictionary.lowerBound( new Object[]{
+			Integer.valueOf( 6 )
+		} ) );
+		assertEquals( 4, dictionary.upperBound( new Object[]{
+			Integer.valueOf( 6 )
+		} ) );
+		assertEquals( 4, dictionary.lowerBound( new Object[]{
+			Integer.valueOf( 7 )
+		} ) );
+		assertEquals( 10, dictionary.upperBound( new Object[]{
+			Integer.valueOf( 100 )
+		} ) );
+	}
+
+	public void testFind( )
+	{
+		MemberDictionary dictionary = new MemberDictionary( createIntegerKeys( 100 ) );
+		ISelection[] selections = new ISelection[]{
+				SelectionFactory.createRangeSelection( new Object[]{
+					Integer.valueOf( 10 )
+				}, new Object[]{
+					Integer.valueOf( 16 )
+				}, true, false ),
+				SelectionFactory.createOneKeySelection( new Object[]{
+					Integer.valueOf( 100 )
+				} ),
+				SelectionFactory.createMutiKeySelection( new Object[][]{
+						{
+							Integer.valueOf( 12 )
+						}, {
+							Integer.valueOf( 3 )
+						}, {
+							Integer.valueOf( 0 )
+						}
+				} ),
+				SelectionFactory.createRangeSelection( null, new Object[]{
+					Integer.valueOf( 2 )
+				}, true, true ),
+		};
+		int[] result = dictionary.find( selections );
+		int[] expected = new int[]{
+				0, 1, 5, 6, 7, 50
+		};
+		assertEquals( expected.length, result.length );
+		for ( int i = 0; i < expected.length; i++ )
+		{
+			assertEquals( expected[i], result[i] );
+		}
+		assertEquals( 0, dictionary.find( new ISelection[]{
+			SelectionFactory.createEmptySelection( )
+		} ).length );
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for PositionBitmap
+ */
+
+public class PositionBitmapTest extends TestCase
+{
+
+	/**
+	 * 
+	 */
+	public void testAddAndContains( )
+	{
+		PositionBitmap bitmap = PositionBitmap.valueOf( new int[]{
+				70000, 5, 3, 5, 65536, 0
+		} );
+		assertEquals( 5, bitmap.size( ) );
+		assertTrue( bitmap.contains( 0 ) );
+		assertTrue( bitmap.contains( 65536 ) );
+		assertTrue( bitmap.contains( 70000 ) );
+		assertFalse( bitmap.contains( 4 ) );
+		assertFalse( bitmap.contains( 65535 ) );
+		assertFalse( bitmap.contains( -1 ) );
+		equal( new int[]{
+				0, 3, 5, 65536, 70000
+		}, bitmap.toArray( ) );
+		assertTrue( new PositionBitmap( ).isEmpty( ) );
+	}
+
+	/**
+	 * Compare the operations on the dense and sparse chunks with TreeSet.
+	 */
+	public void testOperations( )
+	{
+		Random random = new Random( 0 );
+		int[] ranges = {
+				3000, 70000, 300000
+		};
+		for ( int i = 0; i < ranges.length; i++ )
+		{
+			TreeSet set1 = new TreeSet( );
+			TreeSet set2 = new TreeSet( );
+			PositionBitmap bitmap1 = new PositionBitmap( );
+			PositionBitmap bitmap2 = new PositionBitmap( );
+			for ( int j = 0; j < 20000; j++ )
+			{
+				int value1 = random.nextInt( ranges[i] );
+				set1.add( Integer.valueOf( value1 ) );
+				bitmap1.add( value1 );
+				if ( j % 4 == 0 )
+				{
+					int value2 = random.nextInt( ranges[i] );
+					set2.add( Integer.valueOf( value2 ) );
+					bitmap2.add( value2 );
+				}
+			}
+			equal( set1, bitmap1.toArray( ) );
+			for ( int j = 0; j < 1000; j++ )
+			{
+				int value = random.nextInt( ranges[i] );
+				assertEquals( set1.contains( Integer.valueOf( value ) ),
+						bitmap1.contains( value ) );
+			}
+
+			TreeSet intersection = new TreeSet( set1 );
+			intersection.retainAll( set2 );
+			equal( intersection, bitmap1.and( bitmap2 ).toArray( ) );
+			equal( intersection, bitmap2.and( bitmap1 ).toArray( ) );
+
+			TreeSet union = new TreeSet( set1 );
+			union.addAll( set2 );
+			equal( union, bitmap1.or( bitmap2 ).toArray( ) );
+			equal( union, bitmap2.or( bitmap1 ).toArray( ) );
+			// the operands are not changed
+			equal( set1, bitmap1.toArray( ) );
+		}
+	}
+
+	/**
+	 * 
+	 * @throws IOException
+	 */
+	public void testPositionIntersection( ) throws IOException
+	{
+		IDiskArray array1 = new BufferedPrimitiveDiskArray( );
+		IDiskArray array2 = new BufferedPrimitiveDiskArray( );
+		int[] values1 = {
+				9, 1, 4, 100000, 7
+		};
+		int[] values2 = {
+				7, 100000, 2, 9, 3
+		};
+		for ( int i = 0; i < values1.length; i++ )
+		{
+			array1.add( Integer.valueOf( values1[i] ) );
+			array2.add( Integer.valueOf( values2[i] ) );
+		}
+		IDiskArray result = SetUtil.getPositionIntersection( array1, array2 );
+		assertEquals( 3, result.size( ) );
+		assertEquals( Integer.valueOf( 7 ), result.get( 0 ) );
+		assertEquals( Integer.valueOf( 9 ), result.get( 1 ) );
+		assertEquals( Integer.valueOf( 100000 ), result.get( 2 ) );
+		result.close( );
+	}
+
+	private void equal( int[] expected, int[] actual )
+	{
+		assertEquals( expected.length, actual.length );
+		for ( int i = 0; i < expected.length; i++ )
+		{
+			assertEquals( expected[i], actual[i] );
+		}
+	}
+
+	private void equal( TreeSet expected, int[] actual )
+	{
+		int[] values = new int[expected.size( )];
+		int i = 0;
+		for ( Iterator itr = expected.iterator( ); itr.hasNext( ); )
+		{
+			values[i++] = ( (Integer) itr.next( ) ).intValue( );
+		}
+		equal( values, actual );
+	}
+}
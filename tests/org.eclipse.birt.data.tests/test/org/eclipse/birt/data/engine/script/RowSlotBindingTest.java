@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.script;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the binding of column names to the slots of the row value cache.
+ */
+public class RowSlotBindingTest extends TestCase
+{
+
+	/**
+	 * The names are bound to the next free slots once.
+	 */
+	public void testBindNext( )
+	{
+		RowSlotBinding binding = new RowSlotBinding( );
+		assertEquals( RowSlotBinding.UNBOUND, binding.getSlot( "a" ) );
+		assertEquals( 0, binding.bindNext( "a" ) );
+		assertEquals( 1, binding.bindNext( "b" ) );
+		assertEquals( 0, binding.bindNext( new String( "a" ) ) );
+		assertEquals( 1, binding.getSlot( "b" ) );
+		assertEquals( 2, binding.size( ) );
+
+		binding.bind( "a", 5 );
+		assertEquals( 5, binding.getSlot( "a" ) );
+		assertEquals( 2, binding.size( ) );
+	}
+
+	/**
+	 * The table grows while the bound slots are kept.
+	 */
+	public void testRehash( )
+	{
+		RowSlotBinding binding = new RowSlotBinding( );
+		for ( int i = 0; i < 100; i++ )
+			assertEquals( i, binding.bindNext( "col" + i ) );
+		assertEquals( 100, binding.size( ) );
+		for ( int i = 0; i < 100; i++ )
+			assertEquals( i, binding.getSlot( "col" + i ) );
+		assertEquals( RowSlotBinding.UNBOUND, binding.getSlot( "col100" ) );
+
+		binding.clear( );
+		assertEquals( 0, binding.size( ) );
+		assertEquals( RowSlotBinding.UNBOUND, binding.getSlot( "col1" ) );
+		assertEquals( 0, binding.bindNext( "col1" ) );
+	}
+}